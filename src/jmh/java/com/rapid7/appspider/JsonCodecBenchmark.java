@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.ClientIdNamePair;
+import com.rapid7.appspider.datatransferobjects.ScanResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * decodes the responses read on every build with each {@link JsonCodec}, bodies are shaped like
+ * those returned by AppSpider Enterprise including the fields the client ignores
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class JsonCodecBenchmark {
+
+    private static final int CLIENT_COUNT = 100;
+
+    @Param({OrgJsonCodec.NAME, JacksonStreamingCodec.NAME})
+    public String codecName;
+
+    private JsonCodec codec;
+    private byte[] login;
+    private byte[] status;
+    private byte[] scanResult;
+    private byte[] clients;
+
+    @Setup
+    public void setUp() {
+        codec = codecName.equals(JacksonStreamingCodec.NAME) ? new JacksonStreamingCodec() : new OrgJsonCodec();
+        login = bytes("{\"IsSuccess\":true,\"UserInfo\":{\"Id\":\"5f3c8a2e-1b7d-4e9a-9c61-0d2f4b8e7a13\",\"Name\":\"jenkins\","
+            + "\"Roles\":[\"ScanManager\",\"Reporter\"]},\"Token\":\"" + "a".repeat(256) + "\",\"ErrorMessage\":null}");
+        status = bytes("{\"IsSuccess\":true,\"Status\":\"Running\",\"ErrorMessage\":null}");
+        scanResult = bytes("{\"IsSuccess\":true,\"Scan\":{\"Id\":\"0b9e4c1a-7d2f-4a8e-b3c5-6e1f9d0a2b47\",\"ConfigId\":"
+            + "\"c2a7e9f1-3b4d-4c6e-8a0b-1d2e3f4a5b6c\",\"Status\":\"Queued\",\"Started\":null},\"ErrorMessage\":null}");
+        StringBuilder body = new StringBuilder("{\"IsSuccess\":true,\"Clients\":[");
+        for (int i = 0; i < CLIENT_COUNT; i++) {
+            if (i > 0)
+                body.append(',');
+            body.append(String.format("{\"ClientId\":\"00000000-0000-0000-0000-%012d\",\"ClientName\":\"Client %d\","
+                + "\"IsActive\":true,\"Engines\":[{\"Id\":\"%d\",\"Name\":\"engine\"}]}", i, i, i));
+        }
+        clients = bytes(body.append("],\"ErrorMessage\":null}").toString());
+    }
+
+    @Benchmark
+    public Optional<String> decodeLogin() throws IOException {
+        return codec.decodeToken(new ByteArrayInputStream(login));
+    }
+
+    @Benchmark
+    public Optional<String> decodeStatus() throws IOException {
+        return codec.decodeStatus(new ByteArrayInputStream(status));
+    }
+
+    @Benchmark
+    public ScanResult decodeScanResult() throws IOException {
+        return codec.decodeScanResult(new ByteArrayInputStream(scanResult));
+    }
+
+    @Benchmark
+    public Optional<List<ClientIdNamePair>> decodeClients() throws IOException {
+        return codec.decodeClients(new ByteArrayInputStream(clients));
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
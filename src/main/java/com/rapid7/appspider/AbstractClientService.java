@@ -0,0 +1,316 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.util.EntityUtils;
+
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * builds the requests sent by {@link ClientService} implementations and decides how failed
+ * attempts are retried, leaving how each attempt is sent and how the wait between attempts is
+ * spent to each implementation
+ */
+public abstract class AbstractClientService implements ClientService {
+
+    protected final LoggerFacade logger;
+
+    protected AbstractClientService(LoggerFacade logger) {
+        this.logger = logger;
+    }
+
+    private static final String BASIC_AUTHENTICATION_FORMAT = "Basic %s";
+    private static final String AUTHENTICATION_LOGIN_PATH = "/Authentication/Login";
+    private static final long RATE_LIMIT_REPORTING_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    /**
+     * sends a single attempt of a request
+     */
+    @FunctionalInterface
+    protected interface Attempt {
+        /**
+         * @param attempt number of the attempt, starting at 1
+         * @return future completed with the response, or exceptionally if no response was received
+         */
+        CompletableFuture<HttpResponse> send(int attempt);
+    }
+
+    /**
+     * waits before the next attempt of a request
+     * @param delayMillis time to wait in milliseconds
+     * @param path path of the request, used in error messages
+     * @return future completed once delayMillis has passed, or exceptionally with an
+     *         InterruptedIOException if the wait was interrupted
+     */
+    protected abstract CompletableFuture<Void> delay(long delayMillis, String path);
+
+    /**
+     * sends request, retrying failed attempts up to maxAttempts times in total. GET and HEAD requests,
+     * and login, are retried using {@link RetryPolicy#forIdempotentRequests(int)}; other requests
+     * using {@link RetryPolicy#forNonIdempotentRequests(int)}. Requests whose entity can't be sent
+     * twice are sent once. Retries to each server are limited by its {@link RetryBudget}
+     * @param request request being sent
+     * @param maxAttempts maximum number of attempts including the first
+     * @param attempt sends each attempt
+     * @return future completed with the response of the last attempt, or exceptionally with the
+     *         failure of the last attempt
+     */
+    protected CompletableFuture<HttpResponse> sendWithRetries(HttpRequestBase request, int maxAttempts, Attempt attempt) {
+        if (maxAttempts == 1 || !isRepeatable(request))
+            return send(attempt, 1);
+
+        String server = Objects.toString(request.getURI().getAuthority(), "");
+        RetryPolicy policy = isIdempotent(request)
+            ? RetryPolicy.forIdempotentRequests(maxAttempts)
+            : RetryPolicy.forNonIdempotentRequests(maxAttempts);
+        RetryBudget budget = RetryBudget.forServer(server);
+        budget.onRequest();
+        return sendWithRetries(request.getURI().getPath(), server, policy, budget, attempt, 1);
+    }
+
+    private CompletableFuture<HttpResponse> sendWithRetries(String path, String server, RetryPolicy policy, RetryBudget budget,
+                                                            Attempt attempt, int number) {
+        return send(attempt, number).handle((response, failure) -> {
+            Throwable cause = unwrap(failure);
+            boolean shouldRetry = Objects.isNull(cause)
+                ? policy.shouldRetry(number, response)
+                : cause instanceof IOException && policy.shouldRetry(number, (IOException) cause);
+            if (!shouldRetry)
+                return Objects.isNull(cause)
+                    ? CompletableFuture.completedFuture(response)
+                    : CompletableFuture.<HttpResponse>failedFuture(cause);
+
+            String description = Objects.isNull(cause) ? response.getStatusLine().toString() : cause.toString();
+            if (!budget.tryWithdraw()) {
+                logger.println(String.format("Request to %s failed (%s), retry budget for %s is exhausted so it won't be retried",
+                    path, description, server));
+                return Objects.nonNull(response)
+                    ? CompletableFuture.completedFuture(response)
+                    : CompletableFuture.<HttpResponse>failedFuture(new ServerUnavailableException(String.format(
+                        "Request to %s failed and retry budget for %s is exhausted: %s", path, server, description)));
+            }
+            long delayMillis = policy.backoffMillis(number, response);
+            if (Objects.nonNull(response))
+                EntityUtils.consumeQuietly(response.getEntity());
+            logger.println(String.format("Request to %s failed (%s), retrying in %d ms (attempt %d of %d)",
+                path, description, delayMillis, number + 1, policy.getMaxAttempts()));
+            return delay(delayMillis, path)
+                .thenCompose(ignored -> sendWithRetries(path, server, policy, budget, attempt, number + 1));
+        }).thenCompose(Function.identity());
+    }
+
+    private static CompletableFuture<HttpResponse> send(Attempt attempt, int number) {
+        try {
+            return attempt.send(number);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * reserves a permit from the rate limiter of the request's server and endpoint class, reporting long waits
+     * @param limits maximum request rates per endpoint class
+     * @param server server the request is sent to
+     * @param path path of the request
+     * @return time in nanoseconds to wait before sending the request, 0 if it may be sent now
+     */
+    protected long reserveRateLimit(RequestRateLimits limits, String server, String path) {
+        Optional<RateLimiter> limiter = limits.limiterFor(server, path);
+        if (limiter.isEmpty())
+            return 0;
+        long waitNanos = limiter.get().reserve();
+        if (waitNanos >= RATE_LIMIT_REPORTING_THRESHOLD_NANOS)
+            logger.println(String.format("AppSpider Enterprise request rate limit reached, waiting %d ms before sending request to %s",
+                TimeUnit.NANOSECONDS.toMillis(waitNanos), path));
+        return waitNanos;
+    }
+
+    /**
+     * @param failure failure of a future, possibly wrapped by a dependent stage
+     * @return the failure itself rather than the CompletionException wrapping it, null if failure is null
+     */
+    protected static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && Objects.nonNull(failure.getCause())
+            ? failure.getCause()
+            : failure;
+    }
+
+    private static boolean isRepeatable(HttpRequestBase request) {
+        if (!(request instanceof HttpEntityEnclosingRequest))
+            return true;
+        HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+        return Objects.isNull(entity) || entity.isRepeatable();
+    }
+
+    private static boolean isIdempotent(HttpRequestBase request) {
+        String method = request.getMethod();
+        return HttpGet.METHOD_NAME.equals(method)
+            || HttpHead.METHOD_NAME.equals(method)
+            || Objects.toString(request.getURI().getPath(), "").endsWith(AUTHENTICATION_LOGIN_PATH);
+    }
+
+    /**
+     * Builds a HttpGet request object for the endpoint given by endpoint using authToken as basic authentication header
+     * @param endpoint endpoint to perform get request on
+     * @param authToken authorization token for basic authentication
+     * @return Optional of HttpGet containing the request object
+     * @throws IllegalArgumentException when either endpoint or authToken are null or empty
+     */
+    @Override
+    public Optional<HttpGet> buildGetRequestUsingFormUrlEncoding(String endpoint, String authToken) {
+        ensureArgumentsValid(endpoint, authToken);
+
+        HttpGet request = new HttpGet(endpoint);
+        request.addHeader(HttpHeaders.CONTENT_TYPE,  MediaType.APPLICATION_FORM_URLENCODED);
+        request.addHeader(HttpHeaders.AUTHORIZATION, String.format(BASIC_AUTHENTICATION_FORMAT, authToken));
+
+        return Optional.of(request);
+    }
+
+    /**
+     * builds a HttpGet request object for the given endpoint using authToken as basic authentication header and params
+     * as additional URL key/value parameters
+     * @param endpoint endpoint to perform get request on
+     * @param authToken authorization token for basic authentication
+     * @param params name/value pairs encoded and added to endpoint
+     * @return Optional of HttpGet containing the request object
+     * @throws IllegalArgumentException when either endpoint or authToken are null or empty
+     */
+    @Override
+    public Optional<HttpGet> buildGetRequestUsingFormUrlEncoding(String endpoint, String authToken, NameValuePair... params) {
+        if (Objects.isNull(params) || params.length == 0)
+            return buildGetRequestUsingFormUrlEncoding(endpoint, authToken);
+
+        ensureArgumentsValid(endpoint, authToken);
+        try {
+            URIBuilder builder = new URIBuilder(endpoint);
+            builder.addParameters(Arrays.asList(params));
+
+            return buildGetRequestUsingFormUrlEncoding(builder.build().toString(), authToken);
+
+        } catch (URISyntaxException e) {
+            logger.severe(e.toString());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * builds a HttpGet request object for the given endpoint using authToken as basic authentication header.
+     * Request is sent using Content-Type and Accept as Application/json
+     * @param endpoint endpoint to perform get request on
+     * @param authToken authorization token for basic authentication
+     * @return Optional of HttpGet containing the request object
+     * @throws IllegalArgumentException when either endpoint or authToken are null or empty
+     */
+    @Override
+    public Optional<HttpGet> buildGetAcceptionApplicatonJson(String endpoint, String authToken) {
+        ensureArgumentsValid(endpoint, authToken);
+
+        HttpGet request = new HttpGet(endpoint);
+        request.addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON); // not strictly required but also no harm
+        request.addHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON);
+        request.addHeader(HttpHeaders.AUTHORIZATION, String.format(BASIC_AUTHENTICATION_FORMAT, authToken));
+        return Optional.of(request);
+    }
+
+    /**
+     * builds a HttpPost request object for the given endpoint containing the provided body content
+     * body will be posted using Content-Type of application/json
+     * @param endpoint endpoint to perform post request on
+     * @param body JSON body to be sent with the request
+     * @return Optional of HttpPost containg the request object
+     */
+    @Override
+    public Optional<HttpPost> buildPostRequestUsingApplicationJson(String endpoint, HttpEntity body) {
+        ensureArgumentsValid(endpoint, body);
+
+        HttpPost request = new HttpPost(endpoint);
+        request.addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
+        request.setEntity(body);
+        return Optional.of(request);
+    }
+
+    /**
+     * builds a HttpPost request object for the given endpoint containing the provided body content
+     * body will be posted using Content-Type as application/x-www-form-urlencoded
+     * @param endpoint endpoint to perform post request on
+     * @param authToken authorization token for basic authentication
+     * @param params name/value pairs sent as the entity of the request
+     * @return Optional of HttpPost containg the request object
+     */
+    @Override
+    public Optional<HttpPost> buildPostRequestUsingFormUrlEncoding(String endpoint, String authToken, NameValuePair... params) {
+        ensureArgumentsValid(endpoint, authToken);
+
+        HttpPost request = new HttpPost(endpoint);
+        request.addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED);
+        request.addHeader(HttpHeaders.AUTHORIZATION, String.format(BASIC_AUTHENTICATION_FORMAT, authToken));
+
+        try {
+            request.setEntity(new UrlEncodedFormEntity(Arrays.asList(params)));
+            return Optional.of(request);
+
+        } catch (UnsupportedEncodingException e) {
+            logger.severe(e.toString());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * builds a HttpPost request object for the given endpoint sending the provided form entity as is,
+     * allowing callers to supply entities which encode their content as it is written
+     * body will be posted using Content-Type as application/x-www-form-urlencoded
+     * @param endpoint endpoint to perform post request on
+     * @param authToken authorization token for basic authentication
+     * @param formEntity url encoded form entity sent as the entity of the request
+     * @return Optional of HttpPost containg the request object
+     * @throws IllegalArgumentException when either endpoint or authToken are null or empty, or formEntity is null
+     */
+    @Override
+    public Optional<HttpPost> buildPostRequestUsingFormUrlEncoding(String endpoint, String authToken, HttpEntity formEntity) {
+        ensureArgumentsValid(endpoint, authToken);
+        ensureArgumentsValid(endpoint, formEntity);
+
+        HttpPost request = new HttpPost(endpoint);
+        request.addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED);
+        request.addHeader(HttpHeaders.AUTHORIZATION, String.format(BASIC_AUTHENTICATION_FORMAT, authToken));
+        request.setEntity(formEntity);
+        return Optional.of(request);
+    }
+
+    private static void ensureArgumentsValid(String endpoint, String authToken) {
+        if (Objects.isNull(endpoint) || endpoint.isEmpty())
+            throw new IllegalArgumentException("endpoint cannot be null or empty");
+        if (Objects.isNull(authToken) || authToken.isEmpty())
+            throw new IllegalArgumentException("authToken cannot be null or empty");
+    }
+    private static void ensureArgumentsValid(String endpoint, HttpEntity body) {
+        if (Objects.isNull(endpoint) || endpoint.isEmpty())
+            throw new IllegalArgumentException("endpoint cannot be null or empty");
+        if (Objects.isNull(body))
+            throw new IllegalArgumentException("body cannot be null");
+    }
+}
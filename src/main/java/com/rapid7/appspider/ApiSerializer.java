@@ -9,14 +9,22 @@ import com.rapid7.appspider.datatransferobjects.ScanResult;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
 import hudson.model.Api;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.util.*;
 
 public final class ApiSerializer {
@@ -150,6 +158,69 @@ public final class ApiSerializer {
     public String getScanConfigXml(Template template, String name, URL targetURL) throws IOException, TemplateException {
         if (Objects.isNull(template))
             throw new IllegalArgumentException("template cannot be null");
+
+        StringWriter scanConfigXml = new StringWriter();
+        template.process(getScanConfigTemplateData(name, targetURL), scanConfigXml);
+
+        return scanConfigXml.toString();
+    }
+
+    /**
+     * renders the scan config XML document using template and templateData directly to writer
+     * without building the document in memory
+     * @param template template used to produce XML
+     * @param templateData data model returned by {@link #getScanConfigTemplateData(String, URL)}
+     * @param writer destination of the rendered XML
+     * @throws IOException thrown if I/O error occurs during template processing, template errors
+     *                     are also reported as IOException since the output may already be partially written
+     * @throws IllegalArgumentException if any of the provided arguments are null
+     */
+    public void writeScanConfigXml(Template template, Map<String, String> templateData, Writer writer) throws IOException {
+        if (Objects.isNull(template))
+            throw new IllegalArgumentException("template cannot be null");
+        if (Objects.isNull(templateData))
+            throw new IllegalArgumentException("templateData cannot be null");
+        if (Objects.isNull(writer))
+            throw new IllegalArgumentException("writer cannot be null");
+        try {
+            template.process(templateData, writer);
+        } catch (TemplateException e) {
+            throw new IOException("unable to render scan config", e);
+        }
+    }
+
+    /**
+     * computes a SHA-256 digest over the rendered scan config XML and engineGroupId, rendering the
+     * XML directly into the digest rather than building the document in memory
+     * @param template template used to produce XML
+     * @param templateData data model returned by {@link #getScanConfigTemplateData(String, URL)}
+     * @param engineGroupId unique engine group id the config is saved with
+     * @return lower case hex encoded digest
+     * @throws IOException thrown if I/O error occurs during template processing
+     * @throws IllegalArgumentException if any of the provided arguments are null
+     */
+    public String getScanConfigDigest(Template template, Map<String, String> templateData, String engineGroupId) throws IOException {
+        if (Objects.isNull(engineGroupId))
+            throw new IllegalArgumentException("engineGroupId cannot be null");
+
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        try (Writer writer = new OutputStreamWriter(new DigestOutputStream(OutputStream.nullOutputStream(), digest), StandardCharsets.UTF_8)) {
+            writeScanConfigXml(template, templateData, writer);
+            writer.write('\0');
+            writer.write(engineGroupId);
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * builds the data model used by the scan config template for the given name and target
+     * @param name name of the new scan config
+     * @param targetURL target of the scan config
+     * @return Map of template variable names to values
+     * @throws IllegalArgumentException if any of the provided arguments are null, or in the case of Strings empty
+     * @throws MalformedURLException if the wildcard variants of targetURL are not valid URLs
+     */
+    public Map<String, String> getScanConfigTemplateData(String name, URL targetURL) throws MalformedURLException {
         if (Objects.isNull(name) || name.isEmpty())
             throw new IllegalArgumentException("name cannot be null or empty");
         if (Objects.isNull(targetURL))
@@ -172,11 +243,7 @@ public final class ApiSerializer {
         }
         templateData.put("url_wildcard_path", urlWildcardPath.toString());
         templateData.put("url_wildcard_subdomain", urlWildcardSubdomain.toString());
-
-        StringWriter scanConfigXml = new StringWriter();
-        template.process(templateData, scanConfigXml);
-
-        return scanConfigXml.toString();
+        return templateData;
     }
 
     public Optional<String> getScanConfigId(JSONObject config) {
@@ -190,6 +257,20 @@ public final class ApiSerializer {
             return Optional.empty();
         }
     }
+    /**
+     * returns the engine group id of config if it has one
+     * @param config JSONObject representing a scan config
+     * @return Optional containing the engine group id on success; otherwise Optional.empty()
+     */
+    public Optional<String> getScanConfigEngineGroupId(JSONObject config) {
+        if (Objects.isNull(config))
+            return Optional.empty();
+        String engineGroupId = config.optString("EngineGroupId", "");
+        return engineGroupId.isEmpty() || engineGroupId.equals("null")
+            ? Optional.empty()
+            : Optional.of(engineGroupId);
+    }
+
     /**
      * returns the JSONObject for the item in configs with "Name" matching name if found;
      * otherwise Optional.empty()
@@ -231,7 +312,7 @@ public final class ApiSerializer {
             ? Optional.empty()
             : Optional
                 .of(Arrays.stream(keys)
-                .allMatch(jsonObject::getBoolean));
+                .allMatch(key -> jsonObject.optBoolean(key, false)));
     }
 
     /**
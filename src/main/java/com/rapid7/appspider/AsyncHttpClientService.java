@@ -0,0 +1,342 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ClientService} sending requests with the JDK's non-blocking HttpClient, which negotiates
+ * HTTP/2 where the server supports it so that concurrent status polls and catalog fetches share a
+ * few connections instead of holding a thread and a connection each
+ *
+ * <p>
+ * Applies the same server guard, rate limits, timeouts and retries as {@link HttpClientService}
+ * without blocking the calling thread while waiting for any of them. Request entities are streamed
+ * through an {@link EntityPipe} as they are sent. Selected in place of {@link HttpClientService} by setting the system property
+ * {@value #SELECTION_PROPERTY} to true.
+ * </p>
+ */
+public class AsyncHttpClientService extends AbstractClientService {
+
+    public static final String SELECTION_PROPERTY = "com.rapid7.appspider.AsyncHttpClientService.enabled";
+
+    // set by the client from the request and rejected if supplied by the caller
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    private final HttpClient httpClient;
+    private final ContentHelper contentHelper;
+    private final Executor executor;
+    private final Optional<ServerGuardSettings> serverGuardSettings;
+    private final Optional<RequestTimeouts> timeouts;
+    private final int maxAttempts;
+    private final Optional<RequestRateLimits> rateLimits;
+    private final long responseCacheMaxBytes;
+    private final int responseCacheFallbackTtlSeconds;
+
+    /**
+     * @return true if the system property {@value #SELECTION_PROPERTY} selects this implementation
+     */
+    public static boolean isSelected() {
+        return Boolean.getBoolean(SELECTION_PROPERTY);
+    }
+
+    public static AsyncHttpClientService createInstanceOrThrow(HttpClient httpClient, ContentHelper contentHelper, LoggerFacade logger) {
+        if (Objects.isNull(httpClient))
+            throw new IllegalArgumentException("httpClient cannot be null");
+        if (Objects.isNull(contentHelper))
+            throw new IllegalArgumentException("contentHelper cannot be null");
+        if (Objects.isNull(logger))
+            throw new IllegalArgumentException("logger cannot be null");
+        return new AsyncHttpClientService(httpClient, contentHelper, logger, Optional.empty(), Optional.empty(), 1, Optional.empty(), 0, 0);
+    }
+
+    private AsyncHttpClientService(HttpClient httpClient, ContentHelper contentHelper, LoggerFacade logger,
+                                   Optional<ServerGuardSettings> serverGuardSettings, Optional<RequestTimeouts> timeouts,
+                                   int maxAttempts, Optional<RequestRateLimits> rateLimits,
+                                   long responseCacheMaxBytes, int responseCacheFallbackTtlSeconds) {
+        super(logger);
+        this.httpClient = httpClient;
+        this.contentHelper = contentHelper;
+        this.executor = httpClient.executor().orElse(ForkJoinPool.commonPool());
+        this.serverGuardSettings = serverGuardSettings;
+        this.timeouts = timeouts;
+        this.maxAttempts = maxAttempts;
+        this.rateLimits = rateLimits;
+        this.responseCacheMaxBytes = responseCacheMaxBytes;
+        this.responseCacheFallbackTtlSeconds = responseCacheFallbackTtlSeconds;
+    }
+
+    /**
+     * returns a copy of this service sending every request through the {@link ServerGuard} of the
+     * server it is addressed to
+     * @param settings limits applied to requests sent to each server
+     * @return new AsyncHttpClientService using settings
+     * @throws IllegalArgumentException if settings is null
+     */
+    public AsyncHttpClientService withServerGuard(ServerGuardSettings settings) {
+        if (Objects.isNull(settings))
+            throw new IllegalArgumentException("settings cannot be null");
+        return new AsyncHttpClientService(httpClient, contentHelper, logger, Optional.of(settings), timeouts, maxAttempts, rateLimits,
+            responseCacheMaxBytes, responseCacheFallbackTtlSeconds);
+    }
+
+    /**
+     * returns a copy of this service applying the read timeout to every request, the connect timeout
+     * is a property of the HttpClient itself
+     * @param timeouts connect and read timeouts
+     * @return new AsyncHttpClientService using timeouts
+     * @throws IllegalArgumentException if timeouts is null
+     */
+    public AsyncHttpClientService withTimeouts(RequestTimeouts timeouts) {
+        if (Objects.isNull(timeouts))
+            throw new IllegalArgumentException("timeouts cannot be null");
+        return new AsyncHttpClientService(httpClient, contentHelper, logger, serverGuardSettings, Optional.of(timeouts), maxAttempts, rateLimits,
+            responseCacheMaxBytes, responseCacheFallbackTtlSeconds);
+    }
+
+    /**
+     * returns a copy of this service retrying failed requests up to maxAttempts times in total,
+     * following the same policies as {@link HttpClientService#withRetries(int)}
+     * @param maxAttempts maximum number of attempts including the first
+     * @return new AsyncHttpClientService retrying failed requests
+     * @throws IllegalArgumentException if maxAttempts is less than 1
+     */
+    public AsyncHttpClientService withRetries(int maxAttempts) {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        return new AsyncHttpClientService(httpClient, contentHelper, logger, serverGuardSettings, timeouts, maxAttempts, rateLimits,
+            responseCacheMaxBytes, responseCacheFallbackTtlSeconds);
+    }
+
+    /**
+     * returns a copy of this service delaying each request, including retries, until the JVM wide
+     * rate limiter of the request's server and endpoint class grants a permit
+     * @param rateLimits maximum request rates per endpoint class
+     * @return new AsyncHttpClientService using rateLimits
+     * @throws IllegalArgumentException if rateLimits is null
+     */
+    public AsyncHttpClientService withRateLimits(RequestRateLimits rateLimits) {
+        if (Objects.isNull(rateLimits))
+            throw new IllegalArgumentException("rateLimits cannot be null");
+        return new AsyncHttpClientService(httpClient, contentHelper, logger, serverGuardSettings, timeouts, maxAttempts, Optional.of(rateLimits),
+            responseCacheMaxBytes, responseCacheFallbackTtlSeconds);
+    }
+
+    /**
+     * returns a copy of this service answering catalog requests from the {@link ResponseCache} of
+     * the request's server, as {@link HttpClientService#withResponseCache(long, int)} does
+     * @param maxBytes maximum total size of the responses cached per server
+     * @param fallbackTtlSeconds how long responses without validators are reused
+     * @return new AsyncHttpClientService caching catalog responses
+     * @throws IllegalArgumentException if maxBytes is less than 1 or fallbackTtlSeconds is negative
+     */
+    public AsyncHttpClientService withResponseCache(long maxBytes, int fallbackTtlSeconds) {
+        if (maxBytes < 1)
+            throw new IllegalArgumentException("maxBytes must be at least 1");
+        if (fallbackTtlSeconds < 0)
+            throw new IllegalArgumentException("fallbackTtlSeconds cannot be negative");
+        return new AsyncHttpClientService(httpClient, contentHelper, logger, serverGuardSettings, timeouts, maxAttempts, rateLimits,
+            maxBytes, fallbackTtlSeconds);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<JSONObject> executeJsonRequest(HttpRequestBase request) {
+        return await(executeJsonRequestAsync(request));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> Optional<T> executeJsonRequest(HttpRequestBase request, JsonCodec.Decoder<T> decoder) {
+        String path = request.getURI().getPath();
+        return await(execute(request)
+            .thenApply(response -> contentHelper.decodeResponse(response, path, decoder))
+            .exceptionally(this::logFailure));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<HttpEntity> executeEntityRequest(HttpRequestBase request) {
+        return await(executeEntityRequestAsync(request));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Optional<JSONObject>> executeJsonRequestAsync(HttpRequestBase request) {
+        String path = request.getURI().getPath();
+        return execute(request)
+            .thenApply(response -> contentHelper.responseToJSONObject(response, path))
+            .exceptionally(this::logFailure);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Optional<HttpEntity>> executeEntityRequestAsync(HttpRequestBase request) {
+        return execute(request)
+            .thenApply(response -> FunctionalUtility.isSuccessStatusCode(response)
+                ? Optional.of(response.getEntity())
+                : Optional.<HttpEntity>empty())
+            .exceptionally(this::logFailure);
+    }
+
+    private CompletableFuture<HttpResponse> execute(HttpRequestBase request) {
+        String server = Objects.toString(request.getURI().getAuthority(), "");
+        if (responseCacheMaxBytes > 0 && ResponseCache.isInvalidating(request))
+            return executeWithRetries(request)
+                .whenComplete((response, failure) -> ResponseCache.find(server).ifPresent(cache -> cache.invalidate(request)));
+        if (responseCacheMaxBytes == 0 || !ResponseCache.isCacheable(request))
+            return executeWithRetries(request);
+        ResponseCache.Lookup lookup = ResponseCache
+            .forServer(server, responseCacheMaxBytes, responseCacheFallbackTtlSeconds)
+            .lookup(request);
+        Optional<HttpResponse> cached = lookup.getFreshResponse();
+        if (cached.isPresent())
+            return CompletableFuture.completedFuture(cached.get());
+        return executeWithRetries(request).thenApply(response -> {
+            try {
+                return lookup.complete(response);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private CompletableFuture<HttpResponse> executeWithRetries(HttpRequestBase request) {
+        // the credentials are named for the response cache only, the server goes by the session token
+        request.removeHeaders(ResponseCache.CREDENTIALS_HEADER);
+        HttpRequest httpRequest;
+        try {
+            httpRequest = toHttpRequest(request);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        String server = Objects.toString(request.getURI().getAuthority(), "");
+        return sendWithRetries(request, maxAttempts, attempt -> executeOnce(httpRequest, server));
+    }
+
+    @Override
+    protected CompletableFuture<Void> delay(long delayMillis, String path) {
+        return after(delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private CompletableFuture<HttpResponse> executeOnce(HttpRequest request, String server) {
+        long waitNanos = rateLimits.isPresent() ? reserveRateLimit(rateLimits.get(), server, request.uri().getPath()) : 0;
+        return after(waitNanos, TimeUnit.NANOSECONDS).thenCompose(ignored -> serverGuardSettings.isEmpty()
+            ? send(request)
+            : ServerGuard.forServer(server, serverGuardSettings.get()).executeAsync(() -> send(request), executor, logger));
+    }
+
+    private CompletableFuture<HttpResponse> send(HttpRequest request) {
+        return httpClient
+            .sendAsync(request, java.net.http.HttpResponse.BodyHandlers.ofInputStream())
+            .thenApply(AsyncHttpClientService::toHttpResponse);
+    }
+
+    private CompletableFuture<Void> after(long delay, TimeUnit unit) {
+        return delay <= 0
+            ? CompletableFuture.completedFuture(null)
+            : CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(delay, unit, executor));
+    }
+
+    private HttpRequest toHttpRequest(HttpRequestBase request) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.getURI());
+        timeouts.ifPresent(value -> builder.timeout(Duration.ofSeconds(value.getReadTimeoutSeconds())));
+        for (Header header : request.getAllHeaders()) {
+            if (!RESTRICTED_HEADERS.contains(header.getName().toLowerCase()))
+                builder.header(header.getName(), header.getValue());
+        }
+
+        HttpEntity entity = request instanceof HttpEntityEnclosingRequest
+            ? ((HttpEntityEnclosingRequest) request).getEntity()
+            : null;
+        if (Objects.isNull(entity))
+            return builder.method(request.getMethod(), HttpRequest.BodyPublishers.noBody()).build();
+
+        if (Objects.isNull(request.getFirstHeader(HttpHeaders.CONTENT_TYPE)) && Objects.nonNull(entity.getContentType()))
+            builder.header(HttpHeaders.CONTENT_TYPE, entity.getContentType().getValue());
+        // the client asks for a new stream for every attempt, written as it is sent rather than buffered
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.ofInputStream(() -> EntityPipe.open(entity, executor));
+        if (entity.getContentLength() >= 0)
+            body = HttpRequest.BodyPublishers.fromPublisher(body, entity.getContentLength());
+        return builder.method(request.getMethod(), body).build();
+    }
+
+    private static HttpResponse toHttpResponse(java.net.http.HttpResponse<InputStream> source) {
+        HttpVersion version = source.version() == HttpClient.Version.HTTP_2
+            ? new HttpVersion(2, 0)
+            : HttpVersion.HTTP_1_1;
+        BasicHttpResponse response = new BasicHttpResponse(version, source.statusCode(), "");
+        source.headers().map().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+
+        BasicHttpEntity entity = new BasicHttpEntity();
+        entity.setContent(source.body());
+        entity.setContentLength(source.headers().firstValueAsLong(HttpHeaders.CONTENT_LENGTH).orElse(-1));
+        source.headers().firstValue(HttpHeaders.CONTENT_TYPE).ifPresent(entity::setContentType);
+        source.headers().firstValue(HttpHeaders.CONTENT_ENCODING).ifPresent(entity::setContentEncoding);
+        response.setEntity(entity);
+        return response;
+    }
+
+    private static IOException asIOException(Throwable failure) {
+        Throwable cause = unwrap(failure);
+        return cause instanceof IOException
+            ? (IOException) cause
+            : new IOException(cause.toString(), cause);
+    }
+
+    private <T> Optional<T> logFailure(Throwable failure) {
+        IOException e = asIOException(failure);
+        if (e instanceof ServerUnavailableException)
+            logger.println(e.getMessage());
+        logger.severe(e.toString());
+        return Optional.empty();
+    }
+
+    private <T> Optional<T> await(CompletableFuture<Optional<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            return logFailure(e.getCause());
+        }
+    }
+}
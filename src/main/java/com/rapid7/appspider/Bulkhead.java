@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * caps the number of requests in flight to a server, callers wait in arrival order for a free slot
+ */
+public class Bulkhead {
+
+    private final int maxConcurrentRequests;
+    private final Semaphore permits;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * instantiates a new bulkhead
+     * @param maxConcurrentRequests maximum number of requests allowed in flight at once
+     * @return new Bulkhead instance
+     * @throws IllegalArgumentException if maxConcurrentRequests is less than 1
+     */
+    public static Bulkhead createInstanceOrThrow(int maxConcurrentRequests) {
+        if (maxConcurrentRequests < 1)
+            throw new IllegalArgumentException("maxConcurrentRequests must be at least 1");
+        return new Bulkhead(maxConcurrentRequests);
+    }
+
+    private Bulkhead(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+    }
+
+    /**
+     * waits up to timeout for a free slot
+     * @param timeout maximum time to wait
+     * @param unit unit of timeout
+     * @return true if a slot was acquired and must later be released; otherwise, false
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        if (permits.tryAcquire(timeout, unit))
+            return true;
+        rejectedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * acquires a slot only if one is free now and no caller is already waiting, without counting a rejection
+     * @return true if a slot was acquired and must later be released; otherwise, false
+     */
+    public boolean tryAcquireNow() {
+        try {
+            return permits.tryAcquire(0, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * releases a slot acquired by {@link #tryAcquire(long, TimeUnit)} or {@link #tryAcquireNow()}
+     */
+    public void release() {
+        permits.release();
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public int getInFlightCount() {
+        return maxConcurrentRequests - permits.availablePermits();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * count based circuit breaker tracking the outcome of the most recent requests to a server
+ *
+ * <p>
+ * The circuit opens when the rate of failed or slow requests within the window reaches its threshold,
+ * once enough requests have been recorded. While open every request is rejected. After the open
+ * period a limited number of probe requests are let through; the circuit closes again once all of
+ * them succeed and re-opens on the first probe that fails or is slow.
+ * </p>
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final ServerGuardSettings settings;
+    private final LongSupplier nanoTime;
+
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int recorded;
+    private int next;
+    private int failedCount;
+    private int slowCount;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int probesInFlight;
+    private int probesSucceeded;
+
+    private long transitionCount;
+    private long rejectedCount;
+
+    /**
+     * instantiates a new circuit breaker in the closed state
+     * @param name name used to identify the breaker in log messages, usually the server it guards
+     * @param settings thresholds and durations used by the breaker
+     * @return new CircuitBreaker instance
+     * @throws IllegalArgumentException if any of the arguments are null
+     */
+    public static CircuitBreaker createInstanceOrThrow(String name, ServerGuardSettings settings) {
+        return createInstanceOrThrow(name, settings, System::nanoTime);
+    }
+
+    static CircuitBreaker createInstanceOrThrow(String name, ServerGuardSettings settings, LongSupplier nanoTime) {
+        if (Objects.isNull(name))
+            throw new IllegalArgumentException("name cannot be null");
+        if (Objects.isNull(settings))
+            throw new IllegalArgumentException("settings cannot be null");
+        if (Objects.isNull(nanoTime))
+            throw new IllegalArgumentException("nanoTime cannot be null");
+        return new CircuitBreaker(name, settings, nanoTime);
+    }
+
+    private CircuitBreaker(String name, ServerGuardSettings settings, LongSupplier nanoTime) {
+        this.name = name;
+        this.settings = settings;
+        this.nanoTime = nanoTime;
+        this.failed = new boolean[settings.getWindowSize()];
+        this.slow = new boolean[settings.getWindowSize()];
+    }
+
+    /**
+     * determines if a request may be sent, moving from open to half open once the open period has elapsed.
+     * Every permitted request must be followed by exactly one call to either
+     * {@link #onResult(long, boolean, LoggerFacade)} or {@link #releasePermission()}
+     * @param log logger whose system log receives state transitions
+     * @return true if the request may be sent; otherwise, false
+     */
+    public synchronized boolean tryAcquirePermission(LoggerFacade log) {
+        if (state == State.OPEN && nanoTime.getAsLong() - openedAtNanos >= TimeUnit.SECONDS.toNanos(settings.getOpenStateSeconds()))
+            transitionTo(State.HALF_OPEN, "open period elapsed, allowing probe requests", log);
+
+        if (state == State.CLOSED)
+            return true;
+        if (state == State.HALF_OPEN && probesInFlight < settings.getHalfOpenProbes()) {
+            probesInFlight++;
+            return true;
+        }
+        rejectedCount++;
+        return false;
+    }
+
+    /**
+     * returns a permission obtained from {@link #tryAcquirePermission(LoggerFacade)} for a request that was never sent
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && probesInFlight > 0)
+            probesInFlight--;
+    }
+
+    /**
+     * records the outcome of a permitted request
+     * @param elapsedNanos time taken by the request
+     * @param isFailure true if the request failed
+     * @param log logger whose system log receives state transitions
+     */
+    public synchronized void onResult(long elapsedNanos, boolean isFailure, LoggerFacade log) {
+        boolean isSlow = elapsedNanos >= TimeUnit.SECONDS.toNanos(settings.getSlowRequestSeconds());
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight > 0)
+                probesInFlight--;
+            if (isFailure || isSlow) {
+                transitionTo(State.OPEN, isFailure ? "probe request failed" : "probe request was slow", log);
+            } else if (++probesSucceeded >= settings.getHalfOpenProbes()) {
+                transitionTo(State.CLOSED, String.format("%d probe requests succeeded", probesSucceeded), log);
+            }
+            return;
+        }
+        if (state == State.OPEN)
+            return; // result of a request started before the circuit opened
+
+        record(isFailure, isSlow);
+        if (recorded < settings.getMinimumRequests())
+            return;
+        int failureRate = failedCount * 100 / recorded;
+        int slowRate = slowCount * 100 / recorded;
+        if (failureRate >= settings.getFailureRateThreshold()) {
+            transitionTo(State.OPEN, String.format("%d%% of the last %d requests failed", failureRate, recorded), log);
+        } else if (slowRate >= settings.getSlowRequestRateThreshold()) {
+            transitionTo(State.OPEN, String.format("%d%% of the last %d requests took longer than %d seconds",
+                slowRate, recorded, settings.getSlowRequestSeconds()), log);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return seconds remaining until probe requests are allowed, 0 unless the circuit is open
+     */
+    public synchronized long getRemainingOpenSeconds() {
+        if (state != State.OPEN)
+            return 0;
+        long remaining = TimeUnit.SECONDS.toNanos(settings.getOpenStateSeconds()) - (nanoTime.getAsLong() - openedAtNanos);
+        return Math.max(0, TimeUnit.NANOSECONDS.toSeconds(remaining + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    /**
+     * @return fraction of the requests recorded in the current window which failed, 0 if none have been recorded
+     */
+    public synchronized double getFailureRate() {
+        return recorded == 0 ? 0 : (double) failedCount / recorded;
+    }
+
+    public synchronized long getTransitionCount() {
+        return transitionCount;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    private void record(boolean isFailure, boolean isSlow) {
+        if (recorded == failed.length) {
+            failedCount -= failed[next] ? 1 : 0;
+            slowCount -= slow[next] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        failed[next] = isFailure;
+        slow[next] = isSlow;
+        failedCount += isFailure ? 1 : 0;
+        slowCount += isSlow ? 1 : 0;
+        next = (next + 1) % failed.length;
+    }
+
+    private void transitionTo(State newState, String reason, LoggerFacade log) {
+        String message = String.format("AppSpider Enterprise circuit breaker for %s changed from %s to %s: %s (transitions: %d, rejected requests: %d)",
+            name, state, newState, reason, transitionCount + 1, rejectedCount);
+        state = newState;
+        transitionCount++;
+        probesInFlight = 0;
+        probesSucceeded = 0;
+        if (newState == State.OPEN)
+            openedAtNanos = nanoTime.getAsLong();
+        if (newState == State.CLOSED) {
+            recorded = 0;
+            next = 0;
+            failedCount = 0;
+            slowCount = 0;
+        }
+        // shared by every build using the server, so not written to the console of whichever build tripped it
+        log.warn(message);
+    }
+}
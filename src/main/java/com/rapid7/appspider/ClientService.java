@@ -12,6 +12,7 @@ import org.apache.http.client.methods.HttpRequestBase;
 import org.json.JSONObject;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface ClientService {
 
@@ -22,6 +23,42 @@ public interface ClientService {
      */
     Optional<JSONObject> executeJsonRequest(HttpRequestBase request);
 
+    /**
+     * executes the provided HttpRequestBase decoding the JSON response with decoder
+     * @param request the request to send/execute
+     * @param decoder decoder of the response body, typically a method of {@link JsonCodec}
+     * @param <T> type of the decoded value
+     * @return on success an Optional containing the decoded value; otherwise, Optional.empty()
+     */
+    <T> Optional<T> executeJsonRequest(HttpRequestBase request, JsonCodec.Decoder<T> decoder);
+
+    /**
+     * executes the provided HttpRequestBase returning the result as a HttpEntity
+     * @param request the request to send/execute
+     * @return on success an Optional containing a HttpEntity; otherwise, Optional.empty()
+     */
+    Optional<HttpEntity> executeEntityRequest(HttpRequestBase request);
+
+    /**
+     * executes the provided HttpRequestBase without waiting for the response, implementations
+     * which can only send requests synchronously complete the future before returning
+     * @param request the request to send/execute
+     * @return future completed with an Optional containing a JSONObject on success; otherwise, Optional.empty()
+     */
+    default CompletableFuture<Optional<JSONObject>> executeJsonRequestAsync(HttpRequestBase request) {
+        return CompletableFuture.completedFuture(executeJsonRequest(request));
+    }
+
+    /**
+     * executes the provided HttpRequestBase without waiting for the response, implementations
+     * which can only send requests synchronously complete the future before returning
+     * @param request the request to send/execute
+     * @return future completed with an Optional containing a HttpEntity on success; otherwise, Optional.empty()
+     */
+    default CompletableFuture<Optional<HttpEntity>> executeEntityRequestAsync(HttpRequestBase request) {
+        return CompletableFuture.completedFuture(executeEntityRequest(request));
+    }
+
     /**
      * Builds a HttpGet request object for the endpoint given by endpoint using authToken as basic authentication header
      * @param endpoint endpoint to perform get request on
@@ -70,4 +107,16 @@ public interface ClientService {
      * @return Optional of HttpPost containg the request object
      */
     Optional<HttpPost> buildPostRequestUsingFormUrlEncoding(String endpoint, String authToken, NameValuePair... params);
+
+    /**
+     * builds a HttpPost request object for the given endpoint sending the provided form entity as is,
+     * allowing callers to supply entities which encode their content as it is written
+     * body will be posted using Content-Type as application/x-www-form-urlencoded
+     * @param endpoint endpoint to perform post request on
+     * @param authToken authorization token for basic authentication
+     * @param formEntity url encoded form entity sent as the entity of the request
+     * @return Optional of HttpPost containg the request object
+     * @throws IllegalArgumentException when either endpoint or authToken are null or empty, or formEntity is null
+     */
+    Optional<HttpPost> buildPostRequestUsingFormUrlEncoding(String endpoint, String authToken, HttpEntity formEntity);
 }
@@ -31,6 +31,7 @@ import java.util.Optional;
 public class ContentHelper {
 
     private final LoggerFacade logger;
+    private JsonCodec codec;
 
     public static ContentHelper createInstanceOrThrow(LoggerFacade logger) {
         if (Objects.isNull(logger))
@@ -40,6 +41,28 @@ public class ContentHelper {
 
     private ContentHelper(LoggerFacade logger) {
         this.logger = logger;
+        this.codec = new OrgJsonCodec();
+    }
+
+    /**
+     * returns a copy of this ContentHelper decoding typed responses with codec
+     * @param codec codec used by {@link #decodeResponse(HttpResponse, String, JsonCodec.Decoder)}
+     * @return new ContentHelper using codec
+     * @throws IllegalArgumentException if codec is null
+     */
+    public ContentHelper withCodec(JsonCodec codec) {
+        if (Objects.isNull(codec))
+            throw new IllegalArgumentException("codec cannot be null");
+        ContentHelper contentHelper = new ContentHelper(logger);
+        contentHelper.codec = codec;
+        return contentHelper;
+    }
+
+    /**
+     * @return codec used to decode typed responses, {@link OrgJsonCodec} unless set by {@link #withCodec(JsonCodec)}
+     */
+    public JsonCodec getCodec() {
+        return codec;
     }
 
 
@@ -121,6 +144,32 @@ public class ContentHelper {
         return Optional.empty();
     }
 
+    /**
+     * decodes the response content with decoder, streaming it from the entity rather than reading
+     * it into a String first
+     * @param response response to decode
+     * @param path the path used for diagnostic purposes, this is the path to the
+     *             request which can be logged in the event of failure
+     * @param decoder decoder of the response body, typically a method of {@link #getCodec()}
+     * @param <T> type of the decoded value
+     * @return on success an Optional containing the decoded value; otherwise, Optional.empty()
+     */
+    public <T> Optional<T> decodeResponse(HttpResponse response, String path, JsonCodec.Decoder<T> decoder) {
+        if (!FunctionalUtility.isSuccessStatusCode(response)) {
+            logResponseFailure("request failed " + path, response);
+            return Optional.empty();
+        }
+        HttpEntity entity = response.getEntity();
+        if (!getContentTypeOrEmpty(entity).orElse("").contains(MediaType.APPLICATION_JSON))
+            return Optional.empty();
+        try (InputStream content = entity.getContent()) {
+            return Optional.ofNullable(decoder.decode(content));
+        } catch (IOException e) {
+            logger.severe("unable to decode response of " + path + ": " + e);
+            return Optional.empty();
+        }
+    }
+
     /**
      * converts the provided HttpEntity to a JSONObject
      * @param entity entity to convert
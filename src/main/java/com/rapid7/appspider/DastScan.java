@@ -4,26 +4,77 @@
 
 package com.rapid7.appspider;
 
+import com.rapid7.appspider.datatransferobjects.CompletedScan;
+import com.rapid7.appspider.datatransferobjects.ReadinessResult;
+import com.rapid7.appspider.datatransferobjects.ScanConfigReference;
 import com.rapid7.appspider.datatransferobjects.ScanResult;
 import com.rapid7.appspider.models.AuthenticationModel;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.time.Duration;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 public class DastScan {
-    private static final String SUCCESSFUL_SCAN = "Completed|Stopped";
+    // only completed scans are reused or joined, a stopped scan may not have covered the whole target
+    private static final String COMPLETED_SCAN = "Completed";
+    private static final String SUCCESSFUL_SCAN = COMPLETED_SCAN + "|Stopped";
     private static final String UNSUCCESSFUL_SCAN = "ReportError";
     private static final String FAILED_SCAN = "Failed";
     private static final String FINISHED_SCANNING = SUCCESSFUL_SCAN + "|" + UNSUCCESSFUL_SCAN + "|" + FAILED_SCAN;
+    private static final String CANCELLED_SCAN = "Cancell?(ed|ing)|Stopping";
+    private static final long CANCEL_ACKNOWLEDGE_SECONDS = 60;
+    private static final long CANCEL_POLL_SECONDS = 5;
     private static final String UNAUTHORIZED_ERROR = "Unauthorized, please verify credentials and try again.";
+    // lookups made before a scan starts spend their time waiting on the server
+    private static final ExecutorService STARTUP_EXECUTOR = ScanExecutors.newUnboundedExecutor("appspider-scan-startup");
 
     private final EnterpriseClient client;
     private ScanSettings settings;
     private final LoggerFacade log;
+    private Optional<ScanConfigDigestStore> configDigestStore = Optional.empty();
+    private int maxConcurrentScansPerEngineGroup;
+    private int scanPriority;
+    private Optional<ResultReuse> resultReuse = Optional.empty();
+    private Optional<String> resumableScanId = Optional.empty();
+    private ScanProgressListener progressListener = (scanId, phase) -> { };
+    private Optional<ReadinessProbe> readinessProbe = Optional.empty();
+    private BooleanSupplier abortCheck = () -> true;
     private Optional<String> id;
+    private Optional<String> engineGroupId = Optional.empty();
+    private Optional<String> configDigest = Optional.empty();
+    private String targetUrl;
+    private boolean isConfigSaveSkipped;
+    private Optional<ScanResultCache.Claim> resultClaim = Optional.empty();
+    private Optional<EngineGroupLoad.Lease> engineGroupLease = Optional.empty();
+    private CompletableFuture<Optional<String>> resumedScanStatus = CompletableFuture.completedFuture(Optional.empty());
+    private CompletableFuture<Optional<Map<String, String>>> engineGroupIdsByName = CompletableFuture.completedFuture(Optional.empty());
+    private CompletableFuture<Optional<String[]>> clientEngineGroupNames = CompletableFuture.completedFuture(Optional.empty());
+    private CompletableFuture<Optional<ScanConfigReference>> configReference = CompletableFuture.completedFuture(Optional.empty());
+    private Optional<CompletableFuture<ReadinessResult>> targetReadiness = Optional.empty();
+    private long loggedInAtNanos;
+
+    private static final class ResultReuse {
+        private final ScanResultCache cache;
+        private final String fingerprint;
+        private final Duration maxAge;
+
+        private ResultReuse(ScanResultCache cache, String fingerprint, Duration maxAge) {
+            this.cache = cache;
+            this.fingerprint = fingerprint;
+            this.maxAge = maxAge;
+        }
+    }
 
     public static DastScan createInstanceOrThrow(EnterpriseClient client, ScanSettings settings, LoggerFacade log) {
         if (Objects.isNull(client))
@@ -41,6 +92,138 @@ public class DastScan {
         this.log = log;
     }
 
+    private DastScan copy() {
+        DastScan copy = new DastScan(client, settings, log);
+        copy.configDigestStore = configDigestStore;
+        copy.maxConcurrentScansPerEngineGroup = maxConcurrentScansPerEngineGroup;
+        copy.scanPriority = scanPriority;
+        copy.resultReuse = resultReuse;
+        copy.resumableScanId = resumableScanId;
+        copy.progressListener = progressListener;
+        copy.readinessProbe = readinessProbe;
+        copy.abortCheck = abortCheck;
+        return copy;
+    }
+
+    /**
+     * returns a copy of this scan which skips saving the new scan config when its digest matches
+     * the one recorded by the last save
+     * @param configDigestStore store of previously saved scan config digests
+     * @return new DastScan using configDigestStore
+     * @throws IllegalArgumentException if configDigestStore is null
+     */
+    public DastScan withConfigDigestStore(ScanConfigDigestStore configDigestStore) {
+        if (Objects.isNull(configDigestStore))
+            throw new IllegalArgumentException("configDigestStore cannot be null");
+        DastScan copy = copy();
+        copy.configDigestStore = Optional.of(configDigestStore);
+        return copy;
+    }
+
+    /**
+     * returns a copy of this scan which waits in the {@link ScanAdmissionQueue} of its engine group
+     * before starting, holding its slot until the scan finishes; or, when no report is generated,
+     * only until the scan has been started
+     * @param maxConcurrentScansPerEngineGroup maximum number of scans started by Jenkins running at once
+     *                                         on an engine group
+     * @param scanPriority priority of this scan within the queue, higher priorities start first
+     * @return new DastScan using the admission queue
+     * @throws IllegalArgumentException if maxConcurrentScansPerEngineGroup is less than 1
+     */
+    public DastScan withScanQueue(int maxConcurrentScansPerEngineGroup, int scanPriority) {
+        if (maxConcurrentScansPerEngineGroup < 1)
+            throw new IllegalArgumentException("maxConcurrentScansPerEngineGroup must be at least 1");
+        DastScan copy = copy();
+        copy.maxConcurrentScansPerEngineGroup = maxConcurrentScansPerEngineGroup;
+        copy.scanPriority = scanPriority;
+        return copy;
+    }
+
+    /**
+     * returns a copy of this scan which reuses the result of a recent completed scan of the same
+     * config, target and artifact instead of starting a new one, and joins an identical scan already
+     * being run by another build, starting its own scan if the joined scan ends without completing
+     * @param cache cache of completed and in flight scans
+     * @param fingerprint fingerprint of the artifact being scanned, such as a commit id
+     * @param maxAge maximum age of a reusable scan
+     * @return new DastScan reusing scan results
+     * @throws IllegalArgumentException if any of the arguments are null, fingerprint is empty or maxAge is negative
+     */
+    public DastScan withResultReuse(ScanResultCache cache, String fingerprint, Duration maxAge) {
+        if (Objects.isNull(cache))
+            throw new IllegalArgumentException("cache cannot be null");
+        if (Objects.isNull(fingerprint) || fingerprint.isEmpty())
+            throw new IllegalArgumentException("fingerprint cannot be null or empty");
+        if (Objects.isNull(maxAge) || maxAge.isNegative())
+            throw new IllegalArgumentException("maxAge cannot be null or negative");
+        DastScan copy = copy();
+        copy.resultReuse = Optional.of(new ResultReuse(cache, fingerprint, maxAge));
+        return copy;
+    }
+
+    /**
+     * returns a copy of this scan which first tries to reattach to scanId, a scan started by an
+     * earlier build which did not finish, only starting a new scan if scanId is no longer known
+     * to the server
+     * @param scanId id of the scan to reattach to
+     * @return new DastScan reattaching to scanId
+     * @throws IllegalArgumentException if scanId is null or empty
+     */
+    public DastScan withResumableScan(String scanId) {
+        if (Objects.isNull(scanId) || scanId.isEmpty())
+            throw new IllegalArgumentException("scanId cannot be null or empty");
+        DastScan copy = copy();
+        copy.resumableScanId = Optional.of(scanId);
+        return copy;
+    }
+
+    /**
+     * returns a copy of this scan which notifies progressListener as the scan moves through its phases
+     * @param progressListener listener notified of each phase
+     * @return new DastScan notifying progressListener
+     * @throws IllegalArgumentException if progressListener is null
+     */
+    public DastScan withProgressListener(ScanProgressListener progressListener) {
+        if (Objects.isNull(progressListener))
+            throw new IllegalArgumentException("progressListener cannot be null");
+        DastScan copy = copy();
+        copy.progressListener = progressListener;
+        return copy;
+    }
+
+    /**
+     * returns a copy of this scan which probes its target from the moment process is called and
+     * only starts the scan once the target is ready, failing if the target isn't ready by the
+     * probe's deadline. Scans which are reused, joined or reattached to don't wait for the target
+     * @param readinessProbe probe of the scan target
+     * @return new DastScan waiting for the target to be ready
+     * @throws IllegalArgumentException if readinessProbe is null
+     */
+    public DastScan withReadinessProbe(ReadinessProbe readinessProbe) {
+        if (Objects.isNull(readinessProbe))
+            throw new IllegalArgumentException("readinessProbe cannot be null");
+        DastScan copy = copy();
+        copy.readinessProbe = Optional.of(readinessProbe);
+        return copy;
+    }
+
+    /**
+     * returns a copy of this scan which, when interrupted while waiting for a scan it started or
+     * reattached to, only cancels the scan if abortCheck reports that the build was aborted. Other
+     * interruptions, such as Jenkins shutting down, leave the scan running so that a later build
+     * can reattach to it. Without an abort check every interruption cancels the scan
+     * @param abortCheck returns true if the build was aborted
+     * @return new DastScan consulting abortCheck before cancelling its scan
+     * @throws IllegalArgumentException if abortCheck is null
+     */
+    public DastScan withAbortCheck(BooleanSupplier abortCheck) {
+        if (Objects.isNull(abortCheck))
+            throw new IllegalArgumentException("abortCheck cannot be null");
+        DastScan copy = copy();
+        copy.abortCheck = abortCheck;
+        return copy;
+    }
+
     /**
      * returns the current scan id, this will be empty until process has been called
      * @return the current scan id
@@ -49,21 +232,197 @@ public class DastScan {
         return id;
     }
 
+    /**
+     * starts or joins a scan and waits on the calling thread until it finishes
+     *
+     * <p>
+     * The wait holds the calling thread, a build's executor thread when called from the post-build
+     * step, for as long as the scan runs on any Java version. Only the lookups made while logging in are moved to {@link ScanExecutors} threads.
+     * </p>
+     * @param authModel credentials to log in with
+     * @return true if the scan finished successfully; otherwise, false
+     * @throws InterruptedException if interrupted while waiting, after cancelling the scan if the
+     *         abort check says the build was aborted
+     */
     public boolean process(AuthenticationModel authModel) throws InterruptedException {
+        // the target is probed while logging in and looking up the config rather than after
+        targetReadiness = readinessProbe.map(ReadinessProbe::probe);
+        try {
+            return processScan(authModel);
+        } finally {
+            targetReadiness.ifPresent(readiness -> readiness.cancel(false));
+            engineGroupLease.ifPresent(EngineGroupLoad.Lease::close);
+        }
+    }
+
+    private boolean processScan(AuthenticationModel authModel) throws InterruptedException {
         Optional<String> maybeAuthToken = client.login(authModel);
         if (maybeAuthToken.isEmpty()) {
             log.println(UNAUTHORIZED_ERROR);
             return false;
         }
         String authToken = maybeAuthToken.get();
+        loggedInAtNanos = System.nanoTime();
+        startLookups(authToken);
+        if (resumableScanId.isPresent()) {
+            Optional<Boolean> resumed = resumeScan(resumableScanId.get(), await(resumedScanStatus), authModel);
+            if (resumed.isPresent())
+                return resumed.get();
+        }
         if (!createScanBeforeRunIfNeeded(authToken))
             return false;
+        if (resultReuse.isEmpty())
+            return startScan(authToken, authModel);
+
+        String key = resultReuseKey();
+        while (true) {
+            Optional<CompletedScan> completed = findReusableScan(key);
+            if (completed.isPresent()) {
+                log.println(String.format("Reusing scan %s of '%s' completed at %s for %s instead of starting a new scan",
+                    completed.get().getScanId(), settings.getConfigName(), completed.get().getCompletedAt(), resultReuse.get().fingerprint));
+                id = Optional.of(completed.get().getScanId());
+                return true;
+            }
+
+            try (ScanResultCache.Claim claim = resultReuse.get().cache.claimOrJoin(key)) {
+                if (claim.isOwner()) {
+                    resultClaim = Optional.of(claim);
+                    return startScan(authToken, authModel);
+                }
+                log.println(String.format("Another build is scanning '%s' for %s, waiting to join its scan",
+                    settings.getConfigName(), resultReuse.get().fingerprint));
+                Optional<String> runningScanId = claim.awaitScanId();
+                if (runningScanId.isPresent())
+                    return joinScan(runningScanId.get(), authModel);
+                log.println("The other build did not start a scan");
+            }
+        }
+    }
+
+    /**
+     * waits for the result of a scan started by another build, starting a scan of this build's
+     * own if the joined scan ended without completing
+     */
+    private boolean joinScan(String scanId, AuthenticationModel authModel) throws InterruptedException {
+        log.println(String.format("Joined scan %s started by another build", scanId));
+        id = Optional.of(scanId);
+        progressListener.onProgress(scanId, ScanPhase.STARTED);
+        if (!settings.getGenerateReport())
+            return true;
+        Optional<String> status = awaitScanResult(scanId, authModel);
+        if (status.isEmpty())
+            return false;
+        if (status.get().matches(COMPLETED_SCAN))
+            return true;
+
+        log.println(String.format("Joined scan %s did not complete, status: [%s], starting a new scan", scanId, status.get()));
+        Optional<String> authToken = client.login(authModel);
+        if (authToken.isEmpty()) {
+            log.println(UNAUTHORIZED_ERROR);
+            return false;
+        }
+        return startScan(authToken.get(), authModel);
+    }
 
-        ScanResult runResult = client.runScanByConfigName(authToken, settings.getConfigName());
+    /**
+     * starts the lookups which need nothing but the token so that they overlap one another, and
+     * the save of a new scan config, rather than being made one after another. Lookups the scan
+     * turns out not to need complete unused
+     */
+    private void startLookups(String authToken) {
+        if (resumableScanId.isPresent()) {
+            String scanId = resumableScanId.get();
+            resumedScanStatus = lookup(() -> client.getScanStatus(authToken, scanId));
+        }
+        if (isNewConfig() || maxConcurrentScansPerEngineGroup > 0)
+            engineGroupIdsByName = lookup(() -> client.getEngineGroupIdsByName(authToken));
+        if (isNewConfig() && settings.isAutoEngineGroup())
+            clientEngineGroupNames = lookup(() -> client.getEngineGroupNamesForClient(authToken));
+        // a new config is looked up again once saved, the early lookup serves saves skipped as unchanged
+        if (!isNewConfig() || configDigestStore.isPresent()) {
+            String configName = isNewConfig() ? settings.getNewConfigName() : settings.getConfigName();
+            configReference = lookup(() -> client.getScanConfigReference(authToken, configName));
+        }
+    }
+
+    private <T> CompletableFuture<Optional<T>> lookup(Supplier<Optional<T>> supplier) {
+        return CompletableFuture.supplyAsync(supplier, STARTUP_EXECUTOR);
+    }
+
+    private <T> Optional<T> await(CompletableFuture<Optional<T>> lookup) throws InterruptedException {
+        try {
+            return lookup.get();
+        } catch (ExecutionException e) {
+            log.severe("AppSpider Enterprise lookup failed: " + e.getCause());
+            return Optional.empty();
+        }
+    }
+
+    private boolean startScan(String authToken, AuthenticationModel authModel) throws InterruptedException {
+        // waiting before taking a slot leaves the slot to scans whose targets are ready
+        if (!awaitTargetReadiness())
+            return false;
+        Optional<String> maybeAuthToken;
+        Optional<ScanAdmissionQueue> queue = maxConcurrentScansPerEngineGroup > 0
+            ? findAdmissionQueue()
+            : Optional.empty();
+        if (queue.isEmpty())
+            return runScan(authToken, authModel);
+
+        try (ScanAdmissionQueue.Slot slot = queue.get().acquire(scanPriority, log)) {
+            // the wait for a slot may have outlived the token
+            maybeAuthToken = client.login(authModel);
+            if (maybeAuthToken.isEmpty()) {
+                log.println(UNAUTHORIZED_ERROR);
+                return false;
+            }
+            return runScan(maybeAuthToken.get(), authModel);
+        }
+    }
+
+    private boolean awaitTargetReadiness() throws InterruptedException {
+        if (targetReadiness.isEmpty())
+            return true;
+        ReadinessProbe probe = readinessProbe.orElseThrow();
+        long awaitStartedNanos = System.nanoTime();
+        ReadinessResult readiness;
+        try {
+            readiness = targetReadiness.get().get();
+        } catch (ExecutionException e) {
+            log.println(String.format("Unable to probe scan target %s, the scan was not started: %s", probe.getTarget(), e.getCause()));
+            return false;
+        }
+        if (!readiness.isReady()) {
+            log.println(String.format("Scan target %s was not ready within %d seconds (%d probes, last: %s), the scan was not started",
+                probe.getTarget(), probe.getDeadline().getSeconds(), readiness.getAttempts(), readiness.getLastOutcome()));
+            return false;
+        }
+        log.println(String.format("Scan target %s was ready after %d ms (%d probes), the scan waited %d ms for it",
+            probe.getTarget(), readiness.getWaited().toMillis(), readiness.getAttempts(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - awaitStartedNanos)));
+        return true;
+    }
+
+    private boolean runScan(String authToken, AuthenticationModel authModel) throws InterruptedException {
+        Optional<ScanConfigReference> config = await(configReference);
+        if (config.isEmpty())
+            log.println(String.format("Scan config %s was not found", settings.getConfigName()));
+        ScanResult runResult = config.isPresent()
+            ? client.runScanByConfigId(authToken, config.get().getId())
+            : new ScanResult(false, "");
         if (!runResult.isSuccess()) {
             log.println(String.format("Error: Response from %s came back not successful",  client.getUrl()));
+            if (isConfigSaveSkipped)
+                forgetConfigDigest(settings.getConfigName());
         } else {
             log.println(String.format("Scan for '%s' successfully started.",  settings.getConfigName()));
+            if (log.isVerboseEnabled()) {
+                log.verbose(String.format("Scan %s started %d ms after login", runResult.getScanId(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loggedInAtNanos)));
+            }
+            resultClaim.ifPresent(claim -> claim.started(runResult.getScanId()));
+            countScanOnEngineGroup();
+            progressListener.onProgress(runResult.getScanId(), ScanPhase.STARTED);
         }
         id = Optional.of(runResult.getScanId());
 
@@ -72,40 +431,158 @@ public class DastScan {
             return true;
         }
 
-        waitForScanCompletion(runResult.getScanId(), authModel);
+        Optional<String> status = awaitOwnScanResult(runResult.getScanId(), authModel);
+        if (status.isEmpty())
+            return false;
+        if (status.get().matches(COMPLETED_SCAN) && resultReuse.isPresent())
+            recordCompletedScan(runResult.getScanId());
+        return true;
+    }
+
+    /**
+     * waits for the result of a scan started, or taken over, by this build, cancelling the scan if
+     * the build is aborted so it doesn't keep holding an engine
+     */
+    private Optional<String> awaitOwnScanResult(String scanId, AuthenticationModel authModel) throws InterruptedException {
+        try {
+            return awaitScanResult(scanId, authModel);
+        } catch (InterruptedException e) {
+            if (abortCheck.getAsBoolean())
+                cancelScan(scanId, authModel);
+            else
+                log.println(String.format("Build interrupted without being aborted, scan %s is left running for the next build to reattach to", scanId));
+            throw e;
+        }
+    }
+
+    private void cancelScan(String scanId, AuthenticationModel authModel) {
+        log.println(String.format("Build aborted, cancelling scan %s", scanId));
+        Optional<String> authToken = client.login(authModel);
+        if (authToken.isEmpty()) {
+            log.println(UNAUTHORIZED_ERROR);
+            log.println(String.format("Scan %s was not cancelled and may still be running", scanId));
+            return;
+        }
+        if (!client.cancelScan(authToken.get(), scanId)) {
+            log.println(String.format("Cancel of scan %s was not accepted, it may still be running", scanId));
+            log.warn(String.format("Cancel of scan %s on %s was not accepted", scanId, client.getUrl()));
+            return;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(CANCEL_ACKNOWLEDGE_SECONDS);
+        String status = "";
+        do {
+            log.verbose("Polling status of cancelled scan %s on %s", scanId, client.getUrl());
+            status = client.getScanStatus(authToken.get(), scanId).orElse(status);
+            if (status.matches(CANCELLED_SCAN) || status.matches(FINISHED_SCANNING)) {
+                log.println(String.format("Scan %s cancelled, status: [%s]", scanId, status));
+                progressListener.onProgress(scanId, ScanPhase.CANCELLED);
+                return;
+            }
+            try {
+                TimeUnit.SECONDS.sleep(CANCEL_POLL_SECONDS);
+            } catch (InterruptedException e) {
+                // aborted again, stop waiting but leave the build interrupted
+                Thread.currentThread().interrupt();
+                break;
+            }
+        } while (System.nanoTime() < deadline);
 
-        maybeAuthToken = client.login(authModel);
+        log.println(String.format("Cancel of scan %s requested but not confirmed within %d seconds, last status: [%s]",
+            scanId, CANCEL_ACKNOWLEDGE_SECONDS, status));
+        log.warn(String.format("Cancel of scan %s on %s was not confirmed", scanId, client.getUrl()));
+    }
+
+    private Optional<String> awaitScanResult(String scanId, AuthenticationModel authModel) throws InterruptedException {
+        waitForScanCompletion(scanId, authModel);
+
+        Optional<String> maybeAuthToken = client.login(authModel);
         if (maybeAuthToken.isEmpty()) {
             log.println(UNAUTHORIZED_ERROR);
-            return false;
+            return Optional.empty();
         }
-        authToken = maybeAuthToken.get();
+        String authToken = maybeAuthToken.get();
 
-        if (!client.hasReport(authToken, runResult.getScanId())) {
-            log.println(String.format("No reports for this scan: %s", runResult.getScanId()));
+        if (!client.hasReport(authToken, scanId)) {
+            log.println(String.format("No reports for this scan: %s", scanId));
         }
 
-        String status = client.getScanStatus(authToken, runResult.getScanId()).orElse(FAILED_SCAN);
+        String status = client.getScanStatus(authToken, scanId).orElse(FAILED_SCAN);
         log.println(status.matches(SUCCESSFUL_SCAN)
             ? "Finished scanning!"
             : String.format("Scan was complete but was not successful. Status was '%s'", status));
-        return true;
+        progressListener.onProgress(scanId, ScanPhase.COMPLETED);
+        return Optional.of(status);
+    }
+
+    /**
+     * reattaches to a scan started by an earlier build
+     * @return Optional containing the result of process; or Optional.empty() if the scan is unknown and a
+     *         new scan should be started
+     */
+    private Optional<Boolean> resumeScan(String scanId, Optional<String> status, AuthenticationModel authModel) throws InterruptedException {
+        if (status.isEmpty()) {
+            log.println(String.format("Scan %s started by an earlier build was not found, starting a new scan", scanId));
+            return Optional.empty();
+        }
+        log.println(String.format("Reattaching to scan %s started by an earlier build, status: [%s]", scanId, status.get()));
+        id = Optional.of(scanId);
+        progressListener.onProgress(scanId, ScanPhase.STARTED);
+        if (!settings.getGenerateReport()) {
+            log.println("Continuing the build without generating the report.");
+            return Optional.of(true);
+        }
+        return Optional.of(awaitOwnScanResult(scanId, authModel).isPresent());
+    }
+
+    private String resultReuseKey() {
+        return ScanResultCache.keyFor(client.getUrl(), settings.getConfigName(), Objects.toString(targetUrl, ""),
+            configDigest.orElse(""), resultReuse.orElseThrow().fingerprint);
+    }
+
+    private Optional<CompletedScan> findReusableScan(String key) {
+        try {
+            ResultReuse reuse = resultReuse.orElseThrow();
+            return reuse.cache.findCompleted(key, reuse.maxAge);
+        } catch (IOException e) {
+            log.println("Unable to read previously completed scans, starting a new scan: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void recordCompletedScan(String scanId) {
+        try {
+            resultReuse.orElseThrow().cache.recordCompleted(resultReuseKey(), scanId);
+        } catch (IOException e) {
+            log.println(String.format("Unable to record scan %s for reuse: %s", scanId, e.getMessage()));
+        }
     }
 
-    private boolean createScanBeforeRunIfNeeded(String authToken) {
+    private boolean isNewConfig() {
         final String newConfigName = settings.getNewConfigName();
         final String newConfigUrl = settings.getNewConfigUrl();
-        final boolean isNewConfig = (!(Objects.isNull(newConfigName) || newConfigName.isEmpty()) && !(Objects.isNull(newConfigUrl) || newConfigUrl.isEmpty()));
-        if (!isNewConfig) // local not really needed but is provided to clarify the meaning of these conditions
+        return !(Objects.isNull(newConfigName) || newConfigName.isEmpty()) && !(Objects.isNull(newConfigUrl) || newConfigUrl.isEmpty());
+    }
+
+    private boolean createScanBeforeRunIfNeeded(String authToken) throws InterruptedException {
+        if (!isNewConfig())
             return true; // creation not needed
+        final String newConfigName = settings.getNewConfigName();
+        final String newConfigUrl = settings.getNewConfigUrl();
 
         log.println("Value of Scan Config Name: " + newConfigName);
         log.println("Value of Scan Config URL: " + newConfigUrl);
         log.println("Value of Scan Config Engine Group name: " + settings.getScanConfigEngineGroupName());
 
-        Optional<String> engineGroupId = client.getEngineGroupIdFromName(authToken, settings.getScanConfigEngineGroupName());
+        Optional<String> engineGroupId = settings.isAutoEngineGroup()
+            ? chooseEngineGroup()
+            : await(engineGroupIdsByName)
+                .flatMap(idsByName -> Optional.ofNullable(idsByName.get(settings.getScanConfigEngineGroupName())));
+        this.engineGroupId = engineGroupId;
         if (engineGroupId.isEmpty()) {
-            log.println(String.format("no engine group matching %s was found.", settings.getScanConfigEngineGroupName()));
+            log.println(settings.isAutoEngineGroup()
+                ? "no engine group available to the client was found."
+                : String.format("no engine group matching %s was found.", settings.getScanConfigEngineGroupName()));
             return false;
         }
 
@@ -118,11 +595,28 @@ public class DastScan {
             return false;
         }
 
+        targetUrl = newConfigUrl;
+        Optional<String> digest = configDigestStore.isPresent() || resultReuse.isPresent()
+            ? client.getScanConfigDigest(newConfigName, newScanConfigTarget, engineGroupId.get())
+            : Optional.empty();
+        configDigest = digest;
+        if (digest.isPresent() && configDigestStore.isPresent() && isConfigUnchanged(newConfigName, digest.get())) {
+            settings = settings
+                .withConfigName(settings.getNewConfigName())
+                .withEmptyConfigValues();
+            isConfigSaveSkipped = true;
+            return true;
+        }
+
+        // an early lookup completing after the save could cache the config list from before it
+        await(configReference);
         if  (client.saveConfig(authToken, newConfigName, newScanConfigTarget, engineGroupId.get())) {
             settings = settings
                 .withConfigName(settings.getNewConfigName())
                 .withEmptyConfigValues();
             log.println(String.format("Successfully created the scan config %s", newConfigName));
+            configReference = lookup(() -> client.getScanConfigReference(authToken, newConfigName));
+            digest.ifPresent(value -> recordConfigDigest(newConfigName, value));
             return true;
         } else {
             log.println(String.format("An error occurred while attempting to save %s.", newConfigName));
@@ -130,11 +624,106 @@ public class DastScan {
         }
     }
 
+    /**
+     * chooses the engine group available to the client with the fewest scans in flight from
+     * Jenkins, counting this scan on it straight away
+     */
+    private Optional<String> chooseEngineGroup() throws InterruptedException {
+        Optional<Map<String, String>> idsByName = await(engineGroupIdsByName);
+        Optional<String[]> allowedNames = await(clientEngineGroupNames);
+        if (idsByName.isEmpty() || allowedNames.isEmpty())
+            return Optional.empty();
+        Map<String, String> candidates = new TreeMap<>();
+        for (String name : allowedNames.get()) {
+            String id = idsByName.get().get(name);
+            if (Objects.nonNull(id))
+                candidates.put(name, id);
+        }
+
+        EngineGroupLoad load = EngineGroupLoad.forServer(client.getUrl());
+        // loads are read before the choice is counted so the log shows what it was based on
+        StringBuilder loads = new StringBuilder();
+        for (Map.Entry<String, String> candidate : candidates.entrySet())
+            loads.append(loads.length() == 0 ? "" : ", ").append(candidate.getKey()).append(": ").append(load.getInFlightCount(candidate.getValue()));
+        engineGroupLease = load.reserveLeastLoaded(candidates);
+        engineGroupLease.ifPresent(lease -> log.println(String.format(
+            "Engine group %s chosen automatically, scans in flight from Jenkins: %s", lease.getEngineGroupName(), loads)));
+        return engineGroupLease.map(EngineGroupLoad.Lease::getEngineGroupId);
+    }
+
+    /**
+     * counts a scan on an engine group Jenkins didn't choose, so automatic choices see its load
+     */
+    private void countScanOnEngineGroup() throws InterruptedException {
+        if (engineGroupLease.isPresent())
+            return;
+        Optional<String> groupId = engineGroupId.isPresent()
+            ? engineGroupId
+            : await(configReference).flatMap(ScanConfigReference::getEngineGroupId);
+        if (groupId.isPresent())
+            engineGroupLease = Optional.of(EngineGroupLoad.forServer(client.getUrl()).reserve(groupId.get(), engineGroupNameOf(groupId.get())));
+    }
+
+    private String engineGroupNameOf(String groupId) throws InterruptedException {
+        return await(engineGroupIdsByName)
+            .flatMap(idsByName -> idsByName.entrySet().stream()
+                .filter(entry -> entry.getValue().equals(groupId))
+                .map(Map.Entry::getKey)
+                .findFirst())
+            .orElse(groupId);
+    }
+
+    private Optional<ScanAdmissionQueue> findAdmissionQueue() throws InterruptedException {
+        Optional<String> groupId = engineGroupId.isPresent()
+            ? engineGroupId
+            : await(configReference).flatMap(ScanConfigReference::getEngineGroupId);
+        if (groupId.isEmpty()) {
+            log.println(String.format("Unable to determine the engine group of %s, starting the scan without waiting for a slot",
+                settings.getConfigName()));
+            return Optional.empty();
+        }
+        return Optional.of(ScanAdmissionQueue.forEngineGroup(client.getUrl(), groupId.get(), engineGroupNameOf(groupId.get()),
+            maxConcurrentScansPerEngineGroup));
+    }
+
+    private boolean isConfigUnchanged(String configName, String digest) {
+        try {
+            ScanConfigDigestStore store = configDigestStore.orElseThrow();
+            if (!store.isUnchanged(client.getUrl(), configName, digest))
+                return false;
+            int skipped = store.recordSkipped(client.getUrl(), configName);
+            log.println(String.format("Scan config %s is unchanged since it was last saved, skipping save (%d saves skipped)",
+                configName, skipped));
+            return true;
+        } catch (IOException e) {
+            log.println(String.format("Unable to read saved scan config digests, saving %s: %s", configName, e.getMessage()));
+            return false;
+        }
+    }
+
+    private void recordConfigDigest(String configName, String digest) {
+        try {
+            configDigestStore.orElseThrow().recordSaved(client.getUrl(), configName, digest);
+        } catch (IOException e) {
+            log.println(String.format("Unable to record digest of scan config %s: %s", configName, e.getMessage()));
+        }
+    }
+
+    private void forgetConfigDigest(String configName) {
+        try {
+            configDigestStore.orElseThrow().forget(client.getUrl(), configName);
+            log.println(String.format("Scan config %s will be saved again on the next build", configName));
+        } catch (IOException e) {
+            log.println(String.format("Unable to discard digest of scan config %s: %s", configName, e.getMessage()));
+        }
+    }
+
     private void waitForScanCompletion(String scanId, AuthenticationModel authModel) throws InterruptedException {
         String scanStatus;
         try {
             do {
                 TimeUnit.SECONDS.sleep(settings.getStatusPollTime());
+                log.verbose("Polling status of scan %s on %s", scanId, client.getUrl());
                 scanStatus = getStatus(scanId, authModel)
                         .orElseGet(this::failedStatusRequest);
                 log.println("Scan status: [" + scanStatus +"]");
@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * counts the scans Jenkins has in flight on each engine group of a server, from the moment their
+ * engine group is chosen until the build stops following the scan, and picks the least loaded of
+ * a set of engine groups for scans which leave the choice to Jenkins
+ *
+ * <p>
+ * Counts are shared JVM wide, one set per server, so every job on the controller sees the same
+ * load. Choosing an engine group reserves it in the same step so builds choosing at the same time
+ * spread across the groups instead of all picking the one which was idle. Groups with the same
+ * load are chosen in turn. Scans started outside of Jenkins are not counted.
+ * </p>
+ */
+public final class EngineGroupLoad {
+
+    private static final Map<String, EngineGroupLoad> SERVERS = new ConcurrentHashMap<>();
+
+    private final Map<String, Integer> inFlight = new HashMap<>();
+    private final Map<String, Long> lastChosen = new HashMap<>();
+    private long nextSequence;
+
+    /**
+     * counts one scan on an engine group until closed
+     */
+    public final class Lease implements AutoCloseable {
+        private final String engineGroupId;
+        private final String engineGroupName;
+        private boolean isReleased;
+
+        private Lease(String engineGroupId, String engineGroupName) {
+            this.engineGroupId = engineGroupId;
+            this.engineGroupName = engineGroupName;
+        }
+
+        public String getEngineGroupId() {
+            return engineGroupId;
+        }
+
+        public String getEngineGroupName() {
+            return engineGroupName;
+        }
+
+        /**
+         * stops counting the scan, repeated calls have no effect
+         */
+        @Override
+        public void close() {
+            synchronized (EngineGroupLoad.this) {
+                if (isReleased)
+                    return;
+                isReleased = true;
+                inFlight.computeIfPresent(engineGroupId, (key, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+    }
+
+    /**
+     * @param server server identifier, typically the AppSpider Enterprise url
+     * @return the shared EngineGroupLoad of server
+     * @throws IllegalArgumentException if server is null
+     */
+    public static EngineGroupLoad forServer(String server) {
+        if (Objects.isNull(server))
+            throw new IllegalArgumentException("server cannot be null");
+        return SERVERS.computeIfAbsent(server, key -> new EngineGroupLoad());
+    }
+
+    EngineGroupLoad() {
+    }
+
+    /**
+     * counts a scan on engineGroupId
+     * @param engineGroupId id of the engine group the scan runs on
+     * @param engineGroupName name of the engine group
+     * @return the Lease which must be closed once the build stops following the scan
+     * @throws IllegalArgumentException if either argument is null
+     */
+    public synchronized Lease reserve(String engineGroupId, String engineGroupName) {
+        if (Objects.isNull(engineGroupId))
+            throw new IllegalArgumentException("engineGroupId cannot be null");
+        if (Objects.isNull(engineGroupName))
+            throw new IllegalArgumentException("engineGroupName cannot be null");
+        inFlight.merge(engineGroupId, 1, Integer::sum);
+        lastChosen.put(engineGroupId, nextSequence++);
+        return new Lease(engineGroupId, engineGroupName);
+    }
+
+    /**
+     * chooses the engine group with the fewest scans in flight, or of those the one chosen least
+     * recently, and counts a scan on it
+     * @param engineGroupIdsByName candidate engine groups, name to id
+     * @return Lease of the chosen engine group; or empty if there are no candidates
+     * @throws IllegalArgumentException if engineGroupIdsByName is null
+     */
+    public synchronized Optional<Lease> reserveLeastLoaded(Map<String, String> engineGroupIdsByName) {
+        if (Objects.isNull(engineGroupIdsByName))
+            throw new IllegalArgumentException("engineGroupIdsByName cannot be null");
+        Optional<Map.Entry<String, String>> chosen = Optional.empty();
+        for (Map.Entry<String, String> candidate : engineGroupIdsByName.entrySet()) {
+            if (chosen.isEmpty() || isLessLoaded(candidate.getValue(), chosen.get().getValue()))
+                chosen = Optional.of(candidate);
+        }
+        return chosen.map(group -> reserve(group.getValue(), group.getKey()));
+    }
+
+    private boolean isLessLoaded(String engineGroupId, String otherEngineGroupId) {
+        int load = getInFlightCount(engineGroupId);
+        int otherLoad = getInFlightCount(otherEngineGroupId);
+        if (load != otherLoad)
+            return load < otherLoad;
+        return lastChosen.getOrDefault(engineGroupId, -1L) < lastChosen.getOrDefault(otherEngineGroupId, -1L);
+    }
+
+    /**
+     * @param engineGroupId id of an engine group
+     * @return number of scans counted on engineGroupId
+     */
+    public synchronized int getInFlightCount(String engineGroupId) {
+        return inFlight.getOrDefault(engineGroupId, 0);
+    }
+}
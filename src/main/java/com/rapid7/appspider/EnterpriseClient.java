@@ -5,12 +5,14 @@
 package com.rapid7.appspider;
 
 import com.rapid7.appspider.datatransferobjects.ClientIdNamePair;
+import com.rapid7.appspider.datatransferobjects.ScanConfigReference;
 import com.rapid7.appspider.datatransferobjects.ScanResult;
 import com.rapid7.appspider.models.AuthenticationModel;
 
 import java.io.InputStream;
 import java.net.URL;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface EnterpriseClient {
@@ -52,6 +54,15 @@ public interface EnterpriseClient {
      */
     Optional<String> getEngineGroupIdFromName(String authToken, String engineGroupName);
 
+    /**
+     * fetches the unique ids of all engine groups keyed by engine group name, allowing callers
+     * resolving many names to do so with a single request
+     * @param authToken authorization token required to execute request
+     * @return Optional containing Map of engine group name to id on success;
+     *         otherwise, Optional.empty()
+     */
+    Optional<Map<String, String>> getEngineGroupIdsByName(String authToken);
+
     /**
      * starts a new scan using configuration matching configName
      * @param authToken authorization token required to execute request
@@ -61,6 +72,24 @@ public interface EnterpriseClient {
      */
     ScanResult runScanByConfigName(String authToken, String configName);
 
+    /**
+     * starts a new scan using the configuration identified by configId
+     * @param authToken authorization token required to execute request
+     * @param configId unique id of the config to run, see {@link #getScanConfigReference(String, String)}
+     * @return ScanResult containing details on the success of the request and if successful the
+     *         unique id of the scan
+     */
+    ScanResult runScanByConfigId(String authToken, String configId);
+
+    /**
+     * requests that the running scan identified by scanId is cancelled, the scan may take some time
+     * to stop after the request has been accepted
+     * @param authToken authorization token required to execute request
+     * @param scanId unique scan identifier of the scan
+     * @return true if the request was accepted; otherwise, false
+     */
+    boolean cancelScan(String authToken, String scanId);
+
     /**
      * gets the current status of the scan identified by scanId
      * @param authToken authorization token required to execute request
@@ -92,6 +121,24 @@ public interface EnterpriseClient {
      */
     Optional<String[]> getConfigNames(String authToken);
 
+    /**
+     * gets the id of the engine group scans of the config named configName run on
+     * @param authToken authorization token required to execute request
+     * @param configName name of the scan config
+     * @return Optional containing the engine group id if the config was found and has one;
+     *         otherwise, Optional.empty()
+     */
+    Optional<String> getEngineGroupIdForConfig(String authToken, String configName);
+
+    /**
+     * gets the id of the config named configName along with the id of the engine group its scans
+     * run on, both read from a single request
+     * @param authToken authorization token required to execute request
+     * @param configName name of the scan config
+     * @return Optional containing the reference if the config was found; otherwise, Optional.empty()
+     */
+    Optional<ScanConfigReference> getScanConfigReference(String authToken, String configName);
+
     /**
      * calls the /Configs/SaveConfig endpoint using the provided data to create or update a configuration
      * @param authToken authorization token required to execute request
@@ -102,6 +149,16 @@ public interface EnterpriseClient {
      */
     boolean saveConfig(String authToken, String name, URL url, String engineGroupId);
 
+    /**
+     * computes a digest of the scan config that {@link #saveConfig(String, String, URL, String)} would
+     * send for the same arguments, allowing callers to detect when a save would change nothing
+     * @param name name of the scanconfig
+     * @param url target URL for the scan
+     * @param engineGroupId unique engine group id for the engine(s) to be used to execute the scan
+     * @return Optional containing the hex encoded digest on success; otherwise, Optional.empty()
+     */
+    Optional<String> getScanConfigDigest(String name, URL url, String engineGroupId);
+
     /**
      * gets the vulnerability summary XML as a String
      * @param authToken authorization token required to execute request
@@ -5,14 +5,16 @@
 package com.rapid7.appspider;
 
 import com.rapid7.appspider.datatransferobjects.ClientIdNamePair;
+import com.rapid7.appspider.datatransferobjects.ScanConfigReference;
 import com.rapid7.appspider.datatransferobjects.ScanResult;
 import com.rapid7.appspider.models.AuthenticationModel;
 
 import freemarker.template.Template;
-import freemarker.template.TemplateException;
 
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.protocol.HTTP;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -22,10 +24,13 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Provides methods to communicating with AppSpider Enterprise while obsuring the implementation
@@ -33,11 +38,20 @@ import java.util.Optional;
  */
 public final class EnterpriseRestClient implements EnterpriseClient {
 
+    private static final int MAX_REMEMBERED_SESSIONS = 16;
+
     private final String restEndPointUrl;
-    private final HttpClientService clientService;
+    private final ClientService clientService;
     private final LoggerFacade logger;
     private final ApiSerializer apiSerializer;
     private final ContentHelper contentHelper;
+    // catalog requests name the credentials of their session so that they are cached across logins
+    private final Map<String, String> credentialsByToken = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_REMEMBERED_SESSIONS;
+        }
+    });
 
     /**
      * Instantiates a new instance of the EnterpriseClient class
@@ -48,7 +62,7 @@ public final class EnterpriseRestClient implements EnterpriseClient {
      * @param logger logger used for diagnostic output
      * @throws IllegalArgumentException thrown if any of the arguments are null or if restEntPointUrl is empty
      */
-    public EnterpriseRestClient(HttpClientService clientService, String restEndPointUrl, ApiSerializer apiSerializer, ContentHelper contentHelper, LoggerFacade logger) {
+    public EnterpriseRestClient(ClientService clientService, String restEndPointUrl, ApiSerializer apiSerializer, ContentHelper contentHelper, LoggerFacade logger) {
 
         if (Objects.isNull(restEndPointUrl) || restEndPointUrl.isEmpty())
             throw new IllegalArgumentException("restEndPointUrl cannot be null or empty");
@@ -100,8 +114,12 @@ public final class EnterpriseRestClient implements EnterpriseClient {
                     contentHelper.pairFrom("password", authModel.getPassword()));
             return clientService
                 .buildPostRequestUsingApplicationJson(endPoint, contentEntity)
-                .flatMap(request -> clientService.executeJsonRequest(request)
-                .flatMap(apiSerializer::getTokenOrEmpty));
+                .flatMap(request -> clientService.executeJsonRequest(request, contentHelper.getCodec()::decodeToken))
+                .flatMap(Function.identity())
+                .map(authToken -> {
+                    credentialsByToken.put(authToken, ResponseCache.credentialsOf(authModel));
+                    return authToken;
+                });
         } catch (UnsupportedEncodingException | JSONException e) {
             logger.println(e.toString());
             return Optional.empty();
@@ -136,16 +154,26 @@ public final class EnterpriseRestClient implements EnterpriseClient {
         return getAllEngineGroups(authToken).filter(map -> map.containsKey(engineGroupName)).flatMap(map -> Optional.of(map.get(engineGroupName)));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Map<String, String>> getEngineGroupIdsByName(String authToken) {
+        return getAllEngineGroups(authToken);
+    }
+
     private static final String GET_ALL_ENGINE_GROUPS = "/EngineGroup/GetAllEngineGroups";
     private static final String GET_ENGINE_GROUPS_FOR_CLIENT = "/EngineGroup/GetEngineGroupsForClient";
     private Optional<Map<String, String>> getAllEngineGroups(String authToken) {
         return clientService
             .buildGetRequestUsingFormUrlEncoding(restEndPointUrl + GET_ALL_ENGINE_GROUPS, authToken)
+            .map(request -> withCredentials(request, authToken))
             .flatMap(get -> contentHelper.asMapOfStringToString("Name", "Id", clientService.executeJsonRequest(get)));
     }
     private Optional<Map<String,String>> getEngineGroupsForClient(String authToken) {
         return clientService
             .buildGetRequestUsingFormUrlEncoding(restEndPointUrl + GET_ENGINE_GROUPS_FOR_CLIENT, authToken)
+            .map(request -> withCredentials(request, authToken))
             .flatMap(get -> contentHelper.asMapOfStringToString("Name", "Id", clientService.executeJsonRequest(get)));
     }
     // </editor-fold>
@@ -172,8 +200,20 @@ public final class EnterpriseRestClient implements EnterpriseClient {
     public Optional<String> getScanStatus(String authToken, String scanId) {
         return clientService
             .buildGetRequestUsingFormUrlEncoding(restEndPointUrl + GET_SCAN_STATUS, authToken, contentHelper.pairFrom(SCAN_ID, scanId))
-            .flatMap(clientService::executeJsonRequest)
-            .flatMap(apiSerializer::getStatus);
+            .flatMap(request -> clientService.executeJsonRequest(request, contentHelper.getCodec()::decodeStatus))
+            .flatMap(Function.identity());
+    }
+
+    private static final String CANCEL_SCAN = "/Scan/CancelScan";
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean cancelScan(String authToken, String scanId) {
+        return clientService
+            .buildPostRequestUsingFormUrlEncoding(restEndPointUrl + CANCEL_SCAN, authToken, contentHelper.pairFrom(SCAN_ID, scanId))
+            .flatMap(request -> clientService.executeJsonRequest(request, contentHelper.getCodec()::decodeIsSuccess))
+            .orElse(false);
     }
 
     private static final String IS_SCAN_FINISHED = "/Scan/IsScanFinished";
@@ -197,28 +237,23 @@ public final class EnterpriseRestClient implements EnterpriseClient {
 
     private static final String RUN_SCAN = "/Scan/RunScan";
     /**
-     * starts a new scan using configuration matching configId
-     * @param authToken authorization token required to execute request
-     * @param configId id of the config to run
-     * @return ScanResult containing details on the success of the request and if successful the
-     *         unique id of the scan
+     * {@inheritDoc}
      */
-    private ScanResult runScanByConfigId(String authToken, String configId) {
+    @Override
+    public ScanResult runScanByConfigId(String authToken, String configId) {
         return clientService
             .buildPostRequestUsingFormUrlEncoding(
                 restEndPointUrl + RUN_SCAN,
                 authToken,
                 new BasicNameValuePair("configId", configId))
-            .flatMap(clientService::executeJsonRequest)
-            .map(apiSerializer::getScanResult)
+            .flatMap(request -> clientService.executeJsonRequest(request, contentHelper.getCodec()::decodeScanResult))
             .orElse(new ScanResult(false, ""));
     }
 
     private boolean resultAndIsSuccessProvider(String endpoint, String authToken, String scanId) {
         return clientService
             .buildGetRequestUsingFormUrlEncoding(endpoint, authToken, contentHelper.pairFrom(SCAN_ID, scanId))
-            .flatMap(clientService::executeJsonRequest)
-            .map(apiSerializer::getResultIsSuccess)
+            .flatMap(request -> clientService.executeJsonRequest(request, contentHelper.getCodec()::decodeResultIsSuccess))
             .orElse(false);
     }
 
@@ -249,6 +284,7 @@ public final class EnterpriseRestClient implements EnterpriseClient {
     private Optional<JSONArray> getConfigs(String authToken) {
         return clientService
             .buildGetRequestUsingFormUrlEncoding(restEndPointUrl + GET_CONFIGS, authToken)
+            .map(request -> withCredentials(request, authToken))
             .flatMap(clientService::executeJsonRequest)
             .flatMap(configsObject -> contentHelper.getArrayFrom(configsObject, "Configs"));
     }
@@ -263,6 +299,25 @@ public final class EnterpriseRestClient implements EnterpriseClient {
             .map(FunctionalUtility::toStringArray);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String> getEngineGroupIdForConfig(String authToken, String configName) {
+        return getConfigByName(authToken, configName)
+            .flatMap(apiSerializer::getScanConfigEngineGroupId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<ScanConfigReference> getScanConfigReference(String authToken, String configName) {
+        return getConfigByName(authToken, configName)
+            .flatMap(config -> apiSerializer.getScanConfigId(config)
+                .map(id -> new ScanConfigReference(id, apiSerializer.getScanConfigEngineGroupId(config))));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -274,31 +329,53 @@ public final class EnterpriseRestClient implements EnterpriseClient {
                 .getInstance()
                 .getTemplate("scanConfigTemplate.ftl");
 
-            String scanConfigXml = apiSerializer.getScanConfigXml(template, name, url);
+            // the scan config XML is rendered and encoded as the request is written rather than
+            // being built as a String up front, keeping memory per save bounded by buffer sizes
+            Map<String, String> templateData = apiSerializer.getScanConfigTemplateData(name, url);
+            StreamingFormEntity formEntity = new StreamingFormEntity(HTTP.DEF_CONTENT_CHARSET)
+                .addField(contentHelper.pairFrom("defendEnabled", "true"))
+                .addField(contentHelper.pairFrom("monitoringDelay", "0"))
+                .addField(contentHelper.pairFrom("monitoringTriggerScan", "true"))
+                .addField(contentHelper.pairFrom("id", "null"))
+                .addField(contentHelper.pairFrom("name",name))
+                .addField(contentHelper.pairFrom("clientId", "null"))
+                .addField(contentHelper.pairFrom("engineGroupId",engineGroupId))
+                .addField(contentHelper.pairFrom("monitoring", "true"))
+                .addField(contentHelper.pairFrom("isApproveRequired", "false"))
+                .addField("scanconfigxml", writer -> apiSerializer.writeScanConfigXml(template, templateData, writer));
+
             return clientService
                 .buildPostRequestUsingFormUrlEncoding(
                     restEndPointUrl + SAVE_CONFIG,
                     authToken,
-                    contentHelper.pairFrom("defendEnabled", "true"),
-                    contentHelper.pairFrom("monitoringDelay", "0"),
-                    contentHelper.pairFrom("monitoringTriggerScan", "true"),
-                    contentHelper.pairFrom("id", "null"),
-                    contentHelper.pairFrom("name",name),
-                    contentHelper.pairFrom("clientId", "null"),
-                    contentHelper.pairFrom("engineGroupId",engineGroupId),
-                    contentHelper.pairFrom("monitoring", "true"),
-                    contentHelper.pairFrom("isApproveRequired", "false"),
-                    contentHelper.pairFrom("scanconfigxml", scanConfigXml))
+                    formEntity)
                 .flatMap(clientService::executeJsonRequest)
                 .map(apiSerializer::getIsSuccess)
                 .orElse(false);
 
-        } catch (IOException | TemplateException e) {
+        } catch (IOException e) {
             logger.println(e.toString());
             return false;
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String> getScanConfigDigest(String name, URL url, String engineGroupId) {
+        try {
+            Template template = FreemarkerConfiguration
+                .getInstance()
+                .getTemplate("scanConfigTemplate.ftl");
+            return Optional.of(apiSerializer.getScanConfigDigest(template, apiSerializer.getScanConfigTemplateData(name, url), engineGroupId));
+
+        } catch (IOException e) {
+            logger.println(e.toString());
+            return Optional.empty();
+        }
+    }
+
     // </editor-fold>
 
     // <editor-fold desc="Report APIs">
@@ -338,11 +415,17 @@ public final class EnterpriseRestClient implements EnterpriseClient {
     public Optional<List<ClientIdNamePair>> getClientNameIdPairs(String authToken) {
         return clientService
             .buildGetRequestUsingFormUrlEncoding(restEndPointUrl + GET_CLIENTS, authToken)
-            .flatMap(clientService::executeJsonRequest)
-            .filter(apiSerializer::getIsSuccess)
-            .flatMap(clientObjects -> contentHelper.getArrayFrom(clientObjects, "Clients"))
-            .flatMap(apiSerializer::getClientIdNamePairs);
+            .map(request -> withCredentials(request, authToken))
+            .flatMap(request -> clientService.executeJsonRequest(request, contentHelper.getCodec()::decodeClients))
+            .flatMap(Function.identity());
     }
 
     // </editor-fold>
+
+    private <T extends HttpRequestBase> T withCredentials(T request, String authToken) {
+        String credentials = credentialsByToken.get(authToken);
+        if (Objects.nonNull(credentials))
+            request.addHeader(ResponseCache.CREDENTIALS_HEADER, credentials);
+        return request;
+    }
 }
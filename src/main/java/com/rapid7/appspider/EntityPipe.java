@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.apache.http.HttpEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * streams the content of an {@link HttpEntity} to whoever reads it as the entity writes it, holding
+ * at most {@value #MAX_CHUNKS} chunks of {@value #CHUNK_SIZE} bytes so that a large entity is never
+ * buffered whole
+ *
+ * <p>
+ * Unlike {@link java.io.PipedInputStream} neither side is tied to the thread that last used it, the
+ * JDK HttpClient reads request bodies from whichever of its executor's threads is free.
+ * </p>
+ */
+final class EntityPipe extends InputStream {
+
+    static final int CHUNK_SIZE = 16 * 1024;
+    static final int MAX_CHUNKS = 4;
+
+    private static final byte[] END = new byte[0];
+    private static final long OFFER_POLL_MILLIS = 100;
+
+    private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(MAX_CHUNKS);
+    private volatile boolean isClosed;
+    private volatile Throwable failure;
+    private byte[] chunk = new byte[0];
+    private int position;
+    private boolean isAtEnd;
+
+    private EntityPipe() {
+    }
+
+    /**
+     * starts writing entity on executor
+     * @param entity entity to stream
+     * @param executor runs entity's writeTo, which blocks while the reader is behind
+     * @return stream of entity's content, failing with an IOException if writing it fails
+     * @throws IllegalArgumentException if entity or executor is null
+     */
+    static InputStream open(HttpEntity entity, Executor executor) {
+        if (Objects.isNull(entity))
+            throw new IllegalArgumentException("entity cannot be null");
+        if (Objects.isNull(executor))
+            throw new IllegalArgumentException("executor cannot be null");
+        EntityPipe pipe = new EntityPipe();
+        executor.execute(() -> pipe.write(entity));
+        return pipe;
+    }
+
+    private void write(HttpEntity entity) {
+        try (ChunkOutputStream out = new ChunkOutputStream()) {
+            entity.writeTo(out);
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        }
+        try {
+            offer(END);
+        } catch (IOException e) {
+            // reader has gone or the writer was interrupted, nobody is left to tell
+        }
+    }
+
+    private void offer(byte[] next) throws IOException {
+        try {
+            while (!chunks.offer(next, OFFER_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (isClosed)
+                    throw new IOException("request body is no longer being read");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while writing request body");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, buffer.length);
+        if (length == 0)
+            return 0;
+        while (position == chunk.length) {
+            if (isAtEnd)
+                return -1;
+            if (isClosed)
+                throw new IOException("stream closed");
+            try {
+                chunk = chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while reading request body");
+            }
+            position = 0;
+            if (chunk == END) {
+                isAtEnd = true;
+                if (Objects.nonNull(failure))
+                    throw new IOException("failed to write request body: " + failure, failure);
+            }
+        }
+        int count = Math.min(length, chunk.length - position);
+        System.arraycopy(chunk, position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() {
+        isClosed = true;
+        chunks.clear();
+    }
+
+    private final class ChunkOutputStream extends OutputStream {
+        private final byte[] pending = new byte[CHUNK_SIZE];
+        private int size;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (size == pending.length)
+                flush();
+            pending[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            Objects.checkFromIndexSize(offset, length, buffer.length);
+            while (length > 0) {
+                if (size == pending.length)
+                    flush();
+                int count = Math.min(length, pending.length - size);
+                System.arraycopy(buffer, offset, pending, size, count);
+                size += count;
+                offset += count;
+                length -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (size == 0)
+                return;
+            if (isClosed)
+                throw new IOException("request body is no longer being read");
+            byte[] next = new byte[size];
+            System.arraycopy(pending, 0, next, 0, size);
+            size = 0;
+            offer(next);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
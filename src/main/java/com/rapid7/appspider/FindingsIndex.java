@@ -0,0 +1,208 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.FindingsPage;
+import com.rapid7.appspider.datatransferobjects.IndexedFindings;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * index of the current findings of every job and scan config, updated as each build saves its
+ * report so the dashboard is served from memory without reading any report
+ *
+ * <p>
+ * Entries are kept decoded in memory and persisted through a {@link PropertiesStore} keyed by
+ * job and config, so an update replaces the single entry of the job's config. A single instance
+ * is shared per file.
+ * </p>
+ */
+public final class FindingsIndex {
+
+    private static final Map<Path, FindingsIndex> INSTANCES = new ConcurrentHashMap<>();
+    // '|' is not allowed in Jenkins item names so the job name always ends at the first separator
+    private static final String SEPARATOR = "|";
+    private static final Pattern SEPARATOR_PATTERN = Pattern.compile(Pattern.quote(SEPARATOR));
+    private static final Comparator<IndexedFindings> MOST_SEVERE_FIRST = mostSevereFirst();
+
+    private final PropertiesStore store;
+    private Map<String, IndexedFindings> entries;
+
+    /**
+     * gets the index backed by file, creating it if necessary
+     * @param file location of the index, the file need not exist yet
+     * @return the shared FindingsIndex for file
+     * @throws IllegalArgumentException if file is null
+     */
+    public static FindingsIndex forFile(Path file) {
+        if (Objects.isNull(file))
+            throw new IllegalArgumentException("file cannot be null");
+        return INSTANCES.computeIfAbsent(file.toAbsolutePath().normalize(), FindingsIndex::new);
+    }
+
+    private FindingsIndex(Path file) {
+        this.store = PropertiesStore.forFile(file);
+    }
+
+    /**
+     * replaces the findings of the job's config with findings
+     * @param findings the latest findings of a job's scan config
+     * @throws IllegalArgumentException if findings is null
+     * @throws IOException if the index cannot be written
+     */
+    public synchronized void update(IndexedFindings findings) throws IOException {
+        if (Objects.isNull(findings))
+            throw new IllegalArgumentException("findings cannot be null");
+        ensureLoaded();
+        String key = keyOf(findings.getJobName(), findings.getConfigName());
+        store.put(key, encode(findings));
+        entries.put(key, findings);
+    }
+
+    /**
+     * removes the findings of jobName, and of every job within it if it is a folder
+     * @param jobName full name of the deleted job or folder
+     * @return number of entries removed
+     * @throws IOException if the index cannot be written
+     */
+    public synchronized int removeJob(String jobName) throws IOException {
+        ensureLoaded();
+        List<String> keys = entries.values().stream()
+            .filter(isWithin(jobName))
+            .map(findings -> keyOf(findings.getJobName(), findings.getConfigName()))
+            .collect(Collectors.toList());
+        store.removeAll(keys);
+        keys.forEach(entries::remove);
+        return keys.size();
+    }
+
+    /**
+     * moves the findings of a renamed or moved job, and of every job within it if it is a folder
+     * @param oldJobName previous full name of the job or folder
+     * @param newJobName current full name of the job or folder
+     * @return number of entries moved
+     * @throws IOException if the index cannot be written
+     */
+    public synchronized int renameJob(String oldJobName, String newJobName) throws IOException {
+        if (Objects.equals(oldJobName, newJobName))
+            return 0;
+        ensureLoaded();
+        List<IndexedFindings> moved = entries.values().stream()
+            .filter(isWithin(oldJobName))
+            .collect(Collectors.toList());
+        List<String> oldKeys = moved.stream()
+            .map(findings -> keyOf(findings.getJobName(), findings.getConfigName()))
+            .collect(Collectors.toList());
+        store.removeAll(oldKeys);
+        oldKeys.forEach(entries::remove);
+        for (IndexedFindings findings : moved)
+            update(findings.withJobName(newJobName + findings.getJobName().substring(oldJobName.length())));
+        return moved.size();
+    }
+
+    /**
+     * gets a page of the findings matching query, most severe first
+     * @param query conditions the findings must satisfy
+     * @param isVisible excludes findings of jobs the viewer cannot see, given the job's full name
+     * @param offset number of matching findings to skip
+     * @param pageSize maximum number of findings to return
+     * @return the page of findings along with the number matching across all pages
+     * @throws IllegalArgumentException if query or isVisible is null, or offset or pageSize is negative
+     * @throws IOException if the index cannot be read
+     */
+    public synchronized FindingsPage query(FindingsQuery query, Predicate<String> isVisible, int offset, int pageSize) throws IOException {
+        if (Objects.isNull(query))
+            throw new IllegalArgumentException("query cannot be null");
+        if (Objects.isNull(isVisible))
+            throw new IllegalArgumentException("isVisible cannot be null");
+        if (offset < 0 || pageSize < 0)
+            throw new IllegalArgumentException("offset and pageSize cannot be negative");
+        ensureLoaded();
+        List<IndexedFindings> matching = entries.values().stream()
+            .filter(query::matches)
+            .filter(findings -> isVisible.test(findings.getJobName()))
+            .sorted(MOST_SEVERE_FIRST)
+            .collect(Collectors.toList());
+        int from = Math.min(offset, matching.size());
+        int to = Math.min(from + pageSize, matching.size());
+        return new FindingsPage(new ArrayList<>(matching.subList(from, to)), matching.size(), from, pageSize);
+    }
+
+    /**
+     * @return number of job and config pairs in the index
+     * @throws IOException if the index cannot be read
+     */
+    public synchronized int size() throws IOException {
+        ensureLoaded();
+        return entries.size();
+    }
+
+    private void ensureLoaded() throws IOException {
+        if (Objects.nonNull(entries))
+            return;
+        Map<String, IndexedFindings> loaded = new HashMap<>();
+        for (Map.Entry<String, String> entry : store.getAll().entrySet())
+            decode(entry.getKey(), entry.getValue()).ifPresent(findings -> loaded.put(entry.getKey(), findings));
+        entries = loaded;
+    }
+
+    private static Predicate<IndexedFindings> isWithin(String jobName) {
+        return findings -> findings.getJobName().equals(jobName) || findings.getJobName().startsWith(jobName + "/");
+    }
+
+    private static String keyOf(String jobName, String configName) {
+        return jobName + SEPARATOR + configName;
+    }
+
+    private static String encode(IndexedFindings findings) {
+        StringBuilder value = new StringBuilder()
+            .append(findings.getBuildNumber()).append(SEPARATOR)
+            .append(findings.getRecordedAt().toEpochMilli());
+        for (Severity severity : Severity.values())
+            value.append(SEPARATOR).append(findings.getCount(severity));
+        return value.toString();
+    }
+
+    private static Optional<IndexedFindings> decode(String key, String value) {
+        int separator = key.indexOf(SEPARATOR);
+        String[] fields = SEPARATOR_PATTERN.split(value);
+        if (separator < 0 || fields.length != 2 + Severity.values().length)
+            return Optional.empty();
+        try {
+            Map<Severity, Integer> counts = new EnumMap<>(Severity.class);
+            for (Severity severity : Severity.values())
+                counts.put(severity, Integer.parseInt(fields[2 + severity.ordinal()]));
+            return Optional.of(new IndexedFindings(key.substring(0, separator), key.substring(separator + 1),
+                Integer.parseInt(fields[0]), Instant.ofEpochMilli(Long.parseLong(fields[1])), counts));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Comparator<IndexedFindings> mostSevereFirst() {
+        Comparator<IndexedFindings> comparator = null;
+        for (Severity severity : Severity.values()) {
+            Comparator<IndexedFindings> bySeverity = Comparator.comparingInt((IndexedFindings findings) -> findings.getCount(severity)).reversed();
+            comparator = Objects.isNull(comparator) ? bySeverity : comparator.thenComparing(bySeverity);
+        }
+        return comparator
+            .thenComparing(IndexedFindings::getJobName)
+            .thenComparing(IndexedFindings::getConfigName);
+    }
+}
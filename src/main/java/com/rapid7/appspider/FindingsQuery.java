@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.IndexedFindings;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * filter applied to the {@link FindingsIndex} by the dashboard, every condition must hold for
+ * findings to match
+ */
+public final class FindingsQuery {
+
+    private String jobFilter = "";
+    private String configFilter = "";
+    private Optional<Severity> minimumSeverity = Optional.empty();
+
+    /**
+     * @return query matching all findings
+     */
+    public static FindingsQuery all() {
+        return new FindingsQuery();
+    }
+
+    private FindingsQuery() {
+    }
+
+    /**
+     * returns a copy of this query matching only jobs whose full name contains text, ignoring case
+     * @param text text to look for, null or blank matches every job
+     * @return new FindingsQuery
+     */
+    public FindingsQuery withJobFilter(String text) {
+        FindingsQuery query = copy();
+        query.jobFilter = normalize(text);
+        return query;
+    }
+
+    /**
+     * returns a copy of this query matching only scan configs whose name contains text, ignoring case
+     * @param text text to look for, null or blank matches every config
+     * @return new FindingsQuery
+     */
+    public FindingsQuery withConfigFilter(String text) {
+        FindingsQuery query = copy();
+        query.configFilter = normalize(text);
+        return query;
+    }
+
+    /**
+     * returns a copy of this query matching only findings with at least one finding of severity or higher
+     * @param severity least severity of interest, null matches findings of any severity including none
+     * @return new FindingsQuery
+     */
+    public FindingsQuery withMinimumSeverity(Severity severity) {
+        FindingsQuery query = copy();
+        query.minimumSeverity = Optional.ofNullable(severity);
+        return query;
+    }
+
+    /**
+     * @param findings findings of a job's scan config
+     * @return true if findings satisfy every condition of this query
+     */
+    public boolean matches(IndexedFindings findings) {
+        if (!jobFilter.isEmpty() && !findings.getJobName().toLowerCase(Locale.ROOT).contains(jobFilter))
+            return false;
+        if (!configFilter.isEmpty() && !findings.getConfigName().toLowerCase(Locale.ROOT).contains(configFilter))
+            return false;
+        if (minimumSeverity.isEmpty())
+            return true;
+        for (Severity severity : Severity.values()) {
+            if (findings.getCount(severity) > 0)
+                return true;
+            if (severity == minimumSeverity.get())
+                break;
+        }
+        return false;
+    }
+
+    private FindingsQuery copy() {
+        FindingsQuery query = new FindingsQuery();
+        query.jobFilter = jobFilter;
+        query.configFilter = configFilter;
+        query.minimumSeverity = minimumSeverity;
+        return query;
+    }
+
+    private static String normalize(String text) {
+        return Objects.isNull(text) ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+}
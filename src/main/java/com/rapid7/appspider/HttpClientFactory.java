@@ -8,20 +8,33 @@ import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
-import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.http.ssl.SSLContexts;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.net.Socket;
 import java.security.KeyManagementException;
-import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
 /**
  * HttpClients configured to use TLS 1.2
  */
 public class HttpClientFactory {
 
+    private static final Map<String, java.net.http.HttpClient> ASYNC_CLIENTS = new ConcurrentHashMap<>();
+    private static final ExecutorService ASYNC_EXECUTOR = ScanExecutors.newUnboundedExecutor("appspider-http");
+
     private final SSLConnectionSocketFactory socketFactory;
+    private final boolean allowSelfSignedCertificates;
     final SSLContext sslContext;
 
     public static HttpClientFactory createInstanceOrThrow(boolean allowSelfSignedCertificates)
@@ -30,19 +43,20 @@ public class HttpClientFactory {
             // ignore self-signed certs since we have no control over the server setup and as such can't
             // enforce proper certificate usage
             if (allowSelfSignedCertificates) {
-                return new HttpClientFactory(new SSLContextBuilder()
-                        .loadTrustMaterial(null, (x509CertChain, authType) -> true)
-                        .build());
+                SSLContext context = SSLContext.getInstance("TLS");
+                context.init(null, new TrustManager[]{new TrustingTrustManager()}, null);
+                return new HttpClientFactory(context, true);
             } else {
-                return new HttpClientFactory(SSLContexts.createDefault());
+                return new HttpClientFactory(SSLContexts.createDefault(), false);
             }
-        } catch (NoSuchAlgorithmException | KeyStoreException | KeyManagementException e) {
+        } catch (NoSuchAlgorithmException | KeyManagementException e) {
             throw new SslContextCreationException("Unable to configure SSL Context", e);
         }
     }
 
-    private HttpClientFactory(SSLContext context) {
+    private HttpClientFactory(SSLContext context, boolean allowSelfSignedCertificates) {
         sslContext = context;
+        this.allowSelfSignedCertificates = allowSelfSignedCertificates;
         socketFactory = new SSLConnectionSocketFactory(sslContext,
                 new String[]{"TLSv1.2"},
                 null, NoopHostnameVerifier.INSTANCE);
@@ -59,5 +73,84 @@ public class HttpClientFactory {
                 .setSSLSocketFactory(socketFactory)
                 .build();
     }
-}
 
+    /**
+     * gets a closeble HttpClient configured for TLS 1.2 whose connection pool allows up to
+     * maxConnectionsPerRoute concurrent requests to the same server
+     * @param maxConnectionsPerRoute maximum number of pooled connections per server
+     * @return closeble HttpClient configured for TLS 1.2
+     * @throws IllegalArgumentException if maxConnectionsPerRoute is less than 1
+     */
+    public CloseableHttpClient getClient(int maxConnectionsPerRoute) {
+        if (maxConnectionsPerRoute < 1)
+            throw new IllegalArgumentException("maxConnectionsPerRoute must be at least 1");
+        return HttpClients
+                .custom()
+                .setSSLContext(sslContext)
+                .setSSLSocketFactory(socketFactory)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setMaxConnTotal(maxConnectionsPerRoute)
+                .build();
+    }
+
+    /**
+     * gets the JVM wide non-blocking client configured for TLS 1.2 which negotiates HTTP/2 where the
+     * server supports it, multiplexing concurrent requests to a server over a single connection.
+     * Like the clients returned by {@link #getClient()} it checks neither certificates nor host names
+     * when self-signed certificates are allowed
+     * @param connectTimeout maximum time to wait for a connection to be established
+     * @return the shared client, which must not be closed
+     * @throws IllegalArgumentException if connectTimeout is null or not positive
+     */
+    public java.net.http.HttpClient getSharedAsyncClient(Duration connectTimeout) {
+        if (Objects.isNull(connectTimeout) || connectTimeout.isZero() || connectTimeout.isNegative())
+            throw new IllegalArgumentException("connectTimeout must be positive");
+        return ASYNC_CLIENTS.computeIfAbsent(allowSelfSignedCertificates + "|" + connectTimeout, key -> java.net.http.HttpClient
+                .newBuilder()
+                .version(java.net.http.HttpClient.Version.HTTP_2)
+                .sslContext(sslContext)
+                .sslParameters(new SSLParameters(null, new String[]{"TLSv1.2"}))
+                .connectTimeout(connectTimeout)
+                .followRedirects(java.net.http.HttpClient.Redirect.NEVER)
+                .executor(ASYNC_EXECUTOR)
+                .build());
+    }
+
+    /**
+     * trusts every certificate without checking that it was issued for the host connected to. The
+     * JDK client checks host names in the trust manager, and only skips the check for one which
+     * extends {@link X509ExtendedTrustManager}
+     */
+    private static final class TrustingTrustManager extends X509ExtendedTrustManager {
+        private static final X509Certificate[] NO_ISSUERS = new X509Certificate[0];
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) {
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return NO_ISSUERS;
+        }
+    }
+}
@@ -4,28 +4,33 @@
 
 package com.rapid7.appspider;
 
+import com.rapid7.appspider.datatransferobjects.Interaction;
 import org.apache.http.*;
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.client.utils.URIBuilder;
 import org.json.JSONObject;
 
-import javax.ws.rs.core.MediaType;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.net.URISyntaxException;
-import java.util.Arrays;
+import java.io.InterruptedIOException;
+import java.time.Instant;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
-public class HttpClientService implements ClientService {
+public class HttpClientService extends AbstractClientService {
 
     private final HttpClient httpClient;
-    private final LoggerFacade logger;
     private final ContentHelper contentHelper;
+    private Optional<ServerGuardSettings> serverGuardSettings = Optional.empty();
+    private Optional<RequestTimeouts> timeouts = Optional.empty();
+    private int maxAttempts = 1;
+    private Optional<RequestRateLimits> rateLimits = Optional.empty();
+    private int interactionLogCapacity;
+    private Optional<InteractionLogFile> interactionLogFile = Optional.empty();
+    private long responseCacheMaxBytes;
+    private int responseCacheFallbackTtlSeconds;
 
     public static HttpClientService createInstanceOrThrow(HttpClient httpClient, ContentHelper contentHelper, LoggerFacade logger) {
         if (Objects.isNull(httpClient))
@@ -38,9 +43,131 @@ public class HttpClientService implements ClientService {
     }
 
     private HttpClientService(HttpClient httpClient, ContentHelper contentHelper, LoggerFacade logger) {
+        super(logger);
         this.httpClient = httpClient;
         this.contentHelper = contentHelper;
-        this.logger = logger;
+    }
+
+    /**
+     * returns a copy of this service sending every request through the {@link ServerGuard} of the
+     * server it is addressed to
+     * @param settings limits applied to requests sent to each server
+     * @return new HttpClientService using settings
+     * @throws IllegalArgumentException if settings is null
+     */
+    public HttpClientService withServerGuard(ServerGuardSettings settings) {
+        if (Objects.isNull(settings))
+            throw new IllegalArgumentException("settings cannot be null");
+        HttpClientService service = copy();
+        service.serverGuardSettings = Optional.of(settings);
+        return service;
+    }
+
+    /**
+     * returns a copy of this service applying timeouts to every request
+     * @param timeouts connect and read timeouts
+     * @return new HttpClientService using timeouts
+     * @throws IllegalArgumentException if timeouts is null
+     */
+    public HttpClientService withTimeouts(RequestTimeouts timeouts) {
+        if (Objects.isNull(timeouts))
+            throw new IllegalArgumentException("timeouts cannot be null");
+        HttpClientService service = copy();
+        service.timeouts = Optional.of(timeouts);
+        return service;
+    }
+
+    /**
+     * returns a copy of this service retrying failed requests up to maxAttempts times in total.
+     * GET requests, and login, are retried using {@link RetryPolicy#forIdempotentRequests(int)}; other
+     * requests using {@link RetryPolicy#forNonIdempotentRequests(int)}. Retries to each server are
+     * limited by its {@link RetryBudget}
+     * @param maxAttempts maximum number of attempts including the first
+     * @return new HttpClientService retrying failed requests
+     * @throws IllegalArgumentException if maxAttempts is less than 1
+     */
+    public HttpClientService withRetries(int maxAttempts) {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        HttpClientService service = copy();
+        service.maxAttempts = maxAttempts;
+        return service;
+    }
+
+    /**
+     * returns a copy of this service waiting for a permit from the JVM wide rate limiter of the
+     * request's server and endpoint class before sending each request, including retries
+     * @param rateLimits maximum request rates per endpoint class
+     * @return new HttpClientService using rateLimits
+     * @throws IllegalArgumentException if rateLimits is null
+     */
+    public HttpClientService withRateLimits(RequestRateLimits rateLimits) {
+        if (Objects.isNull(rateLimits))
+            throw new IllegalArgumentException("rateLimits cannot be null");
+        HttpClientService service = copy();
+        service.rateLimits = Optional.of(rateLimits);
+        return service;
+    }
+
+    /**
+     * returns a copy of this service recording every attempt, including retries, in the
+     * {@link InteractionLog} of the request's server
+     * @param capacity number of interactions kept per server
+     * @return new HttpClientService recording interactions
+     * @throws IllegalArgumentException if capacity is less than 1
+     */
+    public HttpClientService withInteractionLog(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be at least 1");
+        HttpClientService service = copy();
+        service.interactionLogCapacity = capacity;
+        return service;
+    }
+
+    /**
+     * returns a copy of this service also writing every attempt, including retries, to file
+     * @param file destination of the interactions, closed by the caller
+     * @return new HttpClientService writing interactions to file
+     * @throws IllegalArgumentException if file is null
+     */
+    public HttpClientService withInteractionLogFile(InteractionLogFile file) {
+        if (Objects.isNull(file))
+            throw new IllegalArgumentException("file cannot be null");
+        HttpClientService service = copy();
+        service.interactionLogFile = Optional.of(file);
+        return service;
+    }
+
+    /**
+     * returns a copy of this service answering catalog requests from the {@link ResponseCache} of
+     * the request's server, revalidating cached responses with conditional requests
+     * @param maxBytes maximum total size of the responses cached per server
+     * @param fallbackTtlSeconds how long responses without validators are reused
+     * @return new HttpClientService caching catalog responses
+     * @throws IllegalArgumentException if maxBytes is less than 1 or fallbackTtlSeconds is negative
+     */
+    public HttpClientService withResponseCache(long maxBytes, int fallbackTtlSeconds) {
+        if (maxBytes < 1)
+            throw new IllegalArgumentException("maxBytes must be at least 1");
+        if (fallbackTtlSeconds < 0)
+            throw new IllegalArgumentException("fallbackTtlSeconds cannot be negative");
+        HttpClientService service = copy();
+        service.responseCacheMaxBytes = maxBytes;
+        service.responseCacheFallbackTtlSeconds = fallbackTtlSeconds;
+        return service;
+    }
+
+    private HttpClientService copy() {
+        HttpClientService service = new HttpClientService(httpClient, contentHelper, logger);
+        service.serverGuardSettings = serverGuardSettings;
+        service.timeouts = timeouts;
+        service.maxAttempts = maxAttempts;
+        service.rateLimits = rateLimits;
+        service.interactionLogCapacity = interactionLogCapacity;
+        service.interactionLogFile = interactionLogFile;
+        service.responseCacheMaxBytes = responseCacheMaxBytes;
+        service.responseCacheFallbackTtlSeconds = responseCacheFallbackTtlSeconds;
+        return service;
     }
 
     /**
@@ -52,10 +179,23 @@ public class HttpClientService implements ClientService {
     public Optional<JSONObject> executeJsonRequest(HttpRequestBase request) {
         try {
             
-            return contentHelper.responseToJSONObject(httpClient.execute(request), request.getURI().getPath());
+            return contentHelper.responseToJSONObject(execute(request), request.getURI().getPath());
 
         } catch (IOException e) {
-            logger.severe(e.toString());
+            logFailure(e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> Optional<T> executeJsonRequest(HttpRequestBase request, JsonCodec.Decoder<T> decoder) {
+        try {
+            return contentHelper.decodeResponse(execute(request), request.getURI().getPath(), decoder);
+        } catch (IOException e) {
+            logFailure(e);
             return Optional.empty();
         }
     }
@@ -65,139 +205,132 @@ public class HttpClientService implements ClientService {
      * @param request the request to send/execute
      * @return on success an Optional containing a HttpEntity; otherwise, Optional.empty()
      */
+    @Override
     public Optional<HttpEntity> executeEntityRequest(HttpRequestBase request) {
         try {
-            HttpResponse response = httpClient.execute(request);
+            HttpResponse response = execute(request);
             return FunctionalUtility.isSuccessStatusCode(response)
                 ? Optional.of(response.getEntity())
                 : Optional.empty();
 
         } catch (IOException e) {
-            logger.severe(e.toString());
+            logFailure(e);
             return Optional.empty();
         }
     }
 
-    private static final String BASIC_AUTHENTICATION_FORMAT = "Basic %s";
-
-    /**
-     * Builds a HttpGet request object for the endpoint given by endpoint using authToken as basic authentication header
-     * @param endpoint endpoint to perform get request on
-     * @param authToken authorization token for basic authentication
-     * @return Optional of HttpGet containing the request object
-     * @throws IllegalArgumentException when either endpoint or authToken are null or empty
-     */
-    @Override
-    public Optional<HttpGet> buildGetRequestUsingFormUrlEncoding(String endpoint, String authToken) {
-        ensureArgumentsValid(endpoint, authToken);
-
-        HttpGet request = new HttpGet(endpoint);
-        request.addHeader(HttpHeaders.CONTENT_TYPE,  MediaType.APPLICATION_FORM_URLENCODED);
-        request.addHeader(HttpHeaders.AUTHORIZATION, String.format(BASIC_AUTHENTICATION_FORMAT, authToken));
-
-        return Optional.of(request);
+    private HttpResponse execute(HttpRequestBase request) throws IOException {
+        String server = Objects.toString(request.getURI().getAuthority(), "");
+        if (responseCacheMaxBytes > 0 && ResponseCache.isInvalidating(request)) {
+            try {
+                return executeWithRetries(request);
+            } finally {
+                ResponseCache.find(server).ifPresent(cache -> cache.invalidate(request));
+            }
+        }
+        if (responseCacheMaxBytes == 0 || !ResponseCache.isCacheable(request))
+            return executeWithRetries(request);
+        ResponseCache.Lookup lookup = ResponseCache
+            .forServer(server, responseCacheMaxBytes, responseCacheFallbackTtlSeconds)
+            .lookup(request);
+        Optional<HttpResponse> cached = lookup.getFreshResponse();
+        return cached.isPresent()
+            ? cached.get()
+            : lookup.complete(executeWithRetries(request));
     }
 
-    /**
-     * builds a HttpGet request object for the given endpoint using authToken as basic authentication header and params
-     * as additional URL key/value parameters
-     * @param endpoint endpoint to perform get request on
-     * @param authToken authorization token for basic authentication
-     * @param params name/value pairs encoded and added to endpoint
-     * @return Optional of HttpGet containing the request object
-     * @throws IllegalArgumentException when either endpoint or authToken are null or empty
-     */
-    @Override
-    public Optional<HttpGet> buildGetRequestUsingFormUrlEncoding(String endpoint, String authToken, NameValuePair... params) {
-        if (Objects.isNull(params) || params.length == 0)
-            return buildGetRequestUsingFormUrlEncoding(endpoint, authToken);
-
-        ensureArgumentsValid(endpoint, authToken);
+    private HttpResponse executeWithRetries(HttpRequestBase request) throws IOException {
+        // the credentials are named for the response cache only, the server goes by the session token
+        request.removeHeaders(ResponseCache.CREDENTIALS_HEADER);
+        timeouts.ifPresent(value -> request.setConfig(value.applyTo(request.getConfig())));
+        String server = Objects.toString(request.getURI().getAuthority(), "");
+        // every stage completes on this thread, delay sleeps rather than scheduling the next attempt
+        CompletableFuture<HttpResponse> response = sendWithRetries(request, maxAttempts, attempt -> {
+            try {
+                if (attempt > 1)
+                    request.reset();
+                return CompletableFuture.completedFuture(executeOnce(request, server, attempt));
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
         try {
-            URIBuilder builder = new URIBuilder(endpoint);
-            builder.addParameters(Arrays.asList(params));
-
-            return buildGetRequestUsingFormUrlEncoding(builder.build().toString(), authToken);
-
-        } catch (URISyntaxException e) {
-            logger.severe(e.toString());
-            return Optional.empty();
+            return response.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw e;
         }
     }
 
-    /**
-     * builds a HttpGet request object for the given endpoint using authToken as basic authentication header.
-     * Request is sent using Content-Type and Accept as Application/json
-     * @param endpoint endpoint to perform get request on
-     * @param authToken authorization token for basic authentication
-     * @return Optional of HttpGet containing the request object
-     * @throws IllegalArgumentException when either endpoint or authToken are null or empty
-     */
     @Override
-    public Optional<HttpGet> buildGetAcceptionApplicatonJson(String endpoint, String authToken) {
-        ensureArgumentsValid(endpoint, authToken);
-
-        HttpGet request = new HttpGet(endpoint);
-        request.addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON); // not strictly required but also no harm
-        request.addHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON);
-        request.addHeader(HttpHeaders.AUTHORIZATION, String.format(BASIC_AUTHENTICATION_FORMAT, authToken));
-        return Optional.of(request);
+    protected CompletableFuture<Void> delay(long delayMillis, String path) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(delayMillis);
+            return CompletableFuture.completedFuture(null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new InterruptedIOException("interrupted while waiting to retry request to " + path));
+        }
     }
 
-    /**
-     * builds a HttpPost request object for the given endpoint containing the provided body content
-     * body will be posted using Content-Type of application/json
-     * @param endpoint endpoint to perform post request on
-     * @param body JSON body to be sent with the request
-     * @return Optional of HttpPost containg the request object
-     */
-    @Override
-    public Optional<HttpPost> buildPostRequestUsingApplicationJson(String endpoint, HttpEntity body) {
-        ensureArgumentsValid(endpoint, body);
+    private HttpResponse executeOnce(HttpRequestBase request, String server, int attempt) throws IOException {
+        if (rateLimits.isPresent())
+            awaitRateLimit(rateLimits.get(), request, server);
+        if (interactionLogCapacity == 0 && interactionLogFile.isEmpty())
+            return send(request, server);
 
-        HttpPost request = new HttpPost(endpoint);
-        request.addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
-        request.setEntity(body);
-        return Optional.of(request);
+        Instant startedAt = Instant.now();
+        long started = System.nanoTime();
+        try {
+            HttpResponse response = send(request, server);
+            HttpEntity entity = response.getEntity();
+            recordInteraction(request, server, attempt, startedAt, started, response.getStatusLine().getStatusCode(),
+                Objects.isNull(entity) ? -1 : entity.getContentLength(), null);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            recordInteraction(request, server, attempt, startedAt, started, 0, -1, e.toString());
+            throw e;
+        }
     }
 
-    /**
-     * builds a HttpPost request object for the given endpoint containing the provided body content
-     * body will be posted using Content-Type as application/x-www-form-urlencoded
-     * @param endpoint endpoint to perform post request on
-     * @param authToken authorization token for basic authentication
-     * @param params name/value pairs sent as the entity of the request
-     * @return Optional of HttpPost containg the request object
-     */
-    @Override
-    public Optional<HttpPost> buildPostRequestUsingFormUrlEncoding(String endpoint, String authToken, NameValuePair... params) {
-        ensureArgumentsValid(endpoint, authToken);
+    private HttpResponse send(HttpRequestBase request, String server) throws IOException {
+        if (serverGuardSettings.isEmpty())
+            return httpClient.execute(request);
+        return ServerGuard
+            .forServer(server, serverGuardSettings.get())
+            .execute(() -> httpClient.execute(request), logger);
+    }
 
-        HttpPost request = new HttpPost(endpoint);
-        request.addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED);
-        request.addHeader(HttpHeaders.AUTHORIZATION, String.format(BASIC_AUTHENTICATION_FORMAT, authToken));
+    private void recordInteraction(HttpRequestBase request, String server, int attempt, Instant startedAt, long started,
+                                   int statusCode, long responseBytes, String error) {
+        Interaction interaction = new Interaction(startedAt, server, request.getMethod(), request.getURI().getPath(), attempt,
+            statusCode, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), responseBytes,
+            InteractionLog.redactedParams(request), error);
+        if (interactionLogCapacity > 0)
+            InteractionLog.forServer(server, interactionLogCapacity).record(interaction);
+        interactionLogFile.ifPresent(file -> file.write(interaction));
+    }
 
+    private void awaitRateLimit(RequestRateLimits limits, HttpRequestBase request, String server) throws InterruptedIOException {
+        String path = request.getURI().getPath();
+        long waitNanos = reserveRateLimit(limits, server, path);
+        if (waitNanos <= 0)
+            return;
         try {
-            request.setEntity(new UrlEncodedFormEntity(Arrays.asList(params)));
-            return Optional.of(request);
-
-        } catch (UnsupportedEncodingException e) {
-            logger.severe(e.toString());
-            return Optional.empty();
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting to send request to " + path);
         }
     }
 
-    private static void ensureArgumentsValid(String endpoint, String authToken) {
-        if (Objects.isNull(endpoint) || endpoint.isEmpty())
-            throw new IllegalArgumentException("endpoint cannot be null or empty");
-        if (Objects.isNull(authToken) || authToken.isEmpty())
-            throw new IllegalArgumentException("authToken cannot be null or empty");
+    private void logFailure(IOException e) {
+        if (e instanceof ServerUnavailableException)
+            logger.println(e.getMessage());
+        logger.severe(e.toString());
     }
-    private static void ensureArgumentsValid(String endpoint, HttpEntity body) {
-        if (Objects.isNull(endpoint) || endpoint.isEmpty())
-            throw new IllegalArgumentException("endpoint cannot be null or empty");
-        if (Objects.isNull(body))
-            throw new IllegalArgumentException("body cannot be null");
-    }
-
 }
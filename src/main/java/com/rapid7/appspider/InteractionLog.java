@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.Interaction;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * bounded ring buffer of the most recent requests sent to a single AppSpider Enterprise server,
+ * kept in memory so that slow or failing requests can be diagnosed after the fact without
+ * enabling FINE logging
+ *
+ * <p>
+ * Logs are shared JVM wide, one per server, and hold requests from every build. Once full the
+ * oldest interaction is overwritten by each new one.
+ * </p>
+ */
+public class InteractionLog {
+
+    public static final int DEFAULT_CAPACITY = 200;
+
+    private static final Map<String, InteractionLog> LOGS = new ConcurrentHashMap<>();
+    private static final Pattern SENSITIVE_PARAM = Pattern.compile("(?i).*(password|secret|token|key|auth).*");
+    private static final String REDACTED = "*****";
+    private static final String STREAMED = "(streamed)";
+    private static final int MAX_PARAM_LENGTH = 64;
+
+    private Interaction[] entries;
+    private int next;
+    private int size;
+
+    /**
+     * gets the log for server, resizing it to capacity if needed
+     * @param server server identifier, typically host and port of the AppSpider Enterprise url
+     * @param capacity maximum number of interactions kept
+     * @return the shared InteractionLog
+     * @throws IllegalArgumentException if server is null or capacity is less than 1
+     */
+    public static InteractionLog forServer(String server, int capacity) {
+        if (Objects.isNull(server))
+            throw new IllegalArgumentException("server cannot be null");
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be at least 1");
+        InteractionLog log = LOGS.computeIfAbsent(server, key -> new InteractionLog(capacity));
+        log.setCapacity(capacity);
+        return log;
+    }
+
+    /**
+     * @param server server identifier, typically host and port of the AppSpider Enterprise url
+     * @return Optional containing the log of server if any request has been recorded for it; otherwise, Optional.empty()
+     */
+    public static Optional<InteractionLog> find(String server) {
+        return Optional.ofNullable(LOGS.get(Objects.toString(server, "")));
+    }
+
+    InteractionLog(int capacity) {
+        this.entries = new Interaction[capacity];
+    }
+
+    /**
+     * adds interaction, overwriting the oldest if the log is full
+     * @param interaction the interaction to add
+     */
+    public synchronized void record(Interaction interaction) {
+        entries[next] = interaction;
+        next = (next + 1) % entries.length;
+        size = Math.min(size + 1, entries.length);
+    }
+
+    /**
+     * @return the recorded interactions, oldest first
+     */
+    public synchronized List<Interaction> getRecent() {
+        List<Interaction> recent = new ArrayList<>(size);
+        int first = (next - size + entries.length) % entries.length;
+        for (int i = 0; i < size; i++)
+            recent.add(entries[(first + i) % entries.length]);
+        return recent;
+    }
+
+    private synchronized void setCapacity(int capacity) {
+        if (entries.length == capacity)
+            return;
+        List<Interaction> recent = getRecent();
+        entries = new Interaction[capacity];
+        next = 0;
+        size = 0;
+        for (Interaction interaction : recent.subList(Math.max(0, recent.size() - capacity), recent.size()))
+            record(interaction);
+    }
+
+    /**
+     * formats interaction as a single line JSON object
+     * @param interaction the interaction to format
+     * @return JSON object without a trailing line separator
+     */
+    public static String toJsonLine(Interaction interaction) {
+        JSONObject json = new JSONObject()
+            .put("startedAt", interaction.getStartedAt().toString())
+            .put("server", interaction.getServer())
+            .put("method", interaction.getMethod())
+            .put("path", interaction.getPath())
+            .put("attempt", interaction.getAttempt())
+            .put("status", interaction.getStatusCode())
+            .put("latencyMillis", interaction.getLatencyMillis())
+            .put("responseBytes", interaction.getResponseBytes())
+            .put("params", new JSONObject(interaction.getParams()));
+        interaction.getError().ifPresent(error -> json.put("error", error));
+        return json.toString();
+    }
+
+    /**
+     * extracts the query and form parameters of request, replacing the values of credentials with
+     * a placeholder and truncating long values. Fields of a {@link StreamingFormEntity} are
+     * listed without their values since reading them would mean writing the entity twice
+     * @param request the request being sent
+     * @return parameter names and redacted values in the order they appear in the request
+     */
+    static Map<String, String> redactedParams(HttpRequestBase request) {
+        Map<String, String> params = new LinkedHashMap<>();
+        for (NameValuePair pair : URLEncodedUtils.parse(request.getURI(), StandardCharsets.UTF_8))
+            params.put(pair.getName(), redact(pair.getName(), pair.getValue()));
+
+        if (!(request instanceof HttpEntityEnclosingRequest))
+            return params;
+        HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+        if (entity instanceof StreamingFormEntity) {
+            for (String name : ((StreamingFormEntity) entity).getFieldNames())
+                params.put(name, SENSITIVE_PARAM.matcher(name).matches() ? REDACTED : STREAMED);
+        } else if (entity instanceof UrlEncodedFormEntity) {
+            try {
+                for (NameValuePair pair : URLEncodedUtils.parse(entity))
+                    params.put(pair.getName(), redact(pair.getName(), pair.getValue()));
+            } catch (IOException e) {
+                params.put("(form)", e.toString());
+            }
+        }
+        return params;
+    }
+
+    private static String redact(String name, String value) {
+        if (SENSITIVE_PARAM.matcher(name).matches())
+            return REDACTED;
+        String text = Objects.toString(value, "");
+        return text.length() <= MAX_PARAM_LENGTH
+            ? text
+            : text.substring(0, MAX_PARAM_LENGTH) + String.format("...(%d characters)", text.length());
+    }
+}
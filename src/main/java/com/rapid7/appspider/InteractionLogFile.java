@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.Interaction;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * appends interactions to a file as JSON lines, one object per line
+ *
+ * <p>
+ * Interactions are queued and written by a background thread so that requests never wait on the
+ * disk. If the writer falls more than {@value #MAX_PENDING} interactions behind, further
+ * interactions are dropped and counted rather than queued.
+ * </p>
+ */
+public class InteractionLogFile implements Closeable {
+
+    static final int MAX_PENDING = 10_000;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+    private static final Interaction END_OF_LOG = new Interaction(null, null, null, null, 0, 0, 0, 0, null, null);
+
+    private final Path path;
+    private final BufferedWriter writer;
+    private final BlockingQueue<Interaction> pending = new ArrayBlockingQueue<>(MAX_PENDING);
+    private final ExecutorService executor;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile IOException writeFailure;
+    private volatile boolean isClosed;
+
+    /**
+     * opens path for appending, creating it if it doesn't exist, and starts the background writer
+     * @param path file to write to
+     * @return new InteractionLogFile which must be closed once the build has finished
+     * @throws IllegalArgumentException if path is null
+     * @throws IOException if the file cannot be opened
+     */
+    public static InteractionLogFile open(Path path) throws IOException {
+        if (Objects.isNull(path))
+            throw new IllegalArgumentException("path cannot be null");
+        return new InteractionLogFile(path, Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    }
+
+    private InteractionLogFile(Path path, BufferedWriter writer) {
+        this.path = path;
+        this.writer = writer;
+        this.executor = ScanExecutors.newBoundedExecutor("appspider-interaction-log", 1);
+        executor.execute(this::writeQueued);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * queues interaction to be written, returning immediately
+     * @param interaction the interaction to write
+     */
+    public void write(Interaction interaction) {
+        if (isClosed || Objects.nonNull(writeFailure) || !pending.offer(interaction))
+            droppedCount.incrementAndGet();
+    }
+
+    /**
+     * @return number of interactions which were not written because the queue was full, the file
+     *         was closed or an earlier write failed
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * writes the queued interactions, waiting up to {@value #CLOSE_TIMEOUT_SECONDS} seconds, then
+     * closes the file; repeated calls have no effect
+     * @throws IOException if writing or closing the file failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (isClosed)
+            return;
+        isClosed = true;
+        try {
+            executor.shutdown();
+            if (!pending.offer(END_OF_LOG, CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                || !executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                executor.shutdownNow();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            writer.close();
+        }
+        if (Objects.nonNull(writeFailure))
+            throw writeFailure;
+    }
+
+    private void writeQueued() {
+        try {
+            while (true) {
+                Interaction interaction = pending.take();
+                if (interaction == END_OF_LOG)
+                    break;
+                if (Objects.nonNull(writeFailure))
+                    continue;
+                try {
+                    writer.write(InteractionLog.toJsonLine(interaction));
+                    writer.newLine();
+                    if (pending.isEmpty())
+                        writer.flush();
+                } catch (IOException e) {
+                    writeFailure = e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.rapid7.appspider.datatransferobjects.ClientIdNamePair;
+import com.rapid7.appspider.datatransferobjects.ScanResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * {@link JsonCodec} binding each response in a single pass over Jackson's streaming parser,
+ * reading only the fields the client uses and skipping the rest without materializing them
+ */
+public final class JacksonStreamingCodec implements JsonCodec {
+
+    public static final String NAME = "jackson-streaming";
+
+    private static final String IS_SUCCESS = "IsSuccess";
+    // parsers are cheap to create from a shared factory, which also shares the symbol table for field names
+    private static final JsonFactory FACTORY = JsonFactory.builder()
+        .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+        .build();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Optional<String> decodeToken(InputStream content) throws IOException {
+        boolean isSuccess = false;
+        String token = "";
+        try (JsonParser parser = openObject(content)) {
+            while (nextField(parser)) {
+                switch (parser.currentName()) {
+                    case IS_SUCCESS:
+                        isSuccess = booleanValue(parser);
+                        break;
+                    case "Token":
+                        token = textValue(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        return isSuccess && !token.isEmpty() ? Optional.of(token) : Optional.empty();
+    }
+
+    @Override
+    public boolean decodeIsSuccess(InputStream content) throws IOException {
+        boolean isSuccess = false;
+        try (JsonParser parser = openObject(content)) {
+            while (nextField(parser)) {
+                if (IS_SUCCESS.equals(parser.currentName()))
+                    isSuccess = booleanValue(parser);
+                else
+                    parser.skipChildren();
+            }
+        }
+        return isSuccess;
+    }
+
+    @Override
+    public boolean decodeResultIsSuccess(InputStream content) throws IOException {
+        boolean isSuccess = false;
+        boolean result = false;
+        try (JsonParser parser = openObject(content)) {
+            while (nextField(parser)) {
+                switch (parser.currentName()) {
+                    case IS_SUCCESS:
+                        isSuccess = booleanValue(parser);
+                        break;
+                    case "Result":
+                        result = booleanValue(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        return result && isSuccess;
+    }
+
+    @Override
+    public Optional<String> decodeStatus(InputStream content) throws IOException {
+        String status = "";
+        try (JsonParser parser = openObject(content)) {
+            while (nextField(parser)) {
+                if ("Status".equals(parser.currentName()))
+                    status = textValue(parser);
+                else
+                    parser.skipChildren();
+            }
+        }
+        return status.isEmpty() ? Optional.empty() : Optional.of(status);
+    }
+
+    @Override
+    public ScanResult decodeScanResult(InputStream content) throws IOException {
+        JsonToken isSuccess = null;
+        String scanId = "";
+        try (JsonParser parser = openObject(content)) {
+            while (nextField(parser)) {
+                switch (parser.currentName()) {
+                    case IS_SUCCESS:
+                        isSuccess = parser.currentToken();
+                        break;
+                    case "Scan":
+                        scanId = readScanId(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        boolean hasIsSuccess = isSuccess == JsonToken.VALUE_TRUE || isSuccess == JsonToken.VALUE_FALSE;
+        return scanId.isEmpty() || !hasIsSuccess
+            ? new ScanResult(false, "")
+            : new ScanResult(isSuccess == JsonToken.VALUE_TRUE, scanId);
+    }
+
+    @Override
+    public Optional<List<ClientIdNamePair>> decodeClients(InputStream content) throws IOException {
+        boolean isSuccess = false;
+        List<ClientIdNamePair> clients = null;
+        try (JsonParser parser = openObject(content)) {
+            while (nextField(parser)) {
+                switch (parser.currentName()) {
+                    case IS_SUCCESS:
+                        isSuccess = booleanValue(parser);
+                        break;
+                    case "Clients":
+                        clients = readClients(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        return isSuccess && Objects.nonNull(clients) ? Optional.of(clients) : Optional.empty();
+    }
+
+    private static String readScanId(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return "";
+        }
+        String id = "";
+        while (nextField(parser)) {
+            if ("Id".equals(parser.currentName()))
+                id = textValue(parser);
+            else
+                parser.skipChildren();
+        }
+        return id;
+    }
+
+    private static List<ClientIdNamePair> readClients(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        List<ClientIdNamePair> clients = new ArrayList<>();
+        for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String id = "";
+            String name = "";
+            while (nextField(parser)) {
+                switch (parser.currentName()) {
+                    case "ClientId":
+                        id = textValue(parser);
+                        break;
+                    case "ClientName":
+                        name = textValue(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            if (!id.isEmpty() && !name.isEmpty())
+                clients.add(new ClientIdNamePair(id, name));
+        }
+        return clients;
+    }
+
+    private static JsonParser openObject(InputStream content) throws IOException {
+        JsonParser parser = FACTORY.createParser(content);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.close();
+            throw new JsonParseException(parser, "response is not a JSON object");
+        }
+        return parser;
+    }
+
+    /**
+     * moves to the value of the next field of the current object
+     * @return false once the end of the object is reached
+     */
+    private static boolean nextField(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_OBJECT)
+            return false;
+        if (token != JsonToken.FIELD_NAME)
+            throw new JsonParseException(parser, "unexpected " + token);
+        parser.nextToken();
+        return true;
+    }
+
+    private static boolean booleanValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        parser.skipChildren();
+        return token == JsonToken.VALUE_TRUE;
+    }
+
+    /**
+     * @return text of a scalar value, or empty for null, objects and arrays
+     */
+    private static String textValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return "";
+        }
+        return token == JsonToken.VALUE_NULL ? "" : parser.getValueAsString("");
+    }
+}
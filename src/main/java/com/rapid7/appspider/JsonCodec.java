@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.ClientIdNamePair;
+import com.rapid7.appspider.datatransferobjects.ScanResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * decodes the bodies of the AppSpider Enterprise responses read on every build directly into the
+ * values the client needs, so an implementation is free to bind them without building a tree
+ *
+ * <p>
+ * Missing or mistyped fields are treated as absent, or false for booleans, rather than as errors;
+ * only content which is not JSON is reported by throwing IOException.
+ * </p>
+ */
+public interface JsonCodec {
+
+    /**
+     * decodes one response body into a value
+     * @param <T> type of the decoded value
+     */
+    @FunctionalInterface
+    interface Decoder<T> {
+        /**
+         * @param content response body, read but not closed by the decoder
+         * @return the decoded value
+         * @throws IOException if content cannot be read or is not JSON
+         */
+        T decode(InputStream content) throws IOException;
+    }
+
+    /**
+     * @return name identifying the implementation in settings and logs
+     */
+    String getName();
+
+    /**
+     * decodes an Authentication/Login response
+     * @param content response body
+     * @return Optional containing "Token" if "IsSuccess" is true and the token is not empty; otherwise, Optional.empty()
+     * @throws IOException if content cannot be read or is not JSON
+     */
+    Optional<String> decodeToken(InputStream content) throws IOException;
+
+    /**
+     * decodes a response carrying only "IsSuccess", such as Scan/CancelScan
+     * @param content response body
+     * @return value of "IsSuccess"
+     * @throws IOException if content cannot be read or is not JSON
+     */
+    boolean decodeIsSuccess(InputStream content) throws IOException;
+
+    /**
+     * decodes a response carrying "Result" and "IsSuccess", such as Scan/IsScanFinished
+     * @param content response body
+     * @return true if both "Result" and "IsSuccess" are true
+     * @throws IOException if content cannot be read or is not JSON
+     */
+    boolean decodeResultIsSuccess(InputStream content) throws IOException;
+
+    /**
+     * decodes a Scan/GetScanStatus response
+     * @param content response body
+     * @return Optional containing "Status" if not empty; otherwise, Optional.empty()
+     * @throws IOException if content cannot be read or is not JSON
+     */
+    Optional<String> decodeStatus(InputStream content) throws IOException;
+
+    /**
+     * decodes a Scan/RunScan response
+     * @param content response body
+     * @return ScanResult of "IsSuccess" and the "Id" of "Scan", unsuccessful with an empty id if either is missing
+     * @throws IOException if content cannot be read or is not JSON
+     */
+    ScanResult decodeScanResult(InputStream content) throws IOException;
+
+    /**
+     * decodes a Client/GetClients response
+     * @param content response body
+     * @return Optional containing the clients with both an id and name if "IsSuccess" is true; otherwise, Optional.empty()
+     * @throws IOException if content cannot be read or is not JSON
+     */
+    Optional<List<ClientIdNamePair>> decodeClients(InputStream content) throws IOException;
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.ClientIdNamePair;
+import com.rapid7.appspider.datatransferobjects.ScanConfigReference;
+import com.rapid7.appspider.datatransferobjects.ScanResult;
+import com.rapid7.appspider.models.AuthenticationModel;
+import org.apache.http.client.methods.HttpPost;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * spreads the calls of a build over the AppSpider Enterprise servers of a single installation
+ *
+ * <p>
+ * The servers must share the installation's database so that a token issued, or a scan started,
+ * by one is known to all of them. Each call goes to a server chosen at random weighted by its
+ * {@link ServerGuard#getHealthWeight() health}, as seen by the HTTP layer, with calls about a
+ * scan going to the server which started it, and reads following a config save going to the
+ * server which saved it. Calls which can safely be repeated are repeated on the next server
+ * when a server can't be reached. Starting a scan and saving a config are never repeated on
+ * another server, since the first may have acted on them; they only avoid servers already known
+ * to be down.
+ * </p>
+ * <p>
+ * {@link #getUrl()} is the first endpoint's so that state recorded per server, such as admission
+ * queues and saved config digests, is shared by every build of the installation.
+ * </p>
+ */
+public final class LoadBalancedEnterpriseClient implements EnterpriseClient {
+
+    private static final int MAX_SCAN_AFFINITIES = 1024;
+    private static final String SAVE_CONFIG = "/Config/SaveConfig";
+    // servers which started recent scans, kept JVM wide so a later build reading a report finds them
+    private static final Map<String, String> SCAN_AFFINITY = Collections.synchronizedMap(
+        new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > MAX_SCAN_AFFINITIES;
+            }
+        });
+
+    private final List<EnterpriseClient> endpoints;
+    private final LoggerFacade log;
+    private final ToDoubleFunction<String> healthWeight;
+    private final ToLongFunction<String> unsentCount;
+    private final DoubleSupplier random;
+    private volatile Optional<EnterpriseClient> lastWriteEndpoint = Optional.empty();
+
+    /**
+     * @param endpoints clients of each server of the installation, the first is used to identify the installation
+     * @param log logger used to report failover
+     * @return new LoadBalancedEnterpriseClient using the health recorded by each server's {@link ServerGuard}
+     * @throws IllegalArgumentException if endpoints is null or empty, or log is null
+     */
+    public static LoadBalancedEnterpriseClient createInstanceOrThrow(List<? extends EnterpriseClient> endpoints, LoggerFacade log) {
+        return createInstanceOrThrow(endpoints, log,
+            server -> ServerGuard.find(server).map(ServerGuard::getHealthWeight).orElse(1.0),
+            server -> ServerGuard.find(server).map(ServerGuard::getUnsentCount).orElse(0L),
+            () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    static LoadBalancedEnterpriseClient createInstanceOrThrow(List<? extends EnterpriseClient> endpoints, LoggerFacade log,
+                                                              ToDoubleFunction<String> healthWeight, ToLongFunction<String> unsentCount,
+                                                              DoubleSupplier random) {
+        if (Objects.isNull(endpoints) || endpoints.isEmpty())
+            throw new IllegalArgumentException("endpoints cannot be null or empty");
+        if (Objects.isNull(log))
+            throw new IllegalArgumentException("log cannot be null");
+        return new LoadBalancedEnterpriseClient(List.copyOf(endpoints), log, healthWeight, unsentCount, random);
+    }
+
+    private LoadBalancedEnterpriseClient(List<EnterpriseClient> endpoints, LoggerFacade log, ToDoubleFunction<String> healthWeight,
+                                         ToLongFunction<String> unsentCount, DoubleSupplier random) {
+        this.endpoints = endpoints;
+        this.log = log;
+        this.healthWeight = healthWeight;
+        this.unsentCount = unsentCount;
+        this.random = random;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getUrl() {
+        return endpoints.get(0).getUrl();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String> login(AuthenticationModel authModel) {
+        return read(Optional.empty(), client -> client.login(authModel), Optional::isEmpty);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean testAuthentication(AuthenticationModel authModel) {
+        return login(authModel).isPresent();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String[]> getEngineGroupNamesForClient(String authToken) {
+        return read(lastWriteEndpoint, client -> client.getEngineGroupNamesForClient(authToken), Optional::isEmpty);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String> getEngineGroupIdFromName(String authToken, String engineGroupName) {
+        return read(lastWriteEndpoint, client -> client.getEngineGroupIdFromName(authToken, engineGroupName), Optional::isEmpty);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Map<String, String>> getEngineGroupIdsByName(String authToken) {
+        return read(lastWriteEndpoint, client -> client.getEngineGroupIdsByName(authToken), Optional::isEmpty);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ScanResult runScanByConfigName(String authToken, String configName) {
+        return runScan(client -> client.runScanByConfigName(authToken, configName));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ScanResult runScanByConfigId(String authToken, String configId) {
+        return runScan(client -> client.runScanByConfigId(authToken, configId));
+    }
+
+    private ScanResult runScan(Function<EnterpriseClient, ScanResult> call) {
+        EnterpriseClient endpoint = lastWriteEndpoint.orElseGet(() -> rank(Optional.empty()).get(0));
+        ScanResult result = call.apply(endpoint);
+        if (result.isSuccess() && Objects.nonNull(result.getScanId()))
+            SCAN_AFFINITY.put(result.getScanId(), endpoint.getUrl());
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean cancelScan(String authToken, String scanId) {
+        return read(scanEndpoint(scanId), client -> client.cancelScan(authToken, scanId), isCancelled -> !isCancelled);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String> getScanStatus(String authToken, String scanId) {
+        return read(scanEndpoint(scanId), client -> client.getScanStatus(authToken, scanId), Optional::isEmpty);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isScanFinished(String authToken, String scanId) {
+        return read(scanEndpoint(scanId), client -> client.isScanFinished(authToken, scanId), isFinished -> !isFinished);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasReport(String authToken, String scanId) {
+        return read(scanEndpoint(scanId), client -> client.hasReport(authToken, scanId), hasReport -> !hasReport);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String[]> getConfigNames(String authToken) {
+        return read(lastWriteEndpoint, client -> client.getConfigNames(authToken), Optional::isEmpty);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String> getEngineGroupIdForConfig(String authToken, String configName) {
+        return read(lastWriteEndpoint, client -> client.getEngineGroupIdForConfig(authToken, configName), Optional::isEmpty);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<ScanConfigReference> getScanConfigReference(String authToken, String configName) {
+        return read(lastWriteEndpoint, client -> client.getScanConfigReference(authToken, configName), Optional::isEmpty);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean saveConfig(String authToken, String name, URL url, String engineGroupId) {
+        EnterpriseClient endpoint = lastWriteEndpoint.orElseGet(() -> rank(Optional.empty()).get(0));
+        boolean isSaved = endpoint.saveConfig(authToken, name, url, engineGroupId);
+        if (isSaved) {
+            lastWriteEndpoint = Optional.of(endpoint);
+            // the other servers' cached config lists no longer include the saved config
+            for (EnterpriseClient other : endpoints)
+                ResponseCache.find(serverOf(other)).ifPresent(cache -> cache.invalidate(new HttpPost(other.getUrl() + SAVE_CONFIG)));
+        }
+        return isSaved;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String> getScanConfigDigest(String name, URL url, String engineGroupId) {
+        return endpoints.get(0).getScanConfigDigest(name, url, engineGroupId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String> getVulnerabilitiesSummaryXml(String authToken, String scanId) {
+        return read(scanEndpoint(scanId), client -> client.getVulnerabilitiesSummaryXml(authToken, scanId), Optional::isEmpty);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<InputStream> getReportZip(String authToken, String scanId) {
+        return read(scanEndpoint(scanId), client -> client.getReportZip(authToken, scanId), Optional::isEmpty);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<List<ClientIdNamePair>> getClientNameIdPairs(String authToken) {
+        return read(lastWriteEndpoint, client -> client.getClientNameIdPairs(authToken), Optional::isEmpty);
+    }
+
+    /**
+     * calls the preferred endpoint, or the endpoints in order of health, moving on to the next
+     * endpoint only while the call fails because the endpoint couldn't be reached
+     */
+    private <T> T read(Optional<EnterpriseClient> preferred, Function<EnterpriseClient, T> call, Predicate<T> isFailure) {
+        List<EnterpriseClient> ranked = rank(preferred);
+        T result = null;
+        for (int i = 0; i < ranked.size(); i++) {
+            EnterpriseClient endpoint = ranked.get(i);
+            String server = serverOf(endpoint);
+            long unsentBefore = unsentCount.applyAsLong(server);
+            result = call.apply(endpoint);
+            if (!isFailure.test(result) || unsentCount.applyAsLong(server) == unsentBefore)
+                return result;
+            if (i + 1 < ranked.size()) {
+                log.println(String.format("AppSpider Enterprise at %s could not be reached, trying %s", endpoint.getUrl(), ranked.get(i + 1).getUrl()));
+                log.warn("Failing over from %s to %s", endpoint.getUrl(), ranked.get(i + 1).getUrl());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * orders the endpoints by weighted random sampling without replacement, so each endpoint comes
+     * first in proportion to its health; unreachable endpoints come last and preferred first
+     */
+    private List<EnterpriseClient> rank(Optional<EnterpriseClient> preferred) {
+        List<EnterpriseClient> candidates = new ArrayList<>(endpoints.size());
+        List<Double> weights = new ArrayList<>(endpoints.size());
+        List<EnterpriseClient> unavailable = new ArrayList<>();
+        for (EnterpriseClient endpoint : endpoints) {
+            if (preferred.isPresent() && preferred.get() == endpoint)
+                continue;
+            double weight = healthWeight.applyAsDouble(serverOf(endpoint));
+            if (weight > 0) {
+                candidates.add(endpoint);
+                weights.add(weight);
+            } else {
+                unavailable.add(endpoint);
+            }
+        }
+
+        List<EnterpriseClient> ranked = new ArrayList<>(endpoints.size());
+        preferred.ifPresent(ranked::add);
+        while (!candidates.isEmpty()) {
+            double total = 0;
+            for (double weight : weights)
+                total += weight;
+            double target = random.getAsDouble() * total;
+            int chosen = candidates.size() - 1;
+            for (int i = 0; i < candidates.size() - 1; i++) {
+                target -= weights.get(i);
+                if (target < 0) {
+                    chosen = i;
+                    break;
+                }
+            }
+            ranked.add(candidates.remove(chosen));
+            weights.remove(chosen);
+        }
+        ranked.addAll(unavailable);
+        return ranked;
+    }
+
+    private Optional<EnterpriseClient> scanEndpoint(String scanId) {
+        String url = SCAN_AFFINITY.get(scanId);
+        if (Objects.isNull(url))
+            return Optional.empty();
+        return endpoints.stream()
+            .filter(endpoint -> endpoint.getUrl().equals(url))
+            .findFirst();
+    }
+
+    private static String serverOf(EnterpriseClient endpoint) {
+        try {
+            return Objects.toString(URI.create(endpoint.getUrl()).getAuthority(), "");
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+}
@@ -4,6 +4,18 @@
 
 package com.rapid7.appspider;
 
+import java.util.function.Supplier;
+
+/**
+ * logging abstraction shared by the build log and the Jenkins system log
+ *
+ * <p>
+ * The supplier and parameterized overloads only build the message once the level has been found
+ * to be enabled, so a suppressed call allocates nothing provided its arguments already exist.
+ * Parameterized messages use {@link String#format(String, Object...)} syntax; prefer the one and
+ * two argument forms in loops as the varargs form allocates its argument array on every call.
+ * </p>
+ */
 public interface LoggerFacade {
     void println(String message);
     void info(String message);
@@ -16,4 +28,71 @@ public interface LoggerFacade {
     boolean isSevereEnabled();
     boolean isVerboseEnabled();
 
+    default void info(Supplier<String> message) {
+        if (isInfoEnabled())
+            info(message.get());
+    }
+    default void info(String format, Object arg) {
+        if (isInfoEnabled())
+            info(String.format(format, arg));
+    }
+    default void info(String format, Object arg1, Object arg2) {
+        if (isInfoEnabled())
+            info(String.format(format, arg1, arg2));
+    }
+    default void info(String format, Object... args) {
+        if (isInfoEnabled())
+            info(String.format(format, args));
+    }
+
+    default void warn(Supplier<String> message) {
+        if (isWarnEnabled())
+            warn(message.get());
+    }
+    default void warn(String format, Object arg) {
+        if (isWarnEnabled())
+            warn(String.format(format, arg));
+    }
+    default void warn(String format, Object arg1, Object arg2) {
+        if (isWarnEnabled())
+            warn(String.format(format, arg1, arg2));
+    }
+    default void warn(String format, Object... args) {
+        if (isWarnEnabled())
+            warn(String.format(format, args));
+    }
+
+    default void severe(Supplier<String> message) {
+        if (isSevereEnabled())
+            severe(message.get());
+    }
+    default void severe(String format, Object arg) {
+        if (isSevereEnabled())
+            severe(String.format(format, arg));
+    }
+    default void severe(String format, Object arg1, Object arg2) {
+        if (isSevereEnabled())
+            severe(String.format(format, arg1, arg2));
+    }
+    default void severe(String format, Object... args) {
+        if (isSevereEnabled())
+            severe(String.format(format, args));
+    }
+
+    default void verbose(Supplier<String> message) {
+        if (isVerboseEnabled())
+            verbose(message.get());
+    }
+    default void verbose(String format, Object arg) {
+        if (isVerboseEnabled())
+            verbose(String.format(format, arg));
+    }
+    default void verbose(String format, Object arg1, Object arg2) {
+        if (isVerboseEnabled())
+            verbose(String.format(format, arg1, arg2));
+    }
+    default void verbose(String format, Object... args) {
+        if (isVerboseEnabled())
+            verbose(String.format(format, args));
+    }
 }
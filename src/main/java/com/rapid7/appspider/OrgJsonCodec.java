@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.ClientIdNamePair;
+import com.rapid7.appspider.datatransferobjects.ScanResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * {@link JsonCodec} reading each response into an org.json tree, as the client always has
+ */
+public final class OrgJsonCodec implements JsonCodec {
+
+    public static final String NAME = "org.json";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Optional<String> decodeToken(InputStream content) throws IOException {
+        JSONObject json = parse(content);
+        String token = json.optString("Token", "");
+        return json.optBoolean("IsSuccess", false) && !token.isEmpty()
+            ? Optional.of(token)
+            : Optional.empty();
+    }
+
+    @Override
+    public boolean decodeIsSuccess(InputStream content) throws IOException {
+        return parse(content).optBoolean("IsSuccess", false);
+    }
+
+    @Override
+    public boolean decodeResultIsSuccess(InputStream content) throws IOException {
+        JSONObject json = parse(content);
+        return json.optBoolean("Result", false) && json.optBoolean("IsSuccess", false);
+    }
+
+    @Override
+    public Optional<String> decodeStatus(InputStream content) throws IOException {
+        String status = parse(content).optString("Status", "");
+        return status.isEmpty() ? Optional.empty() : Optional.of(status);
+    }
+
+    @Override
+    public ScanResult decodeScanResult(InputStream content) throws IOException {
+        JSONObject json = parse(content);
+        JSONObject scan = json.optJSONObject("Scan");
+        String scanId = Objects.isNull(scan) ? "" : scan.optString("Id", "");
+        Object isSuccess = json.opt("IsSuccess");
+        return scanId.isEmpty() || !(isSuccess instanceof Boolean)
+            ? new ScanResult(false, "")
+            : new ScanResult((Boolean) isSuccess, scanId);
+    }
+
+    @Override
+    public Optional<List<ClientIdNamePair>> decodeClients(InputStream content) throws IOException {
+        JSONObject json = parse(content);
+        JSONArray clients = json.optJSONArray("Clients");
+        if (!json.optBoolean("IsSuccess", false) || Objects.isNull(clients))
+            return Optional.empty();
+        List<ClientIdNamePair> pairs = new ArrayList<>();
+        for (int i = 0; i < clients.length(); i++) {
+            JSONObject client = clients.optJSONObject(i);
+            if (Objects.isNull(client))
+                continue;
+            String id = client.optString("ClientId", "");
+            String name = client.optString("ClientName", "");
+            if (!id.isEmpty() && !name.isEmpty())
+                pairs.add(new ClientIdNamePair(id, name));
+        }
+        return Optional.of(pairs);
+    }
+
+    private static JSONObject parse(InputStream content) throws IOException {
+        try {
+            return new JSONObject(new JSONTokener(content));
+        } catch (JSONException e) {
+            throw new IOException("response is not a JSON object", e);
+        }
+    }
+}
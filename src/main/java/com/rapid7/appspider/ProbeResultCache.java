@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.ReadinessResult;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * checks whether URLs answer at all, remembering each result for a short time and sharing a check
+ * already in flight with every caller asking about the same URL
+ *
+ * <p>
+ * A URL is reachable when it answers a single request with any status within the request timeout.
+ * Checks never block, callers decide how long to wait on the returned future and a check they stop
+ * waiting for still completes and is remembered for the next caller. A single instance is shared
+ * per client so the checks of all form validations using the same settings are coalesced.
+ * </p>
+ */
+public final class ProbeResultCache {
+
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(30);
+
+    private static final Map<HttpClient, ProbeResultCache> INSTANCES = new ConcurrentHashMap<>();
+    private static final String ANY_STATUS = "100-599";
+
+    private final Function<URI, CompletableFuture<ReadinessResult>> probe;
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+    private final Map<URI, Entry> entries = new ConcurrentHashMap<>();
+
+    private static final class Entry {
+        private final CompletableFuture<ReadinessResult> result = new CompletableFuture<>();
+        private volatile long completedAtNanos;
+    }
+
+    /**
+     * gets the cache of checks made with httpClient, creating it if necessary
+     * @param httpClient non-blocking client the URLs are requested with
+     * @param requestTimeout maximum time to wait for a URL to answer, only applied when the cache is created
+     * @return the shared ProbeResultCache for httpClient, remembering results for {@link #DEFAULT_TTL}
+     * @throws IllegalArgumentException if either argument is null or requestTimeout is not positive
+     */
+    public static ProbeResultCache forClient(HttpClient httpClient, Duration requestTimeout) {
+        if (Objects.isNull(httpClient))
+            throw new IllegalArgumentException("httpClient cannot be null");
+        if (Objects.isNull(requestTimeout) || requestTimeout.isZero() || requestTimeout.isNegative())
+            throw new IllegalArgumentException("requestTimeout must be positive");
+        return INSTANCES.computeIfAbsent(httpClient, client -> new ProbeResultCache(
+            target -> ReadinessProbe.createInstanceOrThrow(client, target, requestTimeout)
+                .withExpectedStatus(ANY_STATUS)
+                .withTimings(requestTimeout, requestTimeout)
+                .probe(),
+            DEFAULT_TTL, System::nanoTime));
+    }
+
+    ProbeResultCache(Function<URI, CompletableFuture<ReadinessResult>> probe, Duration ttl, LongSupplier nanoTime) {
+        this.probe = probe;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * checks whether target is reachable, reusing a recent result or a check already in flight
+     * @param target http or https URL to check
+     * @return future completed with the result of the check, cancelling it doesn't cancel the check
+     * @throws IllegalArgumentException if target is null or not an http or https URL
+     */
+    public CompletableFuture<ReadinessResult> check(URI target) {
+        if (Objects.isNull(target))
+            throw new IllegalArgumentException("target cannot be null");
+        long now = nanoTime.getAsLong();
+        entries.values().removeIf(entry -> isExpired(entry, now));
+
+        Entry created = new Entry();
+        Entry entry = entries.compute(target, (key, existing) -> Objects.nonNull(existing) && !isExpired(existing, now)
+            ? existing
+            : created);
+        if (entry == created)
+            start(target, created);
+        return entry.result.copy();
+    }
+
+    private void start(URI target, Entry entry) {
+        CompletableFuture<ReadinessResult> started;
+        try {
+            started = probe.apply(target);
+        } catch (RuntimeException e) {
+            entries.remove(target, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+        started.whenComplete((result, error) -> {
+            entry.completedAtNanos = nanoTime.getAsLong();
+            if (Objects.nonNull(error)) {
+                // failures of the check itself, rather than of the target, aren't remembered
+                entries.remove(target, entry);
+                entry.result.completeExceptionally(error);
+            } else {
+                entry.result.complete(result);
+            }
+        });
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return entry.result.isDone() && now - entry.completedAtNanos >= ttlNanos;
+    }
+
+    /**
+     * @return number of URLs with a remembered result or a check in flight
+     */
+    public int size() {
+        return entries.size();
+    }
+}
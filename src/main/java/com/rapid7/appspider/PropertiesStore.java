@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * small persistent key/value store backed by a properties file
+ *
+ * <p>
+ * A single instance is shared per file so concurrent builds updating the same store don't
+ * overwrite each other's changes. The file is loaded on first use and rewritten atomically
+ * after every change.
+ * </p>
+ */
+public final class PropertiesStore {
+
+    private static final Map<Path, PropertiesStore> INSTANCES = new ConcurrentHashMap<>();
+
+    private final Path file;
+    private final Properties properties;
+    private boolean isLoaded;
+
+    /**
+     * gets the store backed by file, creating it if necessary
+     * @param file location of the properties file, the file need not exist yet
+     * @return the shared PropertiesStore for file
+     * @throws IllegalArgumentException if file is null
+     */
+    public static PropertiesStore forFile(Path file) {
+        if (Objects.isNull(file))
+            throw new IllegalArgumentException("file cannot be null");
+        return INSTANCES.computeIfAbsent(file.toAbsolutePath().normalize(), PropertiesStore::new);
+    }
+
+    private PropertiesStore(Path file) {
+        this.file = file;
+        this.properties = new Properties();
+    }
+
+    /**
+     * gets the value stored for key
+     * @param key key of the value to get
+     * @return Optional containing the value if present; otherwise, Optional.empty()
+     * @throws IOException if the backing file exists but cannot be read
+     */
+    public synchronized Optional<String> get(String key) throws IOException {
+        ensureLoaded();
+        return Optional.ofNullable(properties.getProperty(key));
+    }
+
+    /**
+     * stores value for key and persists the store
+     * @param key key of the value
+     * @param value value to store
+     * @throws IOException if the backing file cannot be written
+     */
+    public synchronized void put(String key, String value) throws IOException {
+        ensureLoaded();
+        properties.setProperty(key, value);
+        persist();
+    }
+
+    /**
+     * removes the value stored for key, if any, and persists the store
+     * @param key key of the value to remove
+     * @throws IOException if the backing file cannot be written
+     */
+    public synchronized void remove(String key) throws IOException {
+        ensureLoaded();
+        if (Objects.isNull(properties.remove(key)))
+            return;
+        persist();
+    }
+
+    /**
+     * @return copy of every key and value in the store
+     * @throws IOException if the backing file exists but cannot be read
+     */
+    public synchronized Map<String, String> getAll() throws IOException {
+        ensureLoaded();
+        Map<String, String> values = new HashMap<>();
+        for (String key : properties.stringPropertyNames())
+            values.put(key, properties.getProperty(key));
+        return values;
+    }
+
+    /**
+     * removes the values stored for keys and persists the store once
+     * @param keys keys of the values to remove
+     * @throws IOException if the backing file cannot be written
+     */
+    public synchronized void removeAll(Collection<String> keys) throws IOException {
+        ensureLoaded();
+        boolean isChanged = false;
+        for (String key : keys)
+            isChanged |= Objects.nonNull(properties.remove(key));
+        if (isChanged)
+            persist();
+    }
+
+    private void ensureLoaded() throws IOException {
+        if (isLoaded)
+            return;
+        if (Files.exists(file)) {
+            try (InputStream input = Files.newInputStream(file)) {
+                properties.load(input);
+            }
+        }
+        isLoaded = true;
+    }
+
+    private void persist() throws IOException {
+        Path parent = file.getParent();
+        if (!Objects.isNull(parent))
+            Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(Objects.isNull(parent) ? file.toAbsolutePath().getParent() : parent,
+            file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream output = Files.newOutputStream(temporary)) {
+                properties.store(output, null);
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
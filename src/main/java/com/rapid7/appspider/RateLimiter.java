@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * token bucket handing out permits at a steady rate, with up to one second's worth of unused
+ * permits saved for bursts
+ *
+ * <p>
+ * Permits are granted strictly in the order they are reserved: each caller is given the next free
+ * slot and told how long to wait for it, so waiting callers are served first come, first served
+ * without any of them polling.
+ * </p>
+ */
+public class RateLimiter {
+
+    private final double permitsPerSecond;
+    private final double maxStoredPermits;
+    private final long intervalNanos;
+    private final LongSupplier nanoTime;
+
+    private double storedPermits;
+    private long nextFreeNanos;
+
+    /**
+     * instantiates a new rate limiter with a full bucket
+     * @param permitsPerSecond steady rate at which permits are granted
+     * @param burst maximum number of permits granted without waiting after a quiet period
+     * @return new RateLimiter instance
+     * @throws IllegalArgumentException if permitsPerSecond is not positive or burst is negative
+     */
+    public static RateLimiter createInstanceOrThrow(double permitsPerSecond, int burst) {
+        return createInstanceOrThrow(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    static RateLimiter createInstanceOrThrow(double permitsPerSecond, int burst, LongSupplier nanoTime) {
+        if (!(permitsPerSecond > 0))
+            throw new IllegalArgumentException("permitsPerSecond must be greater than 0");
+        if (burst < 0)
+            throw new IllegalArgumentException("burst cannot be negative");
+        if (Objects.isNull(nanoTime))
+            throw new IllegalArgumentException("nanoTime cannot be null");
+        return new RateLimiter(permitsPerSecond, burst, nanoTime);
+    }
+
+    private RateLimiter(double permitsPerSecond, int burst, LongSupplier nanoTime) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.maxStoredPermits = burst;
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.nanoTime = nanoTime;
+        this.storedPermits = burst;
+        this.nextFreeNanos = nanoTime.getAsLong();
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * reserves the next permit
+     * @return time in nanoseconds the caller must wait before using the permit, 0 if it may be used now
+     */
+    public synchronized long reserve() {
+        long now = nanoTime.getAsLong();
+        if (now > nextFreeNanos) {
+            storedPermits = Math.min(maxStoredPermits, storedPermits + (double) (now - nextFreeNanos) / intervalNanos);
+            nextFreeNanos = now;
+        }
+        long waitNanos = nextFreeNanos - now;
+        if (storedPermits >= 1) {
+            storedPermits -= 1;
+        } else {
+            nextFreeNanos += intervalNanos;
+        }
+        return waitNanos;
+    }
+
+    /**
+     * reserves the next permit and waits for it
+     * @return time in nanoseconds spent waiting
+     * @throws InterruptedException if interrupted while waiting, the permit is not returned
+     */
+    public long acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0)
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        return waitNanos;
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.ReadinessResult;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * probes a scan target until it answers with an expected status, and optionally expected content,
+ * or a deadline passes, so a scan isn't started against a target which is still being deployed
+ *
+ * <p>
+ * Requests are sent with the non-blocking client so no thread is held while waiting on the target
+ * or between attempts. Each request is bounded by a timeout which never extends past the deadline
+ * and at most {@value #MAX_BODY_BYTES} bytes of a response are read, nothing at all when no content
+ * is expected. Waits between attempts double up to {@link #MAX_BACKOFF}.
+ * </p>
+ */
+public final class ReadinessProbe {
+
+    public static final String DEFAULT_EXPECTED_STATUS = "200-399";
+    static final int MAX_BODY_BYTES = 64 * 1024;
+    static final Duration MAX_BACKOFF = Duration.ofSeconds(15);
+
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofSeconds(1);
+
+    private final HttpClient httpClient;
+    private final URI target;
+    private final Duration deadline;
+    private List<int[]> expectedStatusRanges = parseStatusRanges(DEFAULT_EXPECTED_STATUS);
+    private Optional<String> expectedContent = Optional.empty();
+    private Duration requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+    private Duration initialBackoff = DEFAULT_INITIAL_BACKOFF;
+
+    /**
+     * @param httpClient non-blocking client the target is requested with
+     * @param target http or https URL of the target
+     * @param deadline maximum time to wait for the target to become ready
+     * @return new ReadinessProbe expecting a status of {@value #DEFAULT_EXPECTED_STATUS}
+     * @throws IllegalArgumentException if any of the arguments are null, target is not an http or
+     *                                  https URL or deadline is not positive
+     */
+    public static ReadinessProbe createInstanceOrThrow(HttpClient httpClient, URI target, Duration deadline) {
+        if (Objects.isNull(httpClient))
+            throw new IllegalArgumentException("httpClient cannot be null");
+        if (Objects.isNull(target) || Objects.isNull(target.getHost())
+            || !("http".equalsIgnoreCase(target.getScheme()) || "https".equalsIgnoreCase(target.getScheme())))
+            throw new IllegalArgumentException("target must be an http or https URL");
+        if (Objects.isNull(deadline) || deadline.isZero() || deadline.isNegative())
+            throw new IllegalArgumentException("deadline must be positive");
+        return new ReadinessProbe(httpClient, target, deadline);
+    }
+
+    private ReadinessProbe(HttpClient httpClient, URI target, Duration deadline) {
+        this.httpClient = httpClient;
+        this.target = target;
+        this.deadline = deadline;
+    }
+
+    private ReadinessProbe copy() {
+        ReadinessProbe copy = new ReadinessProbe(httpClient, target, deadline);
+        copy.expectedStatusRanges = expectedStatusRanges;
+        copy.expectedContent = expectedContent;
+        copy.requestTimeout = requestTimeout;
+        copy.initialBackoff = initialBackoff;
+        return copy;
+    }
+
+    /**
+     * returns a copy of this probe which treats the target as ready once it answers with one of the
+     * given statuses
+     * @param expectedStatus comma separated status codes and inclusive ranges, such as "200,301-302";
+     *                       an empty value expects {@value #DEFAULT_EXPECTED_STATUS}
+     * @return new ReadinessProbe expecting expectedStatus
+     * @throws IllegalArgumentException if expectedStatus is null or not a list of status codes and ranges
+     */
+    public ReadinessProbe withExpectedStatus(String expectedStatus) {
+        if (Objects.isNull(expectedStatus))
+            throw new IllegalArgumentException("expectedStatus cannot be null");
+        ReadinessProbe copy = copy();
+        copy.expectedStatusRanges = parseStatusRanges(expectedStatus.trim().isEmpty() ? DEFAULT_EXPECTED_STATUS : expectedStatus);
+        return copy;
+    }
+
+    /**
+     * returns a copy of this probe which also requires the first {@value #MAX_BODY_BYTES} bytes of
+     * the response to contain expectedContent
+     * @param expectedContent text the response must contain, an empty value accepts any response
+     * @return new ReadinessProbe expecting expectedContent
+     * @throws IllegalArgumentException if expectedContent is null
+     */
+    public ReadinessProbe withExpectedContent(String expectedContent) {
+        if (Objects.isNull(expectedContent))
+            throw new IllegalArgumentException("expectedContent cannot be null");
+        ReadinessProbe copy = copy();
+        copy.expectedContent = expectedContent.isEmpty() ? Optional.empty() : Optional.of(expectedContent);
+        return copy;
+    }
+
+    /**
+     * returns a copy of this probe with the given per request timeout and initial wait between attempts
+     * @param requestTimeout maximum time to wait for a single response
+     * @param initialBackoff wait after the first failed attempt, doubled after each further attempt
+     * @return new ReadinessProbe using the given timings
+     * @throws IllegalArgumentException if either argument is null or not positive
+     */
+    public ReadinessProbe withTimings(Duration requestTimeout, Duration initialBackoff) {
+        if (Objects.isNull(requestTimeout) || requestTimeout.isZero() || requestTimeout.isNegative())
+            throw new IllegalArgumentException("requestTimeout must be positive");
+        if (Objects.isNull(initialBackoff) || initialBackoff.isZero() || initialBackoff.isNegative())
+            throw new IllegalArgumentException("initialBackoff must be positive");
+        ReadinessProbe copy = copy();
+        copy.requestTimeout = requestTimeout;
+        copy.initialBackoff = initialBackoff;
+        return copy;
+    }
+
+    public URI getTarget() {
+        return target;
+    }
+
+    public Duration getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * starts probing the target, cancelling the returned future stops any further attempts
+     * @return future completed with the result once the target is ready or the deadline has passed
+     */
+    public CompletableFuture<ReadinessResult> probe() {
+        Run run = new Run(System.nanoTime());
+        run.attempt();
+        return run.result;
+    }
+
+    private final class Run {
+        private final CompletableFuture<ReadinessResult> result = new CompletableFuture<>();
+        private final long startedAtNanos;
+        private final long deadlineNanos;
+        private int attempts;
+        private String lastOutcome = "not probed";
+
+        private Run(long startedAtNanos) {
+            this.startedAtNanos = startedAtNanos;
+            this.deadlineNanos = startedAtNanos + deadline.toNanos();
+        }
+
+        private void attempt() {
+            if (result.isDone())
+                return;
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0) {
+                finish(false);
+                return;
+            }
+            attempts++;
+            Duration timeout = Duration.ofNanos(Math.min(requestTimeout.toNanos(), remainingNanos));
+            HttpRequest request = HttpRequest.newBuilder(target)
+                .timeout(timeout)
+                .GET()
+                .build();
+            int maxBodyBytes = expectedContent.isPresent() ? MAX_BODY_BYTES : 0;
+            try {
+                httpClient.sendAsync(request, responseInfo -> new BoundedBodySubscriber(maxBodyBytes))
+                    .whenComplete(this::onResponse);
+            } catch (RuntimeException e) {
+                onResponse(null, e);
+            }
+        }
+
+        private void onResponse(HttpResponse<String> response, Throwable error) {
+            if (Objects.nonNull(error)) {
+                lastOutcome = describe(error);
+            } else if (!isExpectedStatus(response.statusCode())) {
+                lastOutcome = "status " + response.statusCode();
+            } else if (expectedContent.isPresent() && !response.body().contains(expectedContent.get())) {
+                lastOutcome = String.format("status %d without the expected content", response.statusCode());
+            } else {
+                lastOutcome = "status " + response.statusCode();
+                finish(true);
+                return;
+            }
+
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0) {
+                finish(false);
+                return;
+            }
+            long backoffNanos = initialBackoff.toNanos() << Math.min(attempts - 1, 30);
+            long delayNanos = Math.min(Math.min(backoffNanos, MAX_BACKOFF.toNanos()), remainingNanos);
+            CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(this::attempt);
+        }
+
+        private void finish(boolean isReady) {
+            result.complete(new ReadinessResult(isReady, attempts, Duration.ofNanos(System.nanoTime() - startedAtNanos), lastOutcome));
+        }
+    }
+
+    private boolean isExpectedStatus(int statusCode) {
+        for (int[] range : expectedStatusRanges)
+            if (statusCode >= range[0] && statusCode <= range[1])
+                return true;
+        return false;
+    }
+
+    private static String describe(Throwable error) {
+        Throwable cause = error instanceof CompletionException && Objects.nonNull(error.getCause())
+            ? error.getCause()
+            : error;
+        if (cause instanceof HttpTimeoutException)
+            return "no response before the request timed out";
+        return Objects.isNull(cause.getMessage())
+            ? cause.getClass().getSimpleName()
+            : cause.getClass().getSimpleName() + ": " + cause.getMessage();
+    }
+
+    static List<int[]> parseStatusRanges(String expectedStatus) {
+        List<int[]> ranges = new ArrayList<>();
+        for (String part : expectedStatus.split(",")) {
+            String value = part.trim();
+            if (value.isEmpty())
+                continue;
+            int separator = value.indexOf('-');
+            try {
+                int low = Integer.parseInt((separator < 0 ? value : value.substring(0, separator)).trim());
+                int high = separator < 0 ? low : Integer.parseInt(value.substring(separator + 1).trim());
+                if (low < 100 || high > 599 || low > high)
+                    throw new IllegalArgumentException("invalid expected status range " + value);
+                ranges.add(new int[] {low, high});
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid expected status " + value, e);
+            }
+        }
+        if (ranges.isEmpty())
+            throw new IllegalArgumentException("expectedStatus must contain at least one status code");
+        return ranges;
+    }
+
+    /**
+     * collects at most maxBytes of a response body then cancels the subscription, so a large page
+     * is never read in full only to look for the expected content near its start
+     */
+    private static final class BoundedBodySubscriber implements HttpResponse.BodySubscriber<String> {
+        private final int maxBytes;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+
+        private BoundedBodySubscriber(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public CompletionStage<String> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (maxBytes <= 0) {
+                subscription.cancel();
+                onComplete();
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            for (ByteBuffer buffer : buffers) {
+                int length = Math.min(buffer.remaining(), maxBytes - body.size());
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                body.write(bytes, 0, length);
+            }
+            if (body.size() >= maxBytes) {
+                subscription.cancel();
+                onComplete();
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(new String(body.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+}
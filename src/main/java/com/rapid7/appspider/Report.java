@@ -18,6 +18,9 @@ import java.time.format.DateTimeFormatter;
 import java.util.Objects;
 import java.util.Optional;
 
+import com.rapid7.appspider.datatransferobjects.IndexedFindings;
+import com.rapid7.appspider.datatransferobjects.SeveritySummary;
+import com.rapid7.appspider.datatransferobjects.StoredReport;
 import com.rapid7.appspider.models.AuthenticationModel;
 
 public class Report {
@@ -27,6 +30,11 @@ public class Report {
     private final EnterpriseClient client;
     private final ScanSettings settings;
     private final LoggerFacade log;
+    private Optional<SeverityTrendStore> severityTrend;
+    private Optional<FindingsIndex> findingsIndex;
+    private String jobName;
+    private int buildNumber;
+    private long scanDurationMillis;
 
     public static Report createInstanceOrThrow(EnterpriseClient client, ScanSettings settings, LoggerFacade log) {
         if (Objects.isNull(client))
@@ -42,6 +50,59 @@ public class Report {
         this.client = client;
         this.settings = settings;
         this.log = log;
+        this.severityTrend = Optional.empty();
+        this.findingsIndex = Optional.empty();
+        this.scanDurationMillis = -1;
+    }
+
+    /**
+     * returns a copy of this Report which appends the severity counts of each vulnerabilities summary
+     * it retrieves to store
+     * @param store store of the job's trend records
+     * @param buildNumber number of the build the report is saved by
+     * @param scanDurationMillis time taken by the scan, -1 if unknown
+     * @return new Report recording to store
+     * @throws IllegalArgumentException if store is null
+     */
+    public Report withSeverityTrend(SeverityTrendStore store, int buildNumber, long scanDurationMillis) {
+        if (Objects.isNull(store))
+            throw new IllegalArgumentException("store cannot be null");
+        Report report = copy();
+        report.severityTrend = Optional.of(store);
+        report.buildNumber = buildNumber;
+        report.scanDurationMillis = scanDurationMillis;
+        return report;
+    }
+
+    /**
+     * returns a copy of this Report which replaces the job's findings in index with those of each
+     * vulnerabilities summary it retrieves
+     * @param index index of the current findings of every job
+     * @param jobName full name of the job the report is saved by
+     * @param buildNumber number of the build the report is saved by
+     * @return new Report updating index
+     * @throws IllegalArgumentException if index is null or jobName is null or empty
+     */
+    public Report withFindingsIndex(FindingsIndex index, String jobName, int buildNumber) {
+        if (Objects.isNull(index))
+            throw new IllegalArgumentException("index cannot be null");
+        if (Objects.isNull(jobName) || jobName.isEmpty())
+            throw new IllegalArgumentException("jobName cannot be null or empty");
+        Report report = copy();
+        report.findingsIndex = Optional.of(index);
+        report.jobName = jobName;
+        report.buildNumber = buildNumber;
+        return report;
+    }
+
+    private Report copy() {
+        Report report = new Report(client, settings, log);
+        report.severityTrend = severityTrend;
+        report.findingsIndex = findingsIndex;
+        report.jobName = jobName;
+        report.buildNumber = buildNumber;
+        report.scanDurationMillis = scanDurationMillis;
+        return report;
     }
 
     public boolean saveReport(AuthenticationModel authModel, String scanId, FilePath directory) {
@@ -68,6 +129,95 @@ public class Report {
                 saveReportZip(authToken, scanId, reportZipFilename);
     }
 
+    /**
+     * saves the vulnerabilities summary and report zip of scanId to store instead of the workspace,
+     * content identical to that saved by an earlier build is not stored again
+     * @param authModel credentials used to retrieve the report
+     * @param scanId id of the completed scan
+     * @param store store the report files are saved to
+     * @param referrer identifier of the build referencing the stored files
+     * @return Optional containing the stored files on success; otherwise, Optional.empty()
+     * @throws IllegalArgumentException if store is null or referrer is null or empty
+     */
+    public Optional<StoredReport> storeReport(AuthenticationModel authModel, String scanId, ReportBlobStore store, String referrer) {
+        if (Objects.isNull(store))
+            throw new IllegalArgumentException("store cannot be null");
+        if (Objects.isNull(referrer) || referrer.isEmpty())
+            throw new IllegalArgumentException("referrer cannot be null or empty");
+
+        log.println("Generating xml report and downloading report zip file to the report store");
+        Optional<String> maybeAuthToken = client.login(authModel);
+        if (maybeAuthToken.isEmpty()) {
+            log.println("Unauthorized: unable to retrieve vulnerabilities summary and report.zip");
+            return Optional.empty();
+        }
+        String authToken = maybeAuthToken.get();
+
+        Optional<String> xml = client.getVulnerabilitiesSummaryXml(authToken, scanId);
+        if (xml.isEmpty()) {
+            log.println("Unable to retrieve vulnerabilities summary.");
+            return Optional.empty();
+        }
+        recordSummary(xml.get());
+        Optional<InputStream> reportZip = client.getReportZip(authToken, scanId);
+        if (reportZip.isEmpty())
+            return Optional.empty();
+
+        String baseName = settings.getReportName() + "_" + getNowAsFormattedString();
+        String xmlDigest = null;
+        try (InputStream zipContent = reportZip.get()) {
+            xmlDigest = store.store(new ByteArrayInputStream(xml.get().getBytes(StandardCharsets.UTF_8)), referrer);
+            StoredReport report = new StoredReport(baseName + ".xml", xmlDigest, baseName + ".zip", store.store(zipContent, referrer));
+            log.println(String.format("Report saved as %s, %s", report.getVulnerabilitiesDigest(), report.getReportZipDigest()));
+            return Optional.of(report);
+        } catch (IOException e) {
+            log.println(e.toString());
+            releaseQuietly(store, xmlDigest, referrer);
+            return Optional.empty();
+        }
+    }
+
+    private void releaseQuietly(ReportBlobStore store, String digest, String referrer) {
+        if (Objects.isNull(digest))
+            return;
+        try {
+            store.release(digest, referrer);
+        } catch (IOException e) {
+            log.warn("Unable to release report %s: %s", digest, e);
+        }
+    }
+
+    /**
+     * records the counts of the vulnerabilities summary in the trend store and findings index, if
+     * any, parsing it once for both. Failing to do so only loses the build's point on the trend
+     * chart or leaves the dashboard showing the previous build so is not treated as a failure
+     */
+    private void recordSummary(String xml) {
+        if (severityTrend.isEmpty() && findingsIndex.isEmpty())
+            return;
+        SeveritySummary summary;
+        try {
+            summary = VulnerabilitySummaryParser.parse(new StringReader(xml));
+        } catch (IOException e) {
+            log.warn("Unable to count the findings of build %d: %s", buildNumber, e);
+            return;
+        }
+        Instant recordedAt = Instant.now();
+        try {
+            if (severityTrend.isPresent())
+                severityTrend.get().append(buildNumber, recordedAt, scanDurationMillis, summary);
+        } catch (IOException e) {
+            log.warn("Unable to record severity trend of build %d: %s", buildNumber, e);
+        }
+        try {
+            if (findingsIndex.isPresent())
+                findingsIndex.get().update(new IndexedFindings(jobName, settings.getConfigName(), buildNumber, recordedAt,
+                    summary.getSeverityCounts()));
+        } catch (IOException e) {
+            log.warn("Unable to update the findings index with build %d: %s", buildNumber, e);
+        }
+    }
+
     private boolean saveVulnerabilities(String authToken, String scanId, Path file) {
 
         Optional<String> xml = client.getVulnerabilitiesSummaryXml(authToken, scanId);
@@ -75,6 +225,7 @@ public class Report {
             log.println("Unable to retrieve vulnerabilities summary.");
             return false;
         }
+        recordSummary(xml.get());
         return saveXmlFile(file, xml.get());
     }
     private boolean saveReportZip(String authToken, String scanId, Path file) {
@@ -0,0 +1,234 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * content addressed store of report files, each distinct content is stored once under its SHA-256
+ * digest however many builds saved it
+ *
+ * <p>
+ * Every build storing a blob is recorded as a reference to it. When the last reference is
+ * released, typically because the build was deleted, the blob is deleted. A single instance is
+ * shared per directory so that storing and releasing blobs from concurrent builds can't race.
+ * </p>
+ */
+public final class ReportBlobStore {
+
+    private static final Map<Path, ReportBlobStore> INSTANCES = new ConcurrentHashMap<>();
+    private static final Pattern DIGEST = Pattern.compile("[0-9a-f]{64}");
+    private static final String BLOBS = "blobs";
+    private static final String REFS = "refs";
+
+    private final Path directory;
+
+    /**
+     * gets the store rooted at directory, creating it if necessary
+     * @param directory root directory of the store, it need not exist yet
+     * @return the shared ReportBlobStore for directory
+     * @throws IllegalArgumentException if directory is null
+     */
+    public static ReportBlobStore forDirectory(Path directory) {
+        if (Objects.isNull(directory))
+            throw new IllegalArgumentException("directory cannot be null");
+        return INSTANCES.computeIfAbsent(directory.toAbsolutePath().normalize(), ReportBlobStore::new);
+    }
+
+    private ReportBlobStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param digest candidate digest
+     * @return true if digest is a lower case hex encoded SHA-256 digest; otherwise, false
+     */
+    public static boolean isDigest(String digest) {
+        return Objects.nonNull(digest) && DIGEST.matcher(digest).matches();
+    }
+
+    /**
+     * stores content, unless identical content is already stored, and records referrer as
+     * referencing it. content is copied to a temporary file while its digest is computed so that
+     * it is never held in memory
+     * @param content content to store, read to the end but not closed
+     * @param referrer identifier of the build referencing the content
+     * @return lower case hex encoded SHA-256 digest of content
+     * @throws IllegalArgumentException if either argument is null or referrer is empty
+     * @throws IOException if content cannot be read or the store cannot be written
+     */
+    public String store(InputStream content, String referrer) throws IOException {
+        if (Objects.isNull(content))
+            throw new IllegalArgumentException("content cannot be null");
+        if (Objects.isNull(referrer) || referrer.isEmpty())
+            throw new IllegalArgumentException("referrer cannot be null or empty");
+
+        Path blobs = Files.createDirectories(directory.resolve(BLOBS));
+        Path temporary = Files.createTempFile(blobs, "incoming", ".tmp");
+        try {
+            MessageDigest digest = DigestUtils.getSha256Digest();
+            try (OutputStream output = Files.newOutputStream(temporary)) {
+                new DigestInputStream(content, digest).transferTo(output);
+            }
+            String hex = Hex.encodeHexString(digest.digest());
+            synchronized (this) {
+                Path blob = blobPath(hex);
+                if (Files.notExists(blob)) {
+                    Files.createDirectories(blob.getParent());
+                    move(temporary, blob);
+                }
+                Path reference = referencePath(hex, referrer);
+                Files.createDirectories(reference.getParent());
+                if (Files.notExists(reference))
+                    Files.createFile(reference);
+            }
+            return hex;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * @param digest digest returned by {@link #store(InputStream, String)}
+     * @return Optional containing the path of the stored content if it exists; otherwise, Optional.empty()
+     */
+    public Optional<Path> find(String digest) {
+        if (!isDigest(digest))
+            return Optional.empty();
+        Path blob = blobPath(digest);
+        return Files.isRegularFile(blob) ? Optional.of(blob) : Optional.empty();
+    }
+
+    /**
+     * removes referrer's reference to digest, deleting the content once nothing references it
+     * @param digest digest returned by {@link #store(InputStream, String)}
+     * @param referrer identifier of the build which stored the content
+     * @return true if the content was deleted; otherwise, false
+     * @throws IOException if the store cannot be updated
+     */
+    public synchronized boolean release(String digest, String referrer) throws IOException {
+        if (!isDigest(digest) || Objects.isNull(referrer) || referrer.isEmpty())
+            return false;
+        Files.deleteIfExists(referencePath(digest, referrer));
+        Path references = directory.resolve(REFS).resolve(digest);
+        if (hasEntries(references))
+            return false;
+        try {
+            Files.deleteIfExists(references);
+        } catch (DirectoryNotEmptyException e) {
+            return false;
+        }
+        return Files.deleteIfExists(blobPath(digest));
+    }
+
+    /**
+     * removes every reference made by a referrer starting with prefix, deleting content once
+     * nothing references it. Used when the referrers are deleted together, such as all the builds
+     * of a deleted job
+     * @param prefix prefix of the referrers to release
+     * @return number of blobs deleted
+     * @throws IOException if the store cannot be updated
+     */
+    public synchronized int releaseAll(String prefix) throws IOException {
+        if (Objects.isNull(prefix) || prefix.isEmpty())
+            return 0;
+        int deleted = 0;
+        for (Path reference : referencesStartingWith(prefix)) {
+            if (release(reference.getParent().getFileName().toString(), decodeReferrer(reference)))
+                deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * replaces prefix with newPrefix in every referrer starting with prefix, so that references
+     * made by the builds of a renamed or moved job are released under the build's new identifier
+     * @param prefix prefix of the referrers to rename
+     * @param newPrefix prefix replacing it
+     * @return number of references renamed
+     * @throws IOException if the store cannot be updated
+     */
+    public synchronized int renameAll(String prefix, String newPrefix) throws IOException {
+        if (Objects.isNull(prefix) || prefix.isEmpty() || Objects.isNull(newPrefix) || newPrefix.isEmpty() || prefix.equals(newPrefix))
+            return 0;
+        List<Path> matching = referencesStartingWith(prefix);
+        for (Path reference : matching) {
+            String referrer = decodeReferrer(reference);
+            Path renamed = referencePath(reference.getParent().getFileName().toString(), newPrefix + referrer.substring(prefix.length()));
+            if (Files.notExists(renamed))
+                Files.createFile(renamed);
+            Files.delete(reference);
+        }
+        return matching.size();
+    }
+
+    private List<Path> referencesStartingWith(String prefix) throws IOException {
+        Path references = directory.resolve(REFS);
+        if (Files.notExists(references))
+            return List.of();
+        try (Stream<Path> all = Files.walk(references, 2)) {
+            return all
+                .filter(path -> path.getNameCount() == references.getNameCount() + 2)
+                .filter(path -> decodeReferrer(path).startsWith(prefix))
+                .collect(Collectors.toList());
+        }
+    }
+
+    private Path blobPath(String digest) {
+        return directory.resolve(BLOBS).resolve(digest.substring(0, 2)).resolve(digest);
+    }
+
+    private Path referencePath(String digest, String referrer) {
+        String name = Base64.getUrlEncoder().withoutPadding().encodeToString(referrer.getBytes(StandardCharsets.UTF_8));
+        return directory.resolve(REFS).resolve(digest).resolve(name);
+    }
+
+    private static String decodeReferrer(Path reference) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(reference.getFileName().toString()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    private static boolean hasEntries(Path directory) throws IOException {
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.findAny().isPresent();
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * reads single entries of report zips without extracting them, keeping recently read small
+ * entries in memory
+ *
+ * <p>
+ * Each read opens the zip through {@link ZipFile}, which reads only the central directory at the
+ * end of the file and then seeks directly to the requested entry, so the cost of viewing a page
+ * of a large report is the central directory plus the compressed bytes of that page. Entries up
+ * to {@value #MAX_CACHED_ENTRY_BYTES} bytes are kept in a JVM wide least recently used cache
+ * bounded to {@value #MAX_CACHED_BYTES} bytes in total; larger entries are always streamed.
+ * </p>
+ */
+public final class ReportZipReader {
+
+    static final int MAX_CACHED_ENTRY_BYTES = 1024 * 1024;
+    static final long MAX_CACHED_BYTES = 64L * 1024 * 1024;
+
+    private static final ReportZipReader SHARED = new ReportZipReader(MAX_CACHED_BYTES, MAX_CACHED_ENTRY_BYTES);
+
+    private final long maxCachedBytes;
+    private final int maxCachedEntryBytes;
+    private final LinkedHashMap<String, CachedEntry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    /**
+     * an entry of a report zip
+     */
+    public interface ReportEntry {
+        /**
+         * @return name of the entry within the zip
+         */
+        String getName();
+
+        /**
+         * @return uncompressed size of the entry in bytes
+         */
+        long getSize();
+
+        /**
+         * @return CRC-32 of the uncompressed entry, identifies the content within its zip
+         */
+        long getCrc();
+
+        /**
+         * opens the uncompressed content of the entry
+         * @return InputStream which must be closed by the caller
+         * @throws IOException if the zip cannot be read
+         */
+        InputStream open() throws IOException;
+    }
+
+    private static final class CachedEntry implements ReportEntry {
+        private final String name;
+        private final long crc;
+        private final byte[] content;
+
+        private CachedEntry(String name, long crc, byte[] content) {
+            this.name = name;
+            this.crc = crc;
+            this.content = content;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getSize() {
+            return content.length;
+        }
+
+        @Override
+        public long getCrc() {
+            return crc;
+        }
+
+        @Override
+        public InputStream open() {
+            return new ByteArrayInputStream(content);
+        }
+    }
+
+    private static final class StreamedEntry implements ReportEntry {
+        private final Path zip;
+        private final ZipEntry entry;
+
+        private StreamedEntry(Path zip, ZipEntry entry) {
+            this.zip = zip;
+            this.entry = entry;
+        }
+
+        @Override
+        public String getName() {
+            return entry.getName();
+        }
+
+        @Override
+        public long getSize() {
+            return entry.getSize();
+        }
+
+        @Override
+        public long getCrc() {
+            return entry.getCrc();
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+            ZipFile zipFile = new ZipFile(zip.toFile());
+            ZipEntry current = zipFile.getEntry(entry.getName());
+            if (Objects.isNull(current)) {
+                zipFile.close();
+                throw new IOException(entry.getName() + " no longer exists in " + zip);
+            }
+            return new FilterInputStream(zipFile.getInputStream(current)) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        zipFile.close();
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * @return the reader shared JVM wide
+     */
+    public static ReportZipReader shared() {
+        return SHARED;
+    }
+
+    ReportZipReader(long maxCachedBytes, int maxCachedEntryBytes) {
+        this.maxCachedBytes = maxCachedBytes;
+        this.maxCachedEntryBytes = maxCachedEntryBytes;
+    }
+
+    /**
+     * finds entryName in zip
+     * @param zip the report zip, its content must never change as entries are cached by cacheKey
+     * @param cacheKey identifier of the zip's content, such as its digest
+     * @param entryName name of the entry within the zip
+     * @return Optional containing the entry if it exists and is not a directory; otherwise, Optional.empty()
+     * @throws IllegalArgumentException if any of the arguments are null
+     * @throws IOException if the zip cannot be read
+     */
+    public Optional<ReportEntry> find(Path zip, String cacheKey, String entryName) throws IOException {
+        if (Objects.isNull(zip))
+            throw new IllegalArgumentException("zip cannot be null");
+        if (Objects.isNull(cacheKey))
+            throw new IllegalArgumentException("cacheKey cannot be null");
+        if (Objects.isNull(entryName))
+            throw new IllegalArgumentException("entryName cannot be null");
+
+        String key = cacheKey + "!/" + entryName;
+        synchronized (this) {
+            CachedEntry cached = cache.get(key);
+            if (Objects.nonNull(cached))
+                return Optional.of(cached);
+        }
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            ZipEntry entry = zipFile.getEntry(entryName);
+            if (Objects.isNull(entry) || entry.isDirectory())
+                return Optional.empty();
+            if (entry.getSize() < 0 || entry.getSize() > maxCachedEntryBytes)
+                return Optional.of(new StreamedEntry(zip, entry));
+
+            byte[] content;
+            try (InputStream input = zipFile.getInputStream(entry)) {
+                content = input.readAllBytes();
+            }
+            CachedEntry loaded = new CachedEntry(entryName, entry.getCrc(), content);
+            put(key, loaded);
+            return Optional.of(loaded);
+        }
+    }
+
+    /**
+     * finds the CRC-32 of entryName in zip from the cache or the zip's central directory, without
+     * reading or caching the entry itself
+     * @param zip the report zip, its content must never change as entries are cached by cacheKey
+     * @param cacheKey identifier of the zip's content, such as its digest
+     * @param entryName name of the entry within the zip
+     * @return Optional containing the CRC-32 if the entry exists and is not a directory; otherwise, Optional.empty()
+     * @throws IllegalArgumentException if any of the arguments are null
+     * @throws IOException if the zip cannot be read
+     */
+    public Optional<Long> findCrc(Path zip, String cacheKey, String entryName) throws IOException {
+        if (Objects.isNull(zip))
+            throw new IllegalArgumentException("zip cannot be null");
+        if (Objects.isNull(cacheKey))
+            throw new IllegalArgumentException("cacheKey cannot be null");
+        if (Objects.isNull(entryName))
+            throw new IllegalArgumentException("entryName cannot be null");
+
+        synchronized (this) {
+            CachedEntry cached = cache.get(cacheKey + "!/" + entryName);
+            if (Objects.nonNull(cached))
+                return Optional.of(cached.getCrc());
+        }
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            ZipEntry entry = zipFile.getEntry(entryName);
+            return Objects.isNull(entry) || entry.isDirectory() || entry.getCrc() < 0
+                ? Optional.empty()
+                : Optional.of(entry.getCrc());
+        }
+    }
+
+    /**
+     * finds the page a report should be opened at, the html entry nearest the root of the zip
+     * preferring those named index.html
+     * @param zip the report zip
+     * @return Optional containing the name of the entry; otherwise, Optional.empty() if the zip contains no html
+     * @throws IOException if the zip cannot be read
+     */
+    public Optional<String> findStartPage(Path zip) throws IOException {
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            return zipFile.stream()
+                .filter(entry -> !entry.isDirectory())
+                .map(ZipEntry::getName)
+                .filter(name -> name.toLowerCase(Locale.ROOT).endsWith(".html") || name.toLowerCase(Locale.ROOT).endsWith(".htm"))
+                .min(Comparator
+                    .comparingLong((String name) -> name.chars().filter(c -> c == '/').count())
+                    .thenComparing(name -> !name.toLowerCase(Locale.ROOT).endsWith("index.html"))
+                    .thenComparing(Comparator.naturalOrder()));
+        }
+    }
+
+    /**
+     * @return total size in bytes of the cached entries
+     */
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    private synchronized void put(String key, CachedEntry entry) {
+        CachedEntry previous = cache.put(key, entry);
+        if (Objects.nonNull(previous))
+            cachedBytes -= previous.getSize();
+        cachedBytes += entry.getSize();
+        Iterator<Map.Entry<String, CachedEntry>> eldest = cache.entrySet().iterator();
+        while (cachedBytes > maxCachedBytes && eldest.hasNext()) {
+            cachedBytes -= eldest.next().getValue().getSize();
+            eldest.remove();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Storage class for the maximum request rates to each AppSpider Enterprise server, one rate per
+ * class of endpoint, along with the JVM wide rate limiters enforcing them. Every server uses the
+ * same rates unless it has rates of its own, see {@link #withServerOverrides(String)}
+ */
+public class RequestRateLimits {
+
+    public static final double DEFAULT_LOGINS_PER_SECOND = 5;
+    public static final double DEFAULT_READS_PER_SECOND = 20;
+    public static final double DEFAULT_WRITES_PER_SECOND = 2;
+
+    /**
+     * classes of endpoint sharing a rate limit
+     */
+    public enum EndpointClass {
+        /** authentication requests, sent before almost every other request */
+        LOGIN,
+        /** requests which start scans or create or change configs */
+        WRITE,
+        /** all other requests, including status checks and reports */
+        READ
+    }
+
+    private static final Map<String, RateLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    private final double loginsPerSecond;
+    private final double readsPerSecond;
+    private final double writesPerSecond;
+    private Map<String, RequestRateLimits> serverLimits = Map.of();
+
+    /**
+     * Constructs a DTO style container object storing request rates, a rate of 0 means unlimited and
+     * negative rates are replaced by their defaults
+     * @param loginsPerSecond maximum rate of login requests
+     * @param readsPerSecond maximum rate of requests which don't change anything on the server
+     * @param writesPerSecond maximum rate of requests which start scans or save configs
+     */
+    public RequestRateLimits(double loginsPerSecond, double readsPerSecond, double writesPerSecond) {
+        this.loginsPerSecond = loginsPerSecond >= 0 ? loginsPerSecond : DEFAULT_LOGINS_PER_SECOND;
+        this.readsPerSecond = readsPerSecond >= 0 ? readsPerSecond : DEFAULT_READS_PER_SECOND;
+        this.writesPerSecond = writesPerSecond >= 0 ? writesPerSecond : DEFAULT_WRITES_PER_SECOND;
+    }
+
+    public double getLoginsPerSecond() {
+        return loginsPerSecond;
+    }
+    public double getReadsPerSecond() {
+        return readsPerSecond;
+    }
+    public double getWritesPerSecond() {
+        return writesPerSecond;
+    }
+
+    /**
+     * returns a copy of these limits using other rates for some servers
+     *
+     * <p>
+     * overrides has one server per line in the form {@code server=logins,reads,writes}, where server
+     * is the host and port, or the url, of the server and each rate is a number of requests per
+     * second, 0 for no limit. Rates left empty are taken from these limits. Blank lines and lines
+     * starting with {@code #} are ignored.
+     * </p>
+     * @param overrides rates of the servers which don't use these limits
+     * @return new RequestRateLimits using the rates in overrides for the servers they name
+     * @throws IllegalArgumentException if overrides is null or a line is malformed, the message
+     *                                  identifies the offending line
+     */
+    public RequestRateLimits withServerOverrides(String overrides) {
+        if (Objects.isNull(overrides))
+            throw new IllegalArgumentException("overrides cannot be null");
+        Map<String, RequestRateLimits> limits = new HashMap<>();
+        String[] lines = overrides.split("\\R");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            int separator = line.indexOf('=');
+            String[] rates = separator < 0 ? new String[0] : line.substring(separator + 1).split(",", -1);
+            if (rates.length != 3)
+                throw new IllegalArgumentException(String.format("line %d: expected server=logins,reads,writes", i + 1));
+            String server = serverOf(line.substring(0, separator).trim(), i + 1);
+            limits.put(server, new RequestRateLimits(
+                rateOf(rates[0], loginsPerSecond, i + 1),
+                rateOf(rates[1], readsPerSecond, i + 1),
+                rateOf(rates[2], writesPerSecond, i + 1)));
+        }
+        RequestRateLimits copy = new RequestRateLimits(loginsPerSecond, readsPerSecond, writesPerSecond);
+        copy.serverLimits = Map.copyOf(limits);
+        return copy;
+    }
+
+    /**
+     * @param server server identifier, typically host and port of the AppSpider Enterprise url
+     * @return the limits applied to requests sent to server
+     */
+    public RequestRateLimits forServer(String server) {
+        return serverLimits.getOrDefault(server, this);
+    }
+
+    private static String serverOf(String value, int lineNumber) {
+        String server = value;
+        if (value.contains("://")) {
+            try {
+                server = Objects.toString(URI.create(value).getAuthority(), "");
+            } catch (IllegalArgumentException e) {
+                server = "";
+            }
+        }
+        if (server.isEmpty())
+            throw new IllegalArgumentException(String.format("line %d: server cannot be empty", lineNumber));
+        return server;
+    }
+
+    private static double rateOf(String value, double defaultRate, int lineNumber) {
+        String rate = value.trim();
+        if (rate.isEmpty())
+            return defaultRate;
+        try {
+            double permitsPerSecond = Double.parseDouble(rate);
+            if (permitsPerSecond >= 0)
+                return permitsPerSecond;
+        } catch (NumberFormatException e) {
+            // reported below along with negative rates
+        }
+        throw new IllegalArgumentException(String.format("line %d: '%s' is not a rate of 0 or more requests per second", lineNumber, rate));
+    }
+
+    /**
+     * @param path path of the request URI
+     * @return the class of endpoint path belongs to
+     */
+    public static EndpointClass classify(String path) {
+        String value = Objects.toString(path, "");
+        if (value.contains("/Authentication/"))
+            return EndpointClass.LOGIN;
+        if (value.endsWith("/Scan/RunScan") || value.endsWith("/Scan/CancelScan") || value.endsWith("/Config/SaveConfig"))
+            return EndpointClass.WRITE;
+        return EndpointClass.READ;
+    }
+
+    /**
+     * gets the rate limiter shared by all requests to path on server, replacing the existing
+     * limiter if its rate has changed. The rates of server are used when it has its own
+     * @param server server identifier, typically host and port of the AppSpider Enterprise url
+     * @param path path of the request URI
+     * @return Optional containing the shared RateLimiter; or Optional.empty() if requests of this
+     *         class are not limited
+     */
+    public Optional<RateLimiter> limiterFor(String server, String path) {
+        EndpointClass endpointClass = classify(path);
+        double permitsPerSecond = forServer(server).rateOf(endpointClass);
+        if (permitsPerSecond <= 0)
+            return Optional.empty();
+        return Optional.of(LIMITERS.compute(server + "|" + endpointClass, (key, existing) ->
+            Objects.nonNull(existing) && existing.getPermitsPerSecond() == permitsPerSecond
+                ? existing
+                : RateLimiter.createInstanceOrThrow(permitsPerSecond, (int) Math.max(1, permitsPerSecond))));
+    }
+
+    private double rateOf(EndpointClass endpointClass) {
+        switch (endpointClass) {
+            case LOGIN:
+                return loginsPerSecond;
+            case WRITE:
+                return writesPerSecond;
+            default:
+                return readsPerSecond;
+        }
+    }
+}
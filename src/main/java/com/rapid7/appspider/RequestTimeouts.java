@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.apache.http.client.config.RequestConfig;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storage class for the timeouts applied to each request sent to AppSpider Enterprise
+ */
+public class RequestTimeouts {
+
+    public static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 30;
+    public static final int DEFAULT_READ_TIMEOUT_SECONDS = 300;
+
+    private final int connectTimeoutSeconds;
+    private final int readTimeoutSeconds;
+
+    /**
+     * Constructs a DTO style container object storing request timeouts, values less than 1 are
+     * replaced by their defaults
+     * @param connectTimeoutSeconds maximum time to wait for a pooled connection and, separately, to establish a new one
+     * @param readTimeoutSeconds maximum time to wait between two packets of the response
+     */
+    public RequestTimeouts(int connectTimeoutSeconds, int readTimeoutSeconds) {
+        this.connectTimeoutSeconds = connectTimeoutSeconds > 0 ? connectTimeoutSeconds : DEFAULT_CONNECT_TIMEOUT_SECONDS;
+        this.readTimeoutSeconds = readTimeoutSeconds > 0 ? readTimeoutSeconds : DEFAULT_READ_TIMEOUT_SECONDS;
+    }
+
+    public int getConnectTimeoutSeconds() {
+        return connectTimeoutSeconds;
+    }
+    public int getReadTimeoutSeconds() {
+        return readTimeoutSeconds;
+    }
+
+    /**
+     * applies the timeouts on top of base
+     * @param base existing request configuration, may be null
+     * @return request configuration with base's settings and these timeouts
+     */
+    public RequestConfig applyTo(RequestConfig base) {
+        int connectMillis = (int) TimeUnit.SECONDS.toMillis(connectTimeoutSeconds);
+        return RequestConfig.copy(Objects.isNull(base) ? RequestConfig.DEFAULT : base)
+            .setConnectionRequestTimeout(connectMillis)
+            .setConnectTimeout(connectMillis)
+            .setSocketTimeout((int) TimeUnit.SECONDS.toMillis(readTimeoutSeconds))
+            .build();
+    }
+}
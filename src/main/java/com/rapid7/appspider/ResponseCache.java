@@ -0,0 +1,401 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.models.AuthenticationModel;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * size bounded cache of the catalog responses of a single AppSpider Enterprise server, the scan
+ * configs, clients and engine groups, which are large and rarely change between requests
+ *
+ * <p>
+ * Responses carrying an ETag or Last-Modified validator are revalidated with a conditional GET,
+ * the cached body being used when the server answers 304 Not Modified. Responses without
+ * validators are reused without contacting the server until they are older than the fallback
+ * time to live, or the max-age the server sent. Responses are cached per credentials, named by
+ * the {@link #CREDENTIALS_HEADER} of the request or else by its Authorization header, so that a
+ * response fetched with one set of credentials is never revalidated for or returned to a request
+ * sent with another, since the catalogs differ between users and clients. Caches are shared JVM
+ * wide, one per server, and evict the least recently used responses once they hold more than their
+ * maximum size.
+ * </p>
+ */
+public class ResponseCache {
+
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+    public static final int DEFAULT_FALLBACK_TTL_SECONDS = 30;
+    /**
+     * header naming the credentials a catalog request is made with, see {@link #credentialsOf(AuthenticationModel)},
+     * which the client services remove before sending the request
+     */
+    public static final String CREDENTIALS_HEADER = "X-AppSpider-Credentials";
+
+    private static final Map<String, ResponseCache> CACHES = new ConcurrentHashMap<>();
+    private static final Set<String> CACHEABLE_PATHS = Set.of(
+        "/Config/GetConfigs",
+        "/Client/GetClients",
+        "/EngineGroup/GetAllEngineGroups",
+        "/EngineGroup/GetEngineGroupsForClient");
+    private static final Set<String> CACHED_CONTROLLERS = Set.of("/Config/", "/Client/", "/EngineGroup/");
+    private static final Pattern MAX_AGE = Pattern.compile("(?:^|,)\\s*max-age\\s*=\\s*\"?(\\d+)");
+
+    private final LongSupplier nanoTime;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long maxBytes;
+    private long fallbackTtlNanos;
+    private long cachedBytes;
+    private long hits;
+    private long revalidations;
+    private long misses;
+
+    private static final class Entry {
+        private final byte[] body;
+        private final String contentType;
+        private final String etag;
+        private final String lastModified;
+        private final long ttlNanos;
+        private long validatedAtNanos;
+
+        private Entry(byte[] body, String contentType, String etag, String lastModified, long ttlNanos, long validatedAtNanos) {
+            this.body = body;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.ttlNanos = ttlNanos;
+            this.validatedAtNanos = validatedAtNanos;
+        }
+
+        private HttpResponse toResponse() {
+            BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+            ByteArrayEntity entity = new ByteArrayEntity(body);
+            entity.setContentType(contentType);
+            response.setEntity(entity);
+            return response;
+        }
+    }
+
+    /**
+     * a request looked up in the cache, completed with the response of the server unless the
+     * cache holds a fresh response
+     */
+    public final class Lookup {
+        private final String key;
+        private final Entry entry;
+        private final boolean fresh;
+
+        private Lookup(String key, Entry entry, boolean fresh) {
+            this.key = key;
+            this.entry = entry;
+            this.fresh = fresh;
+        }
+
+        /**
+         * @return Optional containing the cached response if it may be used without contacting the
+         *         server; otherwise, Optional.empty()
+         */
+        public Optional<HttpResponse> getFreshResponse() {
+            return fresh
+                ? Optional.of(entry.toResponse())
+                : Optional.empty();
+        }
+
+        /**
+         * replaces a 304 response with the cached body and caches a successful response, reading
+         * its body into memory
+         * @param response response of the server to the request looked up
+         * @return response to use in place of response
+         * @throws IOException if the body of response cannot be read
+         */
+        public HttpResponse complete(HttpResponse response) throws IOException {
+            return ResponseCache.this.complete(this, response);
+        }
+    }
+
+    /**
+     * gets the cache for server, applying maxBytes and fallbackTtlSeconds to it
+     * @param server server identifier, typically host and port of the AppSpider Enterprise url
+     * @param maxBytes maximum total size of the cached bodies
+     * @param fallbackTtlSeconds how long responses without validators are reused
+     * @return the shared ResponseCache
+     * @throws IllegalArgumentException if server is null, maxBytes is less than 1 or fallbackTtlSeconds is negative
+     */
+    public static ResponseCache forServer(String server, long maxBytes, int fallbackTtlSeconds) {
+        if (Objects.isNull(server))
+            throw new IllegalArgumentException("server cannot be null");
+        ResponseCache cache = CACHES.computeIfAbsent(server, key -> new ResponseCache(maxBytes, fallbackTtlSeconds, System::nanoTime));
+        cache.configure(maxBytes, fallbackTtlSeconds);
+        return cache;
+    }
+
+    /**
+     * @param server server identifier, typically host and port of the AppSpider Enterprise url
+     * @return Optional containing the cache of server if any request to it has been cached; otherwise, Optional.empty()
+     */
+    public static Optional<ResponseCache> find(String server) {
+        return Optional.ofNullable(CACHES.get(Objects.toString(server, "")));
+    }
+
+    /**
+     * @param request request about to be sent
+     * @return true if request fetches one of the catalogs kept by the cache
+     */
+    public static boolean isCacheable(HttpRequestBase request) {
+        return HttpGet.METHOD_NAME.equals(request.getMethod())
+            && CACHEABLE_PATHS.stream().anyMatch(path -> Objects.toString(request.getURI().getPath(), "").endsWith(path));
+    }
+
+    /**
+     * @param request request about to be sent
+     * @return true if request may change a catalog kept by the cache, such as saving a scan config
+     */
+    public static boolean isInvalidating(HttpRequestBase request) {
+        return !HttpGet.METHOD_NAME.equals(request.getMethod()) && controllerOf(request).isPresent();
+    }
+
+    /**
+     * the session token sent in the Authorization header is new on every login, responses are
+     * shared between the sessions of the same credentials by naming them in {@link #CREDENTIALS_HEADER}
+     * @param authModel credentials a session was logged in with
+     * @return value of {@link #CREDENTIALS_HEADER} for the requests made in that session
+     * @throws IllegalArgumentException if authModel is null
+     */
+    public static String credentialsOf(AuthenticationModel authModel) {
+        if (Objects.isNull(authModel))
+            throw new IllegalArgumentException("authModel cannot be null");
+        return DigestUtils.sha256Hex(authModel.getUsername() + "\n" + (authModel.hasClientId() ? authModel.getClientId() : ""));
+    }
+
+    ResponseCache(long maxBytes, int fallbackTtlSeconds, LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+        configure(maxBytes, fallbackTtlSeconds);
+    }
+
+    private synchronized void configure(long maxBytes, int fallbackTtlSeconds) {
+        if (maxBytes < 1)
+            throw new IllegalArgumentException("maxBytes must be at least 1");
+        if (fallbackTtlSeconds < 0)
+            throw new IllegalArgumentException("fallbackTtlSeconds cannot be negative");
+        this.maxBytes = maxBytes;
+        this.fallbackTtlNanos = TimeUnit.SECONDS.toNanos(fallbackTtlSeconds);
+        evict();
+    }
+
+    /**
+     * looks up request, adding If-None-Match and If-Modified-Since headers to it if the cached
+     * response can be revalidated
+     * @param request cacheable request about to be sent, see {@link #isCacheable(HttpRequestBase)}
+     * @return Lookup to complete with the response to request
+     * @throws IllegalArgumentException if request is null
+     */
+    public synchronized Lookup lookup(HttpRequestBase request) {
+        if (Objects.isNull(request))
+            throw new IllegalArgumentException("request cannot be null");
+        String key = keyOf(request);
+        request.removeHeaders(CREDENTIALS_HEADER);
+        request.removeHeaders(HttpHeaders.IF_NONE_MATCH);
+        request.removeHeaders(HttpHeaders.IF_MODIFIED_SINCE);
+        Entry entry = entries.get(key);
+        if (Objects.isNull(entry)) {
+            misses++;
+            return new Lookup(key, null, false);
+        }
+        if (isFresh(entry)) {
+            hits++;
+            return new Lookup(key, entry, true);
+        }
+
+        if (Objects.nonNull(entry.etag))
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, entry.etag);
+        if (Objects.nonNull(entry.lastModified))
+            request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, entry.lastModified);
+        if (Objects.isNull(entry.etag) && Objects.isNull(entry.lastModified)) {
+            misses++;
+            return new Lookup(key, null, false);
+        }
+        return new Lookup(key, entry, false);
+    }
+
+    /**
+     * discards the cached responses of the catalog changed by request, so that reads following a
+     * write see its effect
+     * @param request request which may have changed a catalog, see {@link #isInvalidating(HttpRequestBase)}
+     * @throws IllegalArgumentException if request is null
+     */
+    public synchronized void invalidate(HttpRequestBase request) {
+        if (Objects.isNull(request))
+            throw new IllegalArgumentException("request cannot be null");
+        Optional<String> controller = controllerOf(request);
+        if (controller.isEmpty())
+            return;
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (entry.getKey().contains(controller.get())) {
+                cachedBytes -= entry.getValue().body.length;
+                iterator.remove();
+            }
+        }
+    }
+
+    private HttpResponse complete(Lookup lookup, HttpResponse response) throws IOException {
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode == HttpStatus.SC_NOT_MODIFIED && Objects.nonNull(lookup.entry)) {
+            EntityUtils.consumeQuietly(response.getEntity());
+            synchronized (this) {
+                revalidations++;
+                lookup.entry.validatedAtNanos = nanoTime.getAsLong();
+            }
+            return lookup.entry.toResponse();
+        }
+        synchronized (this) {
+            if (Objects.nonNull(lookup.entry))
+                misses++;
+        }
+        HttpEntity entity = response.getEntity();
+        if (statusCode != HttpStatus.SC_OK || Objects.isNull(entity) || isNoStore(response)
+            || entity.getContentLength() > maxBytes)
+            return response;
+
+        byte[] body = EntityUtils.toByteArray(entity);
+        Header contentType = entity.getContentType();
+        Entry entry = new Entry(body, Objects.isNull(contentType) ? null : contentType.getValue(),
+            headerValue(response, HttpHeaders.ETAG), headerValue(response, HttpHeaders.LAST_MODIFIED),
+            ttlNanosOf(response), nanoTime.getAsLong());
+        put(lookup.key, entry);
+        return entry.toResponse();
+    }
+
+    /**
+     * @return number of requests answered from the cache without contacting the server
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of requests answered from the cache after the server replied 304 Not Modified
+     */
+    public synchronized long getRevalidations() {
+        return revalidations;
+    }
+
+    /**
+     * @return number of requests whose response was fetched in full
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return fraction of requests whose body was served from the cache, 0 if nothing has been requested
+     */
+    public synchronized double getHitRatio() {
+        long total = hits + revalidations + misses;
+        return total == 0 ? 0 : (double) (hits + revalidations) / total;
+    }
+
+    /**
+     * @return total size in bytes of the cached bodies
+     */
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    /**
+     * @return summary of the cache's effectiveness for display
+     */
+    public synchronized String describe() {
+        return String.format(Locale.ROOT, "%.1f%% hit ratio (%d fresh, %d not modified, %d fetched), %d responses using %d KB",
+            getHitRatio() * 100, hits, revalidations, misses, entries.size(), (cachedBytes + 1023) / 1024);
+    }
+
+    private boolean isFresh(Entry entry) {
+        return entry.ttlNanos > 0
+            && nanoTime.getAsLong() - entry.validatedAtNanos < entry.ttlNanos;
+    }
+
+    private long ttlNanosOf(HttpResponse response) {
+        Matcher maxAge = MAX_AGE.matcher(Objects.toString(headerValue(response, HttpHeaders.CACHE_CONTROL), "").toLowerCase(Locale.ROOT));
+        if (maxAge.find()) {
+            try {
+                return TimeUnit.SECONDS.toNanos(Long.parseLong(maxAge.group(1)));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        // responses the server can revalidate are always revalidated
+        return Objects.isNull(headerValue(response, HttpHeaders.ETAG)) && Objects.isNull(headerValue(response, HttpHeaders.LAST_MODIFIED))
+            ? fallbackTtlNanos
+            : 0;
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        Entry previous = entries.remove(key);
+        if (Objects.nonNull(previous))
+            cachedBytes -= previous.body.length;
+        if (entry.body.length > maxBytes)
+            return;
+        entries.put(key, entry);
+        cachedBytes += entry.body.length;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (cachedBytes > maxBytes && eldest.hasNext()) {
+            cachedBytes -= eldest.next().getValue().body.length;
+            eldest.remove();
+        }
+    }
+
+    private static Optional<String> controllerOf(HttpRequestBase request) {
+        String path = Objects.toString(request.getURI().getPath(), "");
+        return CACHED_CONTROLLERS.stream().filter(path::contains).findFirst();
+    }
+
+    private static boolean isNoStore(HttpResponse response) {
+        return Objects.toString(headerValue(response, HttpHeaders.CACHE_CONTROL), "").toLowerCase(Locale.ROOT).contains("no-store");
+    }
+
+    private static String headerValue(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return Objects.isNull(header) ? null : header.getValue();
+    }
+
+    // the credentials are part of the key so that one caller's catalog is never served to another
+    private static String keyOf(HttpRequestBase request) {
+        Header credentials = request.getFirstHeader(CREDENTIALS_HEADER);
+        if (Objects.nonNull(credentials))
+            return "credentials " + credentials.getValue() + " " + request.getURI();
+        Header authorization = request.getFirstHeader(HttpHeaders.AUTHORIZATION);
+        return "authorization " + DigestUtils.sha256Hex(Objects.isNull(authorization) ? "" : authorization.getValue()) + " " + request.getURI();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * limits retries to a fraction of the requests sent to a server so that retries can't multiply
+ * the load on a server which is already failing
+ *
+ * <p>
+ * Every request deposits a fraction of a retry into the budget and every retry withdraws a whole
+ * one. The budget starts with, and is capped at, a small reserve so that isolated failures can
+ * always be retried.
+ * </p>
+ */
+public class RetryBudget {
+
+    private static final double RETRIES_PER_REQUEST = 0.2;
+    private static final double RESERVE = 10;
+
+    private static final Map<String, RetryBudget> BUDGETS = new ConcurrentHashMap<>();
+
+    private final double retriesPerRequest;
+    private final double reserve;
+    private double balance;
+
+    /**
+     * gets the budget shared by every request sent to server
+     * @param server server identifier, typically host and port of the AppSpider Enterprise url
+     * @return the shared RetryBudget for server
+     * @throws IllegalArgumentException if server is null
+     */
+    public static RetryBudget forServer(String server) {
+        if (Objects.isNull(server))
+            throw new IllegalArgumentException("server cannot be null");
+        return BUDGETS.computeIfAbsent(server, key -> new RetryBudget(RETRIES_PER_REQUEST, RESERVE));
+    }
+
+    RetryBudget(double retriesPerRequest, double reserve) {
+        this.retriesPerRequest = retriesPerRequest;
+        this.reserve = reserve;
+        this.balance = reserve;
+    }
+
+    /**
+     * records a request, called once per request regardless of how many attempts it takes
+     */
+    public synchronized void onRequest() {
+        balance = Math.min(reserve, balance + retriesPerRequest);
+    }
+
+    /**
+     * withdraws a retry from the budget
+     * @return true if the retry may be attempted; otherwise, false
+     */
+    public synchronized boolean tryWithdraw() {
+        if (balance < 1)
+            return false;
+        balance -= 1;
+        return true;
+    }
+}
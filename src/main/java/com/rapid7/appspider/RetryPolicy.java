@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.conn.ConnectTimeoutException;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * decides which failed requests are retried and how long to wait before each retry
+ *
+ * <p>
+ * Idempotent requests are retried after any transient failure. Non-idempotent requests are only
+ * retried when the server can't have acted on them: the connection was never established or the
+ * server explicitly refused the request as overloaded. Waits grow exponentially with full jitter,
+ * or follow the server's Retry-After header when one is given.
+ * </p>
+ */
+public class RetryPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    private static final long BASE_DELAY_MILLIS = 1000;
+    private static final long MAX_DELAY_MILLIS = 30000;
+
+    private final int maxAttempts;
+    private final boolean isIdempotent;
+    private final LongUnaryOperator random;
+
+    /**
+     * @param maxAttempts maximum number of attempts including the first, values less than 1 use the default
+     * @return policy for requests which can safely be repeated
+     */
+    public static RetryPolicy forIdempotentRequests(int maxAttempts) {
+        return new RetryPolicy(maxAttempts, true, bound -> ThreadLocalRandom.current().nextLong(bound + 1));
+    }
+
+    /**
+     * @param maxAttempts maximum number of attempts including the first, values less than 1 use the default
+     * @return policy for requests which must not be processed twice
+     */
+    public static RetryPolicy forNonIdempotentRequests(int maxAttempts) {
+        return new RetryPolicy(maxAttempts, false, bound -> ThreadLocalRandom.current().nextLong(bound + 1));
+    }
+
+    RetryPolicy(int maxAttempts, boolean isIdempotent, LongUnaryOperator random) {
+        this.maxAttempts = maxAttempts > 0 ? maxAttempts : DEFAULT_MAX_ATTEMPTS;
+        this.isIdempotent = isIdempotent;
+        this.random = random;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public boolean isIdempotent() {
+        return isIdempotent;
+    }
+
+    /**
+     * @param attempt number of the attempt which failed, starting at 1
+     * @param e exception thrown by the attempt
+     * @return true if the request should be attempted again; otherwise, false
+     */
+    public boolean shouldRetry(int attempt, IOException e) {
+        if (attempt >= maxAttempts || Objects.isNull(e))
+            return false;
+        if (e instanceof ConnectException || e instanceof ConnectTimeoutException || e instanceof HttpConnectTimeoutException)
+            return true; // never reached the server
+        if (!isIdempotent)
+            return false;
+        if (e instanceof ServerUnavailableException || e instanceof UnknownHostException || e instanceof SSLException)
+            return false;
+        return !(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException;
+    }
+
+    /**
+     * @param attempt number of the attempt, starting at 1
+     * @param response response received by the attempt
+     * @return true if the request should be attempted again; otherwise, false
+     */
+    public boolean shouldRetry(int attempt, HttpResponse response) {
+        if (attempt >= maxAttempts || Objects.isNull(response))
+            return false;
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode == HttpStatus.SC_TOO_MANY_REQUESTS || statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE)
+            return true; // refused before being processed
+        return isIdempotent && (statusCode == HttpStatus.SC_BAD_GATEWAY || statusCode == HttpStatus.SC_GATEWAY_TIMEOUT);
+    }
+
+    /**
+     * @param attempt number of the attempt which failed, starting at 1
+     * @param response response received by the attempt, may be null if the attempt threw
+     * @return time to wait in milliseconds before the next attempt
+     */
+    public long backoffMillis(int attempt, HttpResponse response) {
+        long retryAfterMillis = retryAfterMillis(response);
+        if (retryAfterMillis >= 0)
+            return Math.min(retryAfterMillis, MAX_DELAY_MILLIS);
+        long ceiling = BASE_DELAY_MILLIS << Math.min(Math.max(attempt - 1, 0), 16);
+        return random.applyAsLong(Math.min(ceiling, MAX_DELAY_MILLIS));
+    }
+
+    private static long retryAfterMillis(HttpResponse response) {
+        if (Objects.isNull(response))
+            return -1;
+        Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (Objects.isNull(header))
+            return -1;
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(header.getValue().trim())));
+        } catch (NumberFormatException e) {
+            return -1; // HTTP-date form isn't used by AppSpider Enterprise, fall back to backoff
+        }
+    }
+}
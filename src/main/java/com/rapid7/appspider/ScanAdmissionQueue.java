@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * limits the number of scans running at once on an engine group, builds wanting to start a scan
+ * beyond the limit wait for a slot in order of priority and then arrival
+ *
+ * <p>
+ * Queues are shared JVM wide, one per server and engine group, so the limit applies across every
+ * job on the controller. Scans started outside of Jenkins are not counted.
+ * </p>
+ */
+public class ScanAdmissionQueue {
+
+    private static final Map<String, ScanAdmissionQueue> QUEUES = new ConcurrentHashMap<>();
+    private static final long POSITION_REPORT_INTERVAL_SECONDS = 60;
+
+    private static final Comparator<Ticket> ADMISSION_ORDER = Comparator
+        .comparingInt((Ticket ticket) -> ticket.priority).reversed()
+        .thenComparingLong(ticket -> ticket.sequence);
+
+    private final String name;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final List<Ticket> waiting = new ArrayList<>();
+    private int maxConcurrentScans;
+    private int running;
+    private long nextSequence;
+
+    /**
+     * holds a running scan's slot until closed
+     */
+    public final class Slot implements AutoCloseable {
+        private boolean isReleased;
+
+        private Slot() {
+        }
+
+        /**
+         * releases the slot, repeated calls have no effect
+         */
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (isReleased)
+                    return;
+                isReleased = true;
+                running--;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Ticket {
+        private final int priority;
+        private final long sequence;
+
+        private Ticket(int priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * gets the queue for engineGroupId on server, updating its limit to maxConcurrentScans
+     * @param server server identifier, typically the AppSpider Enterprise url
+     * @param engineGroupId id of the engine group scans run on
+     * @param engineGroupName name of the engine group used in log messages
+     * @param maxConcurrentScans maximum number of scans allowed to run at once
+     * @return the shared ScanAdmissionQueue
+     * @throws IllegalArgumentException if any of the arguments are null or maxConcurrentScans is less than 1
+     */
+    public static ScanAdmissionQueue forEngineGroup(String server, String engineGroupId, String engineGroupName, int maxConcurrentScans) {
+        if (Objects.isNull(server))
+            throw new IllegalArgumentException("server cannot be null");
+        if (Objects.isNull(engineGroupId))
+            throw new IllegalArgumentException("engineGroupId cannot be null");
+        if (Objects.isNull(engineGroupName))
+            throw new IllegalArgumentException("engineGroupName cannot be null");
+        if (maxConcurrentScans < 1)
+            throw new IllegalArgumentException("maxConcurrentScans must be at least 1");
+
+        ScanAdmissionQueue queue = QUEUES.computeIfAbsent(server + "|" + engineGroupId, key -> new ScanAdmissionQueue(engineGroupName, maxConcurrentScans));
+        queue.setMaxConcurrentScans(maxConcurrentScans);
+        return queue;
+    }
+
+    ScanAdmissionQueue(String name, int maxConcurrentScans) {
+        this.name = name;
+        this.maxConcurrentScans = maxConcurrentScans;
+    }
+
+    /**
+     * waits until a slot is free and every earlier or higher priority build has been admitted,
+     * reporting the position in the queue whenever it changes and at least once a minute
+     * @param priority priority of the scan, higher priorities are admitted first
+     * @param log logger used to report queue position
+     * @return the acquired Slot which must be closed once the scan has finished
+     * @throws InterruptedException if interrupted while waiting, the build leaves the queue
+     */
+    public Slot acquire(int priority, LoggerFacade log) throws InterruptedException {
+        lock.lock();
+        try {
+            Ticket ticket = new Ticket(priority, nextSequence++);
+            waiting.add(ticket);
+            waiting.sort(ADMISSION_ORDER);
+            try {
+                int reportedPosition = -1;
+                boolean hasWaited = false;
+                while (!(waiting.get(0) == ticket && running < maxConcurrentScans)) {
+                    int position = waiting.indexOf(ticket) + 1;
+                    if (position != reportedPosition) {
+                        log.println(String.format("Waiting to start scan on engine group %s: position %d in queue, %d of %d scans running",
+                            name, position, running, maxConcurrentScans));
+                        reportedPosition = position;
+                        hasWaited = true;
+                    }
+                    if (!changed.await(POSITION_REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS))
+                        reportedPosition = -1;
+                }
+                running++;
+                if (hasWaited)
+                    log.println(String.format("Scan slot acquired on engine group %s, %d of %d scans running",
+                        name, running, maxConcurrentScans));
+                return new Slot();
+            } finally {
+                waiting.remove(ticket);
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of builds waiting for a slot
+     */
+    public int getWaitingCount() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of slots currently held
+     */
+    public int getRunningCount() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void setMaxConcurrentScans(int maxConcurrentScans) {
+        lock.lock();
+        try {
+            if (this.maxConcurrentScans == maxConcurrentScans)
+                return;
+            this.maxConcurrentScans = maxConcurrentScans;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
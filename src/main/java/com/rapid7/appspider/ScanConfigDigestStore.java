@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * records the digest of the last scan config saved for each server and config name, along with
+ * the number of saves skipped since then because the config was unchanged
+ */
+public class ScanConfigDigestStore {
+
+    private static final String SEPARATOR = "|";
+
+    private final PropertiesStore store;
+
+    public static ScanConfigDigestStore createInstanceOrThrow(PropertiesStore store) {
+        if (Objects.isNull(store))
+            throw new IllegalArgumentException("store cannot be null");
+        return new ScanConfigDigestStore(store);
+    }
+
+    private ScanConfigDigestStore(PropertiesStore store) {
+        this.store = store;
+    }
+
+    /**
+     * determines if digest matches the digest recorded by the last successful save
+     * @param server url of the AppSpider Enterprise server the config is saved to
+     * @param configName name of the scan config
+     * @param digest digest of the config about to be saved
+     * @return true if the config is unchanged since it was last saved; otherwise, false
+     * @throws IOException if the store cannot be read
+     */
+    public boolean isUnchanged(String server, String configName, String digest) throws IOException {
+        return store.get(keyFor(server, configName))
+            .map(value -> digestFrom(value).equals(digest))
+            .orElse(false);
+    }
+
+    /**
+     * records digest as the digest of the config most recently saved, resetting the skipped save count
+     * @param server url of the AppSpider Enterprise server the config was saved to
+     * @param configName name of the scan config
+     * @param digest digest of the saved config
+     * @throws IOException if the store cannot be written
+     */
+    public void recordSaved(String server, String configName, String digest) throws IOException {
+        store.put(keyFor(server, configName), digest + SEPARATOR + 0);
+    }
+
+    /**
+     * records that a save of an unchanged config was skipped
+     * @param server url of the AppSpider Enterprise server
+     * @param configName name of the scan config
+     * @return number of saves skipped since the config was last saved, including this one
+     * @throws IOException if the store cannot be read or written
+     */
+    public int recordSkipped(String server, String configName) throws IOException {
+        String key = keyFor(server, configName);
+        Optional<String> value = store.get(key);
+        if (value.isEmpty())
+            return 0;
+        int separator = value.get().indexOf(SEPARATOR);
+        int skipped = (separator < 0 ? 0 : parseCount(value.get().substring(separator + 1))) + 1;
+        store.put(key, digestFrom(value.get()) + SEPARATOR + skipped);
+        return skipped;
+    }
+
+    /**
+     * discards the recorded digest so the next save of the config is not skipped
+     * @param server url of the AppSpider Enterprise server
+     * @param configName name of the scan config
+     * @throws IOException if the store cannot be written
+     */
+    public void forget(String server, String configName) throws IOException {
+        store.remove(keyFor(server, configName));
+    }
+
+    private static String keyFor(String server, String configName) {
+        return server + SEPARATOR + configName;
+    }
+
+    private static String digestFrom(String value) {
+        int separator = value.indexOf(SEPARATOR);
+        return separator < 0 ? value : value.substring(0, separator);
+    }
+
+    private static int parseCount(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
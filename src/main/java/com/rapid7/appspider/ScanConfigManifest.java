@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.ProvisioningResult;
+import com.rapid7.appspider.datatransferobjects.ScanConfigManifestEntry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * parsing of scan config manifests and formatting of the matching provisioning results
+ *
+ * <p>
+ * A manifest is a comma separated file with one scan config per line in the form
+ * {@code name,url[,engine group name]}. Blank lines and lines starting with {@code #} are ignored,
+ * as is an optional header line starting with {@code name,}. Values containing commas may be
+ * enclosed in double quotes. Names are unique, ignoring case as AppSpider Enterprise does.
+ * </p>
+ */
+public final class ScanConfigManifest {
+
+    private static final String RESULTS_HEADER = "name,url,engineGroup,result,message,elapsedMillis";
+
+    private ScanConfigManifest() {
+    }
+
+    /**
+     * parses the manifest content into entries
+     * @param content text content of the manifest
+     * @param defaultEngineGroupName engine group used for entries which don't provide one, may be null
+     * @return List of entries in manifest order
+     * @throws IllegalArgumentException if content is null, a line is malformed or a name is repeated,
+     *                                  the message identifies the offending line
+     */
+    public static List<ScanConfigManifestEntry> parse(String content, String defaultEngineGroupName) {
+        if (Objects.isNull(content))
+            throw new IllegalArgumentException("content cannot be null");
+
+        List<ScanConfigManifestEntry> entries = new ArrayList<>();
+        Map<String, Integer> lineNumbersByName = new HashMap<>();
+        String[] lines = content.split("\\r?\\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            int lineNumber = i + 1;
+            if (line.isEmpty() || line.startsWith("#") || (entries.isEmpty() && line.toLowerCase().startsWith("name,")))
+                continue;
+
+            List<String> values = splitLine(line, lineNumber);
+            if (values.size() < 2 || values.size() > 3)
+                throw new IllegalArgumentException(String.format("line %d: expected name,url[,engine group name]", lineNumber));
+
+            String name = values.get(0);
+            String url = values.get(1);
+            String engineGroupName = values.size() == 3 && !values.get(2).isEmpty()
+                ? values.get(2)
+                : defaultEngineGroupName;
+            if (name.isEmpty() || url.isEmpty())
+                throw new IllegalArgumentException(String.format("line %d: name and url cannot be empty", lineNumber));
+            if (Objects.isNull(engineGroupName) || engineGroupName.isEmpty())
+                throw new IllegalArgumentException(String.format("line %d: no engine group given and no default provided", lineNumber));
+            Integer firstLineNumber = lineNumbersByName.putIfAbsent(name.toLowerCase(Locale.ROOT), lineNumber);
+            if (Objects.nonNull(firstLineNumber))
+                throw new IllegalArgumentException(String.format("line %d: %s was already given on line %d", lineNumber, name, firstLineNumber));
+
+            entries.add(new ScanConfigManifestEntry(lineNumber, name, url, engineGroupName));
+        }
+        return entries;
+    }
+
+    /**
+     * formats results as comma separated text with a header line, one line per result
+     * @param results results to format
+     * @return CSV formatted results
+     * @throws IllegalArgumentException if results is null
+     */
+    public static String toResultsCsv(List<ProvisioningResult> results) {
+        if (Objects.isNull(results))
+            throw new IllegalArgumentException("results cannot be null");
+
+        StringBuilder builder = new StringBuilder(RESULTS_HEADER).append('\n');
+        for (ProvisioningResult result : results) {
+            ScanConfigManifestEntry entry = result.getEntry();
+            builder.append(quote(entry.getName())).append(',')
+                .append(quote(entry.getUrl())).append(',')
+                .append(quote(entry.getEngineGroupName())).append(',')
+                .append(result.isSuccess() ? "SAVED" : "FAILED").append(',')
+                .append(quote(result.getMessage())).append(',')
+                .append(result.getElapsedMillis()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static List<String> splitLine(String line, int lineNumber) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (inQuotes) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    inQuotes = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                values.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (inQuotes)
+            throw new IllegalArgumentException(String.format("line %d: unterminated quoted value", lineNumber));
+        values.add(current.toString().trim());
+        return values;
+    }
+
+    private static String quote(String value) {
+        if (Objects.isNull(value))
+            return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0)
+            return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
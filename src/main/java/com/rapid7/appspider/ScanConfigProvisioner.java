@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.ProvisioningResult;
+import com.rapid7.appspider.datatransferobjects.ScanConfigManifestEntry;
+import com.rapid7.appspider.models.AuthenticationModel;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * creates or updates many scan configs, resolving engine groups once and saving configs
+ * with bounded parallelism and an optional cap on the rate of save requests
+ *
+ * <p>
+ * A long manifest saved at a capped rate can outlast its login session. The server doesn't say
+ * why a save failed, so each failed save logs in again, once for all the saves that failed with the
+ * same session, and is retried once with the new session.
+ * </p>
+ */
+public class ScanConfigProvisioner {
+
+    private final EnterpriseClient client;
+    private final LoggerFacade log;
+    private final int maxConcurrency;
+    private final double maxSavesPerSecond;
+
+    /**
+     * instantiates a new provisioner
+     * @param client client used to communicate with AppSpider Enterprise, must be safe for concurrent use
+     * @param log logger used for progress and diagnostic output
+     * @param maxConcurrency maximum number of save requests in flight at once
+     * @param maxSavesPerSecond maximum number of save requests started per second, 0 for no limit
+     * @return new ScanConfigProvisioner instance
+     * @throws IllegalArgumentException if client or log are null, maxConcurrency is less than 1 or
+     *                                  maxSavesPerSecond is negative
+     */
+    public static ScanConfigProvisioner createInstanceOrThrow(EnterpriseClient client, LoggerFacade log, int maxConcurrency, double maxSavesPerSecond) {
+        if (Objects.isNull(client))
+            throw new IllegalArgumentException("client cannot be null");
+        if (Objects.isNull(log))
+            throw new IllegalArgumentException("log cannot be null");
+        if (maxConcurrency < 1)
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        if (maxSavesPerSecond < 0)
+            throw new IllegalArgumentException("maxSavesPerSecond cannot be negative");
+        return new ScanConfigProvisioner(client, log, maxConcurrency, maxSavesPerSecond);
+    }
+
+    private ScanConfigProvisioner(EnterpriseClient client, LoggerFacade log, int maxConcurrency, double maxSavesPerSecond) {
+        this.client = client;
+        this.log = log;
+        this.maxConcurrency = maxConcurrency;
+        this.maxSavesPerSecond = maxSavesPerSecond;
+    }
+
+    /**
+     * logs in and saves every entry returning one result per entry in the same order as entries
+     * @param authModel credentials to log in with, and to log in with again if the session expires
+     * @param entries scan configs to save
+     * @return List of ProvisioningResult, one per entry
+     * @throws InterruptedException if interrupted while waiting for saves to complete, any in flight
+     *                              saves are interrupted as well
+     * @throws IllegalArgumentException if authModel or entries is null
+     */
+    public List<ProvisioningResult> provision(AuthenticationModel authModel, List<ScanConfigManifestEntry> entries) throws InterruptedException {
+        if (Objects.isNull(authModel))
+            throw new IllegalArgumentException("authModel cannot be null");
+        if (Objects.isNull(entries))
+            throw new IllegalArgumentException("entries cannot be null");
+
+        List<ProvisioningResult> results = new ArrayList<>();
+        if (entries.isEmpty())
+            return results;
+
+        Optional<String> maybeAuthToken = client.login(authModel);
+        if (maybeAuthToken.isEmpty()) {
+            log.println("Unauthorized, please verify credentials and try again.");
+            entries.forEach(entry -> results.add(new ProvisioningResult(entry, false, "unauthorized", 0)));
+            return results;
+        }
+        Session session = new Session(authModel, maybeAuthToken.get());
+
+        Optional<Map<String, String>> maybeEngineGroupIds = client.getEngineGroupIdsByName(session.getAuthToken());
+        if (maybeEngineGroupIds.isEmpty()) {
+            log.println("Unable to retrieve engine groups, no scan configs were saved.");
+            entries.forEach(entry -> results.add(new ProvisioningResult(entry, false, "engine groups unavailable", 0)));
+            return results;
+        }
+        Map<String, String> engineGroupIds = maybeEngineGroupIds.get();
+
+        Optional<RateLimiter> saveLimiter = maxSavesPerSecond > 0
+            ? Optional.of(RateLimiter.createInstanceOrThrow(maxSavesPerSecond, 0))
+            : Optional.empty();
+        ExecutorService executor = ScanExecutors.newBoundedExecutor("appspider-provisioner", Math.min(maxConcurrency, entries.size()));
+        try {
+            List<Future<ProvisioningResult>> futures = new ArrayList<>();
+            for (ScanConfigManifestEntry entry : entries) {
+                futures.add(executor.submit(() -> provisionEntry(session, entry, engineGroupIds, saveLimiter)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(getResult(entries.get(i), futures.get(i)));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ProvisioningResult provisionEntry(Session session, ScanConfigManifestEntry entry, Map<String, String> engineGroupIds, Optional<RateLimiter> saveLimiter) throws InterruptedException {
+        String engineGroupId = engineGroupIds.get(entry.getEngineGroupName());
+        if (Objects.isNull(engineGroupId))
+            return logResult(new ProvisioningResult(entry, false,
+                String.format("no engine group matching %s was found", entry.getEngineGroupName()), 0));
+
+        URL target;
+        try {
+            target = new URL(entry.getUrl());
+        } catch (MalformedURLException e) {
+            return logResult(new ProvisioningResult(entry, false, "invalid url: " + e.getMessage(), 0));
+        }
+
+        long start = System.nanoTime();
+        String authToken = session.getAuthToken();
+        boolean saved = save(authToken, entry, target, engineGroupId, saveLimiter);
+        if (!saved) {
+            Optional<String> renewedAuthToken = session.renew(authToken);
+            if (renewedAuthToken.isPresent())
+                saved = save(renewedAuthToken.get(), entry, target, engineGroupId, saveLimiter);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return logResult(new ProvisioningResult(entry, saved, saved ? "saved" : "save was not successful", elapsedMillis));
+    }
+
+    private boolean save(String authToken, ScanConfigManifestEntry entry, URL target, String engineGroupId, Optional<RateLimiter> saveLimiter) throws InterruptedException {
+        if (saveLimiter.isPresent())
+            saveLimiter.get().acquire();
+        return client.saveConfig(authToken, entry.getName(), target, engineGroupId);
+    }
+
+    private ProvisioningResult getResult(ScanConfigManifestEntry entry, Future<ProvisioningResult> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return logResult(new ProvisioningResult(entry, false, "unexpected error: " + e.getCause(), 0));
+        }
+    }
+
+    private ProvisioningResult logResult(ProvisioningResult result) {
+        log.println(String.format("[line %d] %s: %s (%s)",
+            result.getEntry().getLineNumber(),
+            result.getEntry().getName(),
+            result.isSuccess() ? "SAVED" : "FAILED",
+            result.getMessage()));
+        return result;
+    }
+
+    /**
+     * login session shared by the saves of one provisioning run
+     */
+    private final class Session {
+        private final AuthenticationModel authModel;
+        private String authToken;
+
+        private Session(AuthenticationModel authModel, String authToken) {
+            this.authModel = authModel;
+            this.authToken = authToken;
+        }
+
+        private synchronized String getAuthToken() {
+            return authToken;
+        }
+
+        /**
+         * logs in again unless another save already did after failing with failedAuthToken
+         * @param failedAuthToken token the failed save was sent with
+         * @return Optional containing the token to retry with; otherwise, Optional.empty() if logging in failed
+         */
+        private synchronized Optional<String> renew(String failedAuthToken) {
+            if (!authToken.equals(failedAuthToken))
+                return Optional.of(authToken);
+            Optional<String> renewed = client.login(authModel);
+            if (renewed.isEmpty()) {
+                log.println("Unable to log in again after a save failed.");
+                return Optional.empty();
+            }
+            authToken = renewed.get();
+            return renewed;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * creates the executors used for work which spends most of its time waiting, such as polling scans
+ * and blocking HTTP requests
+ *
+ * <p>
+ * This is the Java 11 implementation using daemon platform threads. On Java 21 and later the
+ * multi-release jar replaces it with one using virtual threads, see src/main/java21.
+ * </p>
+ */
+public final class ScanExecutors {
+
+    private ScanExecutors() {
+    }
+
+    /**
+     * @return true if executors run tasks on virtual threads; otherwise, false
+     */
+    public static boolean isUsingVirtualThreads() {
+        return false;
+    }
+
+    /**
+     * creates an executor running at most maxConcurrency tasks at once
+     * @param name prefix of the names of the executor's threads
+     * @param maxConcurrency maximum number of tasks running at once
+     * @return new ExecutorService which must be shut down by the caller
+     * @throws IllegalArgumentException if name is null or maxConcurrency is less than 1
+     */
+    public static ExecutorService newBoundedExecutor(String name, int maxConcurrency) {
+        if (Objects.isNull(name))
+            throw new IllegalArgumentException("name cannot be null");
+        if (maxConcurrency < 1)
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        return Executors.newFixedThreadPool(maxConcurrency, new DaemonThreadFactory(name));
+    }
+
+    /**
+     * creates an executor running every task as soon as it is submitted
+     * @param name prefix of the names of the executor's threads
+     * @return new ExecutorService which must be shut down by the caller unless it lives as long as the JVM
+     * @throws IllegalArgumentException if name is null
+     */
+    public static ExecutorService newUnboundedExecutor(String name) {
+        if (Objects.isNull(name))
+            throw new IllegalArgumentException("name cannot be null");
+        return Executors.newCachedThreadPool(new DaemonThreadFactory(name));
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private DaemonThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
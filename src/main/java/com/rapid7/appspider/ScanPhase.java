@@ -0,0 +1,19 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+/**
+ * phases a scan started by a build passes through
+ */
+public enum ScanPhase {
+    /** the scan has been started, or reattached to, and is running on the server */
+    STARTED,
+    /** the scan has finished and its report has not yet been retrieved */
+    COMPLETED,
+    /** the report of the finished scan has been saved to the workspace */
+    REPORT_SAVED,
+    /** the scan was cancelled because the build was aborted */
+    CANCELLED
+}
@@ -0,0 +1,18 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+/**
+ * notified as a scan moves from one {@link ScanPhase} to the next
+ */
+@FunctionalInterface
+public interface ScanProgressListener {
+
+    /**
+     * @param scanId id of the scan
+     * @param phase phase the scan has entered
+     */
+    void onProgress(String scanId, ScanPhase phase);
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.CompletedScan;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * records completed scans so builds scanning the same config and artifact can reuse their results,
+ * and tracks scans in flight so identical builds join a running scan rather than start another
+ *
+ * <p>
+ * Completed scans are persisted so reuse survives restarts; scans in flight are only tracked in
+ * memory and are shared JVM wide.
+ * </p>
+ */
+public class ScanResultCache {
+
+    private static final String SEPARATOR = "|";
+    private static final Map<String, CompletableFuture<Optional<String>>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    private final PropertiesStore store;
+    private final Clock clock;
+
+    /**
+     * claim on starting the scan for a key, or a handle on the scan another build is starting for it
+     */
+    public static final class Claim implements AutoCloseable {
+        private final String key;
+        private final CompletableFuture<Optional<String>> scanId;
+        private final boolean isOwner;
+
+        private Claim(String key, CompletableFuture<Optional<String>> scanId, boolean isOwner) {
+            this.key = key;
+            this.scanId = scanId;
+            this.isOwner = isOwner;
+        }
+
+        /**
+         * @return true if the holder must start the scan; false if another build is already starting it
+         */
+        public boolean isOwner() {
+            return isOwner;
+        }
+
+        /**
+         * waits for the owning build to start its scan
+         * @return Optional containing the scan id; or Optional.empty() if the owner failed to start a scan
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public Optional<String> awaitScanId() throws InterruptedException {
+            try {
+                return scanId.get();
+            } catch (ExecutionException e) {
+                return Optional.empty();
+            }
+        }
+
+        /**
+         * publishes the id of the scan started by the owner to builds joining it
+         * @param id id of the started scan
+         */
+        public void started(String id) {
+            if (isOwner)
+                scanId.complete(Optional.of(id));
+        }
+
+        /**
+         * ends the claim once the owner's scan has finished or failed to start; joining builds still
+         * waiting for a scan id are told no scan was started. Has no effect for joining builds
+         */
+        @Override
+        public void close() {
+            if (!isOwner)
+                return;
+            scanId.complete(Optional.empty());
+            IN_FLIGHT.remove(key, scanId);
+        }
+    }
+
+    public static ScanResultCache createInstanceOrThrow(PropertiesStore store) {
+        return createInstanceOrThrow(store, Clock.systemUTC());
+    }
+
+    static ScanResultCache createInstanceOrThrow(PropertiesStore store, Clock clock) {
+        if (Objects.isNull(store))
+            throw new IllegalArgumentException("store cannot be null");
+        if (Objects.isNull(clock))
+            throw new IllegalArgumentException("clock cannot be null");
+        return new ScanResultCache(store, clock);
+    }
+
+    private ScanResultCache(PropertiesStore store, Clock clock) {
+        this.store = store;
+        this.clock = clock;
+    }
+
+    /**
+     * builds the key identifying scans of the same config against the same artifact
+     * @param server url of the AppSpider Enterprise server
+     * @param configName name of the scan config
+     * @param targetUrl url scanned, empty if unknown
+     * @param configDigest digest of the scan config, empty if unknown
+     * @param fingerprint user supplied fingerprint of the deployed artifact, such as a commit id
+     * @return key for use with the other methods of this class
+     */
+    public static String keyFor(String server, String configName, String targetUrl, String configDigest, String fingerprint) {
+        return String.join(SEPARATOR,
+            Objects.toString(server, ""),
+            Objects.toString(configName, ""),
+            Objects.toString(targetUrl, ""),
+            Objects.toString(configDigest, ""),
+            Objects.toString(fingerprint, ""));
+    }
+
+    /**
+     * finds the most recent successful scan for key if it completed within maxAge
+     * @param key key returned by {@link #keyFor(String, String, String, String, String)}
+     * @param maxAge maximum age of a reusable scan
+     * @return Optional containing the completed scan; otherwise, Optional.empty()
+     * @throws IOException if the store cannot be read
+     */
+    public Optional<CompletedScan> findCompleted(String key, Duration maxAge) throws IOException {
+        Optional<String> value = store.get(key);
+        if (value.isEmpty())
+            return Optional.empty();
+        int separator = value.get().lastIndexOf(SEPARATOR);
+        if (separator < 0)
+            return Optional.empty();
+        Instant completedAt;
+        try {
+            completedAt = Instant.ofEpochMilli(Long.parseLong(value.get().substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+        if (completedAt.plus(maxAge).isBefore(clock.instant()))
+            return Optional.empty();
+        return Optional.of(new CompletedScan(value.get().substring(0, separator), completedAt));
+    }
+
+    /**
+     * records scanId as the most recent successful scan for key
+     * @param key key returned by {@link #keyFor(String, String, String, String, String)}
+     * @param scanId id of the successfully completed scan
+     * @throws IOException if the store cannot be written
+     */
+    public void recordCompleted(String key, String scanId) throws IOException {
+        store.put(key, scanId + SEPARATOR + clock.millis());
+    }
+
+    /**
+     * claims the right to start the scan for key, or joins the build which already holds it
+     * @param key key returned by {@link #keyFor(String, String, String, String, String)}
+     * @return the Claim, which must be closed by its owner once the scan has finished
+     */
+    public Claim claimOrJoin(String key) {
+        CompletableFuture<Optional<String>> scanId = new CompletableFuture<>();
+        CompletableFuture<Optional<String>> existing = IN_FLIGHT.putIfAbsent(key, scanId);
+        return Objects.isNull(existing)
+            ? new Claim(key, scanId, true)
+            : new Claim(key, existing, false);
+    }
+}
@@ -9,6 +9,13 @@ package com.rapid7.appspider;
  */
 public class ScanSettings {
 
+    /**
+     * engine group name which leaves the choice of engine group to {@link EngineGroupLoad}
+     */
+    public static final String AUTO_ENGINE_GROUP = "(auto)";
+
+    private static final int DEFAULT_STATUS_POLL_TIME = 90;
+
     private final String configName;
     private final String reportName;
     private final boolean enableScan;
@@ -33,7 +40,14 @@ public class ScanSettings {
                  Boolean enableScan, Boolean generateReport,
                  String scanConfigName, String scanConfigUrl,
                  String scanConfigEngineGroupName) {
+        this(configName, reportName, enableScan, generateReport, scanConfigName, scanConfigUrl, scanConfigEngineGroupName,
+            DEFAULT_STATUS_POLL_TIME);
+    }
 
+    private ScanSettings(String configName, String reportName,
+                         boolean enableScan, boolean generateReport,
+                         String scanConfigName, String scanConfigUrl,
+                         String scanConfigEngineGroupName, int statusPollTime) {
         this.configName = configName;
         this.reportName = reportName;
         this.enableScan = enableScan;
@@ -41,7 +55,7 @@ public class ScanSettings {
         this.newConfigName = scanConfigName;
         this.newConfigUrl = scanConfigUrl;
         this.scanConfigEngineGroupName = scanConfigEngineGroupName;
-        this.statusPollTime = 90;
+        this.statusPollTime = statusPollTime;
     }
     public String getConfigName() {
         return configName;
@@ -54,7 +68,8 @@ public class ScanSettings {
             generateReport,
             newConfigName,
             newConfigUrl,
-            scanConfigEngineGroupName);
+            scanConfigEngineGroupName,
+            statusPollTime);
     }
     public String getReportName() {
         return reportName;
@@ -71,6 +86,9 @@ public class ScanSettings {
     public String getScanConfigEngineGroupName() {
         return scanConfigEngineGroupName;
     }
+    public boolean isAutoEngineGroup() {
+        return AUTO_ENGINE_GROUP.equals(scanConfigEngineGroupName);
+    }
 
     public String getNewConfigUrl() {
         return newConfigUrl;
@@ -80,6 +98,25 @@ public class ScanSettings {
         return statusPollTime;
     }
 
+    /**
+     * @param statusPollTime seconds between polls of the status of a running scan
+     * @return copy of these settings polling every statusPollTime seconds
+     * @throws IllegalArgumentException if statusPollTime is negative
+     */
+    public ScanSettings withStatusPollTime(int statusPollTime) {
+        if (statusPollTime < 0)
+            throw new IllegalArgumentException("statusPollTime cannot be negative");
+        return new ScanSettings(
+            configName,
+            reportName,
+            enableScan,
+            generateReport,
+            newConfigName,
+            newConfigUrl,
+            scanConfigEngineGroupName,
+            statusPollTime);
+    }
+
     public ScanSettings withEmptyConfigValues() {
         return new ScanSettings(
             configName,
@@ -88,6 +125,7 @@ public class ScanSettings {
             generateReport,
             null,
             null,
-            scanConfigEngineGroupName);
+            scanConfigEngineGroupName,
+            statusPollTime);
     }
 }
@@ -0,0 +1,284 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ConnectTimeoutException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * circuit breaker and bulkhead shared by every request sent to a single AppSpider Enterprise server
+ *
+ * <p>
+ * Guards are shared JVM wide so that builds and form validation running at the same time see the
+ * same view of the server's health and count towards the same limit of in flight requests. The
+ * same view is used to choose between the servers of an installation with more than one, see
+ * {@link #getHealthWeight()}.
+ * </p>
+ */
+public class ServerGuard {
+
+    private static final Map<String, ServerGuard> GUARDS = new ConcurrentHashMap<>();
+    private static final double MIN_HEALTH_WEIGHT = 0.05;
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final String server;
+    private final ServerGuardSettings settings;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final AtomicLong unsentCount = new AtomicLong();
+    private double averageLatencyMillis;
+
+    /**
+     * executes a single HTTP request
+     */
+    @FunctionalInterface
+    public interface RequestExecutor {
+        HttpResponse execute() throws IOException;
+    }
+
+    /**
+     * starts a single HTTP request without waiting for it to complete
+     */
+    @FunctionalInterface
+    public interface AsyncRequestExecutor {
+        CompletableFuture<HttpResponse> execute();
+    }
+
+    /**
+     * gets the guard for server, replacing the existing guard if settings have changed since it was created
+     * @param server server identifier, typically host and port of the AppSpider Enterprise url
+     * @param settings limits applied to requests sent to server
+     * @return the shared ServerGuard for server
+     * @throws IllegalArgumentException if any of the arguments are null
+     */
+    public static ServerGuard forServer(String server, ServerGuardSettings settings) {
+        if (Objects.isNull(server))
+            throw new IllegalArgumentException("server cannot be null");
+        if (Objects.isNull(settings))
+            throw new IllegalArgumentException("settings cannot be null");
+        return GUARDS.compute(server, (key, existing) -> Objects.nonNull(existing) && existing.settings.equals(settings)
+            ? existing
+            : new ServerGuard(key, settings));
+    }
+
+    /**
+     * @param server server identifier, typically host and port of the AppSpider Enterprise url
+     * @return the guard for server, empty if no request has been sent to server through a guard
+     */
+    public static Optional<ServerGuard> find(String server) {
+        return Objects.isNull(server)
+            ? Optional.empty()
+            : Optional.ofNullable(GUARDS.get(server));
+    }
+
+    private ServerGuard(String server, ServerGuardSettings settings) {
+        this.server = server;
+        this.settings = settings;
+        this.circuitBreaker = CircuitBreaker.createInstanceOrThrow(server, settings);
+        this.bulkhead = Bulkhead.createInstanceOrThrow(settings.getMaxConcurrentRequests());
+    }
+
+    /**
+     * executes the request if the circuit is closed, or it is a permitted probe, and a bulkhead slot
+     * becomes free in time; recording the outcome with the circuit breaker.
+     * Requests completing with a 5xx status code or an exception count as failures.
+     * @param executor executes the request
+     * @param log logger whose system log receives circuit breaker state transitions
+     * @return the response returned by executor
+     * @throws ServerUnavailableException if the request is rejected without being sent
+     * @throws IOException if thrown by executor, or if interrupted while waiting for a bulkhead slot
+     */
+    public HttpResponse execute(RequestExecutor executor, LoggerFacade log) throws IOException {
+        if (!circuitBreaker.tryAcquirePermission(log))
+            throw circuitOpen();
+
+        try {
+            if (!bulkhead.tryAcquire(settings.getBulkheadWaitSeconds(), TimeUnit.SECONDS)) {
+                circuitBreaker.releasePermission();
+                throw bulkheadFull();
+            }
+        } catch (InterruptedException e) {
+            circuitBreaker.releasePermission();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting to send request to " + server);
+        }
+
+        long start = System.nanoTime();
+        try {
+            HttpResponse response = executor.execute();
+            onResponse(System.nanoTime() - start, response, log);
+            return response;
+
+        } catch (IOException | RuntimeException e) {
+            onFailure(System.nanoTime() - start, e, log);
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * asynchronous form of {@link #execute(RequestExecutor, LoggerFacade)}. When no bulkhead slot is
+     * free the wait for one happens on waitExecutor, so callers are never blocked
+     * @param executor starts the request
+     * @param waitExecutor executor used to wait for a bulkhead slot
+     * @param log logger whose system log receives circuit breaker state transitions
+     * @return future completed with the response, or exceptionally with a ServerUnavailableException
+     *         if the request is rejected without being sent
+     */
+    public CompletableFuture<HttpResponse> executeAsync(AsyncRequestExecutor executor, Executor waitExecutor, LoggerFacade log) {
+        if (!circuitBreaker.tryAcquirePermission(log))
+            return CompletableFuture.failedFuture(circuitOpen());
+
+        CompletableFuture<Boolean> slot = bulkhead.tryAcquireNow()
+            ? CompletableFuture.completedFuture(true)
+            : CompletableFuture.supplyAsync(this::awaitBulkheadSlot, waitExecutor);
+
+        return slot.thenCompose(isAcquired -> {
+            if (!isAcquired) {
+                circuitBreaker.releasePermission();
+                return CompletableFuture.failedFuture(bulkheadFull());
+            }
+            long start = System.nanoTime();
+            CompletableFuture<HttpResponse> response;
+            try {
+                response = executor.execute();
+            } catch (RuntimeException e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            return response.whenComplete((value, failure) -> {
+                try {
+                    if (Objects.isNull(failure))
+                        onResponse(System.nanoTime() - start, value, log);
+                    else
+                        onFailure(System.nanoTime() - start, failure, log);
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        });
+    }
+
+    private void onResponse(long elapsedNanos, HttpResponse response, LoggerFacade log) {
+        circuitBreaker.onResult(elapsedNanos, isServerError(response), log);
+        synchronized (this) {
+            double latencyMillis = elapsedNanos / 1e6;
+            averageLatencyMillis = averageLatencyMillis == 0
+                ? latencyMillis
+                : averageLatencyMillis + LATENCY_SMOOTHING * (latencyMillis - averageLatencyMillis);
+        }
+    }
+
+    private void onFailure(long elapsedNanos, Throwable failure, LoggerFacade log) {
+        circuitBreaker.onResult(elapsedNanos, true, log);
+        if (isUnsent(failure))
+            unsentCount.incrementAndGet();
+    }
+
+    /**
+     * connection failures mean the server never received the request
+     */
+    private static boolean isUnsent(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && Objects.nonNull(failure.getCause())
+            ? failure.getCause()
+            : failure;
+        return cause instanceof ConnectException
+            || cause instanceof ConnectTimeoutException
+            || cause instanceof HttpConnectTimeoutException
+            || cause instanceof NoRouteToHostException
+            || cause instanceof UnknownHostException;
+    }
+
+    /**
+     * @return number of requests which never reached the server, because the connection failed or
+     *         the guard rejected them
+     */
+    public long getUnsentCount() {
+        return unsentCount.get();
+    }
+
+    /**
+     * @return exponentially weighted average time taken by the server to respond
+     */
+    public synchronized double getAverageLatencyMillis() {
+        return averageLatencyMillis;
+    }
+
+    /**
+     * relative share of requests the server should receive compared to the other servers of the
+     * same installation, falling with the rate of failed requests and with latency
+     * @return 0 while the circuit is open, a small weight while probe requests are allowed; otherwise
+     *         the rate of successful requests divided by one plus the average latency in seconds
+     */
+    public double getHealthWeight() {
+        CircuitBreaker.State state = circuitBreaker.getState();
+        if (state == CircuitBreaker.State.OPEN && circuitBreaker.getRemainingOpenSeconds() > 0)
+            return 0;
+        if (state != CircuitBreaker.State.CLOSED)
+            return MIN_HEALTH_WEIGHT;
+        return Math.max(MIN_HEALTH_WEIGHT, 1 - circuitBreaker.getFailureRate()) / (1 + getAverageLatencyMillis() / 1000);
+    }
+
+    private boolean awaitBulkheadSlot() {
+        try {
+            return bulkhead.tryAcquire(settings.getBulkheadWaitSeconds(), TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private ServerUnavailableException circuitOpen() {
+        unsentCount.incrementAndGet();
+        return new ServerUnavailableException(String.format(
+            "AppSpider Enterprise at %s is unavailable, failing fast without sending the request. Requests will be retried in %d seconds",
+            server, circuitBreaker.getRemainingOpenSeconds()));
+    }
+
+    private ServerUnavailableException bulkheadFull() {
+        unsentCount.incrementAndGet();
+        return new ServerUnavailableException(String.format(
+            "AppSpider Enterprise at %s already has %d requests in flight, no slot became free within %d seconds",
+            server, bulkhead.getMaxConcurrentRequests(), settings.getBulkheadWaitSeconds()));
+    }
+
+    /**
+     * @return summary of the circuit breaker and bulkhead state for display
+     */
+    public String describe() {
+        return String.format(Locale.ROOT, "circuit %s (%d transitions, %d requests rejected), %d of %d requests in flight (%d rejected waiting for a slot), %.0f ms average latency",
+            circuitBreaker.getState(), circuitBreaker.getTransitionCount(), circuitBreaker.getRejectedCount(),
+            bulkhead.getInFlightCount(), bulkhead.getMaxConcurrentRequests(), bulkhead.getRejectedCount(), getAverageLatencyMillis());
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    private static boolean isServerError(HttpResponse response) {
+        return Objects.isNull(response) || response.getStatusLine().getStatusCode() >= 500;
+    }
+}
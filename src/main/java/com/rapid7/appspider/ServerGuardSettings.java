@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import java.util.Objects;
+
+/**
+ * Storage class for the limits applied to requests sent to a single AppSpider Enterprise server
+ */
+public class ServerGuardSettings {
+
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 16;
+    public static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+    public static final int DEFAULT_SLOW_REQUEST_SECONDS = 60;
+    public static final int DEFAULT_OPEN_STATE_SECONDS = 60;
+
+    private static final int SLOW_REQUEST_RATE_THRESHOLD = 80;
+    private static final int WINDOW_SIZE = 20;
+    private static final int MINIMUM_REQUESTS = 10;
+    private static final int HALF_OPEN_PROBES = 3;
+    private static final int BULKHEAD_WAIT_SECONDS = 30;
+
+    private final int maxConcurrentRequests;
+    private final int failureRateThreshold;
+    private final int slowRequestSeconds;
+    private final int openStateSeconds;
+
+    /**
+     * Constructs a DTO style container object storing the request limits, values less than 1 are
+     * replaced by their defaults
+     * @param maxConcurrentRequests maximum number of requests in flight to the server at once
+     * @param failureRateThreshold percentage of failed requests, out of the most recent requests, which opens the circuit
+     * @param slowRequestSeconds duration after which a request is considered slow, a high enough rate of
+     *                           slow requests also opens the circuit
+     * @param openStateSeconds time the circuit stays open before probe requests are allowed through
+     */
+    public ServerGuardSettings(int maxConcurrentRequests, int failureRateThreshold, int slowRequestSeconds, int openStateSeconds) {
+        this.maxConcurrentRequests = maxConcurrentRequests > 0 ? maxConcurrentRequests : DEFAULT_MAX_CONCURRENT_REQUESTS;
+        this.failureRateThreshold = failureRateThreshold > 0 ? Math.min(failureRateThreshold, 100) : DEFAULT_FAILURE_RATE_THRESHOLD;
+        this.slowRequestSeconds = slowRequestSeconds > 0 ? slowRequestSeconds : DEFAULT_SLOW_REQUEST_SECONDS;
+        this.openStateSeconds = openStateSeconds > 0 ? openStateSeconds : DEFAULT_OPEN_STATE_SECONDS;
+    }
+
+    /**
+     * @return settings using the default value of every limit
+     */
+    public static ServerGuardSettings defaults() {
+        return new ServerGuardSettings(0, 0, 0, 0);
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+    public int getSlowRequestSeconds() {
+        return slowRequestSeconds;
+    }
+    public int getOpenStateSeconds() {
+        return openStateSeconds;
+    }
+    public int getSlowRequestRateThreshold() {
+        return SLOW_REQUEST_RATE_THRESHOLD;
+    }
+    public int getWindowSize() {
+        return WINDOW_SIZE;
+    }
+    public int getMinimumRequests() {
+        return MINIMUM_REQUESTS;
+    }
+    public int getHalfOpenProbes() {
+        return HALF_OPEN_PROBES;
+    }
+    public int getBulkheadWaitSeconds() {
+        return BULKHEAD_WAIT_SECONDS;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        ServerGuardSettings that = (ServerGuardSettings) o;
+        return maxConcurrentRequests == that.maxConcurrentRequests &&
+            failureRateThreshold == that.failureRateThreshold &&
+            slowRequestSeconds == that.slowRequestSeconds &&
+            openStateSeconds == that.openStateSeconds;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxConcurrentRequests, failureRateThreshold, slowRequestSeconds, openStateSeconds);
+    }
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when a request is rejected without being sent because the AppSpider Enterprise
+ * server is considered unavailable or is already handling as many requests as allowed
+ */
+public class ServerUnavailableException extends IOException {
+
+    public ServerUnavailableException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * severity of a finding, most severe first
+ */
+public enum Severity {
+    CRITICAL,
+    HIGH,
+    MEDIUM,
+    LOW,
+    INFORMATIONAL;
+
+    /**
+     * maps an AppSpider attack score, such as "4-High", to its severity by name, falling back to
+     * the leading score where the name isn't recognised. Scores which can't be mapped at all are
+     * treated as informational
+     * @param attackScore attack score of a finding
+     * @return the matching Severity
+     */
+    public static Severity fromAttackScore(String attackScore) {
+        String value = Objects.toString(attackScore, "").trim().toLowerCase(Locale.ROOT);
+        if (value.contains("critical"))
+            return CRITICAL;
+        if (value.contains("high"))
+            return HIGH;
+        if (value.contains("medium"))
+            return MEDIUM;
+        if (value.contains("low"))
+            return LOW;
+        if (value.contains("info"))
+            return INFORMATIONAL;
+        if (value.isEmpty() || !Character.isDigit(value.charAt(0)))
+            return INFORMATIONAL;
+        switch (value.charAt(0)) {
+            case '5':
+                return CRITICAL;
+            case '4':
+                return HIGH;
+            case '3':
+                return MEDIUM;
+            case '2':
+                return LOW;
+            default:
+                return INFORMATIONAL;
+        }
+    }
+}
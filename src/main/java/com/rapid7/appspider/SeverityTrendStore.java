@@ -0,0 +1,245 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.SeveritySummary;
+import com.rapid7.appspider.datatransferobjects.TrendRecord;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * append only file of fixed size records, one per build, holding the number of findings of each
+ * severity and of the most frequent categories along with the scan duration
+ *
+ * <p>
+ * Records are {@value #RECORD_BYTES} bytes so the most recent n builds are read with a single
+ * sequential read of n records from the end of the file, without parsing any report. Category
+ * names are stored once in a companion file of names, one per line, and referenced from records
+ * by line number. A single instance is shared per file so that builds of the same job appending
+ * concurrently don't interleave their writes.
+ * </p>
+ */
+public final class SeverityTrendStore {
+
+    static final int MAX_CATEGORIES = 8;
+    static final int RECORD_BYTES = Integer.BYTES + 2 * Long.BYTES + Severity.values().length * Integer.BYTES
+        + MAX_CATEGORIES * (Short.BYTES + Integer.BYTES) + Integer.BYTES;
+
+    private static final Map<Path, SeverityTrendStore> INSTANCES = new ConcurrentHashMap<>();
+    private static final int MAGIC = 0x41535452; // "ASTR"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int MAX_CATEGORY_ID = 0xFFFF;
+    private static final int NO_CATEGORY = MAX_CATEGORY_ID;
+
+    private final Path file;
+    private final Path categoriesFile;
+    private List<String> categoryNames;
+    private Map<String, Integer> categoryIds;
+
+    /**
+     * gets the store backed by file, creating it if necessary
+     * @param file location of the trend file, the file need not exist yet
+     * @return the shared SeverityTrendStore for file
+     * @throws IllegalArgumentException if file is null
+     */
+    public static SeverityTrendStore forFile(Path file) {
+        if (Objects.isNull(file))
+            throw new IllegalArgumentException("file cannot be null");
+        return INSTANCES.computeIfAbsent(file.toAbsolutePath().normalize(), SeverityTrendStore::new);
+    }
+
+    private SeverityTrendStore(Path file) {
+        this.file = file;
+        this.categoriesFile = file.resolveSibling(file.getFileName() + ".categories");
+    }
+
+    /**
+     * appends the record of a build
+     * @param buildNumber number of the build which ran the scan
+     * @param recordedAt time the report was saved
+     * @param scanDurationMillis time taken by the scan, -1 if unknown
+     * @param summary counts of the scan's findings
+     * @throws IllegalArgumentException if recordedAt or summary is null
+     * @throws IOException if the store cannot be written
+     */
+    public synchronized void append(int buildNumber, Instant recordedAt, long scanDurationMillis, SeveritySummary summary) throws IOException {
+        if (Objects.isNull(recordedAt))
+            throw new IllegalArgumentException("recordedAt cannot be null");
+        if (Objects.isNull(summary))
+            throw new IllegalArgumentException("summary cannot be null");
+        ensureCategoriesLoaded();
+
+        List<Map.Entry<String, Integer>> categories = summary.getCategoryCounts().entrySet().stream()
+            .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+            .collect(Collectors.toList());
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        record.putInt(buildNumber);
+        record.putLong(recordedAt.toEpochMilli());
+        record.putLong(scanDurationMillis);
+        for (Severity severity : Severity.values())
+            record.putInt(summary.getCount(severity));
+        int recorded = 0;
+        int other = 0;
+        for (Map.Entry<String, Integer> category : categories) {
+            int id = recorded < MAX_CATEGORIES ? categoryIdOf(category.getKey()) : NO_CATEGORY;
+            if (id == NO_CATEGORY) {
+                other += category.getValue();
+                continue;
+            }
+            record.putShort((short) id);
+            record.putInt(category.getValue());
+            recorded++;
+        }
+        for (; recorded < MAX_CATEGORIES; recorded++) {
+            record.putShort((short) NO_CATEGORY);
+            record.putInt(0);
+        }
+        record.putInt(other);
+        record.flip();
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                channel.truncate(0);
+                writeFully(channel, header, 0);
+                size = HEADER_BYTES;
+            } else {
+                checkHeader(channel);
+            }
+            // drop a record left incomplete by a crash so later records stay aligned
+            long aligned = HEADER_BYTES + (size - HEADER_BYTES) / RECORD_BYTES * RECORD_BYTES;
+            if (aligned != size)
+                channel.truncate(aligned);
+            writeFully(channel, record, aligned);
+        }
+    }
+
+    /**
+     * reads the records of the most recent builds
+     * @param maxRecords maximum number of records to read
+     * @return records oldest first, empty if nothing has been recorded
+     * @throws IOException if the store cannot be read
+     */
+    public synchronized List<TrendRecord> readLatest(int maxRecords) throws IOException {
+        if (maxRecords <= 0 || Files.notExists(file))
+            return Collections.emptyList();
+        ensureCategoriesLoaded();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES)
+                return Collections.emptyList();
+            checkHeader(channel);
+            long count = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+            long first = Math.max(0, count - maxRecords);
+            ByteBuffer records = ByteBuffer.allocate((int) ((count - first) * RECORD_BYTES));
+            readFully(channel, records, HEADER_BYTES + first * RECORD_BYTES);
+            records.flip();
+
+            List<TrendRecord> result = new ArrayList<>((int) (count - first));
+            while (records.remaining() >= RECORD_BYTES)
+                result.add(decode(records));
+            return result;
+        }
+    }
+
+    private TrendRecord decode(ByteBuffer record) {
+        int buildNumber = record.getInt();
+        Instant recordedAt = Instant.ofEpochMilli(record.getLong());
+        long scanDurationMillis = record.getLong();
+        Map<Severity, Integer> severityCounts = new EnumMap<>(Severity.class);
+        for (Severity severity : Severity.values())
+            severityCounts.put(severity, record.getInt());
+        Map<String, Integer> categoryCounts = new LinkedHashMap<>();
+        for (int i = 0; i < MAX_CATEGORIES; i++) {
+            int id = Short.toUnsignedInt(record.getShort());
+            int count = record.getInt();
+            if (id != NO_CATEGORY && id < categoryNames.size())
+                categoryCounts.put(categoryNames.get(id), count);
+        }
+        int other = record.getInt();
+        return new TrendRecord(buildNumber, recordedAt, scanDurationMillis, new SeveritySummary(severityCounts, categoryCounts), other);
+    }
+
+    private int categoryIdOf(String name) throws IOException {
+        Integer id = categoryIds.get(name);
+        if (Objects.nonNull(id))
+            return id;
+        if (categoryNames.size() >= MAX_CATEGORY_ID)
+            return NO_CATEGORY;
+        // names are single lines so a name containing a line break is stored with it replaced
+        String storedName = name.replaceAll("[\\r\\n]+", " ");
+        Files.createDirectories(categoriesFile.toAbsolutePath().getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(categoriesFile, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(storedName);
+            writer.newLine();
+        }
+        int newId = categoryNames.size();
+        categoryNames.add(storedName);
+        categoryIds.put(name, newId);
+        categoryIds.putIfAbsent(storedName, newId);
+        return newId;
+    }
+
+    private void ensureCategoriesLoaded() throws IOException {
+        if (Objects.nonNull(categoryNames))
+            return;
+        List<String> names = Files.exists(categoriesFile)
+            ? new ArrayList<>(Files.readAllLines(categoriesFile, StandardCharsets.UTF_8))
+            : new ArrayList<>();
+        Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < names.size(); i++)
+            ids.putIfAbsent(names.get(i), i);
+        categoryNames = names;
+        categoryIds = ids;
+    }
+
+    private void checkHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION)
+            throw new IOException(file + " is not a severity trend file");
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0)
+                throw new IOException("unexpected end of severity trend file");
+            offset += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining())
+            offset += channel.write(buffer, offset);
+    }
+}
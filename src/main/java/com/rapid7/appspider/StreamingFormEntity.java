@@ -0,0 +1,295 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * application/x-www-form-urlencoded entity whose field values are URL encoded as they are
+ * written to the connection rather than being materialized up front.
+ *
+ * <p>
+ * Large values such as the scan config XML are supplied as a {@link ValueWriter} which is
+ * invoked each time the entity is written, so neither the raw value nor its encoded form is
+ * ever held in memory in full. The entity is sent using chunked transfer encoding since the
+ * encoded length isn't known until the content has been written.
+ * </p>
+ */
+public class StreamingFormEntity extends AbstractHttpEntity {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * produces the value of a form field by writing it to the provided {@code Writer}
+     */
+    @FunctionalInterface
+    public interface ValueWriter {
+        /**
+         * writes the unencoded value to writer
+         * @param writer destination of the value, encoding is handled by the writer
+         * @throws IOException if an I/O error occurs while writing
+         */
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    private final Charset charset;
+    private final List<String> names;
+    private final List<ValueWriter> values;
+
+    /**
+     * instantiates a new empty entity which encodes its values using charset
+     * @param charset charset used to encode field names and values prior to percent encoding
+     * @throws IllegalArgumentException if charset is null
+     */
+    public StreamingFormEntity(Charset charset) {
+        if (Objects.isNull(charset))
+            throw new IllegalArgumentException("charset cannot be null");
+        this.charset = charset;
+        this.names = new ArrayList<>();
+        this.values = new ArrayList<>();
+        setContentType(ContentType.create(ContentType.APPLICATION_FORM_URLENCODED.getMimeType(), charset).toString());
+        setChunked(true);
+    }
+
+    /**
+     * adds a field with a fixed value
+     * @param pair name and value of the field
+     * @return this entity to allow chaining
+     * @throws IllegalArgumentException if pair is null
+     */
+    public StreamingFormEntity addField(NameValuePair pair) {
+        if (Objects.isNull(pair))
+            throw new IllegalArgumentException("pair cannot be null");
+        final String value = pair.getValue();
+        return addField(pair.getName(), writer -> {
+            if (!Objects.isNull(value))
+                writer.write(value);
+        });
+    }
+
+    /**
+     * adds a field whose value is produced by valueWriter each time the entity is written
+     * @param name name of the field
+     * @param valueWriter producer of the field value, must produce the same content on each call
+     * @return this entity to allow chaining
+     * @throws IllegalArgumentException if name is null or empty or valueWriter is null
+     */
+    public StreamingFormEntity addField(String name, ValueWriter valueWriter) {
+        if (Objects.isNull(name) || name.isEmpty())
+            throw new IllegalArgumentException("name cannot be null or empty");
+        if (Objects.isNull(valueWriter))
+            throw new IllegalArgumentException("valueWriter cannot be null");
+        names.add(name);
+        values.add(valueWriter);
+        return this;
+    }
+
+    /**
+     * @return names of the fields in the order they are written
+     */
+    public List<String> getFieldNames() {
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * materializes the encoded content; only intended for diagnostics as HttpClient sends the
+     * entity using {@link #writeTo(OutputStream)}
+     * @return InputStream of the encoded content
+     * @throws IOException if a value writer fails
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        writeTo(content);
+        return new ByteArrayInputStream(content.toByteArray());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        if (Objects.isNull(outStream))
+            throw new IllegalArgumentException("outStream cannot be null");
+
+        BufferedOutputStream buffered = new BufferedOutputStream(outStream, BUFFER_SIZE);
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0)
+                buffered.write('&');
+
+            UrlEncodingWriter nameWriter = new UrlEncodingWriter(buffered, charset);
+            nameWriter.write(names.get(i));
+            nameWriter.finish();
+            buffered.write('=');
+
+            UrlEncodingWriter valueWriter = new UrlEncodingWriter(buffered, charset);
+            values.get(i).writeTo(valueWriter);
+            valueWriter.finish();
+        }
+        buffered.flush();
+    }
+
+    /**
+     * Writer which encodes characters using a charset then percent encodes the resulting bytes
+     * following the same rules as {@code URLEncodedUtils} for form fields
+     */
+    static final class UrlEncodingWriter extends Writer {
+
+        private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+        private final OutputStream output;
+        private final CharsetEncoder encoder;
+        private final CharBuffer pending;
+        private final ByteBuffer encoded;
+        private boolean finished;
+
+        UrlEncodingWriter(OutputStream output, Charset charset) {
+            this.output = output;
+            this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.pending = CharBuffer.allocate(1024);
+            this.encoded = ByteBuffer.allocate(4096);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (finished)
+                throw new IOException("writer has been finished");
+            int remaining = len;
+            int offset = off;
+            while (remaining > 0) {
+                int count = Math.min(remaining, pending.remaining());
+                pending.put(cbuf, offset, count);
+                offset += count;
+                remaining -= count;
+                if (!pending.hasRemaining())
+                    encodePending(false);
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            if (finished)
+                throw new IOException("writer has been finished");
+            int remaining = len;
+            int offset = off;
+            while (remaining > 0) {
+                int count = Math.min(remaining, pending.remaining());
+                pending.put(str, offset, offset + count);
+                offset += count;
+                remaining -= count;
+                if (!pending.hasRemaining())
+                    encodePending(false);
+            }
+        }
+
+        /**
+         * encodes any buffered characters; unlike {@link #close()} the underlying stream is left open
+         * @throws IOException if writing to the underlying stream fails
+         */
+        void finish() throws IOException {
+            if (finished)
+                return;
+            encodePending(true);
+            CoderResult result;
+            do {
+                result = encoder.flush(encoded);
+                drainEncoded();
+            } while (result.isOverflow());
+            finished = true;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            output.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        private void encodePending(boolean endOfInput) throws IOException {
+            pending.flip();
+            CoderResult result;
+            do {
+                result = encoder.encode(pending, encoded, endOfInput);
+                drainEncoded();
+            } while (result.isOverflow());
+            // any unconsumed characters (e.g. half of a surrogate pair) are carried into the next write
+            pending.compact();
+        }
+
+        private void drainEncoded() throws IOException {
+            encoded.flip();
+            while (encoded.hasRemaining()) {
+                int b = encoded.get() & 0xFF;
+                if (isUnreserved(b)) {
+                    output.write(b);
+                } else if (b == ' ') {
+                    output.write('+');
+                } else {
+                    output.write('%');
+                    output.write(HEX_DIGITS[b >> 4]);
+                    output.write(HEX_DIGITS[b & 0x0F]);
+                }
+            }
+            encoded.clear();
+        }
+
+        private static boolean isUnreserved(int b) {
+            return (b >= 'a' && b <= 'z')
+                || (b >= 'A' && b <= 'Z')
+                || (b >= '0' && b <= '9')
+                || b == '-' || b == '_' || b == '.' || b == '*';
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.SeveritySummary;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * counts the findings of a vulnerabilities summary, as returned by GetVulnerabilitiesSummaryXml,
+ * by severity and category in a single streaming pass
+ *
+ * <p>
+ * Each {@code Vuln} element is one finding, its severity is taken from {@code AttackScore} and
+ * its category from {@code VulnType}. DTDs and external entities are not processed.
+ * </p>
+ */
+public final class VulnerabilitySummaryParser {
+
+    private static final String FINDING = "Vuln";
+    private static final String SEVERITY = "AttackScore";
+    private static final String CATEGORY = "VulnType";
+    private static final String UNCATEGORIZED = "Uncategorized";
+
+    private VulnerabilitySummaryParser() {
+    }
+
+    /**
+     * @param xml vulnerabilities summary
+     * @return counts of the findings in xml
+     * @throws IllegalArgumentException if xml is null
+     * @throws IOException if xml is not well formed
+     */
+    public static SeveritySummary parse(Reader xml) throws IOException {
+        if (Objects.isNull(xml))
+            throw new IllegalArgumentException("xml cannot be null");
+
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        Map<Severity, Integer> severityCounts = new EnumMap<>(Severity.class);
+        Map<String, Integer> categoryCounts = new HashMap<>();
+        XMLStreamReader reader = null;
+        try {
+            reader = factory.createXMLStreamReader(xml);
+            int depth = 0;
+            int findingDepth = -1;
+            String severity = null;
+            String category = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String name = reader.getLocalName();
+                    if (findingDepth < 0 && FINDING.equals(name)) {
+                        findingDepth = depth;
+                        severity = null;
+                        category = null;
+                    } else if (findingDepth > 0 && depth == findingDepth + 1 && SEVERITY.equals(name)) {
+                        severity = reader.getElementText();
+                        depth--;
+                    } else if (findingDepth > 0 && depth == findingDepth + 1 && CATEGORY.equals(name)) {
+                        category = reader.getElementText();
+                        depth--;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == findingDepth) {
+                        severityCounts.merge(Severity.fromAttackScore(severity), 1, Integer::sum);
+                        String key = Objects.isNull(category) || category.trim().isEmpty() ? UNCATEGORIZED : category.trim();
+                        categoryCounts.merge(key, 1, Integer::sum);
+                        findingDepth = -1;
+                    }
+                    depth--;
+                }
+            }
+            return new SeveritySummary(severityCounts, categoryCounts);
+        } catch (XMLStreamException e) {
+            throw new IOException("invalid vulnerabilities summary: " + e.getMessage(), e);
+        } finally {
+            if (Objects.nonNull(reader)) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // nothing further to read
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider.datatransferobjects;
+
+import java.time.Instant;
+
+/**
+ * a successfully completed scan recorded for reuse by later builds
+ */
+public final class CompletedScan {
+
+    private final String scanId;
+    private final Instant completedAt;
+
+    public CompletedScan(String scanId, Instant completedAt) {
+        this.scanId = scanId;
+        this.completedAt = completedAt;
+    }
+
+    public String getScanId() {
+        return scanId;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider.datatransferobjects;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * one page of the findings matching a dashboard query
+ */
+public final class FindingsPage {
+
+    private final List<IndexedFindings> items;
+    private final int totalCount;
+    private final int offset;
+    private final int pageSize;
+
+    /**
+     * @param items findings on this page
+     * @param totalCount number of findings matching the query across all pages
+     * @param offset position of the first item on this page within all matching findings
+     * @param pageSize maximum number of items on a page
+     */
+    public FindingsPage(List<IndexedFindings> items, int totalCount, int offset, int pageSize) {
+        this.items = Collections.unmodifiableList(items);
+        this.totalCount = totalCount;
+        this.offset = offset;
+        this.pageSize = pageSize;
+    }
+
+    public List<IndexedFindings> getItems() {
+        return items;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return zero based number of this page
+     */
+    public int getPageNumber() {
+        return pageSize > 0 ? offset / pageSize : 0;
+    }
+
+    /**
+     * @return number of pages needed to show every matching finding, at least 1
+     */
+    public int getPageCount() {
+        return pageSize > 0 ? Math.max(1, (totalCount + pageSize - 1) / pageSize) : 1;
+    }
+
+    public boolean hasPrevious() {
+        return offset > 0;
+    }
+
+    public boolean hasNext() {
+        return offset + items.size() < totalCount;
+    }
+}
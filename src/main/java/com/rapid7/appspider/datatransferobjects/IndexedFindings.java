@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider.datatransferobjects;
+
+import com.rapid7.appspider.Severity;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * current findings of a job's scan config, as of the most recent build to save its report
+ */
+public final class IndexedFindings {
+
+    private final String jobName;
+    private final String configName;
+    private final int buildNumber;
+    private final Instant recordedAt;
+    private final Map<Severity, Integer> severityCounts;
+
+    /**
+     * @param jobName full name of the job
+     * @param configName name of the scan config
+     * @param buildNumber number of the build which saved the report
+     * @param recordedAt time the report was saved
+     * @param severityCounts number of findings of each severity, missing severities have none
+     */
+    public IndexedFindings(String jobName, String configName, int buildNumber, Instant recordedAt, Map<Severity, Integer> severityCounts) {
+        this.jobName = jobName;
+        this.configName = configName;
+        this.buildNumber = buildNumber;
+        this.recordedAt = recordedAt;
+        EnumMap<Severity, Integer> counts = new EnumMap<>(Severity.class);
+        for (Severity severity : Severity.values())
+            counts.put(severity, severityCounts.getOrDefault(severity, 0));
+        this.severityCounts = Collections.unmodifiableMap(counts);
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    public int getBuildNumber() {
+        return buildNumber;
+    }
+
+    public Instant getRecordedAt() {
+        return recordedAt;
+    }
+
+    public int getCount(Severity severity) {
+        return severityCounts.get(severity);
+    }
+
+    public Map<Severity, Integer> getSeverityCounts() {
+        return severityCounts;
+    }
+
+    /**
+     * @return total number of findings
+     */
+    public int getTotal() {
+        return severityCounts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * returns a copy of these findings belonging to jobName
+     * @param jobName full name of the job
+     * @return new IndexedFindings for jobName
+     */
+    public IndexedFindings withJobName(String jobName) {
+        return new IndexedFindings(jobName, configName, buildNumber, recordedAt, severityCounts);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider.datatransferobjects;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * a single attempt at a request to the AppSpider Enterprise server along with its outcome,
+ * sensitive parameter values have already been redacted
+ */
+public final class Interaction {
+
+    private final Instant startedAt;
+    private final String server;
+    private final String method;
+    private final String path;
+    private final int attempt;
+    private final int statusCode;
+    private final long latencyMillis;
+    private final long responseBytes;
+    private final Map<String, String> params;
+    private final String error;
+
+    /**
+     * @param startedAt time the attempt was sent
+     * @param server host and port the request was sent to
+     * @param method HTTP method of the request
+     * @param path path of the request URI
+     * @param attempt attempt number, 1 for the first attempt
+     * @param statusCode status code of the response, 0 if no response was received
+     * @param latencyMillis time from sending the request to receiving the response headers or failing
+     * @param responseBytes length of the response body, -1 if unknown
+     * @param params redacted query and form parameters of the request
+     * @param error description of the failure if no response was received; otherwise, null
+     */
+    public Interaction(Instant startedAt, String server, String method, String path, int attempt, int statusCode,
+                       long latencyMillis, long responseBytes, Map<String, String> params, String error) {
+        this.startedAt = startedAt;
+        this.server = server;
+        this.method = method;
+        this.path = path;
+        this.attempt = attempt;
+        this.statusCode = statusCode;
+        this.latencyMillis = latencyMillis;
+        this.responseBytes = responseBytes;
+        this.params = Objects.isNull(params)
+            ? Collections.emptyMap()
+            : Collections.unmodifiableMap(new LinkedHashMap<>(params));
+        this.error = error;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public String getServer() {
+        return server;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    public Map<String, String> getParams() {
+        return params;
+    }
+
+    public Optional<String> getError() {
+        return Optional.ofNullable(error);
+    }
+}
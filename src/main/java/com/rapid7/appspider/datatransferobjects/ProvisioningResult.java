@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider.datatransferobjects;
+
+/**
+ * outcome of provisioning a single {@link ScanConfigManifestEntry}
+ */
+public final class ProvisioningResult {
+
+    private final ScanConfigManifestEntry entry;
+    private final boolean isSuccess;
+    private final String message;
+    private final long elapsedMillis;
+
+    public ProvisioningResult(ScanConfigManifestEntry entry, boolean isSuccess, String message, long elapsedMillis) {
+        this.entry = entry;
+        this.isSuccess = isSuccess;
+        this.message = message;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public ScanConfigManifestEntry getEntry() {
+        return entry;
+    }
+
+    public boolean isSuccess() {
+        return isSuccess;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * time spent provisioning the entry, excluding any time spent waiting for a free slot
+     * @return elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider.datatransferobjects;
+
+import java.time.Duration;
+
+/**
+ * outcome of probing a scan target until it is ready to be scanned or the probe's deadline passed
+ */
+public final class ReadinessResult {
+
+    private final boolean isReady;
+    private final int attempts;
+    private final Duration waited;
+    private final String lastOutcome;
+
+    public ReadinessResult(boolean isReady, int attempts, Duration waited, String lastOutcome) {
+        this.isReady = isReady;
+        this.attempts = attempts;
+        this.waited = waited;
+        this.lastOutcome = lastOutcome;
+    }
+
+    public boolean isReady() {
+        return isReady;
+    }
+
+    /**
+     * @return number of requests made to the target
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return time from the first request until the target was found ready or the deadline passed
+     */
+    public Duration getWaited() {
+        return waited;
+    }
+
+    /**
+     * @return description of the last response or failure, such as "status 503"
+     */
+    public String getLastOutcome() {
+        return lastOutcome;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider.datatransferobjects;
+
+/**
+ * a single scan config to provision, as read from a scan config manifest
+ */
+public final class ScanConfigManifestEntry {
+
+    private final int lineNumber;
+    private final String name;
+    private final String url;
+    private final String engineGroupName;
+
+    public ScanConfigManifestEntry(int lineNumber, String name, String url, String engineGroupName) {
+        this.lineNumber = lineNumber;
+        this.name = name;
+        this.url = url;
+        this.engineGroupName = engineGroupName;
+    }
+
+    /**
+     * line of the manifest the entry was read from, used for diagnostic purposes
+     * @return 1-based line number
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getEngineGroupName() {
+        return engineGroupName;
+    }
+}
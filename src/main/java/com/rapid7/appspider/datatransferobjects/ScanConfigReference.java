@@ -0,0 +1,30 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider.datatransferobjects;
+
+import java.util.Optional;
+
+/**
+ * identifies a scan config and the engine group its scans run on, read together from a single
+ * GetConfigs response
+ */
+public final class ScanConfigReference {
+
+    private final String id;
+    private final Optional<String> engineGroupId;
+
+    public ScanConfigReference(String id, Optional<String> engineGroupId) {
+        this.id = id;
+        this.engineGroupId = engineGroupId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Optional<String> getEngineGroupId() {
+        return engineGroupId;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider.datatransferobjects;
+
+import com.rapid7.appspider.Severity;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * number of findings of a scan by severity and by category
+ */
+public final class SeveritySummary {
+
+    private final Map<Severity, Integer> severityCounts;
+    private final Map<String, Integer> categoryCounts;
+
+    /**
+     * @param severityCounts number of findings of each severity, missing severities have none
+     * @param categoryCounts number of findings of each category
+     */
+    public SeveritySummary(Map<Severity, Integer> severityCounts, Map<String, Integer> categoryCounts) {
+        EnumMap<Severity, Integer> counts = new EnumMap<>(Severity.class);
+        for (Severity severity : Severity.values())
+            counts.put(severity, severityCounts.getOrDefault(severity, 0));
+        this.severityCounts = Collections.unmodifiableMap(counts);
+        this.categoryCounts = Collections.unmodifiableMap(new LinkedHashMap<>(categoryCounts));
+    }
+
+    public int getCount(Severity severity) {
+        return severityCounts.get(severity);
+    }
+
+    public Map<Severity, Integer> getSeverityCounts() {
+        return severityCounts;
+    }
+
+    public Map<String, Integer> getCategoryCounts() {
+        return categoryCounts;
+    }
+
+    /**
+     * @return total number of findings
+     */
+    public int getTotal() {
+        return severityCounts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider.datatransferobjects;
+
+/**
+ * the files of a scan report saved to a {@code ReportBlobStore}, each referenced by the digest of
+ * its content
+ */
+public final class StoredReport {
+
+    private final String vulnerabilitiesFileName;
+    private final String vulnerabilitiesDigest;
+    private final String reportZipFileName;
+    private final String reportZipDigest;
+
+    public StoredReport(String vulnerabilitiesFileName, String vulnerabilitiesDigest, String reportZipFileName, String reportZipDigest) {
+        this.vulnerabilitiesFileName = vulnerabilitiesFileName;
+        this.vulnerabilitiesDigest = vulnerabilitiesDigest;
+        this.reportZipFileName = reportZipFileName;
+        this.reportZipDigest = reportZipDigest;
+    }
+
+    public String getVulnerabilitiesFileName() {
+        return vulnerabilitiesFileName;
+    }
+
+    public String getVulnerabilitiesDigest() {
+        return vulnerabilitiesDigest;
+    }
+
+    public String getReportZipFileName() {
+        return reportZipFileName;
+    }
+
+    public String getReportZipDigest() {
+        return reportZipDigest;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider.datatransferobjects;
+
+import com.rapid7.appspider.Severity;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * findings of a single build's scan as recorded for trend charts, only the most frequent
+ * categories are recorded individually with the remainder counted together
+ */
+public final class TrendRecord {
+
+    private final int buildNumber;
+    private final Instant recordedAt;
+    private final long scanDurationMillis;
+    private final SeveritySummary summary;
+    private final int otherCategoriesCount;
+
+    /**
+     * @param buildNumber number of the build which ran the scan
+     * @param recordedAt time the report was saved
+     * @param scanDurationMillis time taken by the scan, -1 if unknown
+     * @param summary counts by severity and of the recorded categories
+     * @param otherCategoriesCount number of findings in categories not recorded individually
+     */
+    public TrendRecord(int buildNumber, Instant recordedAt, long scanDurationMillis, SeveritySummary summary, int otherCategoriesCount) {
+        this.buildNumber = buildNumber;
+        this.recordedAt = recordedAt;
+        this.scanDurationMillis = scanDurationMillis;
+        this.summary = summary;
+        this.otherCategoriesCount = otherCategoriesCount;
+    }
+
+    public int getBuildNumber() {
+        return buildNumber;
+    }
+
+    public Instant getRecordedAt() {
+        return recordedAt;
+    }
+
+    public long getScanDurationMillis() {
+        return scanDurationMillis;
+    }
+
+    public int getCount(Severity severity) {
+        return summary.getCount(severity);
+    }
+
+    public int getTotal() {
+        return summary.getTotal();
+    }
+
+    /**
+     * @return counts of the individually recorded categories, most frequent first
+     */
+    public Map<String, Integer> getCategoryCounts() {
+        return summary.getCategoryCounts();
+    }
+
+    public int getOtherCategoriesCount() {
+        return otherCategoriesCount;
+    }
+}
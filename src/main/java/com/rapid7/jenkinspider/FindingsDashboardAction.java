@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.jenkinspider;
+
+import com.rapid7.appspider.FindingsIndex;
+import com.rapid7.appspider.FindingsQuery;
+import com.rapid7.appspider.Severity;
+import com.rapid7.appspider.datatransferobjects.FindingsPage;
+import hudson.Extension;
+import hudson.model.RootAction;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.StaplerRequest;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * dashboard of the current findings of every job scanning with AppSpider, served from the
+ * {@link FindingsIndex} with filtering by job, scan config and severity
+ */
+@Extension
+public class FindingsDashboardAction implements RootAction {
+
+    static final String FINDINGS_INDEX_FILE = "appspider-findings-index.properties";
+    static final int PAGE_SIZE = 50;
+
+    private static final List<String> FILTER_PARAMETERS = List.of("job", "config", "severity");
+    private static final Logger LOGGER = Logger.getLogger("appspider-plugin");
+
+    /**
+     * @return the index shared by all jobs scanning on this controller
+     */
+    public static FindingsIndex getFindingsIndex() {
+        return FindingsIndex.forFile(Jenkins.get().getRootDir().toPath().resolve(FINDINGS_INDEX_FILE));
+    }
+
+    /**
+     * gets the page of findings requested by the job, config, severity and page query parameters
+     * of req, only findings of jobs the current user can read are included
+     * @param req the dashboard request
+     * @return the requested page, empty if the index cannot be read
+     */
+    public FindingsPage getPage(StaplerRequest req) {
+        FindingsQuery query = FindingsQuery.all()
+            .withJobFilter(req.getParameter("job"))
+            .withConfigFilter(req.getParameter("config"))
+            .withMinimumSeverity(parseSeverity(req.getParameter("severity")));
+        int page = parsePageNumber(req.getParameter("page"));
+        try {
+            // getItemByFullName returns null for jobs the current user cannot read
+            return getFindingsIndex().query(query, name -> Objects.nonNull(Jenkins.get().getItemByFullName(name)),
+                page * PAGE_SIZE, PAGE_SIZE);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to read the AppSpider findings index", e);
+            return new FindingsPage(Collections.emptyList(), 0, 0, PAGE_SIZE);
+        }
+    }
+
+    /**
+     * @param req the dashboard request
+     * @param pageNumber zero based number of the page to link to
+     * @return relative link to pageNumber keeping the filters of req
+     */
+    public String getPageLink(StaplerRequest req, int pageNumber) {
+        StringBuilder link = new StringBuilder("?");
+        for (String parameter : FILTER_PARAMETERS) {
+            String value = req.getParameter(parameter);
+            if (Objects.nonNull(value) && !value.isEmpty())
+                link.append(parameter).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8)).append('&');
+        }
+        return link.append("page=").append(Math.max(0, pageNumber)).toString();
+    }
+
+    public Severity[] getSeverities() {
+        return Severity.values();
+    }
+
+    private static Severity parseSeverity(String value) {
+        if (Objects.isNull(value) || value.isEmpty())
+            return null;
+        try {
+            return Severity.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int parsePageNumber(String value) {
+        if (Objects.isNull(value))
+            return 0;
+        try {
+            return Math.max(0, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "document.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "AppSpider Findings";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "appspider-findings";
+    }
+}
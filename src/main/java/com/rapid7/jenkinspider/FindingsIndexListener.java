@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.jenkinspider;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.listeners.ItemListener;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * keeps the findings index in step with jobs and folders being deleted, renamed or moved
+ */
+@Extension
+public final class FindingsIndexListener extends ItemListener {
+
+    private static final Logger LOGGER = Logger.getLogger("appspider-plugin");
+
+    @Override
+    public void onDeleted(Item item) {
+        try {
+            FindingsDashboardAction.getFindingsIndex().removeJob(item.getFullName());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to remove the AppSpider findings of " + item.getFullName(), e);
+        }
+    }
+
+    @Override
+    public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+        try {
+            FindingsDashboardAction.getFindingsIndex().renameJob(oldFullName, newFullName);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to move the AppSpider findings of " + oldFullName + " to " + newFullName, e);
+        }
+    }
+}
@@ -2,6 +2,9 @@ package com.rapid7.jenkinspider;
 
 import com.rapid7.appspider.*;
 import com.rapid7.appspider.datatransferobjects.ClientIdNamePair;
+import com.rapid7.appspider.datatransferobjects.Interaction;
+import com.rapid7.appspider.datatransferobjects.ReadinessResult;
+import com.rapid7.appspider.datatransferobjects.StoredReport;
 import com.rapid7.appspider.models.AuthenticationModel;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
@@ -18,23 +21,33 @@ import hudson.util.ListBoxModel;
 import hudson.util.Secret;
 import jenkins.model.Jenkins;
 import org.apache.commons.validator.routines.UrlValidator;
+import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.verb.POST;
 
 import java.io.IOException;
-import java.net.URL;
-import java.net.URLConnection;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
@@ -44,6 +57,10 @@ import java.util.stream.Collectors;
  */
 public class PostBuildScan extends Notifier {
 
+    private static final String SCAN_CONFIG_DIGESTS_FILE = "com.rapid7.appspider.ScanConfigDigests.properties";
+    private static final String SCAN_RESULTS_FILE = "com.rapid7.appspider.ScanResults.properties";
+    private static final String INTERACTION_LOG_FILE = "appspider-interactions.jsonl";
+
     private final String clientName; // Not set to final since it may change
     private final String configName; // Not set to final since it may change
     // if user decided to create a new scan config
@@ -56,6 +73,15 @@ public class PostBuildScan extends Notifier {
     private final String scanConfigUrl;
     private final String scanConfigEngineGroupName;
 
+    private int scanPriority;
+    private String artifactFingerprint;
+    private boolean writeInteractionLog;
+    private boolean storeReportsByContent;
+    private int readinessTimeoutSeconds;
+    private String readinessUrl;
+    private String readinessExpectedStatus;
+    private String readinessExpectedContent;
+
     @DataBoundConstructor
     @SuppressWarnings({ "java:S107" })
     public PostBuildScan(String clientName, String configName, String reportName, Boolean enableScan,
@@ -70,11 +96,88 @@ public class PostBuildScan extends Notifier {
         this.scanConfigEngineGroupName = scanConfigEngineGroupName;
     }
 
+    public int getScanPriority() {
+        return scanPriority;
+    }
+
+    @DataBoundSetter
+    public void setScanPriority(int scanPriority) {
+        this.scanPriority = scanPriority;
+    }
+
+    public String getArtifactFingerprint() {
+        return artifactFingerprint;
+    }
+
+    @DataBoundSetter
+    public void setArtifactFingerprint(String artifactFingerprint) {
+        this.artifactFingerprint = artifactFingerprint;
+    }
+
+    public boolean getWriteInteractionLog() {
+        return writeInteractionLog;
+    }
+
+    @DataBoundSetter
+    public void setWriteInteractionLog(boolean writeInteractionLog) {
+        this.writeInteractionLog = writeInteractionLog;
+    }
+
+    public boolean getStoreReportsByContent() {
+        return storeReportsByContent;
+    }
+
+    @DataBoundSetter
+    public void setStoreReportsByContent(boolean storeReportsByContent) {
+        this.storeReportsByContent = storeReportsByContent;
+    }
+
+    public int getReadinessTimeoutSeconds() {
+        return readinessTimeoutSeconds;
+    }
+
+    @DataBoundSetter
+    public void setReadinessTimeoutSeconds(int readinessTimeoutSeconds) {
+        this.readinessTimeoutSeconds = readinessTimeoutSeconds;
+    }
+
+    public String getReadinessUrl() {
+        return readinessUrl;
+    }
+
+    @DataBoundSetter
+    public void setReadinessUrl(String readinessUrl) {
+        this.readinessUrl = readinessUrl;
+    }
+
+    public String getReadinessExpectedStatus() {
+        return readinessExpectedStatus;
+    }
+
+    @DataBoundSetter
+    public void setReadinessExpectedStatus(String readinessExpectedStatus) {
+        this.readinessExpectedStatus = readinessExpectedStatus;
+    }
+
+    public String getReadinessExpectedContent() {
+        return readinessExpectedContent;
+    }
+
+    @DataBoundSetter
+    public void setReadinessExpectedContent(String readinessExpectedContent) {
+        this.readinessExpectedContent = readinessExpectedContent;
+    }
+
     @Override
     public BuildStepMonitor getRequiredMonitorService() {
         return BuildStepMonitor.NONE;
     }
 
+    @Override
+    public Collection<? extends Action> getProjectActions(AbstractProject<?, ?> project) {
+        return Collections.singletonList(new SeverityTrendAction(project));
+    }
+
     /*
      * This will be used from the config.jelly
      */
@@ -122,6 +225,9 @@ public class PostBuildScan extends Notifier {
 
         String appSpiderEntUrl = getDescriptor().getAppSpiderEntUrl();
         log.println("Value of AppSpider Enterprise Server Url: " + appSpiderEntUrl);
+        List<String> appSpiderEntUrls = getDescriptor().getAppSpiderEntUrls();
+        if (appSpiderEntUrls.size() > 1)
+            log.println("Balancing requests across AppSpider Enterprise servers: " + String.join(", ", appSpiderEntUrls));
 
         AuthenticationModel authModel = getDescriptor().buildAuthenticationModel();
         log.println("Value of AppSpider Username: " + authModel.getUsername());
@@ -134,36 +240,172 @@ public class PostBuildScan extends Notifier {
         boolean allowSelfSignedCertificate = getDescriptor().getAppSpiderAllowSelfSignedCertificate();
         log.println("Value of Allow Self-Signed certificate : " + allowSelfSignedCertificate);
 
+        Optional<InteractionLogFile> interactionLog = openInteractionLog(build, log);
         try {
-            ContentHelper contentHelper = ContentHelper.createInstanceOrThrow(log);
-            EnterpriseRestClient client = new EnterpriseRestClient(
-                    HttpClientService.createInstanceOrThrow(HttpClientFactory.createInstanceOrThrow(allowSelfSignedCertificate).getClient(), contentHelper, log),
-                    appSpiderEntUrl, ApiSerializer.createInstanceOrThrow(log), contentHelper, log);
+            ContentHelper contentHelper = getDescriptor().buildContentHelper(log);
+            HttpClientFactory clientFactory = HttpClientFactory.createInstanceOrThrow(allowSelfSignedCertificate);
+            EnterpriseClient client = getDescriptor().buildInstallationClient(
+                    getDescriptor().buildClientService(clientFactory, clientFactory.getClient(), contentHelper, log, interactionLog),
+                    contentHelper, log);
             ScanSettings settings = new ScanSettings(configName, reportName, true, generateReport, scanConfigName,
                     scanConfigUrl, scanConfigEngineGroupName);
 
-            DastScan scan = DastScan.createInstanceOrThrow(client, settings, log);
-            if (!scan.process(authModel))
-                return false;
-
-            FilePath filePath = build.getWorkspace();
-            if (Objects.isNull(filePath)) {
-                log.println("workspace not found, unable to save results");
-                return false;
+            // Executor.currentExecutor only answers on the build's own thread
+            Executor executor = Executor.currentExecutor();
+            DastScan scan = DastScan.createInstanceOrThrow(client, settings, log)
+                    .withAbortCheck(() -> isAborted(executor))
+                    .withConfigDigestStore(ScanConfigDigestStore.createInstanceOrThrow(
+                        PropertiesStore.forFile(Jenkins.get().getRootDir().toPath().resolve(SCAN_CONFIG_DIGESTS_FILE))));
+            int maxConcurrentScans = getDescriptor().getAppSpiderMaxConcurrentScansPerEngineGroup();
+            if (maxConcurrentScans > 0)
+                scan = scan.withScanQueue(maxConcurrentScans, scanPriority);
+            Optional<ReadinessProbe> readinessProbe = buildReadinessProbe(clientFactory, log);
+            if (readinessProbe.isPresent())
+                scan = scan.withReadinessProbe(readinessProbe.get());
+            String fingerprint = expandArtifactFingerprint(build, listener, log);
+            if (!fingerprint.isEmpty())
+                scan = scan.withResultReuse(
+                    ScanResultCache.createInstanceOrThrow(
+                        PropertiesStore.forFile(Jenkins.get().getRootDir().toPath().resolve(SCAN_RESULTS_FILE))),
+                    fingerprint, Duration.ofHours(getDescriptor().getAppSpiderScanReuseHours()));
+
+            Optional<ScanRunAction> interruptedScan = ScanRunAction.findResumable(build, appSpiderEntUrl, configName);
+            if (interruptedScan.isPresent()) {
+                scan = scan.withResumableScan(interruptedScan.get().getScanId());
+                finishScanAction(interruptedScan.get(), log);
             }
-            String scanId = scan.getId().orElse("");
-            if (scanId.isEmpty()) {
-                log.println("Unexpected error, scan identifier not found, unable to save retrieve report");
-                return false;
+            ScanRunAction scanAction = new ScanRunAction(appSpiderEntUrl, configName);
+            build.addAction(scanAction);
+            scan = scan.withProgressListener((id, phase) -> recordScanProgress(scanAction, id, phase, log));
+            try {
+                boolean isSuccess = scan.process(authModel) && saveReport(build, client, settings, log, authModel, scan, scanAction);
+                finishScanAction(scanAction, log);
+                return isSuccess;
+            } catch (InterruptedException e) {
+                // left unfinished on a restart so that the next build reattaches to the scan
+                if (isAborted(executor))
+                    finishScanAction(scanAction, log);
+                throw e;
             }
 
-            return Report.createInstanceOrThrow(client, settings, log).saveReport(authModel, scanId, filePath);
-
         } catch (IllegalArgumentException | SslContextCreationException e) {
             log.println(e.toString());
             return false;
+        } finally {
+            interactionLog.ifPresent(file -> closeInteractionLog(file, log));
+        }
+
+    }
+
+    private Optional<InteractionLogFile> openInteractionLog(AbstractBuild<?, ?> build, LoggerFacade log) {
+        if (!writeInteractionLog)
+            return Optional.empty();
+        try {
+            return Optional.of(InteractionLogFile.open(build.getRootDir().toPath().resolve(INTERACTION_LOG_FILE)));
+        } catch (IOException e) {
+            log.println("Unable to open the AppSpider Enterprise interaction log, interactions will not be written: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static void closeInteractionLog(InteractionLogFile file, LoggerFacade log) {
+        try {
+            file.close();
+            log.println("AppSpider Enterprise interactions written to " + file.getPath());
+        } catch (IOException e) {
+            log.println("Unable to write the AppSpider Enterprise interaction log: " + e.getMessage());
+        }
+        if (file.getDroppedCount() > 0)
+            log.println(String.format("%d interactions were not written to the interaction log", file.getDroppedCount()));
+    }
+
+    private boolean saveReport(AbstractBuild<?, ?> build, EnterpriseClient client, ScanSettings settings, LoggerFacade log,
+                               AuthenticationModel authModel, DastScan scan, ScanRunAction scanAction) throws InterruptedException {
+        FilePath filePath = build.getWorkspace();
+        if (!storeReportsByContent && Objects.isNull(filePath)) {
+            log.println("workspace not found, unable to save results");
+            return false;
         }
+        String scanId = scan.getId().orElse("");
+        if (scanId.isEmpty()) {
+            log.println("Unexpected error, scan identifier not found, unable to save retrieve report");
+            return false;
+        }
+
+        Report report = Report.createInstanceOrThrow(client, settings, log)
+            .withSeverityTrend(SeverityTrendAction.getTrendStore(build.getParent()), build.getNumber(), scanAction.getScanDurationMillis())
+            .withFindingsIndex(FindingsDashboardAction.getFindingsIndex(), build.getParent().getFullName(), build.getNumber());
+        if (storeReportsByContent) {
+            Optional<StoredReport> storedReport = report.storeReport(authModel, scanId, ReportAction.getReportStore(), build.getExternalizableId());
+            if (storedReport.isEmpty())
+                return false;
+            build.addAction(new ReportAction(storedReport.get()));
+        } else if (!report.saveReport(authModel, scanId, filePath)) {
+            return false;
+        }
+        recordScanProgress(scanAction, scanId, ScanPhase.REPORT_SAVED, log);
+        return true;
+    }
+
+    /**
+     * @return true if executor was interrupted by a user aborting the build; executors are also
+     *         interrupted, without a recorded cause, when Jenkins restarts or shuts down
+     */
+    private static boolean isAborted(Executor executor) {
+        return Objects.nonNull(executor)
+            && !executor.getCausesOfInterruption().isEmpty()
+            && !Jenkins.get().isTerminating();
+    }
+
+    private static void recordScanProgress(ScanRunAction scanAction, String scanId, ScanPhase phase, LoggerFacade log) {
+        try {
+            scanAction.update(scanId, phase);
+        } catch (IOException e) {
+            log.println(String.format("Unable to save progress of scan %s, it will not be resumed after a restart: %s", scanId, e.getMessage()));
+        }
+    }
+
+    private static void finishScanAction(ScanRunAction scanAction, LoggerFacade log) {
+        try {
+            scanAction.finish();
+        } catch (IOException e) {
+            log.println("Unable to save scan state: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return probe of the readiness URL, or the new scan config's URL when none is set; empty if
+     *         the readiness gate is disabled or there is no URL to probe
+     * @throws IllegalArgumentException if the URL or expected status are invalid
+     */
+    private Optional<ReadinessProbe> buildReadinessProbe(HttpClientFactory clientFactory, LoggerFacade log) {
+        if (readinessTimeoutSeconds <= 0)
+            return Optional.empty();
+        String url = Objects.isNull(readinessUrl) || readinessUrl.trim().isEmpty()
+            ? Objects.toString(scanConfigUrl, "").trim()
+            : readinessUrl.trim();
+        if (url.isEmpty()) {
+            log.println("No readiness URL or scan config URL is set, the scan will start without waiting for its target");
+            return Optional.empty();
+        }
+        int connectTimeoutSeconds = getDescriptor().buildRequestTimeouts().getConnectTimeoutSeconds();
+        return Optional.of(ReadinessProbe
+            .createInstanceOrThrow(clientFactory.getSharedAsyncClient(Duration.ofSeconds(connectTimeoutSeconds)),
+                URI.create(url), Duration.ofSeconds(readinessTimeoutSeconds))
+            .withExpectedStatus(Objects.toString(readinessExpectedStatus, ""))
+            .withExpectedContent(Objects.toString(readinessExpectedContent, "")));
+    }
 
+    private String expandArtifactFingerprint(AbstractBuild<?, ?> build, BuildListener listener, LoggerFacade log)
+            throws InterruptedException {
+        if (Objects.isNull(artifactFingerprint) || artifactFingerprint.trim().isEmpty())
+            return "";
+        try {
+            return build.getEnvironment(listener).expand(artifactFingerprint.trim());
+        } catch (IOException e) {
+            log.println("Unable to expand the artifact fingerprint, scan results will not be reused: " + e.getMessage());
+            return "";
+        }
     }
 
     // Overridden for better type safety.
@@ -183,7 +425,13 @@ public class PostBuildScan extends Notifier {
     @Extension
     public static final class DescriptorImp extends BuildStepDescriptor<Publisher> {
 
+        private static final int DEFAULT_SCAN_REUSE_HOURS = 24;
+        private static final Duration URL_VALIDATION_TIMEOUT = Duration.ofSeconds(10);
+        private static final Duration URL_VALIDATION_WAIT = Duration.ofSeconds(3);
+        private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson;charset=UTF-8";
+
         private String appSpiderEntUrl;
+        private String appSpiderAdditionalEntUrls;
         private String appSpiderUsername;
         private Secret appSpiderPassword;
         private boolean appSpiderAllowSelfSignedCertificate;
@@ -192,6 +440,23 @@ public class PostBuildScan extends Notifier {
         private String[] scanConfigEngines;
         private String appSpiderClientId;
         private String appSpiderClientName;
+        private int appSpiderMaxConcurrentRequests;
+        private int appSpiderFailureRateThreshold;
+        private int appSpiderSlowRequestSeconds;
+        private int appSpiderCircuitOpenSeconds;
+        private int appSpiderConnectTimeoutSeconds;
+        private int appSpiderReadTimeoutSeconds;
+        private int appSpiderMaxAttempts;
+        private int appSpiderMaxConcurrentScansPerEngineGroup;
+        private int appSpiderScanReuseHours;
+        private int appSpiderInteractionLogSize;
+        private boolean appSpiderStreamingJson;
+        private int appSpiderResponseCacheMegabytes;
+        private int appSpiderResponseCacheTtlSeconds;
+        private Double appSpiderLoginsPerSecond;
+        private Double appSpiderReadsPerSecond;
+        private Double appSpiderWritesPerSecond;
+        private String appSpiderServerRateLimits;
         private Optional<Map<String, String>> clientIdToNames;
         private static final String INVALID_CREDENTIALS = "Invalid username / password combination";
         private static final int NUMBER_OF_GET_CLIENT_ATTEMPTS = 2; // 1 retry
@@ -246,6 +511,45 @@ public class PostBuildScan extends Notifier {
             this.appSpiderEntUrl = appSpiderEntUrl;
         }
 
+        public String getAppSpiderAdditionalEntUrls() {
+            return appSpiderAdditionalEntUrls;
+        }
+        public void setAppSpiderAdditionalEntUrls(String appSpiderAdditionalEntUrls) {
+            this.appSpiderAdditionalEntUrls = appSpiderAdditionalEntUrls;
+        }
+
+        /**
+         * @return the AppSpider Enterprise url followed by the additional urls of the same installation, one per line
+         */
+        public List<String> getAppSpiderEntUrls() {
+            List<String> urls = new ArrayList<>();
+            urls.add(appSpiderEntUrl);
+            for (String url : Objects.toString(appSpiderAdditionalEntUrls, "").split("\\R")) {
+                String trimmed = url.trim();
+                if (!trimmed.isEmpty() && !urls.contains(trimmed))
+                    urls.add(trimmed);
+            }
+            return urls;
+        }
+
+        /**
+         * builds the client of the configured installation, balancing calls across its servers when
+         * additional urls are configured
+         * @param clientService service used to send requests to every server
+         * @param contentHelper helper used to encode requests and parse responses
+         * @param log logger used for diagnostic output
+         * @return client of the configured AppSpider Enterprise installation
+         * @throws IllegalArgumentException if any of the arguments are null or a url is empty
+         */
+        public EnterpriseClient buildInstallationClient(ClientService clientService, ContentHelper contentHelper, LoggerFacade log) {
+            List<EnterpriseRestClient> endpoints = new ArrayList<>();
+            for (String url : getAppSpiderEntUrls())
+                endpoints.add(new EnterpriseRestClient(clientService, url, ApiSerializer.createInstanceOrThrow(log), contentHelper, log));
+            return endpoints.size() == 1
+                ? endpoints.get(0)
+                : LoadBalancedEnterpriseClient.createInstanceOrThrow(endpoints, log);
+        }
+
         public String getAppSpiderUsername() {
             return appSpiderUsername;
         }
@@ -305,6 +609,321 @@ public class PostBuildScan extends Notifier {
                 setAppSpiderClientId(clientId);
         }
 
+        public int getAppSpiderMaxConcurrentRequests() {
+            return buildServerGuardSettings().getMaxConcurrentRequests();
+        }
+        public void setAppSpiderMaxConcurrentRequests(int appSpiderMaxConcurrentRequests) {
+            this.appSpiderMaxConcurrentRequests = appSpiderMaxConcurrentRequests;
+        }
+
+        public int getAppSpiderFailureRateThreshold() {
+            return buildServerGuardSettings().getFailureRateThreshold();
+        }
+        public void setAppSpiderFailureRateThreshold(int appSpiderFailureRateThreshold) {
+            this.appSpiderFailureRateThreshold = appSpiderFailureRateThreshold;
+        }
+
+        public int getAppSpiderSlowRequestSeconds() {
+            return buildServerGuardSettings().getSlowRequestSeconds();
+        }
+        public void setAppSpiderSlowRequestSeconds(int appSpiderSlowRequestSeconds) {
+            this.appSpiderSlowRequestSeconds = appSpiderSlowRequestSeconds;
+        }
+
+        public int getAppSpiderCircuitOpenSeconds() {
+            return buildServerGuardSettings().getOpenStateSeconds();
+        }
+        public void setAppSpiderCircuitOpenSeconds(int appSpiderCircuitOpenSeconds) {
+            this.appSpiderCircuitOpenSeconds = appSpiderCircuitOpenSeconds;
+        }
+
+        /**
+         * unset values, including those of configurations saved before the settings existed, use their defaults
+         * @return limits applied to requests sent to the AppSpider Enterprise server
+         */
+        public ServerGuardSettings buildServerGuardSettings() {
+            return new ServerGuardSettings(appSpiderMaxConcurrentRequests, appSpiderFailureRateThreshold,
+                appSpiderSlowRequestSeconds, appSpiderCircuitOpenSeconds);
+        }
+
+        public int getAppSpiderConnectTimeoutSeconds() {
+            return buildRequestTimeouts().getConnectTimeoutSeconds();
+        }
+        public void setAppSpiderConnectTimeoutSeconds(int appSpiderConnectTimeoutSeconds) {
+            this.appSpiderConnectTimeoutSeconds = appSpiderConnectTimeoutSeconds;
+        }
+
+        public int getAppSpiderReadTimeoutSeconds() {
+            return buildRequestTimeouts().getReadTimeoutSeconds();
+        }
+        public void setAppSpiderReadTimeoutSeconds(int appSpiderReadTimeoutSeconds) {
+            this.appSpiderReadTimeoutSeconds = appSpiderReadTimeoutSeconds;
+        }
+
+        public int getAppSpiderMaxAttempts() {
+            return appSpiderMaxAttempts > 0 ? appSpiderMaxAttempts : RetryPolicy.DEFAULT_MAX_ATTEMPTS;
+        }
+        public void setAppSpiderMaxAttempts(int appSpiderMaxAttempts) {
+            this.appSpiderMaxAttempts = appSpiderMaxAttempts;
+        }
+
+        /**
+         * @return maximum number of scans started by Jenkins running at once on an engine group, 0 for no limit
+         */
+        public int getAppSpiderMaxConcurrentScansPerEngineGroup() {
+            return Math.max(0, appSpiderMaxConcurrentScansPerEngineGroup);
+        }
+        public void setAppSpiderMaxConcurrentScansPerEngineGroup(int appSpiderMaxConcurrentScansPerEngineGroup) {
+            this.appSpiderMaxConcurrentScansPerEngineGroup = appSpiderMaxConcurrentScansPerEngineGroup;
+        }
+
+        /**
+         * @return how long, in hours, a successful scan may be reused by builds of the same artifact
+         */
+        public int getAppSpiderScanReuseHours() {
+            return appSpiderScanReuseHours > 0 ? appSpiderScanReuseHours : DEFAULT_SCAN_REUSE_HOURS;
+        }
+        public void setAppSpiderScanReuseHours(int appSpiderScanReuseHours) {
+            this.appSpiderScanReuseHours = appSpiderScanReuseHours;
+        }
+
+        /**
+         * @return number of recent requests to the AppSpider Enterprise server kept in memory
+         */
+        public int getAppSpiderInteractionLogSize() {
+            return appSpiderInteractionLogSize > 0 ? appSpiderInteractionLogSize : InteractionLog.DEFAULT_CAPACITY;
+        }
+        public void setAppSpiderInteractionLogSize(int appSpiderInteractionLogSize) {
+            this.appSpiderInteractionLogSize = appSpiderInteractionLogSize;
+        }
+
+        /**
+         * @return true if responses are decoded by {@link JacksonStreamingCodec}; false for {@link OrgJsonCodec}
+         */
+        public boolean getAppSpiderStreamingJson() {
+            return appSpiderStreamingJson;
+        }
+        public void setAppSpiderStreamingJson(boolean appSpiderStreamingJson) {
+            this.appSpiderStreamingJson = appSpiderStreamingJson;
+        }
+
+        /**
+         * @return maximum size, in megabytes, of the config, client and engine group responses cached per server
+         */
+        public int getAppSpiderResponseCacheMegabytes() {
+            return appSpiderResponseCacheMegabytes > 0
+                ? appSpiderResponseCacheMegabytes
+                : (int) (ResponseCache.DEFAULT_MAX_BYTES / (1024 * 1024));
+        }
+        public void setAppSpiderResponseCacheMegabytes(int appSpiderResponseCacheMegabytes) {
+            this.appSpiderResponseCacheMegabytes = appSpiderResponseCacheMegabytes;
+        }
+
+        /**
+         * @return how long, in seconds, cached responses the server sent without validators are reused
+         */
+        public int getAppSpiderResponseCacheTtlSeconds() {
+            return appSpiderResponseCacheTtlSeconds > 0 ? appSpiderResponseCacheTtlSeconds : ResponseCache.DEFAULT_FALLBACK_TTL_SECONDS;
+        }
+        public void setAppSpiderResponseCacheTtlSeconds(int appSpiderResponseCacheTtlSeconds) {
+            this.appSpiderResponseCacheTtlSeconds = appSpiderResponseCacheTtlSeconds;
+        }
+
+        /**
+         * @return hit ratio and size of the response cache of the configured AppSpider Enterprise server
+         */
+        public String getResponseCacheStatistics() {
+            return ResponseCache.find(getConfiguredServer())
+                .map(ResponseCache::describe)
+                .orElse("no responses cached yet");
+        }
+
+        /**
+         * @return circuit breaker and bulkhead state of each configured AppSpider Enterprise server
+         *         requests have been sent to
+         */
+        public String getServerGuardStatistics() {
+            List<String> statistics = new ArrayList<>();
+            for (String url : getAppSpiderEntUrls()) {
+                String server = authorityOf(url);
+                ServerGuard.find(server).ifPresent(guard -> statistics.add(server + ": " + guard.describe()));
+            }
+            return statistics.isEmpty() ? "no requests sent yet" : String.join("; ", statistics);
+        }
+
+        /**
+         * builds the ContentHelper used by clients of the AppSpider Enterprise server, decoding
+         * responses with the codec chosen in the global settings
+         * @param logger logger used to report failed requests
+         * @return new ContentHelper
+         */
+        public ContentHelper buildContentHelper(LoggerFacade logger) {
+            return ContentHelper.createInstanceOrThrow(logger)
+                .withCodec(appSpiderStreamingJson ? new JacksonStreamingCodec() : new OrgJsonCodec());
+        }
+
+        public double getAppSpiderLoginsPerSecond() {
+            return buildDefaultRequestRateLimits().getLoginsPerSecond();
+        }
+        public void setAppSpiderLoginsPerSecond(Double appSpiderLoginsPerSecond) {
+            this.appSpiderLoginsPerSecond = appSpiderLoginsPerSecond;
+        }
+
+        public double getAppSpiderReadsPerSecond() {
+            return buildDefaultRequestRateLimits().getReadsPerSecond();
+        }
+        public void setAppSpiderReadsPerSecond(Double appSpiderReadsPerSecond) {
+            this.appSpiderReadsPerSecond = appSpiderReadsPerSecond;
+        }
+
+        public double getAppSpiderWritesPerSecond() {
+            return buildDefaultRequestRateLimits().getWritesPerSecond();
+        }
+        public void setAppSpiderWritesPerSecond(Double appSpiderWritesPerSecond) {
+            this.appSpiderWritesPerSecond = appSpiderWritesPerSecond;
+        }
+
+        /**
+         * @return rates of the servers which don't use the default rates, see {@link RequestRateLimits#withServerOverrides(String)}
+         */
+        public String getAppSpiderServerRateLimits() {
+            return appSpiderServerRateLimits;
+        }
+        public void setAppSpiderServerRateLimits(String appSpiderServerRateLimits) {
+            this.appSpiderServerRateLimits = appSpiderServerRateLimits;
+        }
+
+        public FormValidation doCheckAppSpiderServerRateLimits(@QueryParameter String value) {
+            try {
+                buildDefaultRequestRateLimits().withServerOverrides(Objects.toString(value, ""));
+                return FormValidation.ok();
+            } catch (IllegalArgumentException e) {
+                return FormValidation.error(e.getMessage());
+            }
+        }
+
+        /**
+         * unset values, including those of configurations saved before the settings existed, use their defaults
+         * @return maximum rates of requests sent to each AppSpider Enterprise server
+         */
+        public RequestRateLimits buildRequestRateLimits() {
+            RequestRateLimits limits = buildDefaultRequestRateLimits();
+            try {
+                return limits.withServerOverrides(Objects.toString(appSpiderServerRateLimits, ""));
+            } catch (IllegalArgumentException e) {
+                buildLoggerFacade().warn("Ignoring invalid AppSpider Enterprise server rate limits, " + e.getMessage());
+                return limits;
+            }
+        }
+
+        private RequestRateLimits buildDefaultRequestRateLimits() {
+            return new RequestRateLimits(
+                Objects.isNull(appSpiderLoginsPerSecond) ? -1 : appSpiderLoginsPerSecond,
+                Objects.isNull(appSpiderReadsPerSecond) ? -1 : appSpiderReadsPerSecond,
+                Objects.isNull(appSpiderWritesPerSecond) ? -1 : appSpiderWritesPerSecond);
+        }
+
+        /**
+         * unset values, including those of configurations saved before the settings existed, use their defaults
+         * @return timeouts applied to requests sent to the AppSpider Enterprise server
+         */
+        public RequestTimeouts buildRequestTimeouts() {
+            return new RequestTimeouts(appSpiderConnectTimeoutSeconds, appSpiderReadTimeoutSeconds);
+        }
+
+        /**
+         * builds the client service used for all requests to the AppSpider Enterprise server, applying
+         * the request limits, rate limits, timeouts and retries from the global configuration
+         * <p>
+         * Uses the non-blocking {@link AsyncHttpClientService}, sharing clientFactory's JVM wide client,
+         * when selected by the system property {@value AsyncHttpClientService#SELECTION_PROPERTY};
+         * otherwise, a {@link HttpClientService} sending requests with httpClient.
+         * </p>
+         * @param clientFactory factory httpClient was created by
+         * @param httpClient client used to send requests
+         * @param contentHelper helper used to parse responses
+         * @param logger logger used for diagnostic output
+         * @return configured ClientService
+         * @throws IllegalArgumentException if any of the arguments are null
+         */
+        public ClientService buildClientService(HttpClientFactory clientFactory, HttpClient httpClient, ContentHelper contentHelper, LoggerFacade logger) {
+            return buildClientService(clientFactory, httpClient, contentHelper, logger, Optional.empty());
+        }
+
+        /**
+         * builds the client service used for all requests to the AppSpider Enterprise server as
+         * {@link #buildClientService(HttpClientFactory, HttpClient, ContentHelper, LoggerFacade)} does,
+         * recording each request in the {@link InteractionLog} of the server and, if present, interactionLog
+         * <p>
+         * Interactions are only recorded by {@link HttpClientService}.
+         * </p>
+         * @param clientFactory factory httpClient was created by
+         * @param httpClient client used to send requests
+         * @param contentHelper helper used to parse responses
+         * @param logger logger used for diagnostic output
+         * @param interactionLog file every request is also written to
+         * @return configured ClientService
+         * @throws IllegalArgumentException if any of the arguments are null
+         */
+        public ClientService buildClientService(HttpClientFactory clientFactory, HttpClient httpClient, ContentHelper contentHelper,
+                                                LoggerFacade logger, Optional<InteractionLogFile> interactionLog) {
+            if (Objects.isNull(clientFactory))
+                throw new IllegalArgumentException("clientFactory cannot be null");
+            if (AsyncHttpClientService.isSelected()) {
+                RequestTimeouts timeouts = buildRequestTimeouts();
+                return AsyncHttpClientService
+                    .createInstanceOrThrow(clientFactory.getSharedAsyncClient(Duration.ofSeconds(timeouts.getConnectTimeoutSeconds())), contentHelper, logger)
+                    .withServerGuard(buildServerGuardSettings())
+                    .withTimeouts(timeouts)
+                    .withRetries(getAppSpiderMaxAttempts())
+                    .withRateLimits(buildRequestRateLimits())
+                    .withResponseCache(getAppSpiderResponseCacheMegabytes() * 1024L * 1024L, getAppSpiderResponseCacheTtlSeconds());
+            }
+            HttpClientService service = HttpClientService.createInstanceOrThrow(httpClient, contentHelper, logger)
+                .withServerGuard(buildServerGuardSettings())
+                .withTimeouts(buildRequestTimeouts())
+                .withRetries(getAppSpiderMaxAttempts())
+                .withRateLimits(buildRequestRateLimits())
+                .withInteractionLog(getAppSpiderInteractionLogSize())
+                .withResponseCache(getAppSpiderResponseCacheMegabytes() * 1024L * 1024L, getAppSpiderResponseCacheTtlSeconds());
+            return interactionLog.isPresent()
+                ? service.withInteractionLogFile(interactionLog.get())
+                : service;
+        }
+
+        /**
+         * writes the recent requests to the configured AppSpider Enterprise server as JSON lines,
+         * oldest first, for diagnosing slow or failing requests
+         * @param rsp response the interactions are written to
+         * @throws IOException if the response cannot be written
+         */
+        public void doInteractionLog(StaplerResponse rsp) throws IOException {
+            Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+            List<Interaction> interactions = InteractionLog.find(getConfiguredServer())
+                .map(InteractionLog::getRecent)
+                .orElse(Collections.emptyList());
+
+            rsp.setContentType(NDJSON_CONTENT_TYPE);
+            try (Writer writer = new OutputStreamWriter(rsp.getOutputStream(), StandardCharsets.UTF_8)) {
+                for (Interaction interaction : interactions) {
+                    writer.write(InteractionLog.toJsonLine(interaction));
+                    writer.write('\n');
+                }
+            }
+        }
+
+        private String getConfiguredServer() {
+            return authorityOf(appSpiderEntUrl);
+        }
+
+        private static String authorityOf(String url) {
+            try {
+                return Objects.toString(URI.create(Objects.toString(url, "")).getAuthority(), "");
+            } catch (IllegalArgumentException e) {
+                return "";
+            }
+        }
+
         public AuthenticationModel buildAuthenticationModel() {
             return appSpiderClientId != null && !appSpiderClientId.isEmpty() && appSpiderEnableMultiClientOrSysAdmin
                 ? new AuthenticationModel(appSpiderUsername, Secret.toString(appSpiderPassword), appSpiderClientId)
@@ -352,16 +971,16 @@ public class PostBuildScan extends Notifier {
 
                 @Override
                 public boolean isVerboseEnabled() {
-                    return logger.isLoggable(Level.ALL);
+                    return logger.isLoggable(Level.FINE);
                 }
             };
         }
 
-        private EnterpriseRestClient buildEnterpriseClient(CloseableHttpClient httpClient, String endpoint) {
+        private EnterpriseRestClient buildEnterpriseClient(HttpClientFactory clientFactory, CloseableHttpClient httpClient, String endpoint) {
             LoggerFacade logger = buildLoggerFacade();
-            ContentHelper contentHelper = ContentHelper.createInstanceOrThrow(logger);
+            ContentHelper contentHelper = buildContentHelper(logger);
             return new EnterpriseRestClient(
-                    HttpClientService.createInstanceOrThrow(httpClient, contentHelper, logger),
+                    buildClientService(clientFactory, httpClient, contentHelper, logger),
                     endpoint,
                     ApiSerializer.createInstanceOrThrow(logger),
                     contentHelper,
@@ -446,7 +1065,9 @@ public class PostBuildScan extends Notifier {
                 return emptyListBoxModel("[Select an engine group name]");
             }
             scanConfigEngines = getEngineGroups();
-            return buildListBoxModel("[Select an engine group name]", scanConfigEngines);
+            ListBoxModel model = buildListBoxModel("[Select an engine group name]", scanConfigEngines);
+            model.add(1, new ListBoxModel.Option("[Automatic: least loaded engine group]", ScanSettings.AUTO_ENGINE_GROUP));
+            return model;
         }
 
         private static ListBoxModel emptyListBoxModel(String introduction) {
@@ -499,15 +1120,27 @@ public class PostBuildScan extends Notifier {
                             "Only alpha-numeric, '.' , '_' , and '-' are allowed");
                 }
 
-                if (UrlValidator.getInstance().isValid(scanConfigUrl)) {
-                    URL url = new URL(scanConfigUrl);
-                    URLConnection conn = url.openConnection();
-                    conn.connect();
-                } else {
+                if (!UrlValidator.getInstance().isValid(scanConfigUrl))
                     return FormValidation.error("Invalid url. Check the protocol (i.e http/https) or the port.");
+
+                // the check carries on, and is remembered, if it outlasts the wait
+                ReadinessResult reachability = ProbeResultCache
+                    .forClient(HttpClientFactory.createInstanceOrThrow(appSpiderAllowSelfSignedCertificate)
+                        .getSharedAsyncClient(URL_VALIDATION_TIMEOUT), URL_VALIDATION_TIMEOUT)
+                    .check(URI.create(scanConfigUrl))
+                    .get(URL_VALIDATION_WAIT.toMillis(), TimeUnit.MILLISECONDS);
+                if (!reachability.isReady()) {
+                    buildLoggerFacade().println(reachability.getLastOutcome() + " from doValidateNewScanConfig");
+                    return FormValidation.error("Unable to connect to \"" + scanConfigUrl +
+                            "\". Try again in a few minutes or try another url");
                 }
                 return FormValidation.ok("Valid scan configuration name and url.");
-            } catch (IOException /* | MalformedURLException */ e) {
+            } catch (TimeoutException e) {
+                return FormValidation.warning("Still connecting to \"" + scanConfigUrl + "\", validate again in a few seconds for the result.");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return FormValidation.warning("Validation of \"" + scanConfigUrl + "\" was interrupted");
+            } catch (ExecutionException | IllegalArgumentException | SslContextCreationException e) {
                 buildLoggerFacade().println(e.getMessage() + " from doValidateNewScanConfig");
                 return FormValidation.error("Unable to connect to \"" + scanConfigUrl +
                         "\". Try again in a few minutes or try another url");
@@ -564,9 +1197,12 @@ public class PostBuildScan extends Notifier {
             if (Objects.isNull(supplier))
                 return errorResult;
 
-            try (CloseableHttpClient httpClient = HttpClientFactory.createInstanceOrThrow(appSpiderAllowSelfSignedCertificate).getClient()) {
-                EnterpriseClient client = buildEnterpriseClient(httpClient, endpoint);
-                return supplier.apply(client);
+            try {
+                HttpClientFactory clientFactory = HttpClientFactory.createInstanceOrThrow(appSpiderAllowSelfSignedCertificate);
+                try (CloseableHttpClient httpClient = clientFactory.getClient()) {
+                    EnterpriseClient client = buildEnterpriseClient(clientFactory, httpClient, endpoint);
+                    return supplier.apply(client);
+                }
             } catch (IOException | SslContextCreationException e) {
                 buildLoggerFacade().println(e.getMessage() + " from executeRequest(endpoint)");
                 return errorResult;
@@ -577,17 +1213,23 @@ public class PostBuildScan extends Notifier {
             if (Objects.isNull(request))
                 return errorResult;
 
-            try (CloseableHttpClient httpClient = HttpClientFactory.createInstanceOrThrow(appSpiderAllowSelfSignedCertificate).getClient()) {
-                EnterpriseClient client = buildEnterpriseClient(httpClient, appSpiderEntUrl);
-                if (Objects.isNull(appSpiderPassword)) {
-                    return errorResult;
-                }
+            try {
+                HttpClientFactory clientFactory = HttpClientFactory.createInstanceOrThrow(appSpiderAllowSelfSignedCertificate);
+                try (CloseableHttpClient httpClient = clientFactory.getClient()) {
+                    LoggerFacade logger = buildLoggerFacade();
+                    ContentHelper contentHelper = buildContentHelper(logger);
+                    EnterpriseClient client = buildInstallationClient(
+                        buildClientService(clientFactory, httpClient, contentHelper, logger), contentHelper, logger);
+                    if (Objects.isNull(appSpiderPassword)) {
+                        return errorResult;
+                    }
 
-                Optional<String> maybeAuthKey = client.login(buildAuthenticationModel());
-                if (maybeAuthKey.isEmpty()) {
-                    return errorResult;
+                    Optional<String> maybeAuthKey = client.login(buildAuthenticationModel());
+                    if (maybeAuthKey.isEmpty()) {
+                        return errorResult;
+                    }
+                    return request.executeRequest(client, maybeAuthKey.get());
                 }
-                return request.executeRequest(client, maybeAuthKey.get());
             } catch (IOException | SslContextCreationException e) {
                 buildLoggerFacade().println(e.getMessage() + " from executeRequestWithAuthorization");
                 return errorResult;
@@ -58,6 +58,6 @@ class PrintStreamLoggerFacade implements LoggerFacade {
 
     @Override
     public boolean isVerboseEnabled() {
-        return logger.isLoggable(Level.ALL);
+        return logger.isLoggable(Level.FINE);
     }
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.jenkinspider;
+
+import com.rapid7.appspider.*;
+import com.rapid7.appspider.datatransferobjects.ProvisioningResult;
+import com.rapid7.appspider.datatransferobjects.ScanConfigManifestEntry;
+import com.rapid7.appspider.models.AuthenticationModel;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.BuildListener;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Builder;
+import hudson.util.FormValidation;
+import jenkins.model.Jenkins;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Build step creating or updating the scan configs listed in a manifest file found in the workspace,
+ * using the AppSpider Enterprise server and credentials from the global configuration
+ */
+public class ProvisionScanConfigs extends Builder {
+
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+    private static final double DEFAULT_MAX_SAVES_PER_SECOND = 2.0;
+
+    private final String manifestPath;
+    private final String defaultEngineGroupName;
+    private final int maxConcurrency;
+    private final double maxSavesPerSecond;
+
+    @DataBoundConstructor
+    public ProvisionScanConfigs(String manifestPath, String defaultEngineGroupName, int maxConcurrency, double maxSavesPerSecond) {
+        this.manifestPath = manifestPath;
+        this.defaultEngineGroupName = defaultEngineGroupName;
+        this.maxConcurrency = maxConcurrency > 0 ? maxConcurrency : DEFAULT_MAX_CONCURRENCY;
+        this.maxSavesPerSecond = maxSavesPerSecond >= 0 ? maxSavesPerSecond : DEFAULT_MAX_SAVES_PER_SECOND;
+    }
+
+    public String getManifestPath() {
+        return manifestPath;
+    }
+
+    public String getDefaultEngineGroupName() {
+        return defaultEngineGroupName;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public double getMaxSavesPerSecond() {
+        return maxSavesPerSecond;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return true if every entry of the manifest was saved; otherwise, false
+     * @throws InterruptedException if stop is requested by the user
+     * @throws IOException if the manifest cannot be read or the results cannot be written
+     */
+    @Override
+    public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+            throws InterruptedException, IOException {
+
+        LoggerFacade log = new PrintStreamLoggerFacade(listener);
+
+        FilePath workspace = build.getWorkspace();
+        if (Objects.isNull(workspace)) {
+            log.println("workspace not found, unable to read scan config manifest");
+            return false;
+        }
+        FilePath manifest = workspace.child(manifestPath);
+        if (!manifest.exists()) {
+            log.println(String.format("Scan config manifest '%s' was not found in the workspace", manifestPath));
+            return false;
+        }
+
+        List<ScanConfigManifestEntry> entries;
+        try {
+            entries = ScanConfigManifest.parse(manifest.readToString(), defaultEngineGroupName);
+        } catch (IllegalArgumentException e) {
+            log.println(String.format("Invalid scan config manifest '%s': %s", manifestPath, e.getMessage()));
+            return false;
+        }
+        log.println(String.format("Provisioning %d scan configs from '%s' (max %d concurrent, %s saves per second)",
+            entries.size(), manifestPath, maxConcurrency, maxSavesPerSecond > 0 ? String.valueOf(maxSavesPerSecond) : "unlimited"));
+
+        PostBuildScan.DescriptorImp globalSettings = Jenkins.get().getDescriptorByType(PostBuildScan.DescriptorImp.class);
+        AuthenticationModel authModel = globalSettings.buildAuthenticationModel();
+
+        List<ProvisioningResult> results;
+        try {
+            HttpClientFactory clientFactory = HttpClientFactory.createInstanceOrThrow(globalSettings.getAppSpiderAllowSelfSignedCertificate());
+            try (CloseableHttpClient httpClient = clientFactory.getClient(maxConcurrency)) {
+
+                ContentHelper contentHelper = globalSettings.buildContentHelper(log);
+                EnterpriseClient client = globalSettings.buildInstallationClient(
+                        globalSettings.buildClientService(clientFactory, httpClient, contentHelper, log), contentHelper, log);
+
+                results = ScanConfigProvisioner
+                    .createInstanceOrThrow(client, log, maxConcurrency, maxSavesPerSecond)
+                    .provision(authModel, entries);
+            }
+
+        } catch (IllegalArgumentException | SslContextCreationException e) {
+            log.println(e.toString());
+            return false;
+        }
+
+        FilePath resultsFile = workspace.child(manifestPath + ".results.csv");
+        resultsFile.write(ScanConfigManifest.toResultsCsv(results), "UTF-8");
+
+        long failures = results.stream().filter(result -> !result.isSuccess()).count();
+        log.println(String.format("Scan config provisioning finished: %d saved, %d failed. Results written to %s",
+            results.size() - failures, failures, manifestPath + ".results.csv"));
+        return failures == 0;
+    }
+
+    @Override
+    public DescriptorImpl getDescriptor() {
+        return (DescriptorImpl) super.getDescriptor();
+    }
+
+    /**
+     * Descriptor for {@link ProvisionScanConfigs}
+     */
+    @Extension
+    public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean isApplicable(Class<? extends AbstractProject> aClass) {
+            return true;
+        }
+
+        /**
+         * @return Display Name of the build step
+         */
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return "Provision AppSpider scan configs from manifest";
+        }
+
+        public FormValidation doCheckManifestPath(@QueryParameter String value) {
+            if (Objects.isNull(value) || value.trim().isEmpty())
+                return FormValidation.error("Please set the path of the manifest relative to the workspace");
+            return FormValidation.ok();
+        }
+
+        public FormValidation doCheckMaxConcurrency(@QueryParameter String value) {
+            try {
+                return Integer.parseInt(value) >= 1
+                    ? FormValidation.ok()
+                    : FormValidation.error("Must be at least 1");
+            } catch (NumberFormatException e) {
+                return FormValidation.error("Must be a whole number");
+            }
+        }
+
+        public FormValidation doCheckMaxSavesPerSecond(@QueryParameter String value) {
+            try {
+                return Double.parseDouble(value) >= 0
+                    ? FormValidation.ok()
+                    : FormValidation.error("Cannot be negative, use 0 for no limit");
+            } catch (NumberFormatException e) {
+                return FormValidation.error("Must be a number");
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.jenkinspider;
+
+import com.rapid7.appspider.ReportBlobStore;
+import com.rapid7.appspider.ReportZipReader;
+import com.rapid7.appspider.datatransferobjects.StoredReport;
+import hudson.model.Action;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * links a build to the report files it saved to the shared {@link ReportBlobStore}, serving them
+ * for download and serving the pages of the report zip under {@value #VIEW}/ without extracting it
+ */
+public class ReportAction implements Action {
+
+    static final String REPORT_STORE_DIRECTORY = "appspider-reports";
+
+    private static final String XML_CONTENT_TYPE = "application/xml;charset=UTF-8";
+    private static final String ZIP_CONTENT_TYPE = "application/zip";
+    private static final String VIEW = "view";
+    private static final long VIEW_MAX_AGE_SECONDS = 24 * 60 * 60;
+    // same restrictions Jenkins applies to workspace and archived files, report scripts are not run
+    private static final String CONTENT_SECURITY_POLICY = "sandbox; default-src 'none'; img-src 'self'; style-src 'self';";
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+        "html", "text/html;charset=UTF-8",
+        "htm", "text/html;charset=UTF-8",
+        "css", "text/css;charset=UTF-8",
+        "js", "application/javascript;charset=UTF-8",
+        "json", "application/json;charset=UTF-8",
+        "xml", XML_CONTENT_TYPE,
+        "txt", "text/plain;charset=UTF-8",
+        "png", "image/png",
+        "gif", "image/gif",
+        "svg", "image/svg+xml");
+
+    private final String vulnerabilitiesFileName;
+    private final String vulnerabilitiesDigest;
+    private final String reportZipFileName;
+    private final String reportZipDigest;
+
+    public ReportAction(StoredReport report) {
+        this.vulnerabilitiesFileName = report.getVulnerabilitiesFileName();
+        this.vulnerabilitiesDigest = report.getVulnerabilitiesDigest();
+        this.reportZipFileName = report.getReportZipFileName();
+        this.reportZipDigest = report.getReportZipDigest();
+    }
+
+    /**
+     * @return the store shared by all builds saving their reports on this controller
+     */
+    public static ReportBlobStore getReportStore() {
+        return ReportBlobStore.forDirectory(Jenkins.get().getRootDir().toPath().resolve(REPORT_STORE_DIRECTORY));
+    }
+
+    public String getVulnerabilitiesFileName() {
+        return vulnerabilitiesFileName;
+    }
+
+    public String getVulnerabilitiesDigest() {
+        return vulnerabilitiesDigest;
+    }
+
+    public String getReportZipFileName() {
+        return reportZipFileName;
+    }
+
+    public String getReportZipDigest() {
+        return reportZipDigest;
+    }
+
+    /**
+     * releases the build's references to its report files, deleting files no other build references
+     * @param referrer identifier of the build the files were stored by
+     * @throws IOException if the store cannot be updated
+     */
+    public void release(String referrer) throws IOException {
+        ReportBlobStore store = getReportStore();
+        store.release(vulnerabilitiesDigest, referrer);
+        store.release(reportZipDigest, referrer);
+    }
+
+    /**
+     * serves the vulnerabilities summary or report zip named by the rest of the request path, or
+     * the entry of the report zip named by the path following {@value #VIEW}/
+     * @param req request whose remaining path is the file name
+     * @param rsp response the file is written to
+     * @throws IOException if the file cannot be read or the response written
+     */
+    public void doDynamic(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        String fileName = Objects.toString(req.getRestOfPath(), "").replaceFirst("^/", "");
+        if (fileName.equals(VIEW) || fileName.startsWith(VIEW + "/")) {
+            serveReportEntry(req, rsp, fileName);
+            return;
+        }
+        Optional<Path> file = Optional.empty();
+        String contentType = null;
+        if (fileName.equals(vulnerabilitiesFileName)) {
+            file = getReportStore().find(vulnerabilitiesDigest);
+            contentType = XML_CONTENT_TYPE;
+        } else if (fileName.equals(reportZipFileName)) {
+            file = getReportStore().find(reportZipDigest);
+            contentType = ZIP_CONTENT_TYPE;
+        }
+        if (file.isEmpty()) {
+            rsp.sendError(404);
+            return;
+        }
+
+        rsp.setContentType(contentType);
+        rsp.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        rsp.setContentLengthLong(Files.size(file.get()));
+        try (InputStream input = Files.newInputStream(file.get());
+             OutputStream output = rsp.getOutputStream()) {
+            input.transferTo(output);
+        }
+    }
+
+    private void serveReportEntry(StaplerRequest req, StaplerResponse rsp, String path) throws IOException {
+        Optional<Path> zip = getReportStore().find(reportZipDigest);
+        if (zip.isEmpty()) {
+            rsp.sendError(404);
+            return;
+        }
+        String entryName = path.substring(VIEW.length()).replaceFirst("^/", "");
+        if (entryName.isEmpty()) {
+            Optional<String> startPage = ReportZipReader.shared().findStartPage(zip.get());
+            if (startPage.isEmpty()) {
+                rsp.sendError(404);
+                return;
+            }
+            rsp.sendRedirect(path.endsWith("/") ? startPage.get() : VIEW + "/" + startPage.get());
+            return;
+        }
+
+        // the CRC comes from the central directory, so a revalidated entry is never read
+        Optional<Long> crc = ReportZipReader.shared().findCrc(zip.get(), reportZipDigest, entryName);
+        if (crc.isEmpty()) {
+            rsp.sendError(404);
+            return;
+        }
+        // the zip is stored by digest so an entry's content can only change along with the digest
+        String etag = String.format("\"%s-%08x\"", reportZipDigest, crc.get());
+        rsp.setHeader("ETag", etag);
+        rsp.setHeader("Cache-Control", "private, max-age=" + VIEW_MAX_AGE_SECONDS);
+        if (etag.equals(req.getHeader("If-None-Match"))) {
+            rsp.setStatus(304);
+            return;
+        }
+
+        Optional<ReportZipReader.ReportEntry> entry = ReportZipReader.shared().find(zip.get(), reportZipDigest, entryName);
+        if (entry.isEmpty()) {
+            rsp.sendError(404);
+            return;
+        }
+
+        rsp.setContentType(contentTypeOf(entryName));
+        rsp.setHeader("Content-Security-Policy", CONTENT_SECURITY_POLICY);
+        rsp.setHeader("X-Content-Type-Options", "nosniff");
+        if (entry.get().getSize() >= 0)
+            rsp.setContentLengthLong(entry.get().getSize());
+        try (InputStream input = entry.get().open();
+             OutputStream output = rsp.getOutputStream()) {
+            input.transferTo(output);
+        }
+    }
+
+    private static String contentTypeOf(String entryName) {
+        int extensionStart = entryName.lastIndexOf('.');
+        String extension = extensionStart < 0 ? "" : entryName.substring(extensionStart + 1).toLowerCase(Locale.ROOT);
+        return CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "document.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "AppSpider Report";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "appspider-report";
+    }
+}
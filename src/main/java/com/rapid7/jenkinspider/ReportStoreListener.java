@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.jenkinspider;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.Run;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * releases the report files of deleted builds, and of every build within deleted jobs and folders,
+ * so that files no longer referenced by any build are removed from the report store. Builds
+ * reference their files by their externalizable id, which is renamed along with their job
+ */
+public final class ReportStoreListener {
+
+    private static final Logger LOGGER = Logger.getLogger("appspider-plugin");
+
+    private ReportStoreListener() {
+    }
+
+    @Extension
+    public static final class DeletedBuilds extends RunListener<Run<?, ?>> {
+        @Override
+        public void onDeleted(Run<?, ?> run) {
+            ReportAction action = run.getAction(ReportAction.class);
+            if (Objects.isNull(action))
+                return;
+            try {
+                action.release(run.getExternalizableId());
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Unable to release AppSpider report of " + run.getExternalizableId(), e);
+            }
+        }
+    }
+
+    @Extension
+    public static final class DeletedJobs extends ItemListener {
+        @Override
+        public void onDeleted(Item item) {
+            try {
+                // builds of a job are identified by job#number, and jobs within a folder by folder/job
+                ReportAction.getReportStore().releaseAll(item.getFullName() + "#");
+                ReportAction.getReportStore().releaseAll(item.getFullName() + "/");
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Unable to release AppSpider reports of " + item.getFullName(), e);
+            }
+        }
+    }
+
+    @Extension
+    public static final class MovedJobs extends ItemListener {
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            try {
+                ReportAction.getReportStore().renameAll(oldFullName + "#", newFullName + "#");
+                ReportAction.getReportStore().renameAll(oldFullName + "/", newFullName + "/");
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Unable to move the AppSpider reports of " + oldFullName + " to " + newFullName, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.jenkinspider;
+
+import com.rapid7.appspider.ScanPhase;
+import hudson.model.Run;
+import hudson.model.RunAction2;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * records the scan started by a build along with the server it runs on and how far the build got,
+ * saved with the build so that a build killed by a controller restart can be picked up by the next
+ * build of the job instead of starting a new scan
+ */
+public class ScanRunAction implements RunAction2 {
+
+    private final String server;
+    private final String configName;
+    private String scanId;
+    private ScanPhase phase;
+    private boolean isFinished;
+    private long startedAtMillis;
+    private long completedAtMillis;
+    private transient Run<?, ?> run;
+
+    public ScanRunAction(String server, String configName) {
+        this.server = server;
+        this.configName = configName;
+    }
+
+    /**
+     * finds the scan of build's previous build if that build was ended without finishing, such as
+     * by a controller restart, while its scan on server was still running or its report was still
+     * to be retrieved
+     * @param build the build about to start a scan
+     * @param server url of the AppSpider Enterprise server
+     * @param configName name of the scan config
+     * @return Optional containing the action of the previous build; otherwise, Optional.empty()
+     */
+    public static Optional<ScanRunAction> findResumable(Run<?, ?> build, String server, String configName) {
+        Run<?, ?> previous = build.getPreviousBuild();
+        if (Objects.isNull(previous) || previous.isBuilding())
+            return Optional.empty();
+        ScanRunAction action = previous.getAction(ScanRunAction.class);
+        return Objects.nonNull(action) && action.isResumableBy(server, configName)
+            ? Optional.of(action)
+            : Optional.empty();
+    }
+
+    /**
+     * @param server url of the AppSpider Enterprise server
+     * @param configName name of the scan config
+     * @return true if the build recording this action was ended without finishing while its scan of
+     *         configName on server was still running or its report was still to be retrieved
+     */
+    synchronized boolean isResumableBy(String server, String configName) {
+        if (isFinished || Objects.isNull(scanId) || phase == ScanPhase.REPORT_SAVED || phase == ScanPhase.CANCELLED)
+            return false;
+        return Objects.equals(server, this.server) && Objects.equals(configName, this.configName);
+    }
+
+    public String getServer() {
+        return server;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    public String getScanId() {
+        return scanId;
+    }
+
+    public ScanPhase getPhase() {
+        return phase;
+    }
+
+    public boolean isFinished() {
+        return isFinished;
+    }
+
+    /**
+     * @return milliseconds from the scan starting, or being reattached to, to its completion; -1 if
+     * the scan has not completed within this build
+     */
+    public synchronized long getScanDurationMillis() {
+        if (startedAtMillis == 0 || completedAtMillis < startedAtMillis)
+            return -1;
+        return completedAtMillis - startedAtMillis;
+    }
+
+    /**
+     * records scanId entering phase and saves the build
+     * @param scanId id of the scan
+     * @param phase phase the scan has entered
+     * @throws IOException if the build cannot be saved
+     */
+    public synchronized void update(String scanId, ScanPhase phase) throws IOException {
+        this.scanId = scanId;
+        this.phase = phase;
+        if (phase == ScanPhase.STARTED && startedAtMillis == 0)
+            startedAtMillis = System.currentTimeMillis();
+        else if (phase == ScanPhase.COMPLETED)
+            completedAtMillis = System.currentTimeMillis();
+        save();
+    }
+
+    /**
+     * marks the build as having ended normally or been aborted, so its scan is not picked up by
+     * later builds. Not called when the build is interrupted by a controller restart
+     * @throws IOException if the build cannot be saved
+     */
+    public synchronized void finish() throws IOException {
+        if (isFinished)
+            return;
+        isFinished = true;
+        save();
+    }
+
+    private void save() throws IOException {
+        if (Objects.nonNull(run))
+            run.save();
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "AppSpider Scan";
+    }
+
+    @Override
+    public String getUrlName() {
+        return null;
+    }
+}
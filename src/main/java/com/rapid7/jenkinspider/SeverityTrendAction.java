@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.jenkinspider;
+
+import com.rapid7.appspider.Severity;
+import com.rapid7.appspider.SeverityTrendStore;
+import com.rapid7.appspider.datatransferobjects.TrendRecord;
+import hudson.model.Action;
+import hudson.model.Job;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * charts the number of findings of each severity over the recent builds of a job from the job's
+ * {@link SeverityTrendStore}, the chart is rendered as inline SVG so no report is read to draw it
+ */
+public class SeverityTrendAction implements Action {
+
+    static final String TREND_FILE = "appspider-severity-trend.bin";
+    static final int MAX_CHART_BUILDS = 5000;
+    static final int MAX_TABLE_BUILDS = 50;
+
+    private static final Logger LOGGER = Logger.getLogger("appspider-plugin");
+    private static final int CHART_WIDTH = 600;
+    private static final int CHART_HEIGHT = 200;
+    private static final Map<Severity, String> COLOURS = Map.of(
+        Severity.CRITICAL, "#8b0000",
+        Severity.HIGH, "#d32f2f",
+        Severity.MEDIUM, "#f57c00",
+        Severity.LOW, "#fbc02d",
+        Severity.INFORMATIONAL, "#1976d2");
+
+    private final Job<?, ?> job;
+
+    public SeverityTrendAction(Job<?, ?> job) {
+        this.job = job;
+    }
+
+    /**
+     * @param job the job whose builds are recorded
+     * @return the store of job's trend records, kept alongside the job's builds
+     */
+    public static SeverityTrendStore getTrendStore(Job<?, ?> job) {
+        return SeverityTrendStore.forFile(job.getRootDir().toPath().resolve(TREND_FILE));
+    }
+
+    /**
+     * @return records of the most recent builds, oldest first
+     */
+    public List<TrendRecord> getRecords() {
+        try {
+            return getTrendStore(job).readLatest(MAX_CHART_BUILDS);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to read AppSpider severity trend of " + job.getFullName(), e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * @return records of the builds shown in the table, newest first
+     */
+    public List<TrendRecord> getRecentRecords() {
+        List<TrendRecord> records = getRecords();
+        List<TrendRecord> recent = new ArrayList<>(records.subList(Math.max(0, records.size() - MAX_TABLE_BUILDS), records.size()));
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    public Severity[] getSeverities() {
+        return Severity.values();
+    }
+
+    /**
+     * @return SVG chart of the recorded builds, empty if no builds have been recorded
+     */
+    public String getChartSvg() {
+        return renderChart(getRecords(), CHART_WIDTH, CHART_HEIGHT);
+    }
+
+    /**
+     * renders one line per severity with builds spaced evenly along the x axis, so a gap in build
+     * numbers doesn't leave a gap in the chart
+     */
+    static String renderChart(List<TrendRecord> records, int width, int height) {
+        if (records.isEmpty())
+            return "";
+        int max = 1;
+        for (TrendRecord record : records)
+            for (Severity severity : Severity.values())
+                max = Math.max(max, record.getCount(severity));
+
+        double xStep = records.size() > 1 ? (double) width / (records.size() - 1) : 0;
+        StringBuilder svg = new StringBuilder(64 + records.size() * Severity.values().length * 16);
+        svg.append(String.format("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\" viewBox=\"0 0 %d %d\">",
+            width, height, width, height));
+        for (Severity severity : Severity.values()) {
+            svg.append("<polyline fill=\"none\" stroke-width=\"1.5\" stroke=\"").append(COLOURS.get(severity)).append("\" points=\"");
+            for (int i = 0; i < records.size(); i++) {
+                double y = height - (double) records.get(i).getCount(severity) * height / max;
+                svg.append(String.format(Locale.ROOT, "%.1f,%.1f ", i * xStep, y));
+            }
+            svg.append("\"><title>").append(severity).append("</title></polyline>");
+        }
+        return svg.append("</svg>").toString();
+    }
+
+    public String getColour(Severity severity) {
+        return COLOURS.get(severity);
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "graph.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "AppSpider Severity Trend";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "appspider-trend";
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * creates the executors used for work which spends most of its time waiting, such as polling scans
+ * and blocking HTTP requests
+ *
+ * <p>
+ * This is the Java 21 implementation, loaded in place of the Java 11 one from the multi-release jar.
+ * Every task runs on its own virtual thread, so a waiting task holds no platform thread and the
+ * number of carrier threads stays bounded however many tasks are waiting.
+ * </p>
+ *
+ * <p>
+ * Blocking requests made through Apache HttpClient 4 hold monitors while they wait, and before
+ * Java 24 a virtual thread blocked while holding a monitor pins its carrier thread. Such requests
+ * occupy a carrier each for as long as they block, so they gain nothing from running here.
+ * </p>
+ */
+public final class ScanExecutors {
+
+    private ScanExecutors() {
+    }
+
+    /**
+     * @return true if executors run tasks on virtual threads; otherwise, false
+     */
+    public static boolean isUsingVirtualThreads() {
+        return true;
+    }
+
+    /**
+     * creates an executor running at most maxConcurrency tasks at once
+     * @param name prefix of the names of the executor's threads
+     * @param maxConcurrency maximum number of tasks running at once
+     * @return new ExecutorService which must be shut down by the caller
+     * @throws IllegalArgumentException if name is null or maxConcurrency is less than 1
+     */
+    public static ExecutorService newBoundedExecutor(String name, int maxConcurrency) {
+        if (Objects.isNull(name))
+            throw new IllegalArgumentException("name cannot be null");
+        if (maxConcurrency < 1)
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        return new BoundedExecutor(newUnboundedExecutor(name), maxConcurrency);
+    }
+
+    /**
+     * creates an executor running every task as soon as it is submitted
+     * @param name prefix of the names of the executor's threads
+     * @return new ExecutorService which must be shut down by the caller unless it lives as long as the JVM
+     * @throws IllegalArgumentException if name is null
+     */
+    public static ExecutorService newUnboundedExecutor(String name) {
+        if (Objects.isNull(name))
+            throw new IllegalArgumentException("name cannot be null");
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+    }
+
+    /**
+     * starts a virtual thread per task, each waiting for a permit before running so that no more
+     * than maxConcurrency tasks run at once
+     */
+    private static final class BoundedExecutor extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+
+        private BoundedExecutor(ExecutorService delegate, int maxConcurrency) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(maxConcurrency, true);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class AsyncHttpClientServiceTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private AsyncHttpClientService service;
+    private final List<String> requestBodies = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger statusRequests = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/Scan/GetScanStatus", exchange -> {
+            int attempt = statusRequests.incrementAndGet();
+            String query = exchange.getRequestURI().getQuery();
+            if (query.contains("unavailable") && attempt == 1) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+                respond(exchange, 503, "text/plain", "busy");
+                return;
+            }
+            respond(exchange, 200, "application/json", new JSONObject().put("IsSuccess", true).put("Status", "Running").toString());
+        });
+        server.createContext("/Scan/RunScan", exchange -> {
+            requestBodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            respond(exchange, 200, "application/json", new JSONObject().put("IsSuccess", true).toString());
+        });
+        server.createContext("/Report/GetReportZip", exchange -> respond(exchange, 200, "application/zip", "zip-content"));
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        LoggerFacade logger = mock(LoggerFacade.class);
+        service = AsyncHttpClientService.createInstanceOrThrow(HttpClient.newHttpClient(), ContentHelper.createInstanceOrThrow(logger), logger);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void executeJsonRequestReturnsParsedResponse() {
+        Optional<JSONObject> response = service.executeJsonRequest(
+            service.buildGetRequestUsingFormUrlEncoding(baseUrl + "/Scan/GetScanStatus", "token", new BasicNameValuePair("scanId", "1")).get());
+
+        assertTrue(response.isPresent());
+        assertEquals("Running", response.get().getString("Status"));
+    }
+
+    @Test
+    void concurrentRequestsCompleteWithoutBlockingCaller() {
+        List<CompletableFuture<Optional<JSONObject>>> responses = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            responses.add(service.executeJsonRequestAsync(
+                service.buildGetRequestUsingFormUrlEncoding(baseUrl + "/Scan/GetScanStatus", "token", new BasicNameValuePair("scanId", String.valueOf(i))).get()));
+
+        responses.forEach(response -> assertTrue(response.join().isPresent()));
+        assertEquals(10, statusRequests.get());
+    }
+
+    @Test
+    void postSendsFormEntity() {
+        HttpPost request = service.buildPostRequestUsingFormUrlEncoding(baseUrl + "/Scan/RunScan", "token", new BasicNameValuePair("configId", "abc")).get();
+
+        assertTrue(service.executeJsonRequest(request).isPresent());
+        assertEquals(List.of("configId=abc"), requestBodies);
+    }
+
+    @Test
+    void postStreamsLargeEntityInFull() {
+        String body = "x".repeat(EntityPipe.CHUNK_SIZE * EntityPipe.MAX_CHUNKS * 8 + 1);
+        HttpPost request = new HttpPost(baseUrl + "/Scan/RunScan");
+        request.setEntity(new StringEntity(body, StandardCharsets.UTF_8));
+
+        assertTrue(service.executeJsonRequest(request).isPresent());
+        assertEquals(List.of(body), requestBodies);
+    }
+
+    @Test
+    void executeEntityRequestReturnsBody() throws IOException {
+        Optional<HttpEntity> entity = service.executeEntityRequest(
+            service.buildGetRequestUsingFormUrlEncoding(baseUrl + "/Report/GetReportZip", "token").get());
+
+        assertTrue(entity.isPresent());
+        assertEquals("zip-content", EntityUtils.toString(entity.get()));
+    }
+
+    @Test
+    void retriesUnavailableResponses() {
+        Optional<JSONObject> response = service.withRetries(2).executeJsonRequest(
+            service.buildGetRequestUsingFormUrlEncoding(baseUrl + "/Scan/GetScanStatus", "token", new BasicNameValuePair("scanId", "unavailable")).get());
+
+        assertTrue(response.isPresent());
+        assertEquals(2, statusRequests.get());
+    }
+
+    @Test
+    void failedRequestReturnsEmpty() {
+        server.stop(0);
+
+        assertFalse(service.executeJsonRequest(
+            service.buildGetRequestUsingFormUrlEncoding(baseUrl + "/Scan/GetScanStatus", "token").get()).isPresent());
+    }
+
+    private static void respond(com.sun.net.httpserver.HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, content.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(content);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private long now;
+    private RecordingLogger log;
+    private ServerGuardSettings settings;
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        now = 0;
+        log = new RecordingLogger();
+        settings = new ServerGuardSettings(4, 50, 5, 30);
+        breaker = CircuitBreaker.createInstanceOrThrow("appspider.rapid7.com", settings, () -> now);
+    }
+
+    @Test
+    void staysClosedBelowMinimumRequests() {
+        for (int i = 0; i < settings.getMinimumRequests() - 1; i++) {
+            assertTrue(breaker.tryAcquirePermission(log));
+            breaker.onResult(FAST, true, log);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(log.messages.isEmpty());
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        recordResults(settings.getMinimumRequests() / 2, false);
+        recordResults(settings.getMinimumRequests() / 2, true);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission(log));
+        assertEquals(1, breaker.getRejectedCount());
+        assertEquals(30, breaker.getRemainingOpenSeconds());
+        assertTrue(log.messages.get(0).contains("from CLOSED to OPEN"));
+        assertTrue(log.consoleMessages.isEmpty());
+    }
+
+    @Test
+    void opensWhenSlowRequestRateReachesThreshold() {
+        long slow = TimeUnit.SECONDS.toNanos(settings.getSlowRequestSeconds());
+        for (int i = 0; i < settings.getMinimumRequests(); i++) {
+            assertTrue(breaker.tryAcquirePermission(log));
+            breaker.onResult(slow, false, log);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(log.messages.get(0).contains("took longer than"));
+    }
+
+    @Test
+    void halfOpensAfterOpenPeriodAndClosesWhenProbesSucceed() {
+        openBreaker();
+        now += TimeUnit.SECONDS.toNanos(settings.getOpenStateSeconds());
+
+        for (int i = 0; i < settings.getHalfOpenProbes(); i++)
+            assertTrue(breaker.tryAcquirePermission(log));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission(log));
+
+        for (int i = 0; i < settings.getHalfOpenProbes(); i++)
+            breaker.onResult(FAST, false, log);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(3, breaker.getTransitionCount());
+    }
+
+    @Test
+    void reopensWhenProbeFails() {
+        openBreaker();
+        now += TimeUnit.SECONDS.toNanos(settings.getOpenStateSeconds());
+
+        assertTrue(breaker.tryAcquirePermission(log));
+        breaker.onResult(FAST, true, log);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission(log));
+    }
+
+    @Test
+    void releasedProbePermissionCanBeReacquired() {
+        openBreaker();
+        now += TimeUnit.SECONDS.toNanos(settings.getOpenStateSeconds());
+        for (int i = 0; i < settings.getHalfOpenProbes(); i++)
+            assertTrue(breaker.tryAcquirePermission(log));
+
+        breaker.releasePermission();
+
+        assertTrue(breaker.tryAcquirePermission(log));
+    }
+
+    @Test
+    void createInstanceOrThrowThrowsWhenSettingsIsNull() {
+        assertThrows(IllegalArgumentException.class, () -> CircuitBreaker.createInstanceOrThrow("name", null));
+    }
+
+    private void openBreaker() {
+        recordResults(settings.getMinimumRequests(), true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void recordResults(int count, boolean isFailure) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(breaker.tryAcquirePermission(log));
+            breaker.onResult(FAST, isFailure, log);
+        }
+    }
+
+    private static final class RecordingLogger implements LoggerFacade {
+        private final List<String> messages = new ArrayList<>();
+        private final List<String> consoleMessages = new ArrayList<>();
+
+        @Override
+        public void println(String message) {
+            consoleMessages.add(message);
+        }
+        @Override
+        public void info(String message) {
+        }
+        @Override
+        public void warn(String message) {
+            messages.add(message);
+        }
+        @Override
+        public void severe(String message) {
+        }
+        @Override
+        public void verbose(String message) {
+        }
+        @Override
+        public boolean isInfoEnabled() {
+            return false;
+        }
+        @Override
+        public boolean isWarnEnabled() {
+            return false;
+        }
+        @Override
+        public boolean isSevereEnabled() {
+            return false;
+        }
+        @Override
+        public boolean isVerboseEnabled() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.ClientIdNamePair;
+import com.rapid7.appspider.datatransferobjects.ScanConfigReference;
+import com.rapid7.appspider.datatransferobjects.ScanResult;
+import com.rapid7.appspider.models.AuthenticationModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class DastScanStartupTest {
+
+    private static final long LATENCY_MILLIS = 200;
+    private static final AuthenticationModel AUTH_MODEL = new AuthenticationModel("user", "password");
+
+    private final LoggerFacade log = mock(LoggerFacade.class);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void independentLookupsOverlapOnceLoggedIn() throws InterruptedException {
+        LatencyInjectingClient client = new LatencyInjectingClient();
+        DastScan scan = DastScan
+            .createInstanceOrThrow(client, new ScanSettings("config", "", true, false, "", "", ""), log)
+            .withScanQueue(1, 0);
+
+        long started = System.nanoTime();
+        assertTrue(scan.process(AUTH_MODEL));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        // login, config and engine groups, then login again once a slot is acquired and run
+        long sequentialMillis = client.calls.get() * LATENCY_MILLIS;
+        assertEquals(5, client.calls.get());
+        assertEquals(2, client.maxInFlight.get());
+        assertTrue(elapsedMillis < sequentialMillis - LATENCY_MILLIS / 2,
+            "startup took " + elapsedMillis + " ms, sequential calls take " + sequentialMillis + " ms");
+    }
+
+    @Test
+    void unchangedNewConfigIsLookedUpAlongsideEngineGroups() throws IOException, InterruptedException {
+        LatencyInjectingClient client = new LatencyInjectingClient();
+        ScanConfigDigestStore digestStore = ScanConfigDigestStore.createInstanceOrThrow(
+            PropertiesStore.forFile(directory.resolve("digests.properties")));
+        digestStore.recordSaved(client.getUrl(), "new-config", client.getScanConfigDigest("new-config", null, "group-id").orElseThrow());
+        DastScan scan = DastScan
+            .createInstanceOrThrow(client, new ScanSettings("", "", true, false, "new-config", "https://target.example.com", "group"), log)
+            .withConfigDigestStore(digestStore);
+
+        assertTrue(scan.process(AUTH_MODEL));
+
+        assertEquals(0, client.saves.get());
+        assertEquals(2, client.maxInFlight.get());
+    }
+
+    private static final class LatencyInjectingClient implements EnterpriseClient {
+        private final String url = "https://" + UUID.randomUUID() + ".example.com/rest/v1";
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private final AtomicInteger saves = new AtomicInteger();
+
+        private <T> T respond(T value) {
+            calls.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                TimeUnit.MILLISECONDS.sleep(LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return value;
+        }
+
+        @Override
+        public String getUrl() {
+            return url;
+        }
+
+        @Override
+        public Optional<String> login(AuthenticationModel authModel) {
+            return respond(Optional.of("token"));
+        }
+
+        @Override
+        public boolean testAuthentication(AuthenticationModel authModel) {
+            return login(authModel).isPresent();
+        }
+
+        @Override
+        public Optional<String[]> getEngineGroupNamesForClient(String authToken) {
+            return respond(Optional.of(new String[] {"group"}));
+        }
+
+        @Override
+        public Optional<String> getEngineGroupIdFromName(String authToken, String engineGroupName) {
+            return respond(Optional.of("group-id"));
+        }
+
+        @Override
+        public Optional<Map<String, String>> getEngineGroupIdsByName(String authToken) {
+            return respond(Optional.of(Map.of("group", "group-id")));
+        }
+
+        @Override
+        public ScanResult runScanByConfigName(String authToken, String configName) {
+            respond(null);
+            return runScanByConfigId(authToken, "config-id");
+        }
+
+        @Override
+        public ScanResult runScanByConfigId(String authToken, String configId) {
+            return respond(new ScanResult(true, "scan-id"));
+        }
+
+        @Override
+        public boolean cancelScan(String authToken, String scanId) {
+            return respond(true);
+        }
+
+        @Override
+        public Optional<String> getScanStatus(String authToken, String scanId) {
+            return respond(Optional.of("Completed"));
+        }
+
+        @Override
+        public boolean isScanFinished(String authToken, String scanId) {
+            return respond(true);
+        }
+
+        @Override
+        public boolean hasReport(String authToken, String scanId) {
+            return respond(true);
+        }
+
+        @Override
+        public Optional<String[]> getConfigNames(String authToken) {
+            return respond(Optional.of(new String[] {"config"}));
+        }
+
+        @Override
+        public Optional<String> getEngineGroupIdForConfig(String authToken, String configName) {
+            return respond(Optional.of("group-id"));
+        }
+
+        @Override
+        public Optional<ScanConfigReference> getScanConfigReference(String authToken, String configName) {
+            return respond(Optional.of(new ScanConfigReference("config-id", Optional.of("group-id"))));
+        }
+
+        @Override
+        public boolean saveConfig(String authToken, String name, URL url, String engineGroupId) {
+            saves.incrementAndGet();
+            return respond(true);
+        }
+
+        @Override
+        public Optional<String> getScanConfigDigest(String name, URL url, String engineGroupId) {
+            return Optional.of(name + ":" + engineGroupId);
+        }
+
+        @Override
+        public Optional<String> getVulnerabilitiesSummaryXml(String authToken, String scanId) {
+            return respond(Optional.empty());
+        }
+
+        @Override
+        public Optional<InputStream> getReportZip(String authToken, String scanId) {
+            return respond(Optional.empty());
+        }
+
+        @Override
+        public Optional<List<ClientIdNamePair>> getClientNameIdPairs(String authToken) {
+            return respond(Optional.empty());
+        }
+    }
+}
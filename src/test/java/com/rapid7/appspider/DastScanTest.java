@@ -0,0 +1,245 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.models.AuthenticationModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DastScanTest {
+
+    private static final AuthenticationModel AUTH_MODEL = new AuthenticationModel("user", "password");
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final ConsoleLogger log = new ConsoleLogger();
+    private final StubEnterpriseClient client = new StubEnterpriseClient();
+    private final ExecutorService builds = Executors.newCachedThreadPool();
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void tearDown() {
+        builds.shutdownNow();
+    }
+
+    @Test
+    void joinedScanIsReusedOnceCompleted() throws Exception {
+        client.scanRelease = new CountDownLatch(1);
+        DastScan owner = reusingScan();
+        Future<Boolean> ownerResult = builds.submit(() -> owner.process(AUTH_MODEL));
+        awaitCalls("runScan", 1);
+        CountDownLatch joined = new CountDownLatch(1);
+        DastScan joiner = reusingScan().withProgressListener((scanId, phase) -> {
+            if (phase == ScanPhase.STARTED)
+                joined.countDown();
+        });
+        Future<Boolean> joinerResult = builds.submit(() -> joiner.process(AUTH_MODEL));
+        assertTrue(joined.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        client.scanRelease.countDown();
+
+        assertTrue(ownerResult.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(joinerResult.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(owner.getId(), joiner.getId());
+        DastScan later = reusingScan();
+        assertTrue(later.process(AUTH_MODEL));
+        assertEquals(owner.getId(), later.getId());
+        assertEquals(1, client.count("runScan"));
+    }
+
+    @Test
+    void stoppedScanIsNotReused() throws Exception {
+        client.scanOutcomes.add("Stopped");
+        DastScan stopped = reusingScan();
+        assertTrue(stopped.process(AUTH_MODEL));
+
+        DastScan later = reusingScan();
+        assertTrue(later.process(AUTH_MODEL));
+
+        assertEquals(2, client.count("runScan"));
+        assertNotEquals(stopped.getId(), later.getId());
+    }
+
+    @Test
+    void joinerStartsItsOwnScanWhenJoinedScanStops() throws Exception {
+        client.scanOutcomes.add("Stopped");
+        client.scanRelease = new CountDownLatch(1);
+        DastScan owner = reusingScan();
+        Future<Boolean> ownerResult = builds.submit(() -> owner.process(AUTH_MODEL));
+        awaitCalls("runScan", 1);
+        CountDownLatch joined = new CountDownLatch(1);
+        DastScan joiner = reusingScan().withProgressListener((scanId, phase) -> {
+            if (phase == ScanPhase.STARTED)
+                joined.countDown();
+        });
+        Future<Boolean> joinerResult = builds.submit(() -> joiner.process(AUTH_MODEL));
+        assertTrue(joined.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        client.scanRelease.countDown();
+
+        assertTrue(ownerResult.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(joinerResult.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, client.count("runScan"));
+        assertNotEquals(owner.getId(), joiner.getId());
+        DastScan later = reusingScan();
+        assertTrue(later.process(AUTH_MODEL));
+        assertEquals(joiner.getId(), later.getId());
+    }
+
+    @Test
+    void abortedBuildCancelsItsScan() throws Exception {
+        client.scanRelease = new CountDownLatch(1);
+        DastScan scan = waitingScan().withAbortCheck(() -> true);
+
+        assertTrue(interruptWhileWaiting(scan));
+
+        String scanId = scan.getId().orElseThrow();
+        assertEquals(1, client.count("cancelScan"));
+        assertTrue(client.cancelledScanIds.contains(scanId));
+        assertTrue(log.contains(String.format("Scan %s cancelled, status: [Cancelled]", scanId)), log.toString());
+    }
+
+    @Test
+    void interruptedBuildWhichWasNotAbortedLeavesItsScanRunning() throws Exception {
+        client.scanRelease = new CountDownLatch(1);
+        DastScan scan = waitingScan().withAbortCheck(() -> false);
+
+        assertTrue(interruptWhileWaiting(scan));
+
+        String scanId = scan.getId().orElseThrow();
+        assertEquals(0, client.count("cancelScan"));
+        assertTrue(log.contains(String.format("scan %s is left running", scanId)), log.toString());
+    }
+
+    @Test
+    void resumableScanIsReattachedToWhenKnown() throws Exception {
+        client.outcomesByScanId.put("earlier-scan", "Completed");
+        DastScan scan = waitingScan().withResumableScan("earlier-scan");
+
+        assertTrue(scan.process(AUTH_MODEL));
+
+        assertEquals("earlier-scan", scan.getId().orElseThrow());
+        assertEquals(0, client.count("runScan"));
+    }
+
+    @Test
+    void newScanIsStartedWhenResumableScanIsUnknown() throws Exception {
+        DastScan scan = waitingScan().withResumableScan("forgotten-scan");
+
+        assertTrue(scan.process(AUTH_MODEL));
+
+        assertNotEquals("forgotten-scan", scan.getId().orElseThrow());
+        assertEquals(1, client.count("runScan"));
+        assertTrue(log.contains("Scan forgotten-scan started by an earlier build was not found"), log.toString());
+    }
+
+    /**
+     * runs scan on a thread of its own and interrupts it once it polls the status of its scan
+     * @return true if process threw InterruptedException
+     */
+    private boolean interruptWhileWaiting(DastScan scan) throws InterruptedException {
+        AtomicBoolean isInterrupted = new AtomicBoolean();
+        Thread build = new Thread(() -> {
+            try {
+                scan.process(AUTH_MODEL);
+            } catch (InterruptedException e) {
+                isInterrupted.set(true);
+            }
+        });
+        build.start();
+        awaitCalls("getScanStatus", 1);
+        build.interrupt();
+        build.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertFalse(build.isAlive(), log.toString());
+        return isInterrupted.get();
+    }
+
+    // sleeping for 0 seconds doesn't notice interrupts, the wait has to be a real one
+    private DastScan waitingScan() {
+        return DastScan.createInstanceOrThrow(client, new ScanSettings("config", "", true, true, "", "", "").withStatusPollTime(1), log);
+    }
+
+    private DastScan reusingScan() {
+        ScanResultCache cache = ScanResultCache.createInstanceOrThrow(PropertiesStore.forFile(directory.resolve("scans.properties")));
+        return DastScan
+            .createInstanceOrThrow(client, new ScanSettings("config", "", true, true, "", "", "").withStatusPollTime(0), log)
+            .withResultReuse(cache, "commit", Duration.ofHours(1));
+    }
+
+    private void awaitCalls(String call, long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (client.count(call) < count) {
+            if (System.nanoTime() > deadline)
+                fail(String.format("%s was called %d times, expected %d", call, client.count(call), count));
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    private static final class ConsoleLogger implements LoggerFacade {
+        private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+
+        boolean contains(String text) {
+            synchronized (messages) {
+                return messages.stream().anyMatch(message -> message.contains(text));
+            }
+        }
+
+        @Override
+        public String toString() {
+            synchronized (messages) {
+                return String.join(System.lineSeparator(), messages);
+            }
+        }
+
+        @Override
+        public void println(String message) {
+            messages.add(message);
+        }
+        @Override
+        public void info(String message) {
+        }
+        @Override
+        public void warn(String message) {
+        }
+        @Override
+        public void severe(String message) {
+        }
+        @Override
+        public void verbose(String message) {
+        }
+        @Override
+        public boolean isInfoEnabled() {
+            return false;
+        }
+        @Override
+        public boolean isWarnEnabled() {
+            return false;
+        }
+        @Override
+        public boolean isSevereEnabled() {
+            return false;
+        }
+        @Override
+        public boolean isVerboseEnabled() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineGroupLoadTest {
+
+    private final EngineGroupLoad load = new EngineGroupLoad();
+    private final Map<String, String> groups = new TreeMap<>(Map.of("east", "east-id", "west", "west-id"));
+
+    @Test
+    void leastLoadedGroupIsChosen() {
+        load.reserve("east-id", "east");
+
+        EngineGroupLoad.Lease lease = load.reserveLeastLoaded(groups).orElseThrow();
+
+        assertEquals("west-id", lease.getEngineGroupId());
+        assertEquals("west", lease.getEngineGroupName());
+        assertEquals(1, load.getInFlightCount("west-id"));
+    }
+
+    @Test
+    void equallyLoadedGroupsAreChosenInTurn() {
+        EngineGroupLoad.Lease first = load.reserveLeastLoaded(groups).orElseThrow();
+        first.close();
+        EngineGroupLoad.Lease second = load.reserveLeastLoaded(groups).orElseThrow();
+
+        assertNotEquals(first.getEngineGroupId(), second.getEngineGroupId());
+    }
+
+    @Test
+    void closingLeaseStopsCountingScanOnce() {
+        EngineGroupLoad.Lease lease = load.reserve("east-id", "east");
+        load.reserve("east-id", "east");
+
+        lease.close();
+        lease.close();
+
+        assertEquals(1, load.getInFlightCount("east-id"));
+    }
+
+    @Test
+    void noCandidatesChoosesNothing() {
+        assertTrue(load.reserveLeastLoaded(Map.of()).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> load.reserveLeastLoaded(null));
+    }
+}
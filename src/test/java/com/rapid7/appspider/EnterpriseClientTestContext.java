@@ -34,6 +34,7 @@ public class EnterpriseClientTestContext implements AutoCloseable {
     private static final String GET_CONFIGS = "/Config/GetConfigs";
     private static final String RUN_SCAN = "/Scan/RunScan";
     private static final String GET_SCAN_STATUS = "/Scan/GetScanStatus";
+    private static final String CANCEL_SCAN = "/Scan/CancelScan";
     private static final String IS_SCAN_FINISHED = "/Scan/IsScanFinished";
     private static final String HAS_REPORT = "/Scan/HasReport";
     private static final String SAVE_CONFIG = "/Config/SaveConfig";
@@ -183,7 +184,7 @@ public class EnterpriseClientTestContext implements AutoCloseable {
 
     public EnterpriseClientTestContext configureGetConfigs(boolean isSuccess) throws IOException {
         ArgumentMatcher<HttpRequestBase> getConfigsRequest = request -> request instanceof HttpGet &&  request.getURI().toString().equals(url + GET_CONFIGS);
-        HttpResponse response = getJsonArrayResponse(isSuccess, "Configs", getJsonFromEntries(getEntryFrom("Id", configId), getEntryFrom("Name", configName)));
+        HttpResponse response = getJsonArrayResponse(isSuccess, "Configs", getJsonFromEntries(getEntryFrom("Id", configId), getEntryFrom("Name", configName), getEntryFrom("EngineGroupId", getFirstEngineId())));
         when(mockHttpClient.execute(argThat(getConfigsRequest))).thenReturn(response);
         return this;
     }
@@ -199,6 +200,12 @@ public class EnterpriseClientTestContext implements AutoCloseable {
         when(mockHttpClient.execute(argThat(getConfigsRequest))).thenReturn(response);
         return this;
     }
+    public EnterpriseClientTestContext configureCancelScan(boolean apiCallIsSuccess, boolean isSuccess) throws IOException {
+        ArgumentMatcher<HttpRequestBase> cancelScanRequest = request -> request instanceof HttpPost &&  request.getURI().toString().startsWith(url + CANCEL_SCAN);
+        HttpResponse response = getMockJsonResponseFromJSON(apiCallIsSuccess, getJsonFromEntries(getEntryFrom("IsSuccess", isSuccess)));
+        when(mockHttpClient.execute(argThat(cancelScanRequest))).thenReturn(response);
+        return this;
+    }
     public EnterpriseClientTestContext configureIsScanFinished(boolean apiCallIsSuccess, boolean isSuccess, boolean resultIsSuccess) throws IOException {
         ArgumentMatcher<HttpRequestBase> getConfigsRequest = request -> request instanceof HttpGet &&  request.getURI().toString().startsWith(url + IS_SCAN_FINISHED);
         HttpResponse response = getMockJsonResponseFromJSON(apiCallIsSuccess, getJsonFromEntries(getEntryFrom("IsSuccess", isSuccess), getEntryFrom("Result", resultIsSuccess)));
@@ -103,6 +103,26 @@ class EnterpriseRestClientTest {
         assertFalse(engineId.isPresent());
     }
 
+    @Test
+    void getEngineGroupIdsByNameCorrectResultReturnedWhenApiCallSucceeds() throws IOException {
+        context.arrangeExpectedValues().configureGetAllEngineGroups(true).configureEnterpriseClient();
+
+        Optional<Map<String, String>> engineGroupIds = context.getEnterpriseClient()
+                .getEngineGroupIdsByName(context.getExpectedAuthToken());
+
+        assertEquals(context.getExpectedEngineGroupsIdsByName(), engineGroupIds.orElse(Collections.emptyMap()));
+    }
+
+    @Test
+    void getEngineGroupIdsByNameIsNotPresentWhenApiCallFails() throws IOException {
+        context.arrangeExpectedValues().configureGetAllEngineGroups(false).configureEnterpriseClient();
+
+        Optional<Map<String, String>> engineGroupIds = context.getEnterpriseClient()
+                .getEngineGroupIdsByName(context.getExpectedAuthToken());
+
+        assertFalse(engineGroupIds.isPresent());
+    }
+
     @Test
     void getEngineGroupNamesForClientIsPresent() throws IOException {
         context.arrangeExpectedValues().configureGetEngineGroupsForClient(true).configureEnterpriseClient();
@@ -180,6 +200,26 @@ class EnterpriseRestClientTest {
         assertFalse(scanResult.isSuccess());
     }
 
+    @Test
+    void getEngineGroupIdForConfigCorrectResultReturnedWhenConfigFound() throws IOException {
+        context.arrangeExpectedValues().configureGetConfigs(true).configureEnterpriseClient();
+
+        Optional<String> engineGroupId = context.getEnterpriseClient().getEngineGroupIdForConfig(context.getExpectedAuthToken(),
+                context.getConfigName());
+
+        assertEquals(context.getFirstEngineId(), engineGroupId.orElse(""));
+    }
+
+    @Test
+    void getEngineGroupIdForConfigIsNotPresentWhenApiCallFails() throws IOException {
+        context.arrangeExpectedValues().configureGetConfigs(false).configureEnterpriseClient();
+
+        Optional<String> engineGroupId = context.getEnterpriseClient().getEngineGroupIdForConfig(context.getExpectedAuthToken(),
+                context.getConfigName());
+
+        assertFalse(engineGroupId.isPresent());
+    }
+
     @Test
     void getScanStatusIsPresentWhenApiCallSuceeds() throws IOException {
         context.arrangeExpectedValues().configureGetScanStatus(true).configureEnterpriseClient();
@@ -190,6 +230,36 @@ class EnterpriseRestClientTest {
         assertTrue(status.isPresent());
     }
 
+    @Test
+    void cancelScanIsTrueWhenIsSuccessIsTrue() throws IOException {
+        context.arrangeExpectedValues().configureCancelScan(true, true).configureEnterpriseClient();
+
+        boolean isCancelled = context.getEnterpriseClient().cancelScan(context.getExpectedAuthToken(),
+                context.getExpectedScanId());
+
+        assertTrue(isCancelled);
+    }
+
+    @Test
+    void cancelScanIsFalseWhenIsSuccessIsFalse() throws IOException {
+        context.arrangeExpectedValues().configureCancelScan(true, false).configureEnterpriseClient();
+
+        boolean isCancelled = context.getEnterpriseClient().cancelScan(context.getExpectedAuthToken(),
+                context.getExpectedScanId());
+
+        assertFalse(isCancelled);
+    }
+
+    @Test
+    void cancelScanIsFalseWhenApiCallFails() throws IOException {
+        context.arrangeExpectedValues().configureCancelScan(false, true).configureEnterpriseClient();
+
+        boolean isCancelled = context.getEnterpriseClient().cancelScan(context.getExpectedAuthToken(),
+                context.getExpectedScanId());
+
+        assertFalse(isCancelled);
+    }
+
     @Test
     void isScanFinishedIsTrueWhenResultAndIsSuccessAreTrue() throws IOException {
         context.arrangeExpectedValues().configureIsScanFinished(true, true, true).configureEnterpriseClient();
@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityPipeTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void readsEntityLargerThanPipeInFull() throws IOException {
+        byte[] content = new byte[EntityPipe.CHUNK_SIZE * EntityPipe.MAX_CHUNKS * 4 + 7];
+        new Random(42).nextBytes(content);
+
+        try (InputStream in = EntityPipe.open(new ByteArrayEntity(content), executor)) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void writeFailureFailsReader() {
+        InputStream in = EntityPipe.open(new FailingEntity(), executor);
+
+        IOException e = assertThrows(IOException.class, in::readAllBytes);
+        assertTrue(e.getMessage().contains("disk gone"));
+    }
+
+    @Test
+    void closingReaderReleasesWriter() throws Exception {
+        FailingEntity entity = new FailingEntity();
+        entity.isEndless = true;
+        InputStream in = EntityPipe.open(entity, executor);
+        assertTrue(in.read() >= 0);
+
+        in.close();
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private static final class FailingEntity extends AbstractHttpEntity {
+        private volatile boolean isEndless;
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public InputStream getContent() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            byte[] chunk = new byte[1024];
+            do {
+                out.write(chunk);
+            } while (isEndless);
+            out.flush();
+            throw new IOException("disk gone");
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.FindingsPage;
+import com.rapid7.appspider.datatransferobjects.IndexedFindings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FindingsIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void updateReplacesFindingsOfTheSameJobAndConfig() throws IOException {
+        FindingsIndex index = FindingsIndex.forFile(directory.resolve("index.properties"));
+        index.update(findings("job", "config", 1, Map.of(Severity.HIGH, 3)));
+        index.update(findings("job", "config", 2, Map.of(Severity.HIGH, 1)));
+        index.update(findings("job", "other", 2, Map.of()));
+
+        FindingsPage page = index.query(FindingsQuery.all(), name -> true, 0, 10);
+
+        assertEquals(2, page.getTotalCount());
+        assertEquals(2, page.getItems().get(0).getBuildNumber());
+        assertEquals(1, page.getItems().get(0).getCount(Severity.HIGH));
+    }
+
+    @Test
+    void queryOrdersMostSevereFirstAndPages() throws IOException {
+        FindingsIndex index = FindingsIndex.forFile(directory.resolve("index.properties"));
+        index.update(findings("low", "config", 1, Map.of(Severity.LOW, 10)));
+        index.update(findings("critical", "config", 1, Map.of(Severity.CRITICAL, 1)));
+        index.update(findings("high", "config", 1, Map.of(Severity.HIGH, 5)));
+
+        FindingsPage first = index.query(FindingsQuery.all(), name -> true, 0, 2);
+        FindingsPage second = index.query(FindingsQuery.all(), name -> true, 2, 2);
+
+        assertEquals(List.of("critical", "high"), jobNames(first));
+        assertTrue(first.hasNext());
+        assertEquals(List.of("low"), jobNames(second));
+        assertFalse(second.hasNext());
+        assertEquals(2, second.getPageCount());
+    }
+
+    @Test
+    void queryAppliesFiltersAndVisibility() throws IOException {
+        FindingsIndex index = FindingsIndex.forFile(directory.resolve("index.properties"));
+        index.update(findings("team/web", "Production", 1, Map.of(Severity.MEDIUM, 1)));
+        index.update(findings("team/api", "Production", 1, Map.of(Severity.HIGH, 1)));
+        index.update(findings("team/admin", "Production", 1, Map.of(Severity.CRITICAL, 1)));
+        index.update(findings("other/web", "Staging", 1, Map.of(Severity.CRITICAL, 1)));
+
+        FindingsQuery query = FindingsQuery.all().withJobFilter("TEAM/").withConfigFilter("prod").withMinimumSeverity(Severity.HIGH);
+        FindingsPage page = index.query(query, name -> !name.equals("team/admin"), 0, 10);
+
+        assertEquals(List.of("team/api"), jobNames(page));
+    }
+
+    @Test
+    void findingsAreReadBackFromFileSkippingMalformedEntries() throws IOException {
+        Path file = directory.resolve("index.properties");
+        FindingsIndex.forFile(file).update(findings("job", "config|with separator", 7, Map.of(Severity.INFORMATIONAL, 2)));
+        PropertiesStore.forFile(file).put("malformed", "value");
+        // a copy is read by an index which hasn't seen the updates in memory
+        Path copy = Files.copy(file, directory.resolve("copy.properties"));
+
+        FindingsPage page = FindingsIndex.forFile(copy).query(FindingsQuery.all(), name -> true, 0, 10);
+
+        assertEquals(1, page.getTotalCount());
+        IndexedFindings findings = page.getItems().get(0);
+        assertEquals("job", findings.getJobName());
+        assertEquals("config|with separator", findings.getConfigName());
+        assertEquals(7, findings.getBuildNumber());
+        assertEquals(2, findings.getTotal());
+    }
+
+    @Test
+    void removeAndRenameApplyToJobsWithinFolders() throws IOException {
+        FindingsIndex index = FindingsIndex.forFile(directory.resolve("index.properties"));
+        index.update(findings("folder/job", "config", 1, Map.of()));
+        index.update(findings("folder/nested/job", "config", 1, Map.of()));
+        index.update(findings("folder-other", "config", 1, Map.of()));
+
+        assertEquals(2, index.renameJob("folder", "renamed"));
+        assertEquals(List.of("folder-other", "renamed/job", "renamed/nested/job"), jobNames(index.query(FindingsQuery.all(), name -> true, 0, 10)));
+
+        assertEquals(2, index.removeJob("renamed"));
+        assertEquals(List.of("folder-other"), jobNames(index.query(FindingsQuery.all(), name -> true, 0, 10)));
+    }
+
+    private static IndexedFindings findings(String job, String config, int build, Map<Severity, Integer> counts) {
+        return new IndexedFindings(job, config, build, Instant.ofEpochMilli(1000), counts);
+    }
+
+    private static List<String> jobNames(FindingsPage page) {
+        return page.getItems().stream().map(IndexedFindings::getJobName).collect(Collectors.toList());
+    }
+}
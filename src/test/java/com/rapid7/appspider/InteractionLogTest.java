@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.Interaction;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.message.BasicNameValuePair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InteractionLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void getRecentReturnsOldestFirst() {
+        InteractionLog log = new InteractionLog(3);
+        log.record(interaction(1));
+        log.record(interaction(2));
+
+        assertEquals(Arrays.asList(1, 2), attempts(log.getRecent()));
+    }
+
+    @Test
+    void recordOverwritesOldestWhenFull() {
+        InteractionLog log = new InteractionLog(3);
+        for (int attempt = 1; attempt <= 5; attempt++)
+            log.record(interaction(attempt));
+
+        assertEquals(Arrays.asList(3, 4, 5), attempts(log.getRecent()));
+    }
+
+    @Test
+    void forServerKeepsMostRecentWhenShrunk() {
+        String server = "shrink.appspider.local:443";
+        InteractionLog log = InteractionLog.forServer(server, 4);
+        for (int attempt = 1; attempt <= 4; attempt++)
+            log.record(interaction(attempt));
+
+        assertSame(log, InteractionLog.forServer(server, 2));
+        assertEquals(Arrays.asList(3, 4), attempts(log.getRecent()));
+    }
+
+    @Test
+    void forServerThrowsWhenCapacityLessThanOne() {
+        assertThrows(IllegalArgumentException.class, () -> InteractionLog.forServer("appspider.local", 0));
+    }
+
+    @Test
+    void redactedParamsHidesCredentialsAndTruncatesLongValues() throws UnsupportedEncodingException {
+        HttpPost request = new HttpPost("https://appspider.local/AppSpiderEnterprise/rest/v1/Authentication/Login?clientId=42");
+        char[] longValue = new char[100];
+        Arrays.fill(longValue, 'x');
+        request.setEntity(new UrlEncodedFormEntity(Arrays.asList(
+            new BasicNameValuePair("name", "jenkins"),
+            new BasicNameValuePair("password", "hunter2"),
+            new BasicNameValuePair("scanConfigXml", new String(longValue)))));
+
+        Map<String, String> params = InteractionLog.redactedParams(request);
+
+        assertEquals("42", params.get("clientId"));
+        assertEquals("jenkins", params.get("name"));
+        assertEquals("*****", params.get("password"));
+        assertTrue(params.get("scanConfigXml").endsWith("...(100 characters)"));
+        assertEquals(64 + "...(100 characters)".length(), params.get("scanConfigXml").length());
+    }
+
+    @Test
+    void redactedParamsListsStreamedFieldsWithoutReadingThem() {
+        HttpPost request = new HttpPost("https://appspider.local/AppSpiderEnterprise/rest/v1/Config/SaveConfig");
+        request.setEntity(new StreamingFormEntity(StandardCharsets.UTF_8)
+            .addField("Xml", writer -> fail("value should not be read"))
+            .addField("authToken", writer -> fail("value should not be read")));
+
+        Map<String, String> params = InteractionLog.redactedParams(request);
+
+        assertEquals("(streamed)", params.get("Xml"));
+        assertEquals("*****", params.get("authToken"));
+    }
+
+    @Test
+    void redactedParamsReturnsEmptyMapWithoutParameters() {
+        assertTrue(InteractionLog.redactedParams(new HttpGet("https://appspider.local/rest/v1/Scan/GetScans")).isEmpty());
+    }
+
+    @Test
+    void interactionLogFileWritesOneLinePerInteraction() throws IOException {
+        Path path = directory.resolve("interactions.jsonl");
+        InteractionLogFile file = InteractionLogFile.open(path);
+        for (int attempt = 1; attempt <= 3; attempt++)
+            file.write(interaction(attempt));
+        file.close();
+        file.write(interaction(4));
+
+        assertEquals(3, Files.readAllLines(path, StandardCharsets.UTF_8).size());
+        assertEquals(1, file.getDroppedCount());
+    }
+
+    private static Interaction interaction(int attempt) {
+        return new Interaction(Instant.now(), "appspider.local:443", "GET", "/rest/v1/Scan/GetScanStatus", attempt,
+            200, 15, 128, Collections.singletonMap("scanId", "1234"), null);
+    }
+
+    private static List<Integer> attempts(List<Interaction> interactions) {
+        return interactions.stream().map(Interaction::getAttempt).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.ClientIdNamePair;
+import com.rapid7.appspider.datatransferobjects.ScanResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonCodecTest {
+
+    private final JsonCodec[] codecs = { new OrgJsonCodec(), new JacksonStreamingCodec() };
+
+    @Test
+    void decodeTokenRequiresSuccessAndToken() throws IOException {
+        for (JsonCodec codec : codecs) {
+            assertEquals(Optional.of("token"), codec.decodeToken(json("{\"Extra\":{\"Nested\":[1,2]},\"IsSuccess\":true,\"Token\":\"token\"}")));
+            assertEquals(Optional.empty(), codec.decodeToken(json("{\"IsSuccess\":false,\"Token\":\"token\"}")));
+            assertEquals(Optional.empty(), codec.decodeToken(json("{\"IsSuccess\":true,\"Token\":\"\"}")));
+            assertEquals(Optional.empty(), codec.decodeToken(json("{\"IsSuccess\":true}")));
+        }
+    }
+
+    @Test
+    void decodeResultIsSuccessRequiresBoth() throws IOException {
+        for (JsonCodec codec : codecs) {
+            assertTrue(codec.decodeResultIsSuccess(json("{\"Result\":true,\"IsSuccess\":true}")));
+            assertFalse(codec.decodeResultIsSuccess(json("{\"Result\":false,\"IsSuccess\":true}")));
+            assertFalse(codec.decodeResultIsSuccess(json("{\"IsSuccess\":true}")));
+            assertFalse(codec.decodeIsSuccess(json("{\"IsSuccess\":\"yes\"}")));
+        }
+    }
+
+    @Test
+    void decodeStatusIgnoresNullAndEmpty() throws IOException {
+        for (JsonCodec codec : codecs) {
+            assertEquals(Optional.of("Running"), codec.decodeStatus(json("{\"Status\":\"Running\"}")));
+            assertEquals(Optional.empty(), codec.decodeStatus(json("{\"Status\":null}")));
+            assertEquals(Optional.empty(), codec.decodeStatus(json("{}")));
+        }
+    }
+
+    @Test
+    void decodeScanResultReadsNestedScanId() throws IOException {
+        for (JsonCodec codec : codecs) {
+            ScanResult result = codec.decodeScanResult(json("{\"IsSuccess\":true,\"Scan\":{\"Status\":\"Queued\",\"Id\":\"scan\"}}"));
+            assertTrue(result.isSuccess());
+            assertEquals("scan", result.getScanId());
+            assertFalse(codec.decodeScanResult(json("{\"IsSuccess\":true,\"Scan\":null}")).isSuccess());
+            assertEquals("", codec.decodeScanResult(json("{\"Scan\":{\"Id\":\"scan\"}}")).getScanId());
+        }
+    }
+
+    @Test
+    void decodeClientsSkipsIncompleteClients() throws IOException {
+        for (JsonCodec codec : codecs) {
+            Optional<List<ClientIdNamePair>> clients = codec.decodeClients(json(
+                "{\"IsSuccess\":true,\"Clients\":[{\"ClientId\":\"1\",\"ClientName\":\"one\",\"Tags\":[]},{\"ClientId\":\"2\"},{\"ClientId\":\"3\",\"ClientName\":\"three\"}]}"));
+            assertTrue(clients.isPresent());
+            assertEquals(2, clients.get().size());
+            assertEquals("three", clients.get().get(1).getName());
+            assertEquals(Optional.empty(), codec.decodeClients(json("{\"IsSuccess\":false,\"Clients\":[]}")));
+        }
+    }
+
+    @Test
+    void decodeRejectsContentWhichIsNotAnObject() {
+        for (JsonCodec codec : codecs) {
+            assertThrows(IOException.class, () -> codec.decodeStatus(json("[\"Running\"]")));
+            assertThrows(IOException.class, () -> codec.decodeStatus(json("<html/>")));
+        }
+    }
+
+    private static InputStream json(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.ClientIdNamePair;
+import com.rapid7.appspider.datatransferobjects.ScanConfigReference;
+import com.rapid7.appspider.datatransferobjects.ScanResult;
+import com.rapid7.appspider.models.AuthenticationModel;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class LoadBalancedEnterpriseClientTest {
+
+    private final FakeEndpoint first = new FakeEndpoint();
+    private final FakeEndpoint second = new FakeEndpoint();
+    private final Map<String, Double> weights = new HashMap<>();
+    private final Map<String, Long> unsent = new HashMap<>();
+    private double nextRandom;
+
+    private final LoadBalancedEnterpriseClient client = LoadBalancedEnterpriseClient.createInstanceOrThrow(
+        List.of(first, second), mock(LoggerFacade.class),
+        server -> weights.getOrDefault(server, 1.0),
+        server -> unsent.getOrDefault(server, 0L),
+        () -> nextRandom);
+
+    @Test
+    void readsAreSpreadByHealthWeight() {
+        weights.put(first.server, 3.0);
+        nextRandom = 0.5;
+        client.getConfigNames("token");
+        nextRandom = 0.9;
+        client.getConfigNames("token");
+
+        assertEquals(1, first.calls.size());
+        assertEquals(1, second.calls.size());
+        assertEquals(first.getUrl(), client.getUrl());
+    }
+
+    @Test
+    void readFailsOverWhenEndpointCannotBeReached() {
+        first.isReachable = false;
+
+        assertTrue(client.login(new AuthenticationModel("user", "password")).isPresent());
+        assertEquals(List.of("login"), first.calls);
+        assertEquals(List.of("login"), second.calls);
+    }
+
+    @Test
+    void failedReadOfReachableEndpointIsNotRepeated() {
+        first.hasConfigs = false;
+
+        assertFalse(client.getConfigNames("token").isPresent());
+        assertTrue(second.calls.isEmpty());
+    }
+
+    @Test
+    void scanCallsGoToEndpointWhichStartedScan() {
+        ScanResult started = client.runScanByConfigId("token", "config-id");
+        nextRandom = 0.9;
+
+        assertTrue(client.getScanStatus("token", started.getScanId()).isPresent());
+        assertTrue(client.getReportZip("token", started.getScanId()).isEmpty());
+        assertEquals(List.of("runScan", "getScanStatus", "getReportZip"), first.calls);
+        assertTrue(second.calls.isEmpty());
+    }
+
+    @Test
+    void runScanIsNotRepeatedOnAnotherEndpoint() {
+        first.isReachable = false;
+
+        assertFalse(client.runScanByConfigId("token", "config-id").isSuccess());
+        assertTrue(second.calls.isEmpty());
+    }
+
+    @Test
+    void endpointWithOpenCircuitIsAvoided() {
+        weights.put(first.server, 0.0);
+
+        assertTrue(client.runScanByConfigId("token", "config-id").isSuccess());
+        assertTrue(first.calls.isEmpty());
+    }
+
+    @Test
+    void readsFollowingConfigSaveGoToSavingEndpoint() throws Exception {
+        assertTrue(client.saveConfig("token", "config", new URL("https://target.example.com"), "group-id"));
+        nextRandom = 0.9;
+        client.getScanConfigReference("token", "config");
+
+        assertEquals(List.of("saveConfig", "getScanConfigReference"), first.calls);
+    }
+
+    private final class FakeEndpoint implements EnterpriseClient {
+        private final String server = UUID.randomUUID() + ".example.com";
+        private final List<String> calls = new ArrayList<>();
+        private boolean isReachable = true;
+        private boolean hasConfigs = true;
+
+        private <T> T respond(String call, T value, T failure) {
+            calls.add(call);
+            if (isReachable)
+                return value;
+            unsent.merge(server, 1L, Long::sum);
+            return failure;
+        }
+
+        @Override
+        public String getUrl() {
+            return "https://" + server + "/AppSpiderEnterprise/rest/v1";
+        }
+
+        @Override
+        public Optional<String> login(AuthenticationModel authModel) {
+            return respond("login", Optional.of("token"), Optional.empty());
+        }
+
+        @Override
+        public boolean testAuthentication(AuthenticationModel authModel) {
+            return login(authModel).isPresent();
+        }
+
+        @Override
+        public Optional<String[]> getEngineGroupNamesForClient(String authToken) {
+            return respond("getEngineGroupNamesForClient", Optional.of(new String[] {"group"}), Optional.empty());
+        }
+
+        @Override
+        public Optional<String> getEngineGroupIdFromName(String authToken, String engineGroupName) {
+            return respond("getEngineGroupIdFromName", Optional.of("group-id"), Optional.empty());
+        }
+
+        @Override
+        public Optional<Map<String, String>> getEngineGroupIdsByName(String authToken) {
+            return respond("getEngineGroupIdsByName", Optional.of(Map.of("group", "group-id")), Optional.empty());
+        }
+
+        @Override
+        public ScanResult runScanByConfigName(String authToken, String configName) {
+            return respond("runScan", new ScanResult(true, UUID.randomUUID().toString()), new ScanResult(false, ""));
+        }
+
+        @Override
+        public ScanResult runScanByConfigId(String authToken, String configId) {
+            return respond("runScan", new ScanResult(true, UUID.randomUUID().toString()), new ScanResult(false, ""));
+        }
+
+        @Override
+        public boolean cancelScan(String authToken, String scanId) {
+            return respond("cancelScan", true, false);
+        }
+
+        @Override
+        public Optional<String> getScanStatus(String authToken, String scanId) {
+            return respond("getScanStatus", Optional.of("Running"), Optional.empty());
+        }
+
+        @Override
+        public boolean isScanFinished(String authToken, String scanId) {
+            return respond("isScanFinished", false, false);
+        }
+
+        @Override
+        public boolean hasReport(String authToken, String scanId) {
+            return respond("hasReport", false, false);
+        }
+
+        @Override
+        public Optional<String[]> getConfigNames(String authToken) {
+            return respond("getConfigNames", hasConfigs ? Optional.of(new String[] {"config"}) : Optional.empty(), Optional.empty());
+        }
+
+        @Override
+        public Optional<String> getEngineGroupIdForConfig(String authToken, String configName) {
+            return respond("getEngineGroupIdForConfig", Optional.of("group-id"), Optional.empty());
+        }
+
+        @Override
+        public Optional<ScanConfigReference> getScanConfigReference(String authToken, String configName) {
+            return respond("getScanConfigReference", Optional.of(new ScanConfigReference("config-id", Optional.of("group-id"))), Optional.empty());
+        }
+
+        @Override
+        public boolean saveConfig(String authToken, String name, URL url, String engineGroupId) {
+            return respond("saveConfig", true, false);
+        }
+
+        @Override
+        public Optional<String> getScanConfigDigest(String name, URL url, String engineGroupId) {
+            return Optional.of(name + ":" + engineGroupId);
+        }
+
+        @Override
+        public Optional<String> getVulnerabilitiesSummaryXml(String authToken, String scanId) {
+            return respond("getVulnerabilitiesSummaryXml", Optional.empty(), Optional.empty());
+        }
+
+        @Override
+        public Optional<InputStream> getReportZip(String authToken, String scanId) {
+            return respond("getReportZip", Optional.empty(), Optional.empty());
+        }
+
+        @Override
+        public Optional<List<ClientIdNamePair>> getClientNameIdPairs(String authToken) {
+            return respond("getClientNameIdPairs", Optional.of(List.of()), Optional.empty());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class LoggerFacadeTest {
+
+    private static final int ITERATIONS = 100_000;
+
+    @Test
+    void suppressedCallsDoNotBuildMessage() {
+        RecordingLogger logger = new RecordingLogger(false);
+
+        logger.verbose(() -> {
+            throw new AssertionError("supplier should not be called");
+        });
+        logger.verbose("scan %s", "1234");
+        logger.verbose("scan %s on %s", "1234", "https://appspider.local");
+        logger.verbose("scan %s on %s: [%s]", "1234", "https://appspider.local", "Completed");
+
+        assertTrue(logger.messages.isEmpty());
+    }
+
+    @Test
+    void enabledCallsFormatMessage() {
+        RecordingLogger logger = new RecordingLogger(true);
+
+        logger.verbose(() -> "scan 1234");
+        logger.verbose("scan %s on %s", "1234", "https://appspider.local");
+        logger.severe("%s", new IllegalStateException("broken"));
+
+        assertEquals(List.of("scan 1234", "scan 1234 on https://appspider.local", "java.lang.IllegalStateException: broken"),
+            logger.messages);
+    }
+
+    @Test
+    void suppressedCallsAllocateNothing() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        LoggerFacade logger = new RecordingLogger(false);
+        String scanId = "1234";
+        String url = "https://appspider.local";
+
+        // first pass warms up the call sites, second pass is measured
+        pollLoop(logger, scanId, url);
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        pollLoop(logger, scanId, url);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // a single formatted message allocates well over 100 bytes, so this only leaves room for
+        // the measurement itself
+        assertTrue(allocated < 1024, allocated + " bytes allocated by suppressed calls");
+    }
+
+    private static void pollLoop(LoggerFacade logger, String scanId, String url) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            logger.verbose("Polling status of scan %s on %s", scanId, url);
+            logger.verbose("scan %s", scanId);
+            logger.verbose(() -> "constant message");
+        }
+    }
+
+    private static final class RecordingLogger implements LoggerFacade {
+        private final boolean isEnabled;
+        private final List<String> messages = new ArrayList<>();
+
+        private RecordingLogger(boolean isEnabled) {
+            this.isEnabled = isEnabled;
+        }
+
+        @Override
+        public void println(String message) {
+            messages.add(message);
+        }
+        @Override
+        public void info(String message) {
+            messages.add(message);
+        }
+        @Override
+        public void warn(String message) {
+            messages.add(message);
+        }
+        @Override
+        public void severe(String message) {
+            messages.add(message);
+        }
+        @Override
+        public void verbose(String message) {
+            messages.add(message);
+        }
+
+        @Override
+        public boolean isInfoEnabled() {
+            return isEnabled;
+        }
+        @Override
+        public boolean isWarnEnabled() {
+            return isEnabled;
+        }
+        @Override
+        public boolean isSevereEnabled() {
+            return isEnabled;
+        }
+        @Override
+        public boolean isVerboseEnabled() {
+            return isEnabled;
+        }
+    }
+}
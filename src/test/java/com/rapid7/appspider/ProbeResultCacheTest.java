@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.ReadinessResult;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbeResultCacheTest {
+
+    private static final URI TARGET = URI.create("https://target.example.com/");
+    private static final ReadinessResult REACHABLE = new ReadinessResult(true, 1, Duration.ofMillis(5), "status 200");
+
+    private final List<CompletableFuture<ReadinessResult>> probes = new ArrayList<>();
+    private long now;
+
+    private final ProbeResultCache cache = new ProbeResultCache(target -> {
+        CompletableFuture<ReadinessResult> probe = new CompletableFuture<>();
+        probes.add(probe);
+        return probe;
+    }, Duration.ofSeconds(30), () -> now);
+
+    @Test
+    void concurrentChecksOfSameUrlShareOneProbe() throws Exception {
+        CompletableFuture<ReadinessResult> first = cache.check(TARGET);
+        CompletableFuture<ReadinessResult> second = cache.check(TARGET);
+        cache.check(URI.create("https://other.example.com/"));
+
+        assertEquals(2, probes.size());
+        probes.get(0).complete(REACHABLE);
+        assertTrue(first.get().isReady());
+        assertTrue(second.get().isReady());
+    }
+
+    @Test
+    void resultIsRememberedUntilTtlExpires() {
+        cache.check(TARGET);
+        probes.get(0).complete(REACHABLE);
+
+        now += TimeUnit.SECONDS.toNanos(29);
+        assertTrue(cache.check(TARGET).isDone());
+        assertEquals(1, probes.size());
+
+        now += TimeUnit.SECONDS.toNanos(1);
+        assertFalse(cache.check(TARGET).isDone());
+        assertEquals(2, probes.size());
+    }
+
+    @Test
+    void cancellingCallersFutureLeavesProbeRunning() {
+        cache.check(TARGET).cancel(false);
+        probes.get(0).complete(REACHABLE);
+
+        assertTrue(cache.check(TARGET).isDone());
+        assertEquals(1, probes.size());
+    }
+
+    @Test
+    void failedProbeIsNotRemembered() {
+        CompletableFuture<ReadinessResult> failed = cache.check(TARGET);
+        probes.get(0).completeExceptionally(new IllegalStateException("client closed"));
+
+        assertThrows(ExecutionException.class, failed::get);
+        assertEquals(0, cache.size());
+        cache.check(TARGET);
+        assertEquals(2, probes.size());
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private long now;
+
+    @Test
+    void burstGrantedWithoutWaiting() {
+        RateLimiter limiter = RateLimiter.createInstanceOrThrow(2, 2, () -> now);
+
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.reserve());
+    }
+
+    @Test
+    void reservationsBeyondBurstWaitInArrivalOrder() {
+        RateLimiter limiter = RateLimiter.createInstanceOrThrow(2, 1, () -> now);
+
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.reserve());
+        assertEquals(SECOND / 2, limiter.reserve());
+        assertEquals(SECOND, limiter.reserve());
+    }
+
+    @Test
+    void unusedPermitsRefillUpToBurst() {
+        RateLimiter limiter = RateLimiter.createInstanceOrThrow(1, 2, () -> now);
+        limiter.reserve();
+        limiter.reserve();
+
+        now += 10 * SECOND;
+
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.reserve());
+        assertEquals(SECOND, limiter.reserve());
+    }
+
+    @Test
+    void zeroBurstSpacesEveryPermit() {
+        RateLimiter limiter = RateLimiter.createInstanceOrThrow(4, 0, () -> now);
+
+        assertEquals(0, limiter.reserve());
+        assertEquals(SECOND / 4, limiter.reserve());
+        assertEquals(SECOND / 2, limiter.reserve());
+    }
+
+    @Test
+    void endpointsClassifiedByPath() {
+        assertEquals(RequestRateLimits.EndpointClass.LOGIN, RequestRateLimits.classify("/AppSpiderEnterprise/rest/v1/Authentication/Login"));
+        assertEquals(RequestRateLimits.EndpointClass.WRITE, RequestRateLimits.classify("/AppSpiderEnterprise/rest/v1/Scan/RunScan"));
+        assertEquals(RequestRateLimits.EndpointClass.WRITE, RequestRateLimits.classify("/AppSpiderEnterprise/rest/v1/Config/SaveConfig"));
+        assertEquals(RequestRateLimits.EndpointClass.READ, RequestRateLimits.classify("/AppSpiderEnterprise/rest/v1/Scan/GetScanStatus"));
+        assertEquals(RequestRateLimits.EndpointClass.READ, RequestRateLimits.classify("/AppSpiderEnterprise/rest/v1/Report/GetReportZip"));
+    }
+
+    @Test
+    void unlimitedClassHasNoLimiter() {
+        RequestRateLimits limits = new RequestRateLimits(0, 10, 1);
+
+        assertFalse(limits.limiterFor("appspider.rapid7.com", "/Authentication/Login").isPresent());
+        assertTrue(limits.limiterFor("appspider.rapid7.com", "/Scan/GetScanStatus").isPresent());
+    }
+
+    @Test
+    void serverOverridesApplyOnlyToTheirServer() {
+        RequestRateLimits limits = new RequestRateLimits(5, 20, 2).withServerOverrides(
+            "# secondary node\nsecondary.example.com:8443=,40,0\n\nhttps://tertiary.example.com/AppSpiderEnterprise/rest/v1=1,1,1\n");
+
+        RequestRateLimits secondary = limits.forServer("secondary.example.com:8443");
+        assertEquals(5.0, secondary.getLoginsPerSecond());
+        assertEquals(40.0, secondary.getReadsPerSecond());
+        assertEquals(0.0, secondary.getWritesPerSecond());
+        assertEquals(1.0, limits.forServer("tertiary.example.com").getReadsPerSecond());
+        assertSame(limits, limits.forServer("primary.example.com"));
+        assertFalse(limits.limiterFor("secondary.example.com:8443", "/Scan/RunScan").isPresent());
+        assertEquals(40.0, limits.limiterFor("secondary.example.com:8443", "/Scan/GetScanStatus").orElseThrow().getPermitsPerSecond());
+    }
+
+    @Test
+    void malformedServerOverridesAreRejected() {
+        RequestRateLimits limits = new RequestRateLimits(5, 20, 2);
+
+        assertEquals("line 1: expected server=logins,reads,writes",
+            assertThrows(IllegalArgumentException.class, () -> limits.withServerOverrides("secondary.example.com=1,2")).getMessage());
+        assertEquals("line 2: 'fast' is not a rate of 0 or more requests per second",
+            assertThrows(IllegalArgumentException.class, () -> limits.withServerOverrides("\nsecondary.example.com=fast,2,1")).getMessage());
+        assertEquals("line 1: '-1' is not a rate of 0 or more requests per second",
+            assertThrows(IllegalArgumentException.class, () -> limits.withServerOverrides("secondary.example.com=-1,2,1")).getMessage());
+        assertEquals("line 1: server cannot be empty",
+            assertThrows(IllegalArgumentException.class, () -> limits.withServerOverrides("=1,2,1")).getMessage());
+    }
+
+    @Test
+    void createInstanceOrThrowThrowsWhenRateIsNotPositive() {
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.createInstanceOrThrow(0, 1));
+    }
+}
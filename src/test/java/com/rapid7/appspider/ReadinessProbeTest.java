@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.ReadinessResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadinessProbeTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/starting", exchange -> {
+            if (requests.incrementAndGet() < 3)
+                respond(exchange, 503, "Service Unavailable");
+            else
+                respond(exchange, 200, "<title>Welcome</title>");
+        });
+        server.createContext("/maintenance", exchange -> {
+            requests.incrementAndGet();
+            respond(exchange, 200, "<title>Down for maintenance</title>");
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void targetIsProbedUntilItAnswersWithExpectedContent() throws Exception {
+        ReadinessResult result = probe("/starting", Duration.ofSeconds(10))
+            .withExpectedContent("Welcome")
+            .probe()
+            .get(10, TimeUnit.SECONDS);
+
+        assertTrue(result.isReady());
+        assertEquals(3, result.getAttempts());
+        assertEquals("status 200", result.getLastOutcome());
+    }
+
+    @Test
+    void targetWithoutExpectedContentIsNotReadyByDeadline() throws Exception {
+        ReadinessResult result = probe("/maintenance", Duration.ofMillis(500))
+            .withExpectedContent("Welcome")
+            .probe()
+            .get(10, TimeUnit.SECONDS);
+
+        assertFalse(result.isReady());
+        assertTrue(result.getAttempts() > 1);
+        assertTrue(result.getWaited().toMillis() >= 500);
+        assertEquals("status 200 without the expected content", result.getLastOutcome());
+    }
+
+    @Test
+    void unexpectedStatusIsNotReady() throws Exception {
+        ReadinessResult result = probe("/maintenance", Duration.ofMillis(200))
+            .withExpectedStatus("204, 300-399")
+            .probe()
+            .get(10, TimeUnit.SECONDS);
+
+        assertFalse(result.isReady());
+        assertEquals("status 200", result.getLastOutcome());
+    }
+
+    @Test
+    void cancelledProbeStopsRequestingTarget() throws Exception {
+        probe("/maintenance", Duration.ofSeconds(10))
+            .withExpectedContent("Welcome")
+            .probe()
+            .cancel(false);
+        TimeUnit.MILLISECONDS.sleep(300);
+
+        assertTrue(requests.get() <= 1);
+    }
+
+    @Test
+    void invalidExpectedStatusIsRejected() {
+        ReadinessProbe probe = probe("/starting", Duration.ofSeconds(1));
+
+        assertThrows(IllegalArgumentException.class, () -> probe.withExpectedStatus("2xx"));
+        assertThrows(IllegalArgumentException.class, () -> probe.withExpectedStatus("399-200"));
+        assertThrows(IllegalArgumentException.class,
+            () -> ReadinessProbe.createInstanceOrThrow(httpClient, URI.create("ftp://example.com"), Duration.ofSeconds(1)));
+    }
+
+    private ReadinessProbe probe(String path, Duration deadline) {
+        return ReadinessProbe.createInstanceOrThrow(httpClient, URI.create(baseUrl + path), deadline)
+            .withTimings(Duration.ofSeconds(2), Duration.ofMillis(20));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
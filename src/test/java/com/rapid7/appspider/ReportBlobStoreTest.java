@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportBlobStoreTest {
+
+    private static final String EMPTY_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void storeReturnsSha256OfContent() throws IOException {
+        String digest = ReportBlobStore.forDirectory(directory).store(content(""), "job#1");
+
+        assertEquals(EMPTY_SHA256, digest);
+    }
+
+    @Test
+    void identicalContentIsStoredOnce() throws IOException {
+        ReportBlobStore store = ReportBlobStore.forDirectory(directory);
+
+        String first = store.store(content("report"), "job#1");
+        String second = store.store(content("report"), "job#2");
+
+        assertEquals(first, second);
+        assertEquals(1, countBlobs());
+        assertEquals("report", Files.readString(store.find(first).orElseThrow()));
+    }
+
+    @Test
+    void releaseKeepsContentWhileStillReferenced() throws IOException {
+        ReportBlobStore store = ReportBlobStore.forDirectory(directory);
+        String digest = store.store(content("report"), "job#1");
+        store.store(content("report"), "job#2");
+
+        assertFalse(store.release(digest, "job#1"));
+        assertTrue(store.find(digest).isPresent());
+
+        assertTrue(store.release(digest, "job#2"));
+        assertEquals(Optional.empty(), store.find(digest));
+    }
+
+    @Test
+    void releaseAllReleasesMatchingReferrersOnly() throws IOException {
+        ReportBlobStore store = ReportBlobStore.forDirectory(directory);
+        String shared = store.store(content("shared"), "folder/job#1");
+        store.store(content("shared"), "other#1");
+        String own = store.store(content("own"), "folder/job#2");
+
+        assertEquals(1, store.releaseAll("folder/"));
+
+        assertTrue(store.find(shared).isPresent());
+        assertEquals(Optional.empty(), store.find(own));
+    }
+
+    @Test
+    void renamedReferrersAreReleasedUnderTheirNewName() throws IOException {
+        ReportBlobStore store = ReportBlobStore.forDirectory(directory);
+        String digest = store.store(content("report"), "folder/job#1");
+        String other = store.store(content("other"), "folder-other/job#1");
+
+        assertEquals(1, store.renameAll("folder/", "renamed/"));
+
+        assertFalse(store.release(digest, "folder/job#1"));
+        assertTrue(store.release(digest, "renamed/job#1"));
+        assertEquals(Optional.empty(), store.find(digest));
+        assertEquals(0, store.releaseAll("renamed/"));
+        assertTrue(store.find(other).isPresent());
+    }
+
+    @Test
+    void findRejectsValuesWhichAreNotDigests() throws IOException {
+        ReportBlobStore store = ReportBlobStore.forDirectory(directory);
+        store.store(content(""), "job#1");
+
+        assertEquals(Optional.empty(), store.find("../" + EMPTY_SHA256));
+        assertEquals(Optional.empty(), store.find(EMPTY_SHA256.toUpperCase()));
+    }
+
+    private long countBlobs() throws IOException {
+        try (Stream<Path> files = Files.walk(directory.resolve("blobs"))) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static InputStream content(String value) {
+        return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
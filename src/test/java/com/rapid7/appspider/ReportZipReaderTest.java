@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportZipReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findReadsEntryWithoutExtracting() throws IOException {
+        Path zip = createZip(Map.of("report/index.html", "<html/>", "report/style.css", "body {}"));
+
+        ReportZipReader.ReportEntry entry = new ReportZipReader(1024, 512).find(zip, "digest", "report/style.css").orElseThrow();
+
+        assertEquals("body {}", read(entry));
+        assertEquals(7, entry.getSize());
+    }
+
+    @Test
+    void findReturnsEmptyForMissingEntriesAndDirectories() throws IOException {
+        Path zip = createZip(Map.of("report/index.html", "<html/>"));
+        ReportZipReader reader = new ReportZipReader(1024, 512);
+
+        assertEquals(Optional.empty(), reader.find(zip, "digest", "report/missing.html"));
+        assertEquals(Optional.empty(), reader.find(zip, "digest", "report/"));
+    }
+
+    @Test
+    void smallEntriesAreServedFromCache() throws IOException {
+        Path zip = createZip(Map.of("index.html", "<html/>"));
+        ReportZipReader reader = new ReportZipReader(1024, 512);
+        reader.find(zip, "digest", "index.html");
+        Files.delete(zip);
+
+        assertEquals("<html/>", read(reader.find(zip, "digest", "index.html").orElseThrow()));
+    }
+
+    @Test
+    void largeEntriesAreStreamedNotCached() throws IOException {
+        Path zip = createZip(Map.of("large.html", "x".repeat(600)));
+        ReportZipReader reader = new ReportZipReader(1024, 512);
+
+        ReportZipReader.ReportEntry entry = reader.find(zip, "digest", "large.html").orElseThrow();
+
+        assertEquals(600, read(entry).length());
+        assertEquals(0, reader.getCachedBytes());
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvictedOverBudget() throws IOException {
+        Path zip = createZip(Map.of("a.html", "a".repeat(400), "b.html", "b".repeat(400), "c.html", "c".repeat(400)));
+        ReportZipReader reader = new ReportZipReader(1000, 512);
+        reader.find(zip, "digest", "a.html");
+        reader.find(zip, "digest", "b.html");
+        reader.find(zip, "digest", "a.html");
+        reader.find(zip, "digest", "c.html");
+        Files.delete(zip);
+
+        assertEquals(800, reader.getCachedBytes());
+        assertTrue(reader.find(zip, "digest", "a.html").isPresent());
+        assertThrows(IOException.class, () -> reader.find(zip, "digest", "b.html"));
+    }
+
+    @Test
+    void findCrcReadsCentralDirectoryWithoutCachingEntry() throws IOException {
+        Path zip = createZip(Map.of("index.html", "<html/>"));
+        ReportZipReader reader = new ReportZipReader(1024, 512);
+        CRC32 expected = new CRC32();
+        expected.update("<html/>".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(Optional.of(expected.getValue()), reader.findCrc(zip, "digest", "index.html"));
+        assertEquals(0, reader.getCachedBytes());
+        assertEquals(Optional.empty(), reader.findCrc(zip, "digest", "report/"));
+        assertEquals(Optional.empty(), reader.findCrc(zip, "digest", "missing.html"));
+    }
+
+    @Test
+    void findStartPagePrefersShallowIndexPage() throws IOException {
+        Path zip = createZip(Map.of(
+            "report/details/index.html", "",
+            "report/summary.html", "",
+            "report/index.html", "",
+            "report/style.css", ""));
+
+        assertEquals(Optional.of("report/index.html"), new ReportZipReader(1024, 512).findStartPage(zip));
+    }
+
+    private Path createZip(Map<String, String> entries) throws IOException {
+        Path zip = Files.createTempFile(directory, "report", ".zip");
+        try (OutputStream output = Files.newOutputStream(zip);
+             ZipOutputStream zipOutput = new ZipOutputStream(output)) {
+            zipOutput.putNextEntry(new ZipEntry("report/"));
+            zipOutput.closeEntry();
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zipOutput.putNextEntry(new ZipEntry(entry.getKey()));
+                zipOutput.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zipOutput.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    private static String read(ReportZipReader.ReportEntry entry) throws IOException {
+        try (InputStream input = entry.open()) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
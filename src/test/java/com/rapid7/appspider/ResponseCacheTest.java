@@ -0,0 +1,215 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.models.AuthenticationModel;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ResponseCacheTest {
+
+    private static final String CONFIGS_URL = "https://appspider.example.com/AppSpiderEnterprise/rest/v1/Config/GetConfigs";
+
+    private long now;
+
+    @Test
+    void onlyCatalogGetRequestsAreCacheable() {
+        assertTrue(ResponseCache.isCacheable(new HttpGet(CONFIGS_URL)));
+        assertTrue(ResponseCache.isCacheable(new HttpGet("https://appspider.example.com/rest/v1/EngineGroup/GetEngineGroupsForClient")));
+        assertFalse(ResponseCache.isCacheable(new HttpPost(CONFIGS_URL)));
+        assertFalse(ResponseCache.isCacheable(new HttpGet("https://appspider.example.com/rest/v1/Scan/GetScanStatus?scanId=1")));
+    }
+
+    @Test
+    void notModifiedResponseIsAnsweredFromCache() throws IOException {
+        ResponseCache cache = new ResponseCache(1024, 30, () -> now);
+        HttpGet first = request("token");
+        cache.lookup(first).complete(response(200, "{\"Configs\":[]}", HttpHeaders.ETAG, "\"v1\""));
+
+        HttpGet second = request("token");
+        ResponseCache.Lookup lookup = cache.lookup(second);
+
+        assertFalse(lookup.getFreshResponse().isPresent());
+        assertEquals("\"v1\"", second.getFirstHeader(HttpHeaders.IF_NONE_MATCH).getValue());
+        HttpResponse completed = lookup.complete(response(304, null));
+        assertEquals(200, completed.getStatusLine().getStatusCode());
+        assertEquals("{\"Configs\":[]}", EntityUtils.toString(completed.getEntity()));
+        assertEquals(ContentType.APPLICATION_JSON.toString(), completed.getEntity().getContentType().getValue());
+        assertEquals(1, cache.getRevalidations());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void responsesAreNotSharedAcrossCredentials() throws IOException {
+        ResponseCache cache = new ResponseCache(1024, 30, () -> now);
+        cache.lookup(request("first")).complete(response(200, "{\"Configs\":[\"first\"]}", HttpHeaders.ETAG, "\"v1\"",
+            HttpHeaders.LAST_MODIFIED, "Mon, 01 Feb 2021 00:00:00 GMT"));
+
+        HttpGet other = request("second");
+        ResponseCache.Lookup lookup = cache.lookup(other);
+
+        assertNull(other.getFirstHeader(HttpHeaders.IF_NONE_MATCH));
+        assertNull(other.getFirstHeader(HttpHeaders.IF_MODIFIED_SINCE));
+        HttpResponse completed = lookup.complete(response(304, null));
+        assertEquals(304, completed.getStatusLine().getStatusCode());
+        assertEquals(0, cache.getRevalidations());
+
+        HttpGet same = request("first");
+        cache.lookup(same);
+        assertEquals("\"v1\"", same.getFirstHeader(HttpHeaders.IF_NONE_MATCH).getValue());
+    }
+
+    @Test
+    void responsesAreSharedAcrossSessionsOfTheSameCredentials() throws IOException {
+        ResponseCache cache = new ResponseCache(1024, 30, () -> now);
+        String credentials = ResponseCache.credentialsOf(new AuthenticationModel("user", "password", "client"));
+        cache.lookup(requestWithCredentials("first", credentials)).complete(response(200, "{}"));
+
+        HttpGet later = requestWithCredentials("second", credentials);
+        assertTrue(cache.lookup(later).getFreshResponse().isPresent());
+        assertNull(later.getFirstHeader(ResponseCache.CREDENTIALS_HEADER));
+        String otherClient = ResponseCache.credentialsOf(new AuthenticationModel("user", "password", "other"));
+        assertFalse(cache.lookup(requestWithCredentials("second", otherClient)).getFreshResponse().isPresent());
+    }
+
+    @Test
+    void catalogIsAnsweredFromCacheAfterLoggingInAgain() throws IOException {
+        AtomicInteger logins = new AtomicInteger();
+        AtomicInteger configRequests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/Authentication/Login", exchange ->
+            respond(exchange, "{\"IsSuccess\":true,\"Token\":\"token-" + logins.incrementAndGet() + "\"}"));
+        server.createContext("/Config/GetConfigs", exchange -> {
+            configRequests.incrementAndGet();
+            respond(exchange, "{\"IsSuccess\":true,\"Configs\":[{\"Name\":\"config\",\"Id\":\"1\"}]}");
+        });
+        server.start();
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort();
+            LoggerFacade logger = mock(LoggerFacade.class);
+            ContentHelper contentHelper = ContentHelper.createInstanceOrThrow(logger);
+            ClientService service = HttpClientService.createInstanceOrThrow(HttpClients.createDefault(), contentHelper, logger)
+                .withResponseCache(ResponseCache.DEFAULT_MAX_BYTES, ResponseCache.DEFAULT_FALLBACK_TTL_SECONDS);
+            EnterpriseRestClient client = new EnterpriseRestClient(service, url, ApiSerializer.createInstanceOrThrow(logger), contentHelper, logger);
+            AuthenticationModel authModel = new AuthenticationModel("user", "password");
+
+            for (int i = 0; i < 2; i++) {
+                String authToken = client.login(authModel).orElseThrow();
+                assertArrayEquals(new String[] { "config" }, client.getConfigNames(authToken).orElseThrow());
+            }
+
+            assertEquals(2, logins.get());
+            assertEquals(1, configRequests.get());
+            assertEquals(1, ResponseCache.find(server.getAddress().getHostString() + ":" + server.getAddress().getPort()).orElseThrow().getHits());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void responseWithoutValidatorsIsReusedUntilFallbackTtl() throws IOException {
+        ResponseCache cache = new ResponseCache(1024, 30, () -> now);
+        cache.lookup(request("token")).complete(response(200, "{}"));
+
+        now += TimeUnit.SECONDS.toNanos(29);
+        assertTrue(cache.lookup(request("token")).getFreshResponse().isPresent());
+        assertFalse(cache.lookup(request("other")).getFreshResponse().isPresent());
+        now += TimeUnit.SECONDS.toNanos(1);
+        assertFalse(cache.lookup(request("token")).getFreshResponse().isPresent());
+        assertEquals(1, cache.getHits());
+        assertEquals(0.25, cache.getHitRatio());
+    }
+
+    @Test
+    void noStoreAndFailedResponsesAreNotCached() throws IOException {
+        ResponseCache cache = new ResponseCache(1024, 30, () -> now);
+        cache.lookup(request("token")).complete(response(200, "{}", HttpHeaders.CACHE_CONTROL, "private, no-store"));
+        cache.lookup(request("token")).complete(response(500, "{}"));
+
+        assertEquals(0, cache.getCachedBytes());
+    }
+
+    @Test
+    void savingConfigDiscardsCachedConfigs() throws IOException {
+        ResponseCache cache = new ResponseCache(1024, 30, () -> now);
+        cache.lookup(request("token")).complete(response(200, "{}"));
+        HttpPost save = new HttpPost("https://appspider.example.com/AppSpiderEnterprise/rest/v1/Config/SaveConfig");
+
+        assertTrue(ResponseCache.isInvalidating(save));
+        cache.invalidate(save);
+
+        assertFalse(cache.lookup(request("token")).getFreshResponse().isPresent());
+        assertEquals(0, cache.getCachedBytes());
+    }
+
+    @Test
+    void leastRecentlyUsedResponsesAreEvictedOverBudget() throws IOException {
+        ResponseCache cache = new ResponseCache(10, 30, () -> now);
+        cache.lookup(request(CONFIGS_URL + "?page=1", "token")).complete(response(200, "aaaaa"));
+        cache.lookup(request(CONFIGS_URL + "?page=2", "token")).complete(response(200, "bbbbb"));
+        cache.lookup(request(CONFIGS_URL + "?page=1", "token"));
+        cache.lookup(request(CONFIGS_URL + "?page=3", "token")).complete(response(200, "ccccc"));
+
+        assertEquals(10, cache.getCachedBytes());
+        assertTrue(cache.lookup(request(CONFIGS_URL + "?page=1", "token")).getFreshResponse().isPresent());
+        assertFalse(cache.lookup(request(CONFIGS_URL + "?page=2", "token")).getFreshResponse().isPresent());
+    }
+
+    private static HttpGet request(String token) {
+        return request(CONFIGS_URL, token);
+    }
+
+    private static HttpGet request(String url, String token) {
+        HttpGet request = new HttpGet(url);
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Basic " + token);
+        return request;
+    }
+
+    private static HttpGet requestWithCredentials(String token, String credentials) {
+        HttpGet request = request(CONFIGS_URL, token);
+        request.addHeader(ResponseCache.CREDENTIALS_HEADER, credentials);
+        return request;
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static HttpResponse response(int statusCode, String body, String... headers) {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, "");
+        for (int i = 0; i < headers.length; i += 2)
+            response.addHeader(headers[i], headers[i + 1]);
+        if (Objects.nonNull(body))
+            response.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        return response;
+    }
+}
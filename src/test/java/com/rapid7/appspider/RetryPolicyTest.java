@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpConnectTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+
+    private final RetryPolicy idempotent = new RetryPolicy(3, true, bound -> bound);
+    private final RetryPolicy nonIdempotent = new RetryPolicy(3, false, bound -> bound);
+
+    @Test
+    void idempotentRequestsRetriedAfterTransientFailures() {
+        assertTrue(idempotent.shouldRetry(1, new ConnectException()));
+        assertTrue(idempotent.shouldRetry(1, new SocketTimeoutException()));
+        assertTrue(idempotent.shouldRetry(1, new IOException("Connection reset")));
+        assertTrue(idempotent.shouldRetry(1, responseWithStatus(502)));
+        assertTrue(idempotent.shouldRetry(1, responseWithStatus(503)));
+        assertTrue(idempotent.shouldRetry(1, responseWithStatus(504)));
+    }
+
+    @Test
+    void idempotentRequestsNotRetriedAfterPermanentFailures() {
+        assertFalse(idempotent.shouldRetry(1, new ServerUnavailableException("circuit open")));
+        assertFalse(idempotent.shouldRetry(1, new InterruptedIOException()));
+        assertFalse(idempotent.shouldRetry(1, responseWithStatus(200)));
+        assertFalse(idempotent.shouldRetry(1, responseWithStatus(401)));
+        assertFalse(idempotent.shouldRetry(1, responseWithStatus(500)));
+    }
+
+    @Test
+    void nonIdempotentRequestsOnlyRetriedWhenNotProcessed() {
+        assertTrue(nonIdempotent.shouldRetry(1, new ConnectException()));
+        assertTrue(nonIdempotent.shouldRetry(1, new ConnectTimeoutException()));
+        assertTrue(nonIdempotent.shouldRetry(1, new HttpConnectTimeoutException("connect timed out")));
+        assertTrue(nonIdempotent.shouldRetry(1, responseWithStatus(503)));
+        assertTrue(nonIdempotent.shouldRetry(1, responseWithStatus(429)));
+
+        assertFalse(nonIdempotent.shouldRetry(1, new SocketTimeoutException()));
+        assertFalse(nonIdempotent.shouldRetry(1, new IOException("Connection reset")));
+        assertFalse(nonIdempotent.shouldRetry(1, responseWithStatus(502)));
+        assertFalse(nonIdempotent.shouldRetry(1, responseWithStatus(504)));
+    }
+
+    @Test
+    void notRetriedOnceMaxAttemptsReached() {
+        assertFalse(idempotent.shouldRetry(3, new ConnectException()));
+        assertFalse(idempotent.shouldRetry(3, responseWithStatus(503)));
+    }
+
+    @Test
+    void backoffGrowsExponentiallyUpToMaximum() {
+        assertEquals(1000, idempotent.backoffMillis(1, null));
+        assertEquals(2000, idempotent.backoffMillis(2, null));
+        assertEquals(4000, idempotent.backoffMillis(3, null));
+        assertEquals(30000, idempotent.backoffMillis(10, null));
+        assertEquals(30000, idempotent.backoffMillis(100, null));
+    }
+
+    @Test
+    void backoffUsesRetryAfterWhenPresent() {
+        HttpResponse response = responseWithStatus(503);
+        response.addHeader(HttpHeaders.RETRY_AFTER, "7");
+
+        assertEquals(7000, idempotent.backoffMillis(1, response));
+    }
+
+    @Test
+    void retryBudgetLimitsRetriesToFractionOfRequests() {
+        RetryBudget budget = new RetryBudget(0.5, 2);
+
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+
+        budget.onRequest();
+        assertFalse(budget.tryWithdraw());
+        budget.onRequest();
+        assertTrue(budget.tryWithdraw());
+    }
+
+    private static HttpResponse responseWithStatus(int statusCode) {
+        return new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, "");
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ScanAdmissionQueueTest {
+
+    private final LoggerFacade log = mock(LoggerFacade.class);
+
+    @Test
+    void acquireDoesNotWaitWhileSlotsAreFree() throws InterruptedException {
+        ScanAdmissionQueue queue = new ScanAdmissionQueue("group", 2);
+
+        ScanAdmissionQueue.Slot first = queue.acquire(0, log);
+        ScanAdmissionQueue.Slot second = queue.acquire(0, log);
+
+        assertEquals(2, queue.getRunningCount());
+        first.close();
+        second.close();
+        assertEquals(0, queue.getRunningCount());
+    }
+
+    @Test
+    void closingSlotMoreThanOnceReleasesItOnce() throws InterruptedException {
+        ScanAdmissionQueue queue = new ScanAdmissionQueue("group", 2);
+        ScanAdmissionQueue.Slot first = queue.acquire(0, log);
+        queue.acquire(0, log);
+
+        first.close();
+        first.close();
+
+        assertEquals(1, queue.getRunningCount());
+    }
+
+    @Test
+    void waitingBuildsAdmittedByPriorityThenArrival() throws InterruptedException {
+        ScanAdmissionQueue queue = new ScanAdmissionQueue("group", 1);
+        ScanAdmissionQueue.Slot running = queue.acquire(0, log);
+        List<String> admitted = Collections.synchronizedList(new ArrayList<>());
+
+        List<Thread> threads = new ArrayList<>();
+        threads.add(startWaiting(queue, "low", 0, admitted));
+        awaitWaitingCount(queue, 1);
+        threads.add(startWaiting(queue, "high", 5, admitted));
+        awaitWaitingCount(queue, 2);
+        threads.add(startWaiting(queue, "low-later", 0, admitted));
+        awaitWaitingCount(queue, 3);
+
+        running.close();
+        for (Thread thread : threads)
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertEquals(List.of("high", "low", "low-later"), admitted);
+    }
+
+    @Test
+    void interruptedBuildLeavesQueue() throws InterruptedException {
+        ScanAdmissionQueue queue = new ScanAdmissionQueue("group", 1);
+        queue.acquire(0, log);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        Thread waiting = new Thread(() -> {
+            try {
+                queue.acquire(0, log);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        waiting.start();
+        awaitWaitingCount(queue, 1);
+        waiting.interrupt();
+
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertEquals(0, queue.getWaitingCount());
+    }
+
+    @Test
+    void forEngineGroupThrowsWhenMaxConcurrentScansIsLessThanOne() {
+        assertThrows(IllegalArgumentException.class, () -> ScanAdmissionQueue.forEngineGroup("server", "id", "name", 0));
+    }
+
+    private Thread startWaiting(ScanAdmissionQueue queue, String name, int priority, List<String> admitted) {
+        Thread thread = new Thread(() -> {
+            try (ScanAdmissionQueue.Slot slot = queue.acquire(priority, log)) {
+                admitted.add(name);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitWaitingCount(ScanAdmissionQueue queue, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (queue.getWaitingCount() < count && System.nanoTime() < deadline)
+            TimeUnit.MILLISECONDS.sleep(10);
+        assertEquals(count, queue.getWaitingCount());
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScanConfigDigestStoreTest {
+
+    private static final String SERVER = "https://appspider.rapid7.com/AppSpiderEnterprise/rest/v1/";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void isUnchangedFalseWhenNothingRecorded() throws IOException {
+        ScanConfigDigestStore store = createStore();
+
+        assertFalse(store.isUnchanged(SERVER, "config", "digest"));
+    }
+
+    @Test
+    void isUnchangedTrueWhenDigestMatchesLastSave() throws IOException {
+        ScanConfigDigestStore store = createStore();
+        store.recordSaved(SERVER, "config", "digest");
+
+        assertTrue(store.isUnchanged(SERVER, "config", "digest"));
+        assertFalse(store.isUnchanged(SERVER, "config", "other"));
+        assertFalse(store.isUnchanged("https://other.rapid7.com/", "config", "digest"));
+    }
+
+    @Test
+    void recordSkippedCountsUntilNextSave() throws IOException {
+        ScanConfigDigestStore store = createStore();
+        store.recordSaved(SERVER, "config", "digest");
+
+        assertEquals(1, store.recordSkipped(SERVER, "config"));
+        assertEquals(2, store.recordSkipped(SERVER, "config"));
+        assertTrue(store.isUnchanged(SERVER, "config", "digest"));
+
+        store.recordSaved(SERVER, "config", "updated");
+        assertEquals(1, store.recordSkipped(SERVER, "config"));
+    }
+
+    @Test
+    void recordedDigestPersistsAcrossInstances() throws IOException {
+        createStore().recordSaved(SERVER, "config", "digest");
+
+        assertTrue(ScanConfigDigestStore
+            .createInstanceOrThrow(PropertiesStore.forFile(directory.resolve("digests.properties")))
+            .isUnchanged(SERVER, "config", "digest"));
+    }
+
+    @Test
+    void forgetDiscardsRecordedDigest() throws IOException {
+        ScanConfigDigestStore store = createStore();
+        store.recordSaved(SERVER, "config", "digest");
+
+        store.forget(SERVER, "config");
+
+        assertFalse(store.isUnchanged(SERVER, "config", "digest"));
+        assertEquals(0, store.recordSkipped(SERVER, "config"));
+    }
+
+    @Test
+    void createInstanceOrThrowThrowsWhenStoreIsNull() {
+        assertThrows(IllegalArgumentException.class, () -> ScanConfigDigestStore.createInstanceOrThrow(null));
+    }
+
+    private ScanConfigDigestStore createStore() {
+        return ScanConfigDigestStore.createInstanceOrThrow(PropertiesStore.forFile(directory.resolve("digests.properties")));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.ProvisioningResult;
+import com.rapid7.appspider.datatransferobjects.ScanConfigManifestEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScanConfigManifestTest {
+
+    @Test
+    void parseSkipsHeaderCommentsAndBlankLines() {
+        List<ScanConfigManifestEntry> entries = ScanConfigManifest.parse(
+            "name,url,engineGroup\n# staging sites\n\nshop,https://shop.example.com,east\r\nblog,https://blog.example.com\n", "default");
+
+        assertEquals(2, entries.size());
+        assertEquals(4, entries.get(0).getLineNumber());
+        assertEquals("shop", entries.get(0).getName());
+        assertEquals("https://shop.example.com", entries.get(0).getUrl());
+        assertEquals("east", entries.get(0).getEngineGroupName());
+        assertEquals(5, entries.get(1).getLineNumber());
+        assertEquals("default", entries.get(1).getEngineGroupName());
+    }
+
+    @Test
+    void parseUnquotesValuesContainingCommas() {
+        ScanConfigManifestEntry entry = ScanConfigManifest.parse(
+            "\"shop, \"\"beta\"\"\",https://shop.example.com/?a=1,\"east, primary\"", null).get(0);
+
+        assertEquals("shop, \"beta\"", entry.getName());
+        assertEquals("east, primary", entry.getEngineGroupName());
+    }
+
+    @Test
+    void parseRejectsMalformedLines() {
+        assertLineRejected("shop\n", "line 1: expected name,url[,engine group name]");
+        assertLineRejected("shop,https://shop.example.com,east,extra\n", "line 1: expected name,url[,engine group name]");
+        assertLineRejected("# sites\n,https://shop.example.com,east\n", "line 2: name and url cannot be empty");
+        assertLineRejected("\"shop,https://shop.example.com,east\n", "line 1: unterminated quoted value");
+        assertLineRejected("shop,https://shop.example.com\n", "line 1: no engine group given and no default provided");
+    }
+
+    @Test
+    void parseRejectsRepeatedNamesIgnoringCase() {
+        assertLineRejected("shop,https://shop.example.com,east\nblog,https://blog.example.com,east\nSHOP,https://shop2.example.com,west\n",
+            "line 3: SHOP was already given on line 1");
+    }
+
+    @Test
+    void parseLeavesUrlsToBeValidatedWhenSaved() {
+        assertEquals("not a url", ScanConfigManifest.parse("shop,not a url,east", null).get(0).getUrl());
+    }
+
+    @Test
+    void toResultsCsvQuotesValuesAndReportsOutcome() {
+        List<ScanConfigManifestEntry> entries = ScanConfigManifest.parse(
+            "shop,https://shop.example.com,east\n\"blog, beta\",https://blog.example.com,west", null);
+        String csv = ScanConfigManifest.toResultsCsv(List.of(
+            new ProvisioningResult(entries.get(0), true, "saved", 120),
+            new ProvisioningResult(entries.get(1), false, "invalid url: no \"protocol\"", 0)));
+
+        assertEquals("name,url,engineGroup,result,message,elapsedMillis\n"
+            + "shop,https://shop.example.com,east,SAVED,saved,120\n"
+            + "\"blog, beta\",https://blog.example.com,west,FAILED,\"invalid url: no \"\"protocol\"\"\",0\n", csv);
+    }
+
+    @Test
+    void nullArgumentsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ScanConfigManifest.parse(null, "default"));
+        assertThrows(IllegalArgumentException.class, () -> ScanConfigManifest.toResultsCsv(null));
+    }
+
+    private static void assertLineRejected(String content, String expectedMessage) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ScanConfigManifest.parse(content, null));
+        assertEquals(expectedMessage, e.getMessage());
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.ProvisioningResult;
+import com.rapid7.appspider.datatransferobjects.ScanConfigManifestEntry;
+import com.rapid7.appspider.models.AuthenticationModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ScanConfigProvisionerTest {
+
+    private static final AuthenticationModel AUTH_MODEL = new AuthenticationModel("user", "password");
+
+    private final StubEnterpriseClient client = new StubEnterpriseClient();
+    private final LoggerFacade log = mock(LoggerFacade.class);
+
+    @Test
+    void eachFailureIsReportedOnItsOwnRow() throws InterruptedException {
+        client.engineGroupIdsByName = Map.of("east", "east-id");
+        client.rejectedSaves.add("rejected");
+        client.failingSaves.add("failing");
+        List<ScanConfigManifestEntry> entries = ScanConfigManifest.parse(
+            "saved,https://saved.example.com\n"
+                + "unknown-group,https://unknown.example.com,west\n"
+                + "bad-url,not a url\n"
+                + "rejected,https://rejected.example.com\n"
+                + "failing,https://failing.example.com\n", "east");
+
+        List<ProvisioningResult> results = provisioner(2, 0).provision(AUTH_MODEL, entries);
+
+        assertEquals(entries, results.stream().map(ProvisioningResult::getEntry).collect(Collectors.toList()));
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("no engine group matching west was found", results.get(1).getMessage());
+        assertTrue(results.get(2).getMessage().startsWith("invalid url: "));
+        assertEquals("save was not successful", results.get(3).getMessage());
+        assertTrue(results.get(4).getMessage().startsWith("unexpected error: "));
+        assertEquals(1, results.stream().filter(ProvisioningResult::isSuccess).count());
+        // the rejected save is retried once after logging in again
+        assertEquals(4, client.count("saveConfig"));
+        assertEquals(2, client.count("login"));
+    }
+
+    @Test
+    void everyRowFailsWhenEngineGroupsAreUnavailable() throws InterruptedException {
+        client.engineGroupIdsByName = null;
+
+        List<ProvisioningResult> results = provisioner(2, 0).provision(AUTH_MODEL, entries(3));
+
+        assertEquals(3, results.size());
+        assertTrue(results.stream().noneMatch(ProvisioningResult::isSuccess));
+        assertTrue(results.stream().allMatch(result -> result.getMessage().equals("engine groups unavailable")));
+        assertEquals(0, client.count("saveConfig"));
+    }
+
+    @Test
+    void savesInFlightAreLimitedToMaxConcurrency() throws InterruptedException {
+        client.saveLatencyMillis = 50;
+
+        List<ProvisioningResult> results = provisioner(3, 0).provision(AUTH_MODEL, entries(12));
+
+        assertTrue(results.stream().allMatch(ProvisioningResult::isSuccess));
+        assertEquals(3, client.maxSavesInFlight.get());
+    }
+
+    @Test
+    void savesArePacedToMaxSavesPerSecond() throws InterruptedException {
+        List<ProvisioningResult> results = provisioner(5, 20).provision(AUTH_MODEL, entries(5));
+
+        assertTrue(results.stream().allMatch(ProvisioningResult::isSuccess));
+        List<Long> started = new ArrayList<>(client.saveStartedNanos);
+        Collections.sort(started);
+        for (int i = 1; i < started.size(); i++) {
+            long gapMillis = TimeUnit.NANOSECONDS.toMillis(started.get(i) - started.get(i - 1));
+            assertTrue(gapMillis >= 40, "saves " + i + " and " + (i + 1) + " started " + gapMillis + " ms apart");
+        }
+    }
+
+    @Test
+    void expiredSessionIsRenewedOnceForAllSavesThatFailedWithIt() throws InterruptedException {
+        client.savesPerToken = 4;
+        client.saveLatencyMillis = 10;
+
+        List<ProvisioningResult> results = provisioner(2, 0).provision(AUTH_MODEL, entries(10));
+
+        assertTrue(results.stream().allMatch(ProvisioningResult::isSuccess), results.toString());
+        assertTrue(client.count("login") <= 5, client.count("login") + " logins");
+        assertTrue(client.count("login") >= 3, client.count("login") + " logins");
+    }
+
+    @Test
+    void everyRowFailsWhenLoginFails() throws InterruptedException {
+        ScanConfigProvisioner provisioner = ScanConfigProvisioner.createInstanceOrThrow(new StubEnterpriseClient() {
+            @Override
+            public Optional<String> login(AuthenticationModel authModel) {
+                return Optional.empty();
+            }
+        }, log, 2, 0);
+
+        List<ProvisioningResult> results = provisioner.provision(AUTH_MODEL, entries(2));
+
+        assertTrue(results.stream().allMatch(result -> result.getMessage().equals("unauthorized")));
+    }
+
+    @Test
+    void emptyManifestMakesNoRequests() throws InterruptedException {
+        assertTrue(provisioner(2, 0).provision(AUTH_MODEL, List.of()).isEmpty());
+        assertTrue(client.calls.isEmpty());
+    }
+
+    @Test
+    void createInstanceOrThrowRejectsInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> ScanConfigProvisioner.createInstanceOrThrow(client, log, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> ScanConfigProvisioner.createInstanceOrThrow(client, log, 1, -1));
+    }
+
+    private ScanConfigProvisioner provisioner(int maxConcurrency, double maxSavesPerSecond) {
+        return ScanConfigProvisioner.createInstanceOrThrow(client, log, maxConcurrency, maxSavesPerSecond);
+    }
+
+    private static List<ScanConfigManifestEntry> entries(int count) {
+        StringBuilder manifest = new StringBuilder();
+        for (int i = 0; i < count; i++)
+            manifest.append("config-").append(i).append(",https://site").append(i).append(".example.com\n");
+        return ScanConfigManifest.parse(manifest.toString(), "group");
+    }
+}
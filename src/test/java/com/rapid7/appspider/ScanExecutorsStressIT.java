@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.models.AuthenticationModel;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * runs against the multi-release jar on Java 21+, see the jdk21 profile in pom.xml
+ */
+class ScanExecutorsStressIT {
+
+    private static final int SCANS = 1000;
+    private static final int MAX_ADDITIONAL_PLATFORM_THREADS = 64;
+    private static final long BUILD_STACK_SIZE = 256 * 1024;
+    private static final AuthenticationModel AUTH_MODEL = new AuthenticationModel("user", "password");
+
+    @Test
+    void thousandConcurrentScansAddBoundedNumberOfPlatformThreadsToTheirBuilds() throws Exception {
+        assumeTrue(ScanExecutors.isUsingVirtualThreads(), "virtual threads require Java 21 or later");
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int platformThreadsBefore = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+
+        StubEnterpriseClient client = new StubEnterpriseClient();
+        client.scanRelease = new CountDownLatch(1);
+        CountDownLatch allStarted = new CountDownLatch(SCANS);
+        ScanSettings settings = new ScanSettings("config", "", true, true, "", "", "").withStatusPollTime(1);
+        // each build waits for its scan on a platform thread of its own, as on a Jenkins executor
+        List<FutureTask<Boolean>> scans = new ArrayList<>();
+        List<Thread> builds = new ArrayList<>();
+        try {
+            for (int i = 0; i < SCANS; i++) {
+                DastScan scan = DastScan.createInstanceOrThrow(client, settings, mock(LoggerFacade.class))
+                    .withProgressListener((scanId, phase) -> {
+                        if (phase == ScanPhase.STARTED)
+                            allStarted.countDown();
+                    });
+                FutureTask<Boolean> result = new FutureTask<>(() -> scan.process(AUTH_MODEL));
+                Thread build = new Thread(null, result, "stress-build-" + i, BUILD_STACK_SIZE);
+                build.setDaemon(true);
+                build.start();
+                scans.add(result);
+                builds.add(build);
+            }
+            // every scan must be waiting at the same time for any of them to complete
+            assertTrue(allStarted.await(60, TimeUnit.SECONDS), "scans were not all running concurrently");
+            client.scanRelease.countDown();
+            for (FutureTask<Boolean> scan : scans)
+                assertTrue(scan.get(60, TimeUnit.SECONDS));
+        } finally {
+            builds.forEach(Thread::interrupt);
+        }
+
+        assertEquals(SCANS, client.count("runScan"));
+        assertTrue(client.count("getScanStatus") >= 2L * SCANS);
+        // the build threads themselves are not saved, only the lookups are moved off them
+        int additionalPlatformThreads = threads.getPeakThreadCount() - platformThreadsBefore - SCANS;
+        assertTrue(additionalPlatformThreads <= MAX_ADDITIONAL_PLATFORM_THREADS,
+            String.format("%d scans used %d platform threads besides their builds", SCANS, additionalPlatformThreads));
+    }
+
+    @Test
+    void boundedExecutorLimitsConcurrency() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExecutorService executor = ScanExecutors.newBoundedExecutor("stress-bounded", 4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                tasks.add(executor.submit(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    TimeUnit.MILLISECONDS.sleep(5);
+                    running.decrementAndGet();
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks)
+                task.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(maxRunning.get() <= 4);
+    }
+}
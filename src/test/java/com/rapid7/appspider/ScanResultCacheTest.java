@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.CompletedScan;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScanResultCacheTest {
+
+    private static final Instant NOW = Instant.parse("2021-06-01T12:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findCompletedReturnsScanWithinMaxAge() throws IOException {
+        String key = uniqueKey();
+        createCache(NOW.minus(Duration.ofHours(2))).recordCompleted(key, "scan-1");
+
+        Optional<CompletedScan> completed = createCache(NOW).findCompleted(key, Duration.ofHours(3));
+
+        assertTrue(completed.isPresent());
+        assertEquals("scan-1", completed.get().getScanId());
+        assertEquals(NOW.minus(Duration.ofHours(2)), completed.get().getCompletedAt());
+    }
+
+    @Test
+    void findCompletedEmptyWhenOlderThanMaxAge() throws IOException {
+        String key = uniqueKey();
+        createCache(NOW.minus(Duration.ofHours(2))).recordCompleted(key, "scan-1");
+
+        assertFalse(createCache(NOW).findCompleted(key, Duration.ofHours(1)).isPresent());
+    }
+
+    @Test
+    void findCompletedEmptyForDifferentFingerprint() throws IOException {
+        ScanResultCache cache = createCache(NOW);
+        cache.recordCompleted(ScanResultCache.keyFor("server", "config", "url", "digest", "abc"), "scan-1");
+
+        assertFalse(cache.findCompleted(ScanResultCache.keyFor("server", "config", "url", "digest", "def"), Duration.ofHours(1)).isPresent());
+    }
+
+    @Test
+    void secondClaimJoinsOwnerAndReceivesScanId() throws InterruptedException {
+        ScanResultCache cache = createCache(NOW);
+        String key = uniqueKey();
+
+        try (ScanResultCache.Claim owner = cache.claimOrJoin(key);
+             ScanResultCache.Claim joiner = cache.claimOrJoin(key)) {
+            assertTrue(owner.isOwner());
+            assertFalse(joiner.isOwner());
+
+            owner.started("scan-1");
+
+            assertEquals(Optional.of("scan-1"), joiner.awaitScanId());
+        }
+    }
+
+    @Test
+    void joinerReceivesEmptyWhenOwnerClosesWithoutStarting() throws InterruptedException {
+        ScanResultCache cache = createCache(NOW);
+        String key = uniqueKey();
+        ScanResultCache.Claim owner = cache.claimOrJoin(key);
+        ScanResultCache.Claim joiner = cache.claimOrJoin(key);
+
+        owner.close();
+
+        assertEquals(Optional.empty(), joiner.awaitScanId());
+        try (ScanResultCache.Claim next = cache.claimOrJoin(key)) {
+            assertTrue(next.isOwner());
+        }
+    }
+
+    private ScanResultCache createCache(Instant now) {
+        return ScanResultCache.createInstanceOrThrow(PropertiesStore.forFile(directory.resolve("results.properties")),
+            Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private static String uniqueKey() {
+        // claims are shared JVM wide so each test uses its own key
+        return ScanResultCache.keyFor("server", "config", "url", "digest", UUID.randomUUID().toString());
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ServerGuardTest {
+
+    private final String server = UUID.randomUUID() + ".example.com";
+    private final ServerGuardSettings settings = new ServerGuardSettings(4, 50, 5, 30);
+    private final ServerGuard guard = ServerGuard.forServer(server, settings);
+    private final LoggerFacade log = mock(LoggerFacade.class);
+
+    @Test
+    void describeReportsClosedCircuitAndFreeSlots() throws IOException {
+        guard.execute(() -> new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK"), log);
+
+        assertTrue(guard.describe().startsWith("circuit CLOSED (0 transitions, 0 requests rejected), 0 of 4 requests in flight (0 rejected waiting for a slot)"),
+            guard.describe());
+    }
+
+    @Test
+    void describeReportsTransitionsAndRejectedRequests() {
+        for (int i = 0; i < settings.getMinimumRequests(); i++)
+            assertThrows(IOException.class, () -> guard.execute(() -> { throw new IOException("connection reset"); }, log));
+        assertThrows(ServerUnavailableException.class, () -> guard.execute(() -> new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK"), log));
+
+        assertTrue(guard.describe().startsWith("circuit OPEN (1 transitions, 1 requests rejected), 0 of 4 requests in flight"), guard.describe());
+    }
+
+    @Test
+    void findReturnsSharedGuard() {
+        assertSame(guard, ServerGuard.find(server).orElseThrow());
+        assertTrue(ServerGuard.find(UUID.randomUUID() + ".example.com").isEmpty());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.SeveritySummary;
+import com.rapid7.appspider.datatransferobjects.TrendRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeverityTrendStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readLatestReturnsEmptyWhenNothingRecorded() throws IOException {
+        assertTrue(SeverityTrendStore.forFile(directory.resolve("trend.bin")).readLatest(10).isEmpty());
+    }
+
+    @Test
+    void appendedRecordsAreReadBackOldestFirst() throws IOException {
+        SeverityTrendStore store = SeverityTrendStore.forFile(directory.resolve("trend.bin"));
+        store.append(1, Instant.ofEpochMilli(1000), 60_000, summary(Map.of(Severity.HIGH, 2), Map.of("XSS", 2)));
+        store.append(2, Instant.ofEpochMilli(2000), -1, summary(Map.of(Severity.LOW, 1, Severity.HIGH, 1), Map.of("SQL Injection", 1, "XSS", 1)));
+
+        List<TrendRecord> records = store.readLatest(10);
+
+        assertEquals(2, records.size());
+        assertEquals(1, records.get(0).getBuildNumber());
+        assertEquals(Instant.ofEpochMilli(1000), records.get(0).getRecordedAt());
+        assertEquals(60_000, records.get(0).getScanDurationMillis());
+        assertEquals(2, records.get(0).getCount(Severity.HIGH));
+        assertEquals(Map.of("XSS", 2), records.get(0).getCategoryCounts());
+        assertEquals(2, records.get(1).getTotal());
+        assertEquals(Map.of("SQL Injection", 1, "XSS", 1), records.get(1).getCategoryCounts());
+    }
+
+    @Test
+    void readLatestReadsOnlyTheMostRecentRecords() throws IOException {
+        SeverityTrendStore store = SeverityTrendStore.forFile(directory.resolve("trend.bin"));
+        for (int build = 1; build <= 20; build++)
+            store.append(build, Instant.now(), -1, summary(Map.of(Severity.MEDIUM, build), Map.of()));
+
+        List<TrendRecord> records = store.readLatest(5);
+
+        assertEquals(5, records.size());
+        assertEquals(16, records.get(0).getBuildNumber());
+        assertEquals(20, records.get(4).getCount(Severity.MEDIUM));
+        assertEquals(8 + 20L * SeverityTrendStore.RECORD_BYTES, Files.size(directory.resolve("trend.bin")));
+    }
+
+    @Test
+    void leastFrequentCategoriesAreCountedTogether() throws IOException {
+        SeverityTrendStore store = SeverityTrendStore.forFile(directory.resolve("trend.bin"));
+        Map<String, Integer> categories = new HashMap<>();
+        for (int i = 0; i < SeverityTrendStore.MAX_CATEGORIES + 2; i++)
+            categories.put("category" + i, i + 1);
+
+        store.append(1, Instant.now(), -1, summary(Map.of(), categories));
+        TrendRecord record = store.readLatest(1).get(0);
+
+        assertEquals(SeverityTrendStore.MAX_CATEGORIES, record.getCategoryCounts().size());
+        assertFalse(record.getCategoryCounts().containsKey("category0"));
+        assertEquals(1 + 2, record.getOtherCategoriesCount());
+    }
+
+    @Test
+    void appendDropsIncompleteTrailingRecord() throws IOException {
+        Path file = directory.resolve("trend.bin");
+        SeverityTrendStore store = SeverityTrendStore.forFile(file);
+        store.append(1, Instant.now(), -1, summary(Map.of(Severity.LOW, 1), Map.of()));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10);
+        }
+
+        store.append(2, Instant.now(), -1, summary(Map.of(Severity.LOW, 2), Map.of()));
+
+        List<TrendRecord> records = store.readLatest(10);
+        assertEquals(1, records.size());
+        assertEquals(2, records.get(0).getBuildNumber());
+    }
+
+    @Test
+    void readLatestRejectsFilesWhichAreNotTrendFiles() throws IOException {
+        Path file = directory.resolve("other.bin");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IOException.class, () -> SeverityTrendStore.forFile(file).readLatest(10));
+    }
+
+    private static SeveritySummary summary(Map<Severity, Integer> severities, Map<String, Integer> categories) {
+        return new SeveritySummary(severities, categories);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.protocol.HTTP;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingFormEntityTest {
+
+    @Test
+    void writeToMatchesUrlEncodedFormEntityForSimpleValues() throws IOException {
+        List<NameValuePair> pairs = Arrays.asList(
+            new BasicNameValuePair("name", "config-name_1.0"),
+            new BasicNameValuePair("id", "null"),
+            new BasicNameValuePair("url", "https://www.webscantest.com/path?a=1&b=two words*"));
+
+        assertArrayEquals(expectedBytes(pairs, HTTP.DEF_CONTENT_CHARSET), actualBytes(pairs, HTTP.DEF_CONTENT_CHARSET));
+    }
+
+    @Test
+    void writeToMatchesUrlEncodedFormEntityForValuesLargerThanBuffers() throws IOException {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?>\n<ScanConfig>");
+        for (int i = 0; i < 20000; i++) {
+            xml.append("<Item id=\"").append(i).append("\">value & more</Item>\n");
+        }
+        xml.append("</ScanConfig>");
+        List<NameValuePair> pairs = Arrays.asList(
+            new BasicNameValuePair("name", "large"),
+            new BasicNameValuePair("scanconfigxml", xml.toString()));
+
+        assertArrayEquals(expectedBytes(pairs, HTTP.DEF_CONTENT_CHARSET), actualBytes(pairs, HTTP.DEF_CONTENT_CHARSET));
+    }
+
+    @Test
+    void writeToMatchesUrlEncodedFormEntityForMultiByteCharacters() throws IOException {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            // surrogate pairs will straddle the internal character buffer boundary
+            value.append("é😀ü");
+        }
+        List<NameValuePair> pairs = Arrays.asList(
+            new BasicNameValuePair("name", "unicode"),
+            new BasicNameValuePair("value", value.toString()));
+
+        assertArrayEquals(expectedBytes(pairs, StandardCharsets.UTF_8), actualBytes(pairs, StandardCharsets.UTF_8));
+        assertArrayEquals(expectedBytes(pairs, HTTP.DEF_CONTENT_CHARSET), actualBytes(pairs, HTTP.DEF_CONTENT_CHARSET));
+    }
+
+    @Test
+    void entityIsChunkedAndRepeatable() throws IOException {
+        StreamingFormEntity entity = new StreamingFormEntity(StandardCharsets.UTF_8)
+            .addField("value", writer -> writer.write("repeat me"));
+
+        assertTrue(entity.isChunked());
+        assertTrue(entity.isRepeatable());
+        assertEquals(-1, entity.getContentLength());
+        assertArrayEquals(writeEntity(entity), writeEntity(entity));
+    }
+
+    @Test
+    void addFieldThrowsIllegalArgumentExceptionWhenNameIsEmpty() {
+        StreamingFormEntity entity = new StreamingFormEntity(StandardCharsets.UTF_8);
+        assertThrows(IllegalArgumentException.class, () -> entity.addField("", writer -> writer.write("value")));
+    }
+
+    private static byte[] expectedBytes(List<NameValuePair> pairs, Charset charset) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new UrlEncodedFormEntity(pairs, charset).writeTo(output);
+        return output.toByteArray();
+    }
+
+    private static byte[] actualBytes(List<NameValuePair> pairs, Charset charset) throws IOException {
+        StreamingFormEntity entity = new StreamingFormEntity(charset);
+        for (NameValuePair pair : pairs) {
+            // write in small uneven pieces to exercise the writer's buffering
+            entity.addField(pair.getName(), writer -> {
+                String value = pair.getValue();
+                for (int offset = 0; offset < value.length(); offset += 7) {
+                    writer.write(value, offset, Math.min(7, value.length() - offset));
+                }
+            });
+        }
+        return writeEntity(entity);
+    }
+
+    private static byte[] writeEntity(StreamingFormEntity entity) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        entity.writeTo(output);
+        return output.toByteArray();
+    }
+}
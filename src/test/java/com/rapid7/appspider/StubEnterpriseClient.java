@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.ClientIdNamePair;
+import com.rapid7.appspider.datatransferobjects.ScanConfigReference;
+import com.rapid7.appspider.datatransferobjects.ScanResult;
+import com.rapid7.appspider.models.AuthenticationModel;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * in memory {@link EnterpriseClient} recording the calls made to it, safe for concurrent use
+ *
+ * <p>
+ * Scans it starts report Running until {@link #scanRelease} is counted down, then the next of
+ * {@link #scanOutcomes}, Completed once they run out. Cancelled scans report Cancelled.
+ * </p>
+ */
+class StubEnterpriseClient implements EnterpriseClient {
+
+    private final String url = "https://" + UUID.randomUUID() + ".example.com/AppSpiderEnterprise/rest/v1";
+    private final AtomicInteger savesInFlight = new AtomicInteger();
+
+    final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+    final List<Long> saveStartedNanos = Collections.synchronizedList(new ArrayList<>());
+    final AtomicInteger maxSavesInFlight = new AtomicInteger();
+    final Set<String> rejectedSaves = ConcurrentHashMap.newKeySet();
+    final Set<String> failingSaves = ConcurrentHashMap.newKeySet();
+    volatile Map<String, String> engineGroupIdsByName = Map.of("group", "group-id");
+    volatile long saveLatencyMillis;
+    // 0 for sessions which never expire, otherwise each login issues a new token valid for this many saves
+    volatile int savesPerToken;
+    private final AtomicInteger logins = new AtomicInteger();
+    private final Map<String, AtomicInteger> savesByToken = new ConcurrentHashMap<>();
+    final Queue<String> scanOutcomes = new ConcurrentLinkedQueue<>();
+    final Map<String, String> outcomesByScanId = new ConcurrentHashMap<>();
+    final Set<String> cancelledScanIds = ConcurrentHashMap.newKeySet();
+    volatile CountDownLatch scanRelease = new CountDownLatch(0);
+    volatile boolean isCancelAccepted = true;
+
+    private <T> T respond(String call, T value) {
+        calls.add(call);
+        return value;
+    }
+
+    long count(String call) {
+        synchronized (calls) {
+            return calls.stream().filter(call::equals).count();
+        }
+    }
+
+    @Override
+    public String getUrl() {
+        return url;
+    }
+
+    @Override
+    public Optional<String> login(AuthenticationModel authModel) {
+        return respond("login", Optional.of(savesPerToken > 0 ? "token-" + logins.incrementAndGet() : "token"));
+    }
+
+    @Override
+    public boolean testAuthentication(AuthenticationModel authModel) {
+        return login(authModel).isPresent();
+    }
+
+    @Override
+    public Optional<String[]> getEngineGroupNamesForClient(String authToken) {
+        return respond("getEngineGroupNamesForClient", Optional.of(engineGroupIdsByName.keySet().toArray(new String[0])));
+    }
+
+    @Override
+    public Optional<String> getEngineGroupIdFromName(String authToken, String engineGroupName) {
+        return respond("getEngineGroupIdFromName", Optional.ofNullable(engineGroupIdsByName.get(engineGroupName)));
+    }
+
+    @Override
+    public Optional<Map<String, String>> getEngineGroupIdsByName(String authToken) {
+        return respond("getEngineGroupIdsByName", Optional.ofNullable(engineGroupIdsByName));
+    }
+
+    @Override
+    public ScanResult runScanByConfigName(String authToken, String configName) {
+        return runScanByConfigId(authToken, configName + "-id");
+    }
+
+    @Override
+    public ScanResult runScanByConfigId(String authToken, String configId) {
+        String scanId = UUID.randomUUID().toString();
+        String outcome = scanOutcomes.poll();
+        outcomesByScanId.put(scanId, Objects.isNull(outcome) ? "Completed" : outcome);
+        return respond("runScan", new ScanResult(true, scanId));
+    }
+
+    @Override
+    public boolean cancelScan(String authToken, String scanId) {
+        if (isCancelAccepted)
+            cancelledScanIds.add(scanId);
+        return respond("cancelScan", isCancelAccepted);
+    }
+
+    @Override
+    public Optional<String> getScanStatus(String authToken, String scanId) {
+        String outcome = outcomesByScanId.get(scanId);
+        if (Objects.isNull(outcome))
+            return respond("getScanStatus", Optional.empty());
+        if (cancelledScanIds.contains(scanId))
+            return respond("getScanStatus", Optional.of("Cancelled"));
+        return respond("getScanStatus", Optional.of(scanRelease.getCount() > 0 ? "Running" : outcome));
+    }
+
+    @Override
+    public boolean isScanFinished(String authToken, String scanId) {
+        return respond("isScanFinished", true);
+    }
+
+    @Override
+    public boolean hasReport(String authToken, String scanId) {
+        return respond("hasReport", true);
+    }
+
+    @Override
+    public Optional<String[]> getConfigNames(String authToken) {
+        return respond("getConfigNames", Optional.of(new String[] {"config"}));
+    }
+
+    @Override
+    public Optional<String> getEngineGroupIdForConfig(String authToken, String configName) {
+        return respond("getEngineGroupIdForConfig", Optional.of("group-id"));
+    }
+
+    @Override
+    public Optional<ScanConfigReference> getScanConfigReference(String authToken, String configName) {
+        return respond("getScanConfigReference", Optional.of(new ScanConfigReference(configName + "-id", Optional.of("group-id"))));
+    }
+
+    @Override
+    public boolean saveConfig(String authToken, String name, URL url, String engineGroupId) {
+        calls.add("saveConfig");
+        saveStartedNanos.add(System.nanoTime());
+        maxSavesInFlight.accumulateAndGet(savesInFlight.incrementAndGet(), Math::max);
+        try {
+            TimeUnit.MILLISECONDS.sleep(saveLatencyMillis);
+            if (failingSaves.contains(name))
+                throw new IllegalStateException("connection reset");
+            if (savesPerToken > 0 && savesByToken.computeIfAbsent(authToken, token -> new AtomicInteger()).incrementAndGet() > savesPerToken)
+                return false;
+            return !rejectedSaves.contains(name);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            savesInFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public Optional<String> getScanConfigDigest(String name, URL url, String engineGroupId) {
+        return Optional.of(name + ":" + url + ":" + engineGroupId);
+    }
+
+    @Override
+    public Optional<String> getVulnerabilitiesSummaryXml(String authToken, String scanId) {
+        return respond("getVulnerabilitiesSummaryXml", Optional.empty());
+    }
+
+    @Override
+    public Optional<InputStream> getReportZip(String authToken, String scanId) {
+        return respond("getReportZip", Optional.empty());
+    }
+
+    @Override
+    public Optional<List<ClientIdNamePair>> getClientNameIdPairs(String authToken) {
+        return respond("getClientNameIdPairs", Optional.of(List.of()));
+    }
+}
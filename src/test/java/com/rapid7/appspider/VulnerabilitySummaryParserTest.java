@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.appspider;
+
+import com.rapid7.appspider.datatransferobjects.SeveritySummary;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VulnerabilitySummaryParserTest {
+
+    @Test
+    void parseCountsFindingsBySeverityAndCategory() throws IOException {
+        String xml = "<VulnSummary><Vuln><VulnType>XSS</VulnType><AttackScore>4-High</AttackScore></Vuln>"
+            + "<Vuln><VulnType>XSS</VulnType><AttackScore>2-Low</AttackScore></Vuln>"
+            + "<Vuln><AttackScore>Critical</AttackScore></Vuln></VulnSummary>";
+
+        SeveritySummary summary = VulnerabilitySummaryParser.parse(new StringReader(xml));
+
+        assertEquals(3, summary.getTotal());
+        assertEquals(1, summary.getCount(Severity.HIGH));
+        assertEquals(1, summary.getCount(Severity.LOW));
+        assertEquals(1, summary.getCount(Severity.CRITICAL));
+        assertEquals(Map.of("XSS", 2, "Uncategorized", 1), summary.getCategoryCounts());
+    }
+
+    @Test
+    void parseRejectsMalformedXml() {
+        assertThrows(IOException.class, () -> VulnerabilitySummaryParser.parse(new StringReader("<VulnSummary><Vuln>")));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2003 - 2021 Rapid7, Inc.  All rights reserved.
+ */
+
+package com.rapid7.jenkinspider;
+
+import com.rapid7.appspider.ScanPhase;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScanRunActionTest {
+
+    private static final String SERVER = "https://appspider.example.com/AppSpiderEnterprise/rest/v1";
+    private static final String CONFIG_NAME = "config";
+
+    @Test
+    void runningAndCompletedScansAreResumable() throws IOException {
+        assertTrue(actionIn(ScanPhase.STARTED).isResumableBy(SERVER, CONFIG_NAME));
+        assertTrue(actionIn(ScanPhase.COMPLETED).isResumableBy(SERVER, CONFIG_NAME));
+    }
+
+    @Test
+    void savedAndCancelledScansAreNotResumable() throws IOException {
+        assertFalse(actionIn(ScanPhase.REPORT_SAVED).isResumableBy(SERVER, CONFIG_NAME));
+        assertFalse(actionIn(ScanPhase.CANCELLED).isResumableBy(SERVER, CONFIG_NAME));
+    }
+
+    @Test
+    void finishedBuildsAreNotResumable() throws IOException {
+        ScanRunAction action = actionIn(ScanPhase.STARTED);
+
+        action.finish();
+
+        assertFalse(action.isResumableBy(SERVER, CONFIG_NAME));
+    }
+
+    @Test
+    void buildWithoutScanIsNotResumable() {
+        assertFalse(new ScanRunAction(SERVER, CONFIG_NAME).isResumableBy(SERVER, CONFIG_NAME));
+    }
+
+    @Test
+    void scansOfOtherServersOrConfigsAreNotResumable() throws IOException {
+        ScanRunAction action = actionIn(ScanPhase.STARTED);
+
+        assertFalse(action.isResumableBy("https://other.example.com/AppSpiderEnterprise/rest/v1", CONFIG_NAME));
+        assertFalse(action.isResumableBy(SERVER, "other-config"));
+    }
+
+    private static ScanRunAction actionIn(ScanPhase phase) throws IOException {
+        ScanRunAction action = new ScanRunAction(SERVER, CONFIG_NAME);
+        action.update("scan-1", ScanPhase.STARTED);
+        action.update("scan-1", phase);
+        return action;
+    }
+}